@@ -0,0 +1,58 @@
+package com.zemnitskiy.httpratelimiter.benchmark;
+
+import java.util.Arrays;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar.
+ *
+ * <p>Runs the selected benchmarks once per thread count with the GC profiler attached, so every
+ * result row carries throughput, sampled latency percentiles (p99 included) and
+ * {@code gc.alloc.rate.norm}, the bytes allocated per operation. Results are written to
+ * {@code jmh-result-<threads>t.json}.
+ *
+ * <p>Usage: {@code java -jar benchmarks/target/benchmarks.jar [threads] [jmh options]}, where
+ * {@code threads} is a comma-separated list (default {@code 1,4,16}) and the remaining arguments
+ * are regular JMH command line options, for example {@code -p strategy=fixedWindow}.
+ */
+public final class BenchmarkRunner {
+
+  private static final String DEFAULT_THREADS = "1,4,16";
+
+  private BenchmarkRunner() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    String threads = DEFAULT_THREADS;
+    String[] jmhArgs = args;
+    if (args.length > 0 && args[0].matches("\\d+(,\\d+)*")) {
+      threads = args[0];
+      jmhArgs = Arrays.copyOfRange(args, 1, args.length);
+    }
+    CommandLineOptions commandLine = new CommandLineOptions(jmhArgs);
+    for (String threadCount : threads.split(",")) {
+      run(commandLine, Integer.parseInt(threadCount));
+    }
+  }
+
+  private static void run(CommandLineOptions commandLine, int threads) throws RunnerException {
+    OptionsBuilder builder = new OptionsBuilder();
+    if (commandLine.getIncludes().isEmpty()) {
+      builder.include(RateLimiterBenchmark.class.getSimpleName());
+    }
+    Options options = builder
+        .parent(commandLine)
+        .threads(threads)
+        .addProfiler(GCProfiler.class)
+        .resultFormat(ResultFormatType.JSON)
+        .result("jmh-result-" + threads + "t.json")
+        .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,67 @@
+package com.zemnitskiy.httpratelimiter.benchmark;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * {@code InMemoryRedisTemplate} is a local stand-in for Redis used by the benchmarks. It evaluates
+ * the sliding log semantics of {@code rate_limiter.lua}, {@code rate_limiter_lease.lua} and
+ * {@code rate_limiter_release.lua} in process, so that the Redis strategies can be measured without
+ * a server. The scripts are told apart by their number of arguments.
+ *
+ * <p>The numbers it produces cover the limiter's own client-side cost (argument encoding, the
+ * retry-time cache, exception handling). Network and Redis server time are not included.
+ */
+public class InMemoryRedisTemplate extends RedisTemplate<String, String> {
+
+  private final ConcurrentMap<String, Deque<Long>> logs = new ConcurrentHashMap<>();
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+    Deque<Long> log = logs.computeIfAbsent(keys.getFirst(), _ -> new ArrayDeque<>());
+    synchronized (log) {
+      return (T) Long.valueOf(switch (args.length) {
+        case 2 -> acquire(log, args, 1) == 1 ? 0L : retryAfter(log, args);
+        case 3 -> release(log, args);
+        default -> {
+          long granted = acquire(log, args, Integer.parseInt((String) args[2]));
+          yield granted > 0 ? granted : -retryAfter(log, args);
+        }
+      });
+    }
+  }
+
+  private static long acquire(Deque<Long> log, Object[] args, int permits) {
+    int maxRequests = Integer.parseInt((String) args[0]);
+    long windowSize = Long.parseLong((String) args[1]);
+    long now = System.currentTimeMillis();
+    long windowStart = now - windowSize;
+    while (!log.isEmpty() && log.peekFirst() <= windowStart) {
+      log.pollFirst();
+    }
+    int granted = Math.min(permits, maxRequests - log.size());
+    for (int i = 0; i < granted; i++) {
+      log.addLast(now);
+    }
+    return Math.max(granted, 0);
+  }
+
+  private static long retryAfter(Deque<Long> log, Object[] args) {
+    return log.peekFirst() + Long.parseLong((String) args[1]) - System.currentTimeMillis();
+  }
+
+  private static long release(Deque<Long> log, Object[] args) {
+    // Permits are not named here; the newest entries stand in for the returned ones
+    long count = Long.parseLong((String) args[2]) - Long.parseLong((String) args[1]) + 1;
+    for (long i = 0; i < count && !log.isEmpty(); i++) {
+      log.pollLast();
+    }
+    return count;
+  }
+}
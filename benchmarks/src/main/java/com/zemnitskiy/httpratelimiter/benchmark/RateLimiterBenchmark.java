@@ -0,0 +1,237 @@
+package com.zemnitskiy.httpratelimiter.benchmark;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zemnitskiy.httpratelimiter.ratelimiter.fixedwindow.FixedWindowRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow.LeasedSlidingWindowRedisRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow.SlidingWindowRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow.SlidingWindowRedisRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindowcounter.SlidingWindowCounterRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.tokenbucket.TokenBucketRateLimiter;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStoreFactory;
+import com.zemnitskiy.httpratelimiter.strategy.BinaryKeyRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * JMH benchmark that drives every {@link RateLimiterStrategy} implementation through
+ * {@code allowRequest}, which throws on denial, and {@code tryAcquire}, which returns a decision.
+ *
+ * <p>Each operation picks a key uniformly from {@code keyCount} keys and sends it either to a
+ * limiter whose keys are all exhausted (the deny path) or to a limiter that still has quota for
+ * them (the allow path). {@code denyPercent} selects the share of operations that take the deny
+ * path. The allow-path limiter is replaced with a fresh one before its keys run out, which stands in
+ * for a window rollover. The {@code allowed} and {@code denied} counters report the ratio that was
+ * actually observed. {@code storage} selects the state store of the strategies that keep one
+ * packed word per key; the other strategies ignore it. {@code tryAcquireBinary} passes the same
+ * addresses as IPv4-mapped binary keys to the strategies that accept them.
+ *
+ * <p>Run through {@link BenchmarkRunner} to get throughput, sampled latency percentiles and the
+ * allocation rate per operation for several thread counts.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+  private static final Duration BASE_PERIOD = Duration.ofHours(1);
+
+  private static final Resource LUA_SCRIPT = new ByteArrayResource(
+      "return 0".getBytes(StandardCharsets.UTF_8));
+
+  @Param({"fixedWindow", "slidingWindow", "slidingWindowCounter", "tokenBucket",
+      "slidingWindowRedis", "leasedSlidingWindowRedis"})
+  public String strategy;
+
+  @Param({"caffeine", "striped"})
+  public String storage;
+
+  @Param({"1", "1024", "16384"})
+  public int keyCount;
+
+  @Param({"10", "1000"})
+  public int maxRequests;
+
+  @Param({"0", "50", "100"})
+  public int denyPercent;
+
+  private String[] keys;
+
+  private long[] binaryKeys;
+
+  private RateLimiterStrategy exhausted;
+
+  private volatile RateLimiterStrategy open;
+
+  private volatile int openGeneration;
+
+  private long openBudgetPerThread;
+
+  @Setup(Level.Trial)
+  public void setUp(BenchmarkParams params) {
+    keys = new String[keyCount];
+    binaryKeys = new long[keyCount];
+    for (int i = 0; i < keyCount; i++) {
+      keys[i] = "10.0." + (i >>> 8) + "." + (i & 0xFF);
+      binaryKeys[i] = 0xFFFF_0A00_0000L | i;
+    }
+    exhausted = newStrategy();
+    for (int k = 0; k < keyCount; k++) {
+      for (int i = 0; i < maxRequests; i++) {
+        exhausted.allowRequest(keys[k]);
+        if (exhausted instanceof BinaryKeyRateLimiterStrategy binary) {
+          binary.tryAcquire(0, binaryKeys[k]);
+        }
+      }
+    }
+    open = newStrategy();
+    // Stay well below keyCount * maxRequests so that random key choice rarely trips the limit
+    openBudgetPerThread = Math.max(1L, (long) keyCount * maxRequests / 2 / params.getThreads());
+  }
+
+  private RateLimiterStrategy newStrategy() {
+    return switch (strategy) {
+      case "fixedWindow" -> new FixedWindowRateLimiter(maxRequests, BASE_PERIOD,
+          Ticker.systemTicker(), storeFactory());
+      case "slidingWindow" -> new SlidingWindowRateLimiter(maxRequests, BASE_PERIOD);
+      case "slidingWindowCounter" -> new SlidingWindowCounterRateLimiter(maxRequests, BASE_PERIOD,
+          Ticker.systemTicker(), storeFactory());
+      case "tokenBucket" -> new TokenBucketRateLimiter(maxRequests, maxRequests, BASE_PERIOD,
+          Ticker.systemTicker(), storeFactory());
+      case "slidingWindowRedis" -> new SlidingWindowRedisRateLimiter(new InMemoryRedisTemplate(),
+          maxRequests, BASE_PERIOD, LUA_SCRIPT);
+      case "leasedSlidingWindowRedis" -> new LeasedSlidingWindowRedisRateLimiter(
+          new InMemoryRedisTemplate(), maxRequests, BASE_PERIOD, 10, Duration.ofSeconds(1),
+          LUA_SCRIPT, LUA_SCRIPT);
+      default -> throw new IllegalArgumentException("Unknown strategy: " + strategy);
+    };
+  }
+
+  private LongStateStoreFactory storeFactory() {
+    return "striped".equals(storage) ? LongStateStoreFactory.STRIPED
+        : LongStateStoreFactory.CAFFEINE;
+  }
+
+  private RateLimiterStrategy openStrategy(Cursor cursor) {
+    int generation = openGeneration;
+    if (cursor.generation != generation) {
+      cursor.generation = generation;
+      cursor.openIssued = 0;
+    }
+    if (++cursor.openIssued > openBudgetPerThread) {
+      synchronized (this) {
+        if (openGeneration == generation) {
+          open = newStrategy();
+          openGeneration = generation + 1;
+        }
+      }
+      cursor.generation = openGeneration;
+      cursor.openIssued = 1;
+    }
+    return open;
+  }
+
+  private RateLimiterStrategy pickStrategy(Cursor cursor) {
+    return cursor.nextInt(100) < denyPercent ? exhausted : openStrategy(cursor);
+  }
+
+  @Benchmark
+  public void allowRequest(Cursor cursor, Outcome outcome) {
+    String key = keys[cursor.nextInt(keyCount)];
+    RateLimiterStrategy limiter = pickStrategy(cursor);
+    try {
+      limiter.allowRequest(key);
+      outcome.allowed++;
+    } catch (RateLimitExceededException e) {
+      outcome.denied++;
+    }
+  }
+
+  @Benchmark
+  public RateLimitDecision tryAcquire(Cursor cursor, Outcome outcome) {
+    String key = keys[cursor.nextInt(keyCount)];
+    RateLimitDecision decision = pickStrategy(cursor).tryAcquire(key);
+    if (decision.allowed()) {
+      outcome.allowed++;
+    } else {
+      outcome.denied++;
+    }
+    return decision;
+  }
+
+  @Benchmark
+  public RateLimitDecision tryAcquireBinary(Cursor cursor, Outcome outcome) {
+    int index = cursor.nextInt(keyCount);
+    RateLimiterStrategy limiter = pickStrategy(cursor);
+    RateLimitDecision decision = limiter instanceof BinaryKeyRateLimiterStrategy binary
+        ? binary.tryAcquire(0, binaryKeys[index])
+        : limiter.tryAcquire(keys[index]);
+    if (decision.allowed()) {
+      outcome.allowed++;
+    } else {
+      outcome.denied++;
+    }
+    return decision;
+  }
+
+  /**
+   * Per-thread random source and bookkeeping for the allow-path limiter.
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private long seed = System.nanoTime() | 1L;
+
+    private int generation;
+
+    private long openIssued;
+
+    int nextInt(int bound) {
+      // xorshift64*, cheap enough not to dominate the measured operation
+      seed ^= seed >>> 12;
+      seed ^= seed << 25;
+      seed ^= seed >>> 27;
+      return (int) (((seed * 0x2545F4914F6CDD1DL) >>> 33) % bound);
+    }
+  }
+
+  /**
+   * Observed decisions, reported by JMH next to the primary metric.
+   */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Outcome {
+
+    public long allowed;
+
+    public long denied;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      allowed = 0;
+      denied = 0;
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package com.zemnitskiy.httpratelimiter.circuitbreaker;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code CircuitBreaker} class decides whether calls to a remote rate limiter are worth
+ * making, from the outcome of the calls made so far.
+ *
+ * <p>While closed, every call is made. Outcomes are counted in tumbling windows of
+ * {@code windowSize} calls, and the breaker opens as soon as the failures of a window reach
+ * {@code failureRateThreshold} of its size. While open, no call is made until
+ * {@code openDuration} has passed. The breaker is then half-open: a single probe call is made, and
+ * its outcome closes the breaker or opens it again.
+ *
+ * <p>The counts of a window are packed into one {@link AtomicLong}, so recording an outcome takes
+ * one atomic add and no lock.
+ */
+final class CircuitBreaker {
+
+  /**
+   * The states of the breaker. The ordinal is reported as a gauge.
+   */
+  enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  /**
+   * One call in the upper half of {@link #counts}. Failures are counted in the lower half.
+   */
+  private static final long CALL = 1L << 32;
+
+  private final int windowSize;
+
+  private final int failureLimit;
+
+  private final long openNanos;
+
+  private final Ticker ticker;
+
+  private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+  private final AtomicLong counts = new AtomicLong();
+
+  private final AtomicBoolean probing = new AtomicBoolean();
+
+  private volatile long openUntil;
+
+  private final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+  /**
+   * Creates a closed breaker.
+   *
+   * @param windowSize the number of calls per window
+   * @param failureRateThreshold the part of the calls of a window that have to fail to open the
+   * breaker, above {@code 0} and at most {@code 1}
+   * @param openDuration how long the breaker stays open before it probes
+   * @param ticker the time source, in nanoseconds
+   */
+  CircuitBreaker(int windowSize, double failureRateThreshold, Duration openDuration,
+      Ticker ticker) {
+    if (windowSize <= 0) {
+      throw new IllegalArgumentException("windowSize must be greater than 0");
+    }
+    if (!(failureRateThreshold > 0 && failureRateThreshold <= 1)) {
+      throw new IllegalArgumentException("failureRateThreshold must be above 0 and at most 1");
+    }
+    if (openDuration == null || openDuration.isNegative()) {
+      throw new IllegalArgumentException("openDuration must not be negative");
+    }
+    this.windowSize = windowSize;
+    this.failureLimit = (int) Math.ceil(windowSize * failureRateThreshold);
+    this.openNanos = openDuration.toNanos();
+    this.ticker = ticker;
+  }
+
+  /**
+   * Returns whether a call may be made now. A half-open breaker permits one probe at a time.
+   *
+   * @return {@code true} if the call may be made, in which case its outcome has to be reported
+   */
+  boolean tryAcquirePermission() {
+    State current = state.get();
+    if (current == State.CLOSED) {
+      return true;
+    }
+    if (current == State.OPEN) {
+      if (ticker.read() - openUntil < 0) {
+        return false;
+      }
+      if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+        log.info("Circuit breaker half-open, probing the rate limiter");
+      }
+    }
+    return probing.compareAndSet(false, true);
+  }
+
+  /**
+   * Reports a call that returned within its latency budget.
+   */
+  void onSuccess() {
+    if (state.get() == State.HALF_OPEN) {
+      counts.set(0);
+      state.set(State.CLOSED);
+      probing.set(false);
+      log.info("Circuit breaker closed");
+      return;
+    }
+    record(CALL);
+  }
+
+  /**
+   * Reports a call that failed or exceeded its latency budget.
+   */
+  void onFailure() {
+    if (state.get() == State.HALF_OPEN) {
+      openUntil = ticker.read() + openNanos;
+      state.set(State.OPEN);
+      probing.set(false);
+      log.warn("Circuit breaker probe failed, open again");
+      return;
+    }
+    record(CALL | 1);
+  }
+
+  /**
+   * Returns the current state.
+   *
+   * @return the state
+   */
+  State state() {
+    return state.get();
+  }
+
+  private void record(long outcome) {
+    long updated = counts.addAndGet(outcome);
+    int calls = (int) (updated >>> 32);
+    int failures = (int) updated;
+    if (failures >= failureLimit) {
+      openUntil = ticker.read() + openNanos;
+      if (state.compareAndSet(State.CLOSED, State.OPEN)) {
+        counts.set(0);
+        log.warn("Circuit breaker open after {} failed calls out of {}", failures, calls);
+      }
+    } else if (calls >= windowSize) {
+      // Only one thread resets the window, the others find it changed
+      counts.compareAndSet(updated, 0);
+    }
+  }
+}
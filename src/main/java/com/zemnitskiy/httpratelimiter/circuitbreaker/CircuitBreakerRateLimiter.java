@@ -0,0 +1,243 @@
+package com.zemnitskiy.httpratelimiter.circuitbreaker;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow.SlidingWindowRateLimiter;
+import com.zemnitskiy.httpratelimiter.strategy.AsyncRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.CompletionAwareRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.QueueingRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterFactory;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code CircuitBreakerRateLimiter} class bounds the time spent waiting for a remote rate
+ * limiter, such as one backed by Redis, and decides locally while the remote one is unhealthy.
+ *
+ * <p>Every call to the remote rate limiter has a latency budget. A call that fails, or that has
+ * not returned when the budget is spent, is reported to a {@link CircuitBreaker} and the request
+ * is decided by the local fallback instead, so the caller never waits longer than the budget. A
+ * late call still completes in the background, but its decision is dropped. Once enough calls
+ * have failed, the breaker opens and requests go straight to the fallback until a probe call
+ * succeeds again.
+ *
+ * <p>The fallback is a {@link SlidingWindowRateLimiter} with this instance's share of the limit,
+ * so that the instances of a cluster together stay close to the global limit while Redis is
+ * unavailable.
+ *
+ * <p>Remote rate limiters that implement {@link AsyncRateLimiterStrategy} are called through
+ * their non-blocking method. Others are called on a virtual thread, which the caller waits for
+ * only as long as the budget allows.
+ */
+public final class CircuitBreakerRateLimiter implements AsyncRateLimiterStrategy, MeterBinder,
+    AutoCloseable {
+
+  private final RateLimiterStrategy rateLimiter;
+
+  private final AsyncRateLimiterStrategy asyncRateLimiter;
+
+  private final RateLimiterStrategy fallbackRateLimiter;
+
+  private final CircuitBreaker circuitBreaker;
+
+  private final long latencyBudgetNanos;
+
+  private final ExecutorService executor;
+
+  private volatile Counter fallbackCounter = RateLimiterMetrics.disabledFallbackCounter();
+
+  private final String exceptionMessage;
+
+  private final Logger log = LoggerFactory.getLogger(CircuitBreakerRateLimiter.class);
+
+  /**
+   * Creates a limiter that guards {@code rateLimiter}.
+   *
+   * @param rateLimiter the remote rate limiter
+   * @param fallbackRateLimiter the local rate limiter used while the remote one is unhealthy
+   * @param circuitBreaker the breaker that tracks the health of the remote rate limiter
+   * @param latencyBudget how long a request may wait for the remote rate limiter
+   * @param exceptionMessage the message of a denied {@link #allowRequest(String)}
+   */
+  CircuitBreakerRateLimiter(RateLimiterStrategy rateLimiter,
+      RateLimiterStrategy fallbackRateLimiter, CircuitBreaker circuitBreaker,
+      Duration latencyBudget, String exceptionMessage) {
+    this.rateLimiter = rateLimiter;
+    this.asyncRateLimiter = rateLimiter instanceof AsyncRateLimiterStrategy async ? async : null;
+    this.fallbackRateLimiter = fallbackRateLimiter;
+    this.circuitBreaker = circuitBreaker;
+    this.latencyBudgetNanos = latencyBudget.toNanos();
+    this.executor = asyncRateLimiter == null ? Executors.newVirtualThreadPerTaskExecutor() : null;
+    this.exceptionMessage = exceptionMessage;
+  }
+
+  /**
+   * Guards the rate limiters of {@code factory} with a latency budget and a circuit breaker.
+   *
+   * @param factory creates the remote rate limiters
+   * @param latencyBudget how long a request may wait for the remote rate limiter
+   * @param windowSize the number of calls per window of the breaker
+   * @param failureRateThreshold the part of the calls of a window that have to fail to open the
+   * breaker
+   * @param openDuration how long the breaker stays open before it probes
+   * @param instances the number of instances that share the limit while they fall back
+   * @param ticker the time source of the breaker, in nanoseconds
+   * @return the factory of guarded rate limiters
+   * @throws IllegalArgumentException if the budget or the number of instances is out of range, or
+   * when a rate limiter is created for a strategy that limits requests in flight or queues
+   * requests, which never waits for a remote store
+   */
+  public static RateLimiterFactory wrap(RateLimiterFactory factory, Duration latencyBudget,
+      int windowSize, double failureRateThreshold, Duration openDuration, int instances,
+      Ticker ticker) {
+    if (latencyBudget == null || latencyBudget.toNanos() <= 0) {
+      throw new IllegalArgumentException("latencyBudget must be positive");
+    }
+    if (instances <= 0) {
+      throw new IllegalArgumentException("instances must be greater than 0");
+    }
+    return (maxRequests, basePeriod) -> {
+      RateLimiterStrategy rateLimiter = factory.create(maxRequests, basePeriod);
+      if (rateLimiter instanceof CompletionAwareRateLimiterStrategy) {
+        throw new IllegalArgumentException(
+            "The circuit breaker does not support strategies that limit requests in flight");
+      }
+      if (rateLimiter instanceof QueueingRateLimiterStrategy) {
+        throw new IllegalArgumentException(
+            "The circuit breaker does not support strategies that queue requests");
+      }
+      return new CircuitBreakerRateLimiter(rateLimiter,
+          new SlidingWindowRateLimiter(Math.max(1, maxRequests / instances), basePeriod),
+          new CircuitBreaker(windowSize, failureRateThreshold, openDuration, ticker),
+          latencyBudget,
+          "Too many requests. You have only " + maxRequests + " requests for "
+              + basePeriod.toSeconds() + " seconds.");
+    };
+  }
+
+  /**
+   * Attempts to allow a request for the given key, in the remote rate limiter while it is healthy
+   * and in the local fallback otherwise.
+   *
+   * @param key the unique key representing the client or request source
+   * @throws RateLimitExceededException if the deciding rate limiter denies the request
+   */
+  @Override
+  public void allowRequest(String key) {
+    RateLimitDecision decision = tryAcquire(key);
+    if (!decision.allowed()) {
+      throw new RateLimitExceededException(exceptionMessage, decision.retryAfterSeconds());
+    }
+  }
+
+  /**
+   * Returns the message of a denied request, with the limits of this rate limiter.
+   *
+   * @return the message of the {@link RateLimitExceededException} of a denied request
+   */
+  @Override
+  public String rejectionMessage() {
+    return exceptionMessage;
+  }
+
+  /**
+   * Applies the remote rate limiter or the fallback as described in
+   * {@link #allowRequest(String)}, waiting at most the latency budget.
+   *
+   * @param key the unique key representing the client or request source
+   * @return the decision of the remote rate limiter, or of the fallback
+   */
+  @Override
+  public RateLimitDecision tryAcquire(String key) {
+    return tryAcquireAsync(key).toCompletableFuture().join();
+  }
+
+  /**
+   * Applies the remote rate limiter or the fallback without blocking. The returned stage always
+   * completes normally within the latency budget.
+   *
+   * @param key the unique key representing the client or request source
+   * @return a stage that completes with the decision
+   */
+  @Override
+  public CompletionStage<RateLimitDecision> tryAcquireAsync(String key) {
+    if (!circuitBreaker.tryAcquirePermission()) {
+      return CompletableFuture.completedFuture(fallback(key));
+    }
+    CompletableFuture<RateLimitDecision> call;
+    try {
+      call = asyncRateLimiter != null
+          ? asyncRateLimiter.tryAcquireAsync(key).toCompletableFuture().copy()
+          : CompletableFuture.supplyAsync(() -> rateLimiter.tryAcquire(key), executor);
+    } catch (RuntimeException e) {
+      call = CompletableFuture.failedFuture(e);
+    }
+    return call.orTimeout(latencyBudgetNanos, TimeUnit.NANOSECONDS)
+        .handle((decision, error) -> {
+          if (error == null) {
+            circuitBreaker.onSuccess();
+            return decision;
+          }
+          circuitBreaker.onFailure();
+          log.debug("Rate limiter call for key {} failed, deciding locally", key, error);
+          return fallback(key);
+        });
+  }
+
+  private RateLimitDecision fallback(String key) {
+    fallbackCounter.increment();
+    return fallbackRateLimiter.tryAcquire(key);
+  }
+
+  /**
+   * Registers the state of the breaker, the count of fallback decisions and the meters of both
+   * rate limiters.
+   *
+   * @param registry the registry to register with
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    RateLimiterMetrics.monitorCircuitBreaker(registry, this,
+        () -> circuitBreaker.state().ordinal());
+    fallbackCounter = RateLimiterMetrics.fallbackCounter(registry, this);
+    if (rateLimiter instanceof MeterBinder binder) {
+      binder.bindTo(registry);
+    }
+    if (fallbackRateLimiter instanceof MeterBinder binder) {
+      binder.bindTo(registry);
+    }
+  }
+
+  /**
+   * Closes the remote rate limiter and stops the threads of calls still in flight.
+   *
+   * @throws IllegalStateException if the remote rate limiter fails to close
+   */
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    if (rateLimiter instanceof AutoCloseable closeable) {
+      try {
+        closeable.close();
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IllegalStateException("Failed to close the remote rate limiter", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,179 @@
+package com.zemnitskiy.httpratelimiter.clientkey;
+
+import com.zemnitskiy.httpratelimiter.strategy.BinaryClientKeyStrategy.BinaryKeyFunction;
+
+/**
+ * {@code IpAddressParser} reads textual IPv4 and IPv6 addresses into their 128-bit binary form
+ * directly from the characters of a string, without creating any objects.
+ *
+ * <p>IPv4 addresses are mapped into the IPv6 space as {@code ::ffff:a.b.c.d}, so an IPv4 client
+ * has the same key whether a proxy reports it in IPv4 or in IPv4-mapped IPv6 notation.
+ *
+ * <p>Only plain addresses are accepted. Octets with leading zeros, which some parsers read as
+ * octal, zone IDs ({@code %eth0}), brackets and ports are rejected, and the caller falls back to
+ * the textual key.
+ */
+final class IpAddressParser {
+
+  /**
+   * The lower 64 bits of {@code ::ffff:0.0.0.0}, the prefix of IPv4-mapped IPv6 addresses.
+   */
+  static final long IPV4_MAPPED_PREFIX = 0xFFFF_0000_0000L;
+
+  private static final int IPV6_GROUPS = 8;
+
+  private IpAddressParser() {
+  }
+
+  /**
+   * Parses the address in {@code text} between {@code from} (inclusive) and {@code to}
+   * (exclusive) and applies {@code function} to its binary form.
+   *
+   * @return the result of {@code function}, or {@code null} if the range is not an IP address
+   */
+  static <R> R parse(String text, int from, int to, BinaryKeyFunction<R> function) {
+    for (int i = from; i < to; i++) {
+      if (text.charAt(i) == ':') {
+        return parseIpv6(text, from, to, function);
+      }
+    }
+    long ipv4 = parseIpv4(text, from, to);
+    return ipv4 < 0 ? null : function.apply(0, IPV4_MAPPED_PREFIX | ipv4);
+  }
+
+  /**
+   * Parses a dotted-quad IPv4 address.
+   *
+   * @return the address as an unsigned 32-bit value, or {@code -1} if the range is not an IPv4
+   * address
+   */
+  static long parseIpv4(String text, int from, int to) {
+    long address = 0;
+    int octets = 0;
+    int octet = 0;
+    int digits = 0;
+    for (int i = from; i < to; i++) {
+      char c = text.charAt(i);
+      if (c >= '0' && c <= '9') {
+        if (digits > 0 && octet == 0) {
+          return -1;
+        }
+        octet = octet * 10 + (c - '0');
+        if (octet > 255) {
+          return -1;
+        }
+        digits++;
+      } else if (c == '.' && digits > 0 && octets < 3) {
+        address = (address << 8) | octet;
+        octets++;
+        octet = 0;
+        digits = 0;
+      } else {
+        return -1;
+      }
+    }
+    if (digits == 0 || octets != 3) {
+      return -1;
+    }
+    return (address << 8) | octet;
+  }
+
+  /**
+   * Parses an IPv6 address, with at most one {@code ::} and optionally a trailing dotted-quad
+   * IPv4 address. The groups before the {@code ::} and the groups after it are collected in two
+   * separate 128-bit values held in locals, and the first one is shifted into place at the end.
+   */
+  private static <R> R parseIpv6(String text, int from, int to, BinaryKeyFunction<R> function) {
+    int end = to;
+    long ipv4 = -1;
+    int lastColon = text.lastIndexOf(':', to - 1);
+    int dot = text.indexOf('.', lastColon);
+    if (dot >= 0 && dot < to) {
+      ipv4 = parseIpv4(text, lastColon + 1, to);
+      if (ipv4 < 0) {
+        return null;
+      }
+      // Keep the "::" of "::1.2.3.4" in the hexadecimal part, drop a single separating colon
+      end = lastColon > from && text.charAt(lastColon - 1) == ':' ? lastColon + 1 : lastColon;
+    }
+
+    long high = 0;
+    long low = 0;
+    long headHigh = 0;
+    long headLow = 0;
+    int groups = 0;
+    int headGroups = -1;
+    int i = from;
+    if (i < end && text.charAt(i) == ':') {
+      if (i + 1 >= end || text.charAt(i + 1) != ':') {
+        return null;
+      }
+      headGroups = 0;
+      i += 2;
+    }
+    while (i < end) {
+      int group = 0;
+      int digits = 0;
+      int hex;
+      while (i < end && (hex = hexDigit(text.charAt(i))) >= 0) {
+        if (++digits > 4) {
+          return null;
+        }
+        group = (group << 4) | hex;
+        i++;
+      }
+      if (digits == 0 || ++groups > IPV6_GROUPS) {
+        return null;
+      }
+      high = (high << 16) | (low >>> 48);
+      low = (low << 16) | group;
+      if (i == end) {
+        break;
+      }
+      if (text.charAt(i) != ':' || ++i == end) {
+        return null;
+      }
+      if (text.charAt(i) == ':') {
+        if (headGroups >= 0) {
+          return null;
+        }
+        headGroups = groups;
+        headHigh = high;
+        headLow = low;
+        high = 0;
+        low = 0;
+        i++;
+      }
+    }
+    if (ipv4 >= 0) {
+      groups += 2;
+      high = (high << 32) | (low >>> 32);
+      low = (low << 32) | ipv4;
+    }
+
+    if (headGroups < 0) {
+      return groups == IPV6_GROUPS ? function.apply(high, low) : null;
+    }
+    if (groups >= IPV6_GROUPS) {
+      return null;
+    }
+    for (int shift = headGroups; shift < IPV6_GROUPS; shift++) {
+      headHigh = (headHigh << 16) | (headLow >>> 48);
+      headLow <<= 16;
+    }
+    return function.apply(headHigh | high, headLow | low);
+  }
+
+  private static int hexDigit(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    }
+    if (c >= 'a' && c <= 'f') {
+      return c - 'a' + 10;
+    }
+    if (c >= 'A' && c <= 'F') {
+      return c - 'A' + 10;
+    }
+    return -1;
+  }
+}
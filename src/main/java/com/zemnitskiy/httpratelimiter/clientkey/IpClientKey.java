@@ -1,7 +1,13 @@
 package com.zemnitskiy.httpratelimiter.clientkey;
 
+import com.zemnitskiy.httpratelimiter.strategy.BinaryClientKeyStrategy;
 import com.zemnitskiy.httpratelimiter.strategy.ClientKeyStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.ReactiveClientKeyStrategy;
 import jakarta.servlet.http.HttpServletRequest;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Service;
 
 /**
@@ -16,10 +22,19 @@ import org.springframework.stereotype.Service;
  * the "X-Real-IP" header. If neither header is available, the IP address is retrieved
  * from the request's remote address.
  *
+ * <p>The class also implements {@link BinaryClientKeyStrategy}: the same address can be read
+ * straight from the header characters into a 128-bit number, which rate limiters that implement
+ * {@code BinaryKeyRateLimiterStrategy} use as the key without any {@code String} being built.
+ * As a {@link ReactiveClientKeyStrategy}, it reads the same headers from reactive requests.
+ *
  * <p>This class is annotated with {@link Service}, making it a Spring-managed bean.
  */
 @Service
-public class IpClientKey implements ClientKeyStrategy {
+public class IpClientKey implements BinaryClientKeyStrategy, ReactiveClientKeyStrategy {
+
+  private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+  private static final String X_REAL_IP = "X-Real-IP";
 
   /**
    * Extracts the client's IP address from the given {@link HttpServletRequest}.
@@ -29,25 +44,174 @@ public class IpClientKey implements ClientKeyStrategy {
    * returned. If the header is absent or empty, the method checks the "X-Real-IP" header.
    * If neither header is available, the method returns the remote address of the request.
    *
+   * <p>A header that already holds a single address without surrounding whitespace is returned
+   * as it is, so the common case creates no new {@code String}.
+   *
    * @param request the {@link HttpServletRequest} from which the client's IP address is to be extracted
    * @return the client's IP address, either from the "X-Forwarded-For" header, the "X-Real-IP" header,
    * or the request's remote address
    */
   @Override
   public String getClientKey(HttpServletRequest request) {
-    String ipAddress = request.getHeader("X-Forwarded-For");
+    String ipAddress = request.getHeader(X_FORWARDED_FOR);
+    if (ipAddress != null && !ipAddress.isEmpty()) {
+      return trimmed(ipAddress, firstEntryEnd(ipAddress));
+    }
+    ipAddress = request.getHeader(X_REAL_IP);
+    if (ipAddress != null && !ipAddress.isEmpty()) {
+      return trimmed(ipAddress, ipAddress.length());
+    }
+    return request.getRemoteAddr();
+  }
+
+  /**
+   * Reads the same address as {@link #getClientKey(HttpServletRequest)} straight from the header
+   * characters into its 128-bit binary form and applies {@code function} to it. IPv4 addresses
+   * are mapped to {@code ::ffff:a.b.c.d}.
+   *
+   * <p>No {@code String} or other object is created. If the selected value is not a plain IPv4
+   * or IPv6 address, {@code null} is returned and the caller falls back to the textual key.
+   *
+   * @param request the {@link HttpServletRequest} from which the client's IP address is to be extracted
+   * @param function the function to apply to the binary address
+   * @param <R> the result type of {@code function}
+   * @return the result of {@code function}, or {@code null} if the address has no binary form
+   */
+  @Override
+  public <R> R applyClientKey(HttpServletRequest request, BinaryKeyFunction<R> function) {
+    String ipAddress = request.getHeader(X_FORWARDED_FOR);
+    int end;
     if (ipAddress != null && !ipAddress.isEmpty()) {
-      int index = ipAddress.indexOf(",");
-      if (index > 0) {
-        return ipAddress.substring(0, index).trim();
+      end = firstEntryEnd(ipAddress);
+    } else {
+      ipAddress = request.getHeader(X_REAL_IP);
+      if (ipAddress != null && !ipAddress.isEmpty()) {
+        end = ipAddress.length();
       } else {
-        return ipAddress.trim();
+        ipAddress = request.getRemoteAddr();
+        if (ipAddress == null) {
+          return null;
+        }
+        end = ipAddress.length();
       }
     }
-    ipAddress = request.getHeader("X-Real-IP");
+    int start = trimStart(ipAddress, end);
+    return IpAddressParser.parse(ipAddress, start, trimEnd(ipAddress, start, end), function);
+  }
+
+  /**
+   * Extracts the client's IP address from a reactive request in the same way as
+   * {@link #getClientKey(HttpServletRequest)}.
+   *
+   * @param request the {@link ServerHttpRequest} from which the client's IP address is to be extracted
+   * @return the client's IP address, or {@code null} if the request has none
+   */
+  @Override
+  public String getClientKey(ServerHttpRequest request) {
+    HttpHeaders headers = request.getHeaders();
+    String ipAddress = headers.getFirst(X_FORWARDED_FOR);
     if (ipAddress != null && !ipAddress.isEmpty()) {
-      return ipAddress.trim();
+      return trimmed(ipAddress, firstEntryEnd(ipAddress));
     }
-    return request.getRemoteAddr();
+    ipAddress = headers.getFirst(X_REAL_IP);
+    if (ipAddress != null && !ipAddress.isEmpty()) {
+      return trimmed(ipAddress, ipAddress.length());
+    }
+    InetSocketAddress remoteAddress = request.getRemoteAddress();
+    if (remoteAddress == null) {
+      return null;
+    }
+    InetAddress address = remoteAddress.getAddress();
+    return address == null ? remoteAddress.getHostString() : address.getHostAddress();
+  }
+
+  /**
+   * Reads the same address as {@link #getClientKey(ServerHttpRequest)} into its 128-bit binary
+   * form and applies {@code function} to it, in the same way as
+   * {@link #applyClientKey(HttpServletRequest, BinaryKeyFunction)}.
+   *
+   * @param request the {@link ServerHttpRequest} from which the client's IP address is to be extracted
+   * @param function the function to apply to the binary address
+   * @param <R> the result type of {@code function}
+   * @return the result of {@code function}, or {@code null} if the address has no binary form
+   */
+  @Override
+  public <R> R applyClientKey(ServerHttpRequest request, BinaryKeyFunction<R> function) {
+    HttpHeaders headers = request.getHeaders();
+    String ipAddress = headers.getFirst(X_FORWARDED_FOR);
+    int end;
+    if (ipAddress != null && !ipAddress.isEmpty()) {
+      end = firstEntryEnd(ipAddress);
+    } else {
+      ipAddress = headers.getFirst(X_REAL_IP);
+      if (ipAddress == null || ipAddress.isEmpty()) {
+        return applyRemoteAddress(request.getRemoteAddress(), function);
+      }
+      end = ipAddress.length();
+    }
+    int start = trimStart(ipAddress, end);
+    return IpAddressParser.parse(ipAddress, start, trimEnd(ipAddress, start, end), function);
+  }
+
+  /**
+   * Applies {@code function} to the resolved remote address, which is already binary.
+   */
+  private static <R> R applyRemoteAddress(InetSocketAddress remoteAddress,
+      BinaryKeyFunction<R> function) {
+    InetAddress address = remoteAddress == null ? null : remoteAddress.getAddress();
+    if (address == null) {
+      return null;
+    }
+    byte[] bytes = address.getAddress();
+    long high = 0;
+    long low = 0;
+    for (int i = 0; i < bytes.length; i++) {
+      if (bytes.length - i > 8) {
+        high = (high << 8) | (bytes[i] & 0xFF);
+      } else {
+        low = (low << 8) | (bytes[i] & 0xFF);
+      }
+    }
+    if (bytes.length == 4) {
+      low |= IpAddressParser.IPV4_MAPPED_PREFIX;
+    }
+    return function.apply(high, low);
+  }
+
+  /**
+   * Returns the end of the first entry of an "X-Forwarded-For" header. As before, a header that
+   * starts with a comma is taken as a whole.
+   */
+  private static int firstEntryEnd(String header) {
+    int index = header.indexOf(',');
+    return index > 0 ? index : header.length();
+  }
+
+  /**
+   * Returns the range {@code [0, end)} of {@code value} with whitespace removed the way
+   * {@link String#trim()} does, reusing {@code value} when nothing needs to be removed.
+   */
+  private static String trimmed(String value, int end) {
+    int start = trimStart(value, end);
+    int trimmedEnd = trimEnd(value, start, end);
+    if (start == 0 && trimmedEnd == value.length()) {
+      return value;
+    }
+    return value.substring(start, trimmedEnd);
+  }
+
+  private static int trimStart(String value, int end) {
+    int start = 0;
+    while (start < end && value.charAt(start) <= ' ') {
+      start++;
+    }
+    return start;
+  }
+
+  private static int trimEnd(String value, int start, int end) {
+    while (end > start && value.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    return end;
   }
-}
\ No newline at end of file
+}
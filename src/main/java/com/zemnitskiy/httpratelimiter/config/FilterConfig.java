@@ -0,0 +1,79 @@
+package com.zemnitskiy.httpratelimiter.config;
+
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.policy.RateLimiterPolicies;
+import com.zemnitskiy.httpratelimiter.strategy.ClientKeyStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.ReactiveClientKeyStrategy;
+import com.zemnitskiy.httpratelimiter.web.RateLimiterFilter;
+import com.zemnitskiy.httpratelimiter.web.RateLimiterWebFilter;
+import jakarta.servlet.DispatcherType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.boot.web.servlet.filter.OrderedRequestContextFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * {@code FilterConfig} registers the rate limiting front-ends that run before the web framework
+ * dispatches a request.
+ *
+ * <p>In a servlet application, {@code rateLimiter.frontEnd=filter} registers
+ * {@link RateLimiterFilter} in place of the Spring MVC interceptor, with the highest precedence or,
+ * if it parks requests, after Spring's own request filters. In a reactive application,
+ * {@link RateLimiterWebFilter} is always registered.
+ */
+@Configuration
+public class FilterConfig {
+
+  /**
+   * The order of the servlet filter front-end when it parks requests: right after Spring's
+   * request context filter, the last of the filters Spring Boot registers before security.
+   */
+  static final int QUEUEING_FILTER_ORDER = new OrderedRequestContextFilter().getOrder() + 1;
+
+  /**
+   * Registers the servlet filter front-end for the {@code REQUEST} dispatcher type, which it
+   * counts, and the {@code ASYNC} dispatcher type, on which it resumes the requests it parked.
+   * Error dispatches do not reach it.
+   *
+   * <p>The filter runs with the highest precedence, unless a rate limiter parks requests. Spring's
+   * {@code OncePerRequestFilter}s skip the async dispatch of a parked request, so the filter is
+   * then ordered after them, and they run before the request is parked.
+   *
+   * @param policies the rate limiters of the policies and the default rate limiter
+   * @param clientKeyStrategy the strategy to determine the client's unique key
+   * @param metrics the meters of the rate limiter's decisions
+   * @return the filter registration
+   */
+  @Bean
+  @ConditionalOnWebApplication(type = Type.SERVLET)
+  @ConditionalOnProperty(name = "rateLimiter.frontEnd", havingValue = "filter")
+  public FilterRegistrationBean<RateLimiterFilter> rateLimiterFilter(
+      RateLimiterPolicies policies, ClientKeyStrategy clientKeyStrategy,
+      RateLimiterMetrics metrics) {
+    FilterRegistrationBean<RateLimiterFilter> registration = new FilterRegistrationBean<>(
+        new RateLimiterFilter(policies, clientKeyStrategy, metrics));
+    registration.setOrder(
+        policies.isQueueing() ? QUEUEING_FILTER_ORDER : Ordered.HIGHEST_PRECEDENCE);
+    registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+    return registration;
+  }
+
+  /**
+   * Registers the reactive front-end.
+   *
+   * @param policies the rate limiters of the policies and the default rate limiter
+   * @param clientKeyStrategy the strategy to determine the client's unique key
+   * @param metrics the meters of the rate limiter's decisions
+   * @return the web filter
+   */
+  @Bean
+  @ConditionalOnWebApplication(type = Type.REACTIVE)
+  public RateLimiterWebFilter rateLimiterWebFilter(RateLimiterPolicies policies,
+      ReactiveClientKeyStrategy clientKeyStrategy, RateLimiterMetrics metrics) {
+    return new RateLimiterWebFilter(policies, clientKeyStrategy, metrics);
+  }
+}
@@ -0,0 +1,82 @@
+package com.zemnitskiy.httpratelimiter.config;
+
+import com.zemnitskiy.httpratelimiter.gossip.GossipChannel;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterFactory;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * {@code GossipConfig} enforces the limits across several instances without Redis. This
+ * configuration is only active when {@code rateLimiter.mode} is {@code gossipRateLimiter}.
+ *
+ * <p>Every instance receives the counts of its peers on UDP port {@code rateLimiter.gossip.port}
+ * of {@code rateLimiter.gossip.bindAddress}, the loopback address unless set, and sends its own
+ * to the {@code host:port} pairs of {@code rateLimiter.gossip.peers} every
+ * {@code rateLimiter.gossip.interval}. Datagrams from other addresses are dropped. Each rate
+ * limiter keeps counts for at most {@code rateLimiter.gossip.maxKeys} keys. All instances should
+ * be given the same policies and reasonably synchronized clocks.
+ */
+@Configuration
+@ConditionalOnProperty(name = "rateLimiter.mode", havingValue = "gossipRateLimiter")
+public class GossipConfig {
+
+  @Value("${rateLimiter.gossip.bindAddress:127.0.0.1}")
+  private String bindAddress;
+
+  @Value("${rateLimiter.gossip.port:7946}")
+  private int port;
+
+  @Value("${rateLimiter.gossip.peers:}")
+  private List<String> peers;
+
+  @Value("${rateLimiter.gossip.interval:100ms}")
+  private Duration interval;
+
+  @Value("${rateLimiter.gossip.maxKeys:1000000}")
+  private long maxKeys;
+
+  /**
+   * Opens the channel the counts are exchanged on.
+   *
+   * @return the gossip channel
+   * @throws IOException if the address cannot be bound
+   */
+  @Bean
+  public GossipChannel gossipChannel() throws IOException {
+    List<InetSocketAddress> addresses = new ArrayList<>(peers.size());
+    for (String peer : peers) {
+      String address = peer.trim();
+      if (address.isEmpty()) {
+        continue;
+      }
+      int colon = address.lastIndexOf(':');
+      if (colon <= 0 || colon == address.length() - 1) {
+        throw new IllegalArgumentException("Gossip peer must be host:port: " + address);
+      }
+      addresses.add(new InetSocketAddress(address.substring(0, colon),
+          Integer.parseInt(address.substring(colon + 1))));
+    }
+    return new GossipChannel(new InetSocketAddress(bindAddress, port), addresses, interval);
+  }
+
+  /**
+   * Configures the GossipRateLimiter strategy. Its windows follow the wall clock, so that they
+   * line up across instances.
+   *
+   * @param gossipChannel the channel the counts are exchanged on
+   * @return the factory of GossipRateLimiter instances
+   */
+  @Bean
+  public RateLimiterFactory gossipRateLimiter(GossipChannel gossipChannel) {
+    return gossipChannel.rateLimiterFactory(
+        () -> TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()), maxKeys);
+  }
+}
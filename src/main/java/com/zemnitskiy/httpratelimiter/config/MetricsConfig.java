@@ -0,0 +1,76 @@
+package com.zemnitskiy.httpratelimiter.config;
+
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.policy.PolicyRateLimiter;
+import com.zemnitskiy.httpratelimiter.policy.RateLimiterPolicies;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.util.List;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * {@code MetricsConfig} publishes the meters of the rate limiter to the Micrometer registry that
+ * Spring Boot Actuator exports.
+ *
+ * <p>The front-ends record every decision through {@link RateLimiterMetrics}. Strategies that are
+ * a {@link MeterBinder} also register the meters of their internals, such as Redis script round
+ * trips, the local cache of denied keys and the size of their local state, with a
+ * {@code policy} tag that tells the rate limiters of the policies apart.
+ */
+@Configuration
+public class MetricsConfig {
+
+  static final String POLICY_TAG = "policy";
+
+  static final String DEFAULT_POLICY = "default";
+
+  /**
+   * Creates the decision meters shared by the front-ends.
+   *
+   * @param registry the registry to record to
+   * @param rateLimiter the strategy whose decisions are recorded
+   * @return the decision meters
+   */
+  @Bean
+  public RateLimiterMetrics rateLimiterMetrics(MeterRegistry registry,
+      RateLimiterStrategy rateLimiter) {
+    return new RateLimiterMetrics(registry, rateLimiter);
+  }
+
+  /**
+   * Binds the meters of the internals of the default rate limiter and of the rate limiter of every
+   * policy. The strategy beans are declared as a {@link RateLimiterStrategy}, so Spring Boot cannot
+   * find them as a {@link MeterBinder} by type. Rate limiters of the same strategy would register
+   * the same meters, so each one adds a {@value #POLICY_TAG} tag with the name of its policy, or
+   * {@value #DEFAULT_POLICY} for the default rate limiter.
+   *
+   * @param policies the default rate limiter and the rate limiters of the policies
+   * @return a binder that delegates to the rate limiters that have meters of their own
+   */
+  @Bean
+  public MeterBinder rateLimiterMeterBinder(RateLimiterPolicies policies) {
+    return registry -> {
+      bindTo(registry, DEFAULT_POLICY, policies.defaultRateLimiter());
+      for (PolicyRateLimiter rateLimiter : policies.policyRateLimiters()) {
+        bindTo(registry, rateLimiter.name(), rateLimiter);
+      }
+    };
+  }
+
+  /**
+   * Binds the meters of {@code rateLimiter} through a registry that adds the policy tag to each
+   * meter and registers it in {@code registry}.
+   */
+  private static void bindTo(MeterRegistry registry, String policy,
+      PolicyRateLimiter rateLimiter) {
+    if (rateLimiter.rateLimiter() instanceof MeterBinder binder) {
+      CompositeMeterRegistry policyRegistry =
+          new CompositeMeterRegistry(registry.config().clock(), List.of(registry));
+      policyRegistry.config().commonTags(POLICY_TAG, policy);
+      binder.bindTo(policyRegistry);
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package com.zemnitskiy.httpratelimiter.config;
+
+import com.zemnitskiy.httpratelimiter.ratelimiter.multiwindow.RateLimitWindow;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * {@code MultiWindowProperties} binds the windows that the multi-window strategies enforce in
+ * addition to {@code rateLimiter.maxRequestsPerPeriod} per {@code rateLimiter.basePeriod}, for
+ * example:
+ *
+ * <pre>
+ * rateLimiter.multiWindow.windows[0].maxRequests=300
+ * rateLimiter.multiWindow.windows[0].period=1m
+ * rateLimiter.multiWindow.windows[1].maxRequests=5000
+ * rateLimiter.multiWindow.windows[1].period=1h
+ * </pre>
+ *
+ * @param windows the additional windows
+ */
+@ConfigurationProperties("rate-limiter.multi-window")
+public record MultiWindowProperties(@DefaultValue List<RateLimitWindow> windows) {
+}
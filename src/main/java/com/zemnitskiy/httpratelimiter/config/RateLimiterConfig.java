@@ -1,22 +1,50 @@
 package com.zemnitskiy.httpratelimiter.config;
 
 
+import com.zemnitskiy.httpratelimiter.circuitbreaker.CircuitBreakerRateLimiter;
+import com.zemnitskiy.httpratelimiter.heavyhitter.HeavyHitterRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.concurrency.AdaptiveConcurrencyRateLimiter;
 import com.zemnitskiy.httpratelimiter.ratelimiter.fixedwindow.FixedWindowRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow.AsyncSlidingWindowRedisRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.gcra.GcraRedisRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.leakybucket.LeakyBucketRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.multiwindow.MultiWindowRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.multiwindow.MultiWindowRedisRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.multiwindow.RateLimitWindow;
+import com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow.LeasedSlidingWindowRedisRateLimiter;
 import com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow.SlidingWindowRateLimiter;
 import com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow.SlidingWindowRedisRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindowcounter.SlidingWindowCounterRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.tokenbucket.TokenBucketRateLimiter;
+import com.zemnitskiy.httpratelimiter.policy.RateLimiterPolicies;
+import com.zemnitskiy.httpratelimiter.snapshot.RateLimiterSnapshots;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStoreFactory;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterFactory;
 import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import com.github.benmanes.caffeine.cache.Ticker;
+import java.nio.file.Path;
+import java.time.Clock;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 
 /**
  * Configuration class for setting up rate limiter strategies.
+ *
+ * <p>{@code rateLimiter.mode} selects the {@link RateLimiterFactory} of one strategy. It creates
+ * the default rate limiter from the global limits and one rate limiter per declared policy.
  */
 @Configuration
+@EnableConfigurationProperties({RateLimiterPolicyProperties.class, MultiWindowProperties.class})
 public class RateLimiterConfig {
 
   @Value("${rateLimiter.maxRequestsPerPeriod}")
@@ -25,41 +53,370 @@ public class RateLimiterConfig {
   @Value("${rateLimiter.basePeriod}")
   private Duration basePeriod;
 
+  @Value("${rateLimiter.tokenBucket.capacity:${rateLimiter.maxRequestsPerPeriod}}")
+  private int tokenBucketCapacity;
+
+  @Value("${rateLimiter.storage:caffeine}")
+  private String storage;
+
+  @Value("${rateLimiter.heavyHitter.enabled:false}")
+  private boolean heavyHitterEnabled;
+
+  @Value("${rateLimiter.heavyHitter.threshold:0.5}")
+  private double heavyHitterThreshold;
+
+  @Value("${rateLimiter.heavyHitter.width:65536}")
+  private int heavyHitterWidth;
+
+  @Value("${rateLimiter.circuitBreaker.enabled:false}")
+  private boolean circuitBreakerEnabled;
+
+  @Value("${rateLimiter.circuitBreaker.latencyBudget:50ms}")
+  private Duration circuitBreakerLatencyBudget;
+
+  @Value("${rateLimiter.circuitBreaker.windowSize:20}")
+  private int circuitBreakerWindowSize;
+
+  @Value("${rateLimiter.circuitBreaker.failureRateThreshold:0.5}")
+  private double circuitBreakerFailureRateThreshold;
+
+  @Value("${rateLimiter.circuitBreaker.openDuration:5s}")
+  private Duration circuitBreakerOpenDuration;
+
+  @Value("${rateLimiter.circuitBreaker.instances:1}")
+  private int circuitBreakerInstances;
+
+  @Value("${rateLimiter.snapshot.path:rate-limiter.snapshot}")
+  private Path snapshotPath;
+
+  @Value("${rateLimiter.snapshot.interval:10s}")
+  private Duration snapshotInterval;
+
+  @Value("${rateLimiter.leakyBucket.queueSize:10}")
+  private int leakyBucketQueueSize;
+
+  @Value("${rateLimiter.adaptive.initialLimit:20}")
+  private int adaptiveInitialLimit;
+
+  @Value("${rateLimiter.adaptive.minLimit:1}")
+  private int adaptiveMinLimit;
+
+  @Value("${rateLimiter.adaptive.maxLimit:1000}")
+  private int adaptiveMaxLimit;
+
+  @Value("${rateLimiter.adaptive.longWindow:600}")
+  private int adaptiveLongWindow;
+
+  @Value("${rateLimiter.lease.size:10}")
+  private int leaseSize;
+
+  @Value("${rateLimiter.lease.duration:1s}")
+  private Duration leaseDuration;
+
+  @Value("${rateLimiter.redis.nodes:}")
+  private String redisNodes;
+
+  @Value("${rateLimiter.redis.batch.enabled:false}")
+  private boolean redisBatchEnabled;
+
+  @Value("${rateLimiter.redis.batch.size:64}")
+  private int redisBatchSize;
+
+  @Value("${rateLimiter.redis.batch.delay:0ms}")
+  private Duration redisBatchDelay;
+
   @Value("classpath:rate_limiter.lua")
   private Resource luaScript;
 
+  @Value("classpath:rate_limiter_batch.lua")
+  private Resource batchLuaScript;
+
+  @Value("classpath:rate_limiter_gcra.lua")
+  private Resource gcraLuaScript;
+
+  @Value("classpath:rate_limiter_lease.lua")
+  private Resource leaseLuaScript;
+
+  @Value("classpath:rate_limiter_release.lua")
+  private Resource releaseLuaScript;
+
+  @Value("classpath:rate_limiter_multi_window.lua")
+  private Resource multiWindowLuaScript;
+
   /**
    * Configures the FixedWindowRateLimiter strategy.
    *
-   * @return the configured FixedWindowRateLimiter instance
+   * @return the factory of FixedWindowRateLimiter instances
    */
   @Bean
   @ConditionalOnProperty(name = "rateLimiter.mode", havingValue = "fixedWindowRateLimiter")
-  public RateLimiterStrategy fixedWindowRateLimiter() {
-    return new FixedWindowRateLimiter(maxRequests, basePeriod);
+  public RateLimiterFactory fixedWindowRateLimiter() {
+    LongStateStoreFactory stateStoreFactory = stateStoreFactory();
+    return (maxRequests, basePeriod) -> new FixedWindowRateLimiter(maxRequests, basePeriod,
+        Ticker.systemTicker(), stateStoreFactory);
   }
 
   /**
    * Configures the SlidingWindowRedisRateLimiter strategy.
    *
    * @param redisTemplate the Redis template for interacting with Redis
-   * @return the configured SlidingWindowRedisRateLimiter instance
+   * @return the factory of SlidingWindowRedisRateLimiter instances
    */
   @Bean
   @ConditionalOnProperty(name = "rateLimiter.mode", havingValue = "slidingWindowRedisRateLimiter")
-  public RateLimiterStrategy slidingWindowRedisRateLimiter(
+  public RateLimiterFactory slidingWindowRedisRateLimiter(
+      RedisTemplate<String, String> redisTemplate) {
+    return (maxRequests, basePeriod) -> new SlidingWindowRedisRateLimiter(redisTemplate,
+        maxRequests, basePeriod, luaScript, redisBatchEnabled ? batchLuaScript : null,
+        redisBatchSize, redisBatchDelay);
+  }
+
+  /**
+   * Configures the AsyncSlidingWindowRedisRateLimiter strategy. The reactive Redis template is not
+   * sharded, so this strategy refuses to start with {@code rateLimiter.redis.nodes} rather than
+   * keep every key on the single {@code spring.data.redis} node.
+   *
+   * @param reactiveRedisTemplate the reactive Redis template for interacting with Redis
+   * @return the factory of AsyncSlidingWindowRedisRateLimiter instances
+   * @throws IllegalArgumentException if {@code rateLimiter.redis.nodes} is set
+   */
+  @Bean
+  @ConditionalOnProperty(name = "rateLimiter.mode",
+      havingValue = "asyncSlidingWindowRedisRateLimiter")
+  public RateLimiterFactory asyncSlidingWindowRedisRateLimiter(
+      ReactiveStringRedisTemplate reactiveRedisTemplate) {
+    if (!redisNodes.isBlank()) {
+      throw new IllegalArgumentException("asyncSlidingWindowRedisRateLimiter does not support "
+          + "rateLimiter.redis.nodes; use Redis Cluster through spring.data.redis.cluster.nodes");
+    }
+    return (maxRequests, basePeriod) -> new AsyncSlidingWindowRedisRateLimiter(
+        reactiveRedisTemplate, maxRequests, basePeriod, luaScript);
+  }
+
+  /**
+   * Configures the LeasedSlidingWindowRedisRateLimiter strategy.
+   *
+   * @param redisTemplate the Redis template for interacting with Redis
+   * @return the factory of LeasedSlidingWindowRedisRateLimiter instances
+   */
+  @Bean
+  @ConditionalOnProperty(name = "rateLimiter.mode",
+      havingValue = "leasedSlidingWindowRedisRateLimiter")
+  public RateLimiterFactory leasedSlidingWindowRedisRateLimiter(
       RedisTemplate<String, String> redisTemplate) {
-    return new SlidingWindowRedisRateLimiter(redisTemplate, maxRequests, basePeriod, luaScript);
+    return (maxRequests, basePeriod) -> new LeasedSlidingWindowRedisRateLimiter(redisTemplate,
+        maxRequests, basePeriod, leaseSize, leaseDuration, leaseLuaScript, releaseLuaScript);
+  }
+
+  /**
+   * Configures the GcraRedisRateLimiter strategy.
+   *
+   * @param redisTemplate the Redis template for interacting with Redis
+   * @return the factory of GcraRedisRateLimiter instances
+   */
+  @Bean
+  @ConditionalOnProperty(name = "rateLimiter.mode", havingValue = "gcraRedisRateLimiter")
+  public RateLimiterFactory gcraRedisRateLimiter(RedisTemplate<String, String> redisTemplate) {
+    return (maxRequests, basePeriod) -> new GcraRedisRateLimiter(redisTemplate, maxRequests,
+        basePeriod, gcraLuaScript);
   }
 
   /**
    * Configures the SlidingWindowRateLimiter strategy.
    *
-   * @return the configured SlidingWindowRateLimiter instance
+   * @return the factory of SlidingWindowRateLimiter instances
    */
   @Bean
   @ConditionalOnProperty(name = "rateLimiter.mode", havingValue = "slidingWindowRateLimiter")
-  public RateLimiterStrategy slidingWindowRateLimiter() {
-    return new SlidingWindowRateLimiter(maxRequests, basePeriod);
+  public RateLimiterFactory slidingWindowRateLimiter() {
+    return SlidingWindowRateLimiter::new;
+  }
+
+  /**
+   * Configures the SlidingWindowCounterRateLimiter strategy.
+   *
+   * @return the factory of SlidingWindowCounterRateLimiter instances
+   */
+  @Bean
+  @ConditionalOnProperty(name = "rateLimiter.mode", havingValue = "slidingWindowCounterRateLimiter")
+  public RateLimiterFactory slidingWindowCounterRateLimiter() {
+    LongStateStoreFactory stateStoreFactory = stateStoreFactory();
+    return (maxRequests, basePeriod) -> new SlidingWindowCounterRateLimiter(maxRequests,
+        basePeriod, Ticker.systemTicker(), stateStoreFactory);
+  }
+
+  /**
+   * Configures the TokenBucketRateLimiter strategy.
+   *
+   * <p>The configured capacity applies to the default rate limiter. The buckets of the policies
+   * keep its ratio of capacity to tokens per period.
+   *
+   * @return the factory of TokenBucketRateLimiter instances
+   */
+  @Bean
+  @ConditionalOnProperty(name = "rateLimiter.mode", havingValue = "tokenBucketRateLimiter")
+  public RateLimiterFactory tokenBucketRateLimiter() {
+    LongStateStoreFactory stateStoreFactory = stateStoreFactory();
+    return (maxRequests, basePeriod) -> new TokenBucketRateLimiter(
+        (int) Math.max(1, (long) tokenBucketCapacity * maxRequests / this.maxRequests),
+        maxRequests, basePeriod, Ticker.systemTicker(), stateStoreFactory);
+  }
+
+  /**
+   * Configures the LeakyBucketRateLimiter strategy. The configured queue size applies to every
+   * key of every policy.
+   *
+   * @return the factory of LeakyBucketRateLimiter instances
+   */
+  @Bean
+  @ConditionalOnProperty(name = "rateLimiter.mode", havingValue = "leakyBucketRateLimiter")
+  public RateLimiterFactory leakyBucketRateLimiter() {
+    LongStateStoreFactory stateStoreFactory = stateStoreFactory();
+    return (maxRequests, basePeriod) -> new LeakyBucketRateLimiter(maxRequests, basePeriod,
+        leakyBucketQueueSize, Ticker.systemTicker(), stateStoreFactory);
+  }
+
+  /**
+   * Configures the MultiWindowRateLimiter strategy.
+   *
+   * @param properties the windows enforced in addition to the base period
+   * @return the factory of MultiWindowRateLimiter instances
+   */
+  @Bean
+  @ConditionalOnProperty(name = "rateLimiter.mode", havingValue = "multiWindowRateLimiter")
+  public RateLimiterFactory multiWindowRateLimiter(MultiWindowProperties properties) {
+    return (maxRequests, basePeriod) -> new MultiWindowRateLimiter(
+        windows(maxRequests, basePeriod, properties));
+  }
+
+  /**
+   * Configures the MultiWindowRedisRateLimiter strategy.
+   *
+   * @param redisTemplate the Redis template for interacting with Redis
+   * @param properties the windows enforced in addition to the base period
+   * @return the factory of MultiWindowRedisRateLimiter instances
+   */
+  @Bean
+  @ConditionalOnProperty(name = "rateLimiter.mode", havingValue = "multiWindowRedisRateLimiter")
+  public RateLimiterFactory multiWindowRedisRateLimiter(
+      RedisTemplate<String, String> redisTemplate, MultiWindowProperties properties) {
+    return (maxRequests, basePeriod) -> new MultiWindowRedisRateLimiter(redisTemplate,
+        windows(maxRequests, basePeriod, properties), multiWindowLuaScript);
+  }
+
+  /**
+   * Configures the AdaptiveConcurrencyRateLimiter strategy. It limits the requests in flight
+   * rather than the requests per period, so the limits of the policies do not apply: every policy
+   * gets its own adaptive limit.
+   *
+   * @return the factory of AdaptiveConcurrencyRateLimiter instances
+   */
+  @Bean
+  @ConditionalOnProperty(name = "rateLimiter.mode", havingValue = "adaptiveConcurrencyRateLimiter")
+  public RateLimiterFactory adaptiveConcurrencyRateLimiter() {
+    return (_, _) -> new AdaptiveConcurrencyRateLimiter(adaptiveInitialLimit, adaptiveMinLimit,
+        adaptiveMaxLimit, adaptiveLongWindow);
+  }
+
+  /**
+   * Saves the state of the in-memory rate limiters to {@code rateLimiter.snapshot.path} every
+   * {@code rateLimiter.snapshot.interval} and on shutdown, and restores it on startup.
+   *
+   * @return the snapshots of the rate limiters
+   */
+  @Bean
+  @ConditionalOnProperty(name = "rateLimiter.snapshot.enabled", havingValue = "true")
+  public RateLimiterSnapshots rateLimiterSnapshots() {
+    return new RateLimiterSnapshots(snapshotPath, snapshotInterval, Clock.systemUTC());
+  }
+
+  /**
+   * Creates the default rate limiter from the global limits.
+   *
+   * @param rateLimiterFactory the factory of the configured strategy
+   * @param snapshots the snapshots of the rate limiters, if enabled
+   * @return the rate limiter of requests that match no policy
+   */
+  @Bean
+  public RateLimiterStrategy rateLimiter(RateLimiterFactory rateLimiterFactory,
+      ObjectProvider<RateLimiterSnapshots> snapshots) {
+    return guarded(rateLimiterFactory, snapshots.getIfAvailable()).create(maxRequests, basePeriod);
+  }
+
+  /**
+   * Compiles the declared policies, each with a rate limiter of the configured strategy.
+   *
+   * @param rateLimiter the rate limiter of requests that match no policy
+   * @param rateLimiterFactory the factory of the configured strategy
+   * @param properties the declared policies
+   * @param snapshots the snapshots of the rate limiters, if enabled
+   * @return the compiled policies
+   */
+  @Bean
+  public RateLimiterPolicies rateLimiterPolicies(RateLimiterStrategy rateLimiter,
+      RateLimiterFactory rateLimiterFactory, RateLimiterPolicyProperties properties,
+      ObjectProvider<RateLimiterSnapshots> snapshots) {
+    return new RateLimiterPolicies(rateLimiter, properties.policies(),
+        guarded(rateLimiterFactory, snapshots.getIfAvailable()), properties.tierHeader());
+  }
+
+  /**
+   * Applies the optional stages to the rate limiters of {@code rateLimiterFactory}: snapshots of
+   * the rate limiters themselves, the heavy hitter front stage in front of them, and the circuit
+   * breaker around everything else.
+   */
+  private RateLimiterFactory guarded(RateLimiterFactory rateLimiterFactory,
+      RateLimiterSnapshots snapshots) {
+    RateLimiterFactory factory = withFrontStage(
+        snapshots == null ? rateLimiterFactory : snapshots.track(rateLimiterFactory));
+    if (!circuitBreakerEnabled) {
+      return factory;
+    }
+    return CircuitBreakerRateLimiter.wrap(factory, circuitBreakerLatencyBudget,
+        circuitBreakerWindowSize, circuitBreakerFailureRateThreshold, circuitBreakerOpenDuration,
+        circuitBreakerInstances, Ticker.systemTicker());
+  }
+
+  /**
+   * Puts the heavy hitter front stage in front of the rate limiters of {@code rateLimiterFactory}
+   * if {@code rateLimiter.heavyHitter.enabled} is set.
+   */
+  private RateLimiterFactory withFrontStage(RateLimiterFactory rateLimiterFactory) {
+    if (!heavyHitterEnabled) {
+      return rateLimiterFactory;
+    }
+    return HeavyHitterRateLimiter.wrap(rateLimiterFactory, heavyHitterThreshold,
+        heavyHitterWidth, Ticker.systemTicker());
+  }
+
+  /**
+   * Lists the windows of a multi-window rate limiter: the base period first, then the configured
+   * windows. Like the token bucket capacity, the configured windows of a policy keep their ratio
+   * to the global limit.
+   */
+  private List<RateLimitWindow> windows(int maxRequests, Duration basePeriod,
+      MultiWindowProperties properties) {
+    List<RateLimitWindow> windows = new ArrayList<>(properties.windows().size() + 1);
+    windows.add(new RateLimitWindow(maxRequests, basePeriod));
+    for (RateLimitWindow window : properties.windows()) {
+      windows.add(new RateLimitWindow(
+          (int) Math.max(1, (long) window.maxRequests() * maxRequests / this.maxRequests),
+          window.period()));
+    }
+    return windows;
+  }
+
+  /**
+   * Selects the store for the strategies that keep one packed state word per key.
+   *
+   * @return the factory named by {@code rateLimiter.storage}
+   */
+  private LongStateStoreFactory stateStoreFactory() {
+    return switch (storage) {
+      case "caffeine" -> LongStateStoreFactory.CAFFEINE;
+      case "striped" -> LongStateStoreFactory.STRIPED;
+      case "timerWheel" -> LongStateStoreFactory.TIMER_WHEEL;
+      default -> throw new IllegalArgumentException("Unknown rateLimiter.storage: " + storage);
+    };
   }
 }
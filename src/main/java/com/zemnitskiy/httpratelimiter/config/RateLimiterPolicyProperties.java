@@ -0,0 +1,28 @@
+package com.zemnitskiy.httpratelimiter.config;
+
+import com.zemnitskiy.httpratelimiter.policy.RateLimitPolicy;
+import com.zemnitskiy.httpratelimiter.policy.RateLimiterPolicies;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * {@code RateLimiterPolicyProperties} binds the rate limit policies declared under
+ * {@code rateLimiter.policies}, for example:
+ *
+ * <pre>
+ * rateLimiter.policies[0].name=login
+ * rateLimiter.policies[0].path=/api/login
+ * rateLimiter.policies[0].methods=POST
+ * rateLimiter.policies[0].maxRequestsPerPeriod=3
+ * rateLimiter.policies[0].basePeriod=1m
+ * </pre>
+ *
+ * @param policies the policies, in order of precedence
+ * @param tierHeader the request header that carries the client tier
+ */
+@ConfigurationProperties("rate-limiter")
+public record RateLimiterPolicyProperties(
+    @DefaultValue List<RateLimitPolicy> policies,
+    @DefaultValue(RateLimiterPolicies.DEFAULT_TIER_HEADER) String tierHeader) {
+}
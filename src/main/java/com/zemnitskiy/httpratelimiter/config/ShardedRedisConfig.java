@@ -0,0 +1,77 @@
+package com.zemnitskiy.httpratelimiter.config;
+
+import com.zemnitskiy.httpratelimiter.sharding.ShardedRedisTemplate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * {@code ShardedRedisConfig} spreads the Redis rate limiters over several Redis nodes. This
+ * configuration is only active when {@code rateLimiter.redis.nodes} lists the nodes as
+ * {@code host:port} pairs.
+ *
+ * <p>Every node gets its own connection, with the credentials, database and timeout of
+ * {@code spring.data.redis}. For Redis Cluster no extra configuration is needed: set
+ * {@code spring.data.redis.cluster.nodes} instead, and the cluster routes each key itself.
+ */
+@Configuration
+@ConditionalOnProperty(name = "rateLimiter.redis.nodes")
+public class ShardedRedisConfig {
+
+  @Value("${rateLimiter.redis.nodes}")
+  private List<String> nodes;
+
+  @Value("${rateLimiter.redis.virtualNodes:160}")
+  private int virtualNodes;
+
+  /**
+   * Defines the template that routes the scripts of the Redis rate limiters to the node of their
+   * key. It takes the place of the single-node {@link StringRedisTemplate}.
+   *
+   * @param redisProperties the connection settings shared by all nodes
+   * @return the sharded template
+   */
+  @Bean
+  @Primary
+  public ShardedRedisTemplate shardedRedisTemplate(RedisProperties redisProperties) {
+    Map<String, StringRedisTemplate> templates = new LinkedHashMap<>();
+    for (String node : nodes) {
+      String address = node.trim();
+      int colon = address.lastIndexOf(':');
+      if (colon <= 0 || colon == address.length() - 1) {
+        throw new IllegalArgumentException("Redis node must be host:port: " + address);
+      }
+      if (templates.containsKey(address)) {
+        throw new IllegalArgumentException("Redis node listed twice: " + address);
+      }
+      RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+          address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+      configuration.setDatabase(redisProperties.getDatabase());
+      configuration.setUsername(redisProperties.getUsername());
+      if (redisProperties.getPassword() != null) {
+        configuration.setPassword(redisProperties.getPassword());
+      }
+      LettuceClientConfiguration.LettuceClientConfigurationBuilder clientConfiguration =
+          LettuceClientConfiguration.builder();
+      if (redisProperties.getTimeout() != null) {
+        clientConfiguration.commandTimeout(redisProperties.getTimeout());
+      }
+      LettuceConnectionFactory connectionFactory =
+          new LettuceConnectionFactory(configuration, clientConfiguration.build());
+      connectionFactory.afterPropertiesSet();
+      connectionFactory.start();
+      templates.put(address, new StringRedisTemplate(connectionFactory));
+    }
+    return new ShardedRedisTemplate(templates, virtualNodes);
+  }
+}
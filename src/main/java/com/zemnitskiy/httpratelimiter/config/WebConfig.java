@@ -1,6 +1,7 @@
 package com.zemnitskiy.httpratelimiter.config;
 
 import com.zemnitskiy.httpratelimiter.web.RateLimiterInterceptor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -12,8 +13,13 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
  * <p>This class registers a custom interceptor, {@link RateLimiterInterceptor}, which applies
  * rate limiting logic to incoming HTTP requests. The interceptor is added to the Spring MVC
  * interceptor registry.
+ *
+ * <p>The interceptor is the default front-end. It is not registered when
+ * {@code rateLimiter.frontEnd} selects the servlet filter, see {@link FilterConfig}.
  */
 @Configuration
+@ConditionalOnProperty(name = "rateLimiter.frontEnd", havingValue = "interceptor",
+    matchIfMissing = true)
 public class WebConfig implements WebMvcConfigurer {
 
   private final RateLimiterInterceptor rateLimiterInterceptor;
@@ -0,0 +1,236 @@
+package com.zemnitskiy.httpratelimiter.gossip;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterFactory;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code GossipChannel} class exchanges the request counts of {@link GossipRateLimiter}s with
+ * a static list of peers over UDP.
+ *
+ * <p>Every {@code interval}, the deltas queued by the rate limiters are packed into datagrams of
+ * at most {@value #MAX_DATAGRAM_BYTES} bytes and sent to every peer. A datagram holds a magic
+ * number and the identifier of the sending instance, followed by entries of a rate limiter
+ * identifier, a key, a window index and a count. A key of a short IP address takes about 35 bytes,
+ * so one datagram carries about 40 keys. A receiving thread adds the entries of its peers to its
+ * own rate limiters.
+ *
+ * <p>Rate limiters are matched across instances by their limits and the order they were created
+ * in, so every instance needs the same policies. The same peer list can be given to every
+ * instance: datagrams an instance receives from itself are ignored.
+ *
+ * <p>Datagrams whose source is not in the peer list are dropped unread. A peer sends from the
+ * address it is bound to, so the list must name every instance by its bind address.
+ */
+public final class GossipChannel implements AutoCloseable {
+
+  static final int MAGIC = 0x52474F53;
+
+  static final int MAX_DATAGRAM_BYTES = 1400;
+
+  private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+  private static final int MAX_KEY_BYTES = 1024;
+
+  private final DatagramChannel channel;
+
+  private final List<InetSocketAddress> peers;
+
+  private final Set<InetSocketAddress> peerAddresses;
+
+  private final long instanceId = ThreadLocalRandom.current().nextLong();
+
+  private final Map<Integer, GossipRateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+  private final Map<String, Integer> occurrences = new HashMap<>();
+
+  private final ByteBuffer sendBuffer = ByteBuffer.allocate(MAX_DATAGRAM_BYTES);
+
+  private final ScheduledExecutorService sender;
+
+  private final Thread receiver;
+
+  private final Logger log = LoggerFactory.getLogger(GossipChannel.class);
+
+  /**
+   * Binds the channel and starts exchanging counts.
+   *
+   * @param bindAddress the local address to receive the datagrams of the peers on
+   * @param peers the addresses of the peers, which may include this instance; datagrams from
+   *     other addresses are dropped
+   * @param interval the time between two sends, or zero to only send on {@link #flush()}
+   * @throws IOException if the address cannot be bound
+   */
+  public GossipChannel(InetSocketAddress bindAddress, List<InetSocketAddress> peers,
+      Duration interval) throws IOException {
+    if (interval == null || interval.isNegative()) {
+      throw new IllegalArgumentException("interval must not be negative");
+    }
+    this.peers = List.copyOf(peers);
+    this.peerAddresses = Set.copyOf(this.peers);
+    this.channel = DatagramChannel.open().bind(bindAddress);
+    this.receiver = Thread.ofPlatform()
+        .name("rate-limiter-gossip-receiver")
+        .daemon()
+        .start(this::receive);
+    if (interval.isZero()) {
+      this.sender = null;
+    } else {
+      this.sender = Executors.newSingleThreadScheduledExecutor(
+          Thread.ofPlatform().name("rate-limiter-gossip-sender").daemon().factory());
+      sender.scheduleWithFixedDelay(this::flush, interval.toNanos(), interval.toNanos(),
+          TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Returns a factory of rate limiters whose counts are exchanged through this channel.
+   *
+   * @param ticker the time source, in nanoseconds since the epoch of the wall clock
+   * @param maxKeys the maximum number of keys each rate limiter keeps counts for
+   * @return the factory of gossiping rate limiters
+   */
+  public RateLimiterFactory rateLimiterFactory(Ticker ticker, long maxKeys) {
+    return (maxRequests, basePeriod) -> {
+      GossipRateLimiter rateLimiter =
+          new GossipRateLimiter(maxRequests, basePeriod, ticker, maxKeys);
+      register(maxRequests + "/" + basePeriod, rateLimiter);
+      return rateLimiter;
+    };
+  }
+
+  /**
+   * Returns the address the channel receives on.
+   *
+   * @return the bound address
+   * @throws IOException if the channel has been closed
+   */
+  public SocketAddress localAddress() throws IOException {
+    return channel.getLocalAddress();
+  }
+
+  private synchronized void register(String limits, GossipRateLimiter rateLimiter) {
+    int occurrence = occurrences.merge(limits, 1, Integer::sum);
+    int id = (limits + '#' + occurrence).hashCode();
+    if (rateLimiters.putIfAbsent(id, rateLimiter) != null) {
+      throw new IllegalStateException("Two gossip rate limiters share the identifier " + id);
+    }
+  }
+
+  /**
+   * Sends the deltas queued by the rate limiters to every peer.
+   */
+  public synchronized void flush() {
+    sendBuffer.clear().putInt(MAGIC).putLong(instanceId);
+    rateLimiters.forEach((id, rateLimiter) -> rateLimiter.drainDeltas((key, window, count) -> {
+      byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+      if (keyBytes.length > MAX_KEY_BYTES) {
+        log.trace("Not gossiping key of {} bytes", keyBytes.length);
+        return;
+      }
+      int entryBytes = Integer.BYTES + Short.BYTES + keyBytes.length + Long.BYTES + Integer.BYTES;
+      if (sendBuffer.remaining() < entryBytes) {
+        send();
+        sendBuffer.clear().putInt(MAGIC).putLong(instanceId);
+      }
+      sendBuffer.putInt(id).putShort((short) keyBytes.length).put(keyBytes).putLong(window)
+          .putInt(count);
+    }));
+    if (sendBuffer.position() > HEADER_BYTES) {
+      send();
+    }
+  }
+
+  private void send() {
+    sendBuffer.flip();
+    for (InetSocketAddress peer : peers) {
+      try {
+        channel.send(sendBuffer, peer);
+      } catch (IOException e) {
+        log.debug("Could not send gossip to {}", peer, e);
+      }
+      sendBuffer.rewind();
+    }
+  }
+
+  private void receive() {
+    ByteBuffer buffer = ByteBuffer.allocate(MAX_DATAGRAM_BYTES);
+    while (channel.isOpen()) {
+      SocketAddress sender;
+      try {
+        buffer.clear();
+        sender = channel.receive(buffer);
+      } catch (ClosedChannelException e) {
+        return;
+      } catch (IOException e) {
+        log.debug("Could not receive gossip", e);
+        continue;
+      }
+      if (!peerAddresses.contains(sender)) {
+        log.trace("Dropping gossip from {}, which is not a peer", sender);
+        continue;
+      }
+      buffer.flip();
+      try {
+        apply(buffer);
+      } catch (BufferUnderflowException | IllegalArgumentException e) {
+        log.debug("Dropping malformed gossip from {}", sender, e);
+      }
+    }
+  }
+
+  /**
+   * Adds the entries of a datagram to the rate limiters they belong to.
+   */
+  private void apply(ByteBuffer datagram) {
+    if (datagram.remaining() < HEADER_BYTES || datagram.getInt() != MAGIC
+        || datagram.getLong() == instanceId) {
+      return;
+    }
+    while (datagram.hasRemaining()) {
+      int id = datagram.getInt();
+      byte[] keyBytes = new byte[Short.toUnsignedInt(datagram.getShort())];
+      datagram.get(keyBytes);
+      long window = datagram.getLong();
+      int count = datagram.getInt();
+      GossipRateLimiter rateLimiter = rateLimiters.get(id);
+      if (rateLimiter != null) {
+        rateLimiter.applyDelta(new String(keyBytes, StandardCharsets.UTF_8), window, count);
+      }
+    }
+  }
+
+  /**
+   * Sends the deltas still queued, then stops sending and receiving.
+   *
+   * @throws IOException if the channel fails to close
+   */
+  @Override
+  public void close() throws IOException {
+    if (sender != null) {
+      sender.shutdown();
+    }
+    flush();
+    channel.close();
+    receiver.interrupt();
+  }
+}
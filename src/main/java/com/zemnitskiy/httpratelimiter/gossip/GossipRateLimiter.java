@@ -0,0 +1,296 @@
+package com.zemnitskiy.httpratelimiter.gossip;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindowcounter.SlidingWindowCounters;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code GossipRateLimiter} class enforces a limit across several instances without a shared
+ * store. Each instance decides locally with a sliding window counter, and its counts include the
+ * requests its peers reported through a {@link GossipChannel}.
+ *
+ * <p>Windows are aligned to the wall clock, so every instance agrees on which window a request
+ * falls into. A request allowed here is counted at once in the local window and queued as a
+ * delta for the peers. The channel sends the queued deltas of every key at a fixed interval, and
+ * adds the deltas it receives to the same windows. A key is queued at most once between two
+ * sends, however many requests it gets.
+ *
+ * <p>Peers learn about a request only after the next send, so the instances together can allow
+ * up to the requests they each receive within one interval above the limit. Lost datagrams are
+ * not resent, which can only make the limit looser. So does the bound on the number of keys: when
+ * more keys are counted, the least recently used ones are forgotten.
+ */
+public final class GossipRateLimiter implements RateLimiterStrategy, MeterBinder {
+
+  private final int maxRequests;
+
+  private final long periodMillis;
+
+  private final Ticker ticker;
+
+  private final Cache<String, KeyCounts> cache;
+
+  private final Queue<KeyCounts> dirtyKeys = new ConcurrentLinkedQueue<>();
+
+  private final String exceptionMessage;
+
+  private final Logger log = LoggerFactory.getLogger(GossipRateLimiter.class);
+
+  /**
+   * Creates a limiter. Its deltas are only exchanged once it is registered with a
+   * {@link GossipChannel}.
+   *
+   * @param maxRequests the maximum number of requests per period across all instances
+   * @param basePeriod the length of a window
+   * @param ticker the time source, in nanoseconds since the epoch of the wall clock, so that the
+   * windows of all instances line up
+   * @param maxKeys the maximum number of keys to keep counts for, whether they were seen here or
+   * reported by a peer
+   */
+  GossipRateLimiter(int maxRequests, Duration basePeriod, Ticker ticker, long maxKeys) {
+    if (maxRequests <= 0) {
+      throw new IllegalArgumentException("maxRequestsPerPeriod must be greater than 0");
+    }
+    if (basePeriod == null || basePeriod.toMillis() <= 0) {
+      throw new IllegalArgumentException("basePeriod must be at least 1 millisecond");
+    }
+    if (maxKeys <= 0) {
+      throw new IllegalArgumentException("maxKeys must be greater than 0");
+    }
+    this.maxRequests = maxRequests;
+    this.periodMillis = basePeriod.toMillis();
+    this.ticker = ticker;
+    this.cache = Caffeine.newBuilder()
+        .expireAfterAccess(basePeriod.multipliedBy(2))
+        .maximumSize(maxKeys)
+        .ticker(ticker)
+        .build();
+    this.exceptionMessage = "Too many requests. You have only " + maxRequests + " requests for "
+        + basePeriod.toSeconds() + " seconds.";
+  }
+
+  /**
+   * Attempts to allow a request for the given key against the counts of all instances known so
+   * far.
+   *
+   * @param key the unique key representing the client or request source
+   * @throws RateLimitExceededException if the rate limit for the key has been exceeded
+   */
+  @Override
+  public void allowRequest(String key) {
+    RateLimitDecision decision = tryAcquire(key);
+    if (!decision.allowed()) {
+      throw new RateLimitExceededException(exceptionMessage, decision.retryAfterSeconds());
+    }
+  }
+
+  /**
+   * Returns the message of a denied request, with the limits of this rate limiter.
+   *
+   * @return the message of the {@link RateLimitExceededException} of a denied request
+   */
+  @Override
+  public String rejectionMessage() {
+    return exceptionMessage;
+  }
+
+  /**
+   * Applies the sliding window counter to the local and reported counts of the key and reports
+   * the outcome without throwing.
+   *
+   * @param key the unique key representing the client or request source
+   * @return the decision, with the requests left under the current estimate and the seconds until
+   * both counted windows have passed
+   */
+  @Override
+  public RateLimitDecision tryAcquire(String key) {
+    long now = TimeUnit.NANOSECONDS.toMillis(ticker.read());
+    long index = now / periodMillis;
+    long elapsed = now % periodMillis;
+    KeyCounts counts = cache.get(key, KeyCounts::new);
+    RateLimitDecision decision;
+    boolean queue = false;
+    synchronized (counts) {
+      counts.rollOver(index);
+      // previous * (1 - elapsed / period) + current + 1 <= max, scaled by period
+      long weighted = counts.previous * (periodMillis - elapsed) + counts.current * periodMillis;
+      if (weighted + periodMillis > maxRequests * periodMillis) {
+        decision = RateLimitDecision.deny(
+            retryAfterSeconds(counts.previous, counts.current, elapsed),
+            resetSeconds(counts.current, elapsed));
+      } else {
+        counts.current++;
+        counts.pendingCurrent++;
+        queue = !counts.dirty;
+        counts.dirty = true;
+        decision = RateLimitDecision.allow(
+            (int) ((maxRequests * periodMillis - weighted - periodMillis) / periodMillis),
+            resetSeconds(counts.current, elapsed));
+      }
+    }
+    if (queue) {
+      dirtyKeys.add(counts);
+    }
+    if (log.isTraceEnabled()) {
+      log.trace("Request {} for key: {}", decision.allowed() ? "allowed" : "denied", key);
+    }
+    return decision;
+  }
+
+  /**
+   * Hands the requests allowed since the last call to {@code sink}, one delta per key and window,
+   * and forgets them.
+   *
+   * @param sink receives the deltas
+   */
+  void drainDeltas(DeltaSink sink) {
+    long index = TimeUnit.NANOSECONDS.toMillis(ticker.read()) / periodMillis;
+    KeyCounts counts;
+    while ((counts = dirtyKeys.poll()) != null) {
+      int previous;
+      int current;
+      synchronized (counts) {
+        counts.rollOver(index);
+        previous = counts.pendingPrevious;
+        current = counts.pendingCurrent;
+        counts.pendingPrevious = 0;
+        counts.pendingCurrent = 0;
+        counts.dirty = false;
+      }
+      if (previous > 0) {
+        sink.accept(counts.key, index - 1, previous);
+      }
+      if (current > 0) {
+        sink.accept(counts.key, index, current);
+      }
+    }
+  }
+
+  /**
+   * Adds the requests a peer allowed to the window they fall into. Deltas for windows that have
+   * already left the estimate are dropped, and deltas from a peer whose clock is ahead are counted
+   * in the current window.
+   *
+   * @param key the key of the requests
+   * @param window the index of the window since the epoch
+   * @param count the number of requests
+   */
+  void applyDelta(String key, long window, int count) {
+    long index = TimeUnit.NANOSECONDS.toMillis(ticker.read()) / periodMillis;
+    if (window < index - 1 || count <= 0) {
+      return;
+    }
+    KeyCounts counts = cache.get(key, KeyCounts::new);
+    synchronized (counts) {
+      counts.rollOver(index);
+      if (window >= index) {
+        counts.current += count;
+      } else {
+        counts.previous += count;
+      }
+    }
+  }
+
+  /**
+   * Returns the requests counted for the key in the current window, by this instance and its
+   * peers.
+   *
+   * @param key the key of the requests
+   * @return the number of requests
+   */
+  long currentCount(String key) {
+    long index = TimeUnit.NANOSECONDS.toMillis(ticker.read()) / periodMillis;
+    KeyCounts counts = cache.getIfPresent(key);
+    if (counts == null) {
+      return 0;
+    }
+    synchronized (counts) {
+      counts.rollOver(index);
+      return counts.current;
+    }
+  }
+
+  private int resetSeconds(long currentCount, long elapsed) {
+    return SlidingWindowCounters.toSeconds(
+        SlidingWindowCounters.resetMillis(periodMillis, currentCount, elapsed));
+  }
+
+  private int retryAfterSeconds(long previousCount, long currentCount, long elapsed) {
+    return SlidingWindowCounters.toSeconds(SlidingWindowCounters.waitMillis(periodMillis,
+        maxRequests, previousCount, currentCount, elapsed));
+  }
+
+  /**
+   * Registers the number of keys with counts.
+   *
+   * @param registry the registry to register with
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    RateLimiterMetrics.monitorKeys(registry, this, cache);
+  }
+
+  /**
+   * Receives the deltas of {@link #drainDeltas(DeltaSink)}.
+   */
+  @FunctionalInterface
+  interface DeltaSink {
+
+    void accept(String key, long window, int count);
+  }
+
+  /**
+   * The counts of one key. The totals include the requests of the peers, the pending counts only
+   * the local requests that have not been sent yet. All fields but the key are guarded by the
+   * instance's monitor.
+   */
+  private static final class KeyCounts {
+
+    private final String key;
+
+    private long windowIndex;
+
+    private long previous;
+
+    private long current;
+
+    private int pendingPrevious;
+
+    private int pendingCurrent;
+
+    private boolean dirty;
+
+    private KeyCounts(String key) {
+      this.key = key;
+    }
+
+    /**
+     * Moves the counts to the window {@code index}: the current counts become the previous ones
+     * if exactly one window has passed, and all are dropped if more have.
+     */
+    private void rollOver(long index) {
+      if (index <= windowIndex) {
+        return;
+      }
+      boolean adjacent = index == windowIndex + 1;
+      previous = adjacent ? current : 0;
+      pendingPrevious = adjacent ? pendingCurrent : 0;
+      current = 0;
+      pendingCurrent = 0;
+      windowIndex = index;
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.zemnitskiy.httpratelimiter.heavyhitter;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zemnitskiy.httpratelimiter.storage.StripedLongStateStore;
+import com.zemnitskiy.httpratelimiter.strategy.BinaryKeyRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import java.time.Duration;
+
+/**
+ * The {@code BinaryHeavyHitterRateLimiter} class is the {@link HeavyHitterRateLimiter} of an exact
+ * rate limiter that takes binary keys. Binary keys are counted in the sketch by their fingerprint,
+ * so the front stage builds no {@code String} either.
+ */
+public final class BinaryHeavyHitterRateLimiter extends HeavyHitterRateLimiter
+    implements BinaryKeyRateLimiterStrategy {
+
+  private final BinaryKeyRateLimiterStrategy exactRateLimiter;
+
+  BinaryHeavyHitterRateLimiter(BinaryKeyRateLimiterStrategy exactRateLimiter, int maxRequests,
+      int promoteAt, Duration basePeriod, int width, Ticker ticker) {
+    super(exactRateLimiter, maxRequests, promoteAt, basePeriod, width, ticker);
+    this.exactRateLimiter = exactRateLimiter;
+  }
+
+  /**
+   * Applies the front stage to a binary key, such as the binary form of an IP address.
+   *
+   * @param keyHigh the upper 64 bits of the key
+   * @param keyLow the lower 64 bits of the key
+   * @return the decision of the sketch, with the estimated requests left, or the decision of the
+   * exact rate limiter
+   */
+  @Override
+  public RateLimitDecision tryAcquire(long keyHigh, long keyLow) {
+    long fingerprint = StripedLongStateStore.fingerprint(keyHigh, keyLow);
+    RateLimitDecision decision = tryAcquireCold(fingerprint);
+    if (decision != null) {
+      return decision;
+    }
+    return countPromoted(fingerprint, exactRateLimiter.tryAcquire(keyHigh, keyLow));
+  }
+}
@@ -0,0 +1,122 @@
+package com.zemnitskiy.httpratelimiter.heavyhitter;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The {@code CountMinSketch} class counts the requests of any number of keys approximately in a
+ * fixed number of counters.
+ *
+ * <p>The counters form {@value #DEPTH} rows of {@code width} counters. Each key is counted in one
+ * counter per row, chosen by its fingerprint, and its estimate is the smallest of those counters.
+ * Keys that share a counter add to each other's estimate, so an estimate is never below the true
+ * count but may be above it. Counting uses the conservative update: a counter is only raised as
+ * far as the new estimate of the key, which keeps the counters of keys that collide with a heavy
+ * key low.
+ *
+ * <p>The counters are updated with atomic operations and no lock. Concurrent updates of the same
+ * key may each see the same estimate, so the sketch can count such a burst as fewer requests than
+ * it was.
+ */
+final class CountMinSketch {
+
+  static final int DEPTH = 4;
+
+  private static final int ARRAY_HEADER_BYTES = 16;
+
+  private final AtomicIntegerArray counters;
+
+  private final int width;
+
+  private final int mask;
+
+  private final long seed;
+
+  /**
+   * Creates an empty sketch.
+   *
+   * @param width the number of counters per row, rounded up to a power of two
+   * @param seed mixed into the counter indexes, so that colliding keys cannot be predicted
+   */
+  CountMinSketch(int width, long seed) {
+    if (width <= 0 || width > 1 << 28) {
+      throw new IllegalArgumentException("width must be between 1 and " + (1 << 28));
+    }
+    this.width = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+    this.mask = this.width - 1;
+    this.seed = seed;
+    this.counters = new AtomicIntegerArray(DEPTH * this.width);
+  }
+
+  /**
+   * Returns the estimated count of a key.
+   *
+   * @param fingerprint the 64-bit fingerprint of the key
+   * @return the estimate, never below the true count
+   */
+  int estimate(long fingerprint) {
+    return min(hash(fingerprint));
+  }
+
+  private int min(long hash) {
+    int min = Integer.MAX_VALUE;
+    for (int row = 0; row < DEPTH; row++) {
+      min = Math.min(min, counters.get(index(hash, row)));
+    }
+    return min;
+  }
+
+  /**
+   * Counts one request of a key.
+   *
+   * @param fingerprint the 64-bit fingerprint of the key
+   * @return the new estimate of the key
+   */
+  int add(long fingerprint) {
+    long hash = hash(fingerprint);
+    int target = min(hash) + 1;
+    for (int row = 0; row < DEPTH; row++) {
+      counters.accumulateAndGet(index(hash, row), target, Math::max);
+    }
+    return target;
+  }
+
+  /**
+   * Resets every counter to zero.
+   */
+  void clear() {
+    for (int i = 0; i < counters.length(); i++) {
+      counters.setPlain(i, 0);
+    }
+  }
+
+  /**
+   * Returns the number of bytes the counters occupy on the heap.
+   *
+   * @return the memory of the sketch
+   */
+  long memoryBytes() {
+    return ARRAY_HEADER_BYTES + (long) Integer.BYTES * counters.length();
+  }
+
+  /**
+   * Mixes the seed into a fingerprint with the MurmurHash3 64-bit finalizer.
+   */
+  private long hash(long fingerprint) {
+    long hash = fingerprint ^ seed;
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    return hash ^ (hash >>> 33);
+  }
+
+  /**
+   * Picks the counter of a key in {@code row} by double hashing: the lower half of the hash is the
+   * start and the upper half, made odd, the step between rows.
+   */
+  private int index(long hash, int row) {
+    int start = (int) hash;
+    int step = (int) (hash >>> 32) | 1;
+    return row * width + ((start + row * step) & mask);
+  }
+}
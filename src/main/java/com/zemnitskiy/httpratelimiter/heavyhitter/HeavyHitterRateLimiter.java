@@ -0,0 +1,271 @@
+package com.zemnitskiy.httpratelimiter.heavyhitter;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.storage.StripedLongStateStore;
+import com.zemnitskiy.httpratelimiter.strategy.AsyncRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.BinaryKeyRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.CompletionAwareRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.QueueingRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterFactory;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code HeavyHitterRateLimiter} class puts a fixed-size front stage in front of a rate
+ * limiter, so that a flood of distinct keys does not create per-key state for each of them.
+ *
+ * <p>Every key is first counted in a {@link CountMinSketch}. Like the sliding window counter, the
+ * estimate of a key weighs the sketch of the previous period by the part of it that still overlaps
+ * the sliding window, and adds the sketch of the current period. A key whose estimate is below the
+ * promotion threshold is allowed by the sketch alone. Only keys that reach it are passed to the
+ * exact rate limiter, which creates their state. That rate limiter is created with the limit minus
+ * the threshold, so a key gets about its full limit per period across both stages.
+ *
+ * <p>The two sketches take the same memory however many keys are seen. The sketch overestimates,
+ * so a cold key is promoted early rather than late. The error grows with the requests per period
+ * divided by the width of the sketch, so the width should be well above the expected requests per
+ * period divided by the threshold.
+ */
+public sealed class HeavyHitterRateLimiter implements RateLimiterStrategy, MeterBinder,
+    AutoCloseable permits BinaryHeavyHitterRateLimiter {
+
+  private final RateLimiterStrategy exactRateLimiter;
+
+  private final int maxRequests;
+
+  private final int promoteAt;
+
+  private final long periodMillis;
+
+  private final Ticker ticker;
+
+  private final long epochNanos;
+
+  private volatile long windowIndex;
+
+  private volatile CountMinSketch current;
+
+  private volatile CountMinSketch previous;
+
+  private final String exceptionMessage;
+
+  HeavyHitterRateLimiter(RateLimiterStrategy exactRateLimiter, int maxRequests, int promoteAt,
+      Duration basePeriod, int width, Ticker ticker) {
+    this.exactRateLimiter = exactRateLimiter;
+    this.maxRequests = maxRequests;
+    this.promoteAt = promoteAt;
+    this.periodMillis = basePeriod.toMillis();
+    this.ticker = ticker;
+    this.epochNanos = ticker.read();
+    long seed = ThreadLocalRandom.current().nextLong();
+    this.current = new CountMinSketch(width, seed);
+    this.previous = new CountMinSketch(width, seed);
+    this.exceptionMessage = "Too many requests. You have only " + maxRequests + " requests for "
+        + basePeriod.toSeconds() + " seconds.";
+  }
+
+  /**
+   * Wraps the rate limiters of {@code exactFactory} in a front stage.
+   *
+   * @param exactFactory creates the rate limiters that keep exact per-key state
+   * @param threshold the part of the limit a key may use before it gets exact state, between
+   * {@code 0} and {@code 1}
+   * @param width the number of counters per row of each sketch
+   * @param ticker the time source, in nanoseconds
+   * @return the factory of wrapped rate limiters. A limit too small to leave room for the front
+   * stage gets a plain rate limiter of {@code exactFactory}.
+   * @throws IllegalArgumentException if the threshold is out of range, or when a rate limiter is
+   * created for an asynchronous strategy, whose non-blocking calls the front stage would hide, or
+   * for a strategy that limits requests in flight, which keeps no per-key state to protect, or
+   * for a queueing strategy, whose delayed requests the front stage would reject
+   */
+  public static RateLimiterFactory wrap(RateLimiterFactory exactFactory, double threshold,
+      int width, Ticker ticker) {
+    if (!(threshold > 0 && threshold < 1)) {
+      throw new IllegalArgumentException("threshold must be between 0 and 1");
+    }
+    return (maxRequests, basePeriod) -> {
+      int promoteAt = (int) (maxRequests * threshold);
+      if (promoteAt == 0) {
+        return exactFactory.create(maxRequests, basePeriod);
+      }
+      if (basePeriod == null || basePeriod.toMillis() <= 0) {
+        throw new IllegalArgumentException("basePeriod must be at least 1 millisecond");
+      }
+      RateLimiterStrategy exact = exactFactory.create(maxRequests - promoteAt, basePeriod);
+      if (exact instanceof AsyncRateLimiterStrategy) {
+        throw new IllegalArgumentException(
+            "The heavy hitter stage does not support asynchronous strategies");
+      }
+      if (exact instanceof CompletionAwareRateLimiterStrategy) {
+        throw new IllegalArgumentException(
+            "The heavy hitter stage does not support strategies that limit requests in flight");
+      }
+      if (exact instanceof QueueingRateLimiterStrategy) {
+        throw new IllegalArgumentException(
+            "The heavy hitter stage does not support strategies that queue requests");
+      }
+      if (exact instanceof BinaryKeyRateLimiterStrategy binaryExact) {
+        return new BinaryHeavyHitterRateLimiter(binaryExact, maxRequests, promoteAt, basePeriod,
+            width, ticker);
+      }
+      return new HeavyHitterRateLimiter(exact, maxRequests, promoteAt, basePeriod, width, ticker);
+    };
+  }
+
+  /**
+   * Returns the rate limiter that keeps the state of promoted keys.
+   *
+   * @return the exact rate limiter
+   */
+  public RateLimiterStrategy exactRateLimiter() {
+    return exactRateLimiter;
+  }
+
+  /**
+   * Attempts to allow a request for the given key, in the sketch while the key is below the
+   * promotion threshold, and in the exact rate limiter after that.
+   *
+   * @param key the unique key representing the client or request source
+   * @throws RateLimitExceededException if the exact rate limiter denies the request
+   */
+  @Override
+  public void allowRequest(String key) {
+    RateLimitDecision decision = tryAcquire(key);
+    if (!decision.allowed()) {
+      throw new RateLimitExceededException(exceptionMessage, decision.retryAfterSeconds());
+    }
+  }
+
+  /**
+   * Returns the message of a denied request, with the limits of this rate limiter.
+   *
+   * @return the message of the {@link RateLimitExceededException} of a denied request
+   */
+  @Override
+  public String rejectionMessage() {
+    return exceptionMessage;
+  }
+
+  /**
+   * Returns whether the exact rate limiter, which decides the heavy hitters, can block.
+   *
+   * @return {@code true} if the exact rate limiter is blocking
+   */
+  @Override
+  public boolean isBlocking() {
+    return exactRateLimiter.isBlocking();
+  }
+
+  /**
+   * Applies the front stage described in {@link #allowRequest(String)} and reports the outcome
+   * without throwing.
+   *
+   * @param key the unique key representing the client or request source
+   * @return the decision of the sketch, with the estimated requests left, or the decision of the
+   * exact rate limiter
+   */
+  @Override
+  public RateLimitDecision tryAcquire(String key) {
+    long fingerprint = StripedLongStateStore.fingerprint(key);
+    RateLimitDecision decision = tryAcquireCold(fingerprint);
+    if (decision != null) {
+      return decision;
+    }
+    return countPromoted(fingerprint, exactRateLimiter.tryAcquire(key));
+  }
+
+  /**
+   * Allows the request in the sketch if the key is below the promotion threshold.
+   *
+   * @param fingerprint the fingerprint of the key
+   * @return the decision, or {@code null} if the key has to go to the exact rate limiter
+   */
+  final RateLimitDecision tryAcquireCold(long fingerprint) {
+    long now = TimeUnit.NANOSECONDS.toMillis(ticker.read() - epochNanos);
+    rollOver(now / periodMillis);
+    CountMinSketch currentSketch = current;
+    long elapsed = now % periodMillis;
+    long estimate = previous.estimate(fingerprint) * (periodMillis - elapsed) / periodMillis
+        + currentSketch.estimate(fingerprint);
+    if (estimate >= promoteAt) {
+      return null;
+    }
+    currentSketch.add(fingerprint);
+    return RateLimitDecision.allow((int) (maxRequests - estimate - 1), RateLimitDecision.UNKNOWN);
+  }
+
+  /**
+   * Counts a request the exact rate limiter allowed in the sketch too, so that the key stays
+   * promoted while it keeps sending.
+   */
+  final RateLimitDecision countPromoted(long fingerprint, RateLimitDecision decision) {
+    if (decision.allowed()) {
+      current.add(fingerprint);
+    }
+    return decision;
+  }
+
+  /**
+   * Moves the sketches to the period {@code index}: the current sketch becomes the previous one if
+   * exactly one period has passed, and both are emptied if more have.
+   */
+  private void rollOver(long index) {
+    if (index == windowIndex) {
+      return;
+    }
+    synchronized (this) {
+      long storedIndex = windowIndex;
+      if (index <= storedIndex) {
+        return;
+      }
+      CountMinSketch recycled = previous;
+      recycled.clear();
+      if (storedIndex + 1 != index) {
+        current.clear();
+      }
+      previous = current;
+      current = recycled;
+      windowIndex = index;
+    }
+  }
+
+  /**
+   * Registers the memory of the sketches and the meters of the exact rate limiter.
+   *
+   * @param registry the registry to register with
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    RateLimiterMetrics.monitorSketch(registry, this,
+        current.memoryBytes() + previous.memoryBytes());
+    if (exactRateLimiter instanceof MeterBinder binder) {
+      binder.bindTo(registry);
+    }
+  }
+
+  /**
+   * Closes the exact rate limiter.
+   *
+   * @throws IllegalStateException if the exact rate limiter fails to close
+   */
+  @Override
+  public void close() {
+    if (exactRateLimiter instanceof AutoCloseable closeable) {
+      try {
+        closeable.close();
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IllegalStateException("Failed to close the exact rate limiter", e);
+      }
+    }
+  }
+}
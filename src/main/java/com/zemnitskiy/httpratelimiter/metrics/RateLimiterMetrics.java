@@ -0,0 +1,291 @@
+package com.zemnitskiy.httpratelimiter.metrics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStore;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The {@code RateLimiterMetrics} class records the decisions of a rate limiter with Micrometer,
+ * and names the meters the strategies register for their own internals.
+ *
+ * <p>The meters of a decision are looked up once, when the front-end is created. Recording a
+ * decision is then one timer update and one counter increment, both on striped adders in the
+ * usual registries, so the hot path takes no lock and builds no tags. Percentile histograms are
+ * off unless enabled through {@code management.metrics.distribution.*}.
+ *
+ * <p>Every meter carries a {@code strategy} tag with the simple class name of the rate limiter:
+ * <ul>
+ *   <li>{@value #DECISION}: the time the front-end spent deciding a request</li>
+ *   <li>{@value #REQUESTS}: the decided requests, with an {@code outcome} tag of {@code allowed}
+ *   or {@code denied}</li>
+ *   <li>{@value #SCRIPT}: the round trip of a Redis script call, with a {@code script} tag</li>
+ *   <li>{@value #KEYS}: the number of keys the strategy holds locally</li>
+ *   <li>{@value #STATE_MEMORY}: the estimated memory of that local state, or of the sketches of a
+ *   heavy hitter front stage</li>
+ *   <li>{@value #CIRCUIT_STATE}: the state of a circuit breaker, {@code 0} closed, {@code 1} open
+ *   and {@code 2} half-open</li>
+ *   <li>{@value #FALLBACK_REQUESTS}: the requests decided by a local fallback instead of Redis</li>
+ *   <li>{@value #CONCURRENCY_LIMIT} and {@value #IN_FLIGHT}: the adaptive limit of requests in
+ *   flight and the requests in flight</li>
+ *   <li>{@value #RETRY_CACHE_HIT_RATIO} and the standard {@code cache.*} meters of the local cache
+ *   of denied keys, with a {@code cache} tag of {@value #RETRY_CACHE}</li>
+ * </ul>
+ */
+public final class RateLimiterMetrics {
+
+  public static final String DECISION = "rate.limiter.decision";
+
+  public static final String REQUESTS = "rate.limiter.requests";
+
+  public static final String SCRIPT = "rate.limiter.redis.script";
+
+  public static final String KEYS = "rate.limiter.keys";
+
+  public static final String STATE_MEMORY = "rate.limiter.state.memory";
+
+  public static final String CIRCUIT_STATE = "rate.limiter.circuit.state";
+
+  public static final String FALLBACK_REQUESTS = "rate.limiter.fallback.requests";
+
+  public static final String CONCURRENCY_LIMIT = "rate.limiter.concurrency.limit";
+
+  public static final String IN_FLIGHT = "rate.limiter.concurrency.in.flight";
+
+  public static final String RETRY_CACHE_HIT_RATIO = "rate.limiter.retry.cache.hit.ratio";
+
+  public static final String RETRY_CACHE = "rateLimiterRetryCache";
+
+  /**
+   * A registry that denies every meter, so that the meters it returns are no-ops.
+   */
+  private static final MeterRegistry DISABLED_REGISTRY = disabledRegistry();
+
+  private final Timer decisionTimer;
+
+  private final Counter allowed;
+
+  private final Counter denied;
+
+  /**
+   * Creates the decision meters of {@code rateLimiter} in {@code registry}.
+   *
+   * @param registry the registry to record to
+   * @param rateLimiter the rate limiter whose decisions are recorded
+   */
+  public RateLimiterMetrics(MeterRegistry registry, Object rateLimiter) {
+    Tags tags = tags(rateLimiter);
+    this.decisionTimer = Timer.builder(DECISION)
+        .description("Time spent deciding whether a request may proceed")
+        .tags(tags)
+        .register(registry);
+    this.allowed = Counter.builder(REQUESTS)
+        .description("Requests decided by the rate limiter")
+        .tags(tags)
+        .tag("outcome", "allowed")
+        .register(registry);
+    this.denied = Counter.builder(REQUESTS)
+        .description("Requests decided by the rate limiter")
+        .tags(tags)
+        .tag("outcome", "denied")
+        .register(registry);
+  }
+
+  /**
+   * Returns metrics that record nothing, for front-ends created without a registry.
+   *
+   * @return the disabled metrics
+   */
+  public static RateLimiterMetrics disabled() {
+    return new RateLimiterMetrics(DISABLED_REGISTRY, RateLimiterMetrics.class);
+  }
+
+  /**
+   * Records a decision.
+   *
+   * @param decision the decision
+   * @param startNanos the value of {@link System#nanoTime()} when the decision started
+   */
+  public void record(RateLimitDecision decision, long startNanos) {
+    decisionTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    (decision.allowed() ? allowed : denied).increment();
+  }
+
+  /**
+   * Returns the tags shared by the meters of {@code rateLimiter}.
+   *
+   * @param rateLimiter the rate limiter
+   * @return the {@code strategy} tag
+   */
+  public static Tags tags(Object rateLimiter) {
+    Class<?> type = rateLimiter instanceof Class<?> cls ? cls : rateLimiter.getClass();
+    return Tags.of("strategy", type.getSimpleName());
+  }
+
+  /**
+   * Returns a timer that records nothing, for strategies that have not been bound to a registry.
+   *
+   * @return the disabled timer
+   */
+  public static Timer disabledScriptTimer() {
+    return Timer.builder(SCRIPT).register(DISABLED_REGISTRY);
+  }
+
+  /**
+   * Creates the timer of the Redis round trips of {@code script}.
+   *
+   * @param registry the registry to record to
+   * @param rateLimiter the rate limiter that calls the script
+   * @param script the name of the script
+   * @return the timer
+   */
+  public static Timer scriptTimer(MeterRegistry registry, Object rateLimiter, String script) {
+    return Timer.builder(SCRIPT)
+        .description("Round trip time of Redis script calls")
+        .tags(tags(rateLimiter))
+        .tag("script", script)
+        .register(registry);
+  }
+
+  /**
+   * Returns a counter that records nothing, for strategies that have not been bound to a registry.
+   *
+   * @return the disabled counter
+   */
+  public static Counter disabledFallbackCounter() {
+    return Counter.builder(FALLBACK_REQUESTS).register(DISABLED_REGISTRY);
+  }
+
+  /**
+   * Creates the counter of the requests that {@code rateLimiter} decided with its local fallback.
+   *
+   * @param registry the registry to record to
+   * @param rateLimiter the rate limiter that falls back
+   * @return the counter
+   */
+  public static Counter fallbackCounter(MeterRegistry registry, Object rateLimiter) {
+    return Counter.builder(FALLBACK_REQUESTS)
+        .description("Requests decided by the local fallback instead of Redis")
+        .tags(tags(rateLimiter))
+        .register(registry);
+  }
+
+  /**
+   * Registers the state gauge of a circuit breaker.
+   *
+   * @param registry the registry to register with
+   * @param rateLimiter the rate limiter that owns the breaker
+   * @param state supplies the ordinal of the state
+   */
+  public static void monitorCircuitBreaker(MeterRegistry registry, Object rateLimiter,
+      Supplier<Number> state) {
+    Gauge.builder(CIRCUIT_STATE, state)
+        .description("State of the circuit breaker: 0 closed, 1 open, 2 half-open")
+        .tags(tags(rateLimiter))
+        .register(registry);
+  }
+
+  /**
+   * Registers the gauges of an adaptive concurrency limit.
+   *
+   * @param registry the registry to register with
+   * @param rateLimiter the rate limiter that owns the limit
+   * @param limit supplies the number of requests allowed in flight
+   * @param inFlight supplies the number of requests in flight
+   */
+  public static void monitorConcurrency(MeterRegistry registry, Object rateLimiter,
+      Supplier<Number> limit, Supplier<Number> inFlight) {
+    Tags tags = tags(rateLimiter);
+    Gauge.builder(CONCURRENCY_LIMIT, limit)
+        .description("Requests allowed in flight at once")
+        .tags(tags)
+        .register(registry);
+    Gauge.builder(IN_FLIGHT, inFlight)
+        .description("Requests allowed and not completed yet")
+        .tags(tags)
+        .register(registry);
+  }
+
+  /**
+   * Registers the gauges of a {@link LongStateStore}.
+   *
+   * @param registry the registry to register with
+   * @param rateLimiter the rate limiter that owns the store
+   * @param store the store
+   */
+  public static void monitorStateStore(MeterRegistry registry, Object rateLimiter,
+      LongStateStore store) {
+    Tags tags = tags(rateLimiter);
+    Gauge.builder(KEYS, store, LongStateStore::estimatedSize)
+        .description("Keys held in local rate limiter state")
+        .tags(tags)
+        .register(registry);
+    Gauge.builder(STATE_MEMORY, store, LongStateStore::estimatedMemoryBytes)
+        .description("Estimated memory of local rate limiter state")
+        .tags(tags)
+        .baseUnit("bytes")
+        .register(registry);
+  }
+
+  /**
+   * Registers the key count gauge of a strategy that keeps its local state in a Caffeine cache.
+   *
+   * @param registry the registry to register with
+   * @param rateLimiter the rate limiter that owns the cache
+   * @param cache the cache
+   */
+  public static void monitorKeys(MeterRegistry registry, Object rateLimiter, Cache<?, ?> cache) {
+    Gauge.builder(KEYS, cache, Cache::estimatedSize)
+        .description("Keys held in local rate limiter state")
+        .tags(tags(rateLimiter))
+        .register(registry);
+  }
+
+  /**
+   * Registers the memory gauge of a fixed-size sketch, such as the front stage of a
+   * {@code HeavyHitterRateLimiter}.
+   *
+   * @param registry the registry to register with
+   * @param rateLimiter the rate limiter that owns the sketch
+   * @param memoryBytes the memory of the sketch, which does not change
+   */
+  public static void monitorSketch(MeterRegistry registry, Object rateLimiter, long memoryBytes) {
+    Gauge.builder(STATE_MEMORY, () -> memoryBytes)
+        .description("Estimated memory of local rate limiter state")
+        .tags(tags(rateLimiter))
+        .baseUnit("bytes")
+        .register(registry);
+  }
+
+  /**
+   * Registers the meters of the local cache of denied keys. The cache must record statistics.
+   *
+   * @param registry the registry to register with
+   * @param rateLimiter the rate limiter that owns the cache
+   * @param retryCache the cache
+   */
+  public static void monitorRetryCache(MeterRegistry registry, Object rateLimiter,
+      Cache<?, ?> retryCache) {
+    Tags tags = tags(rateLimiter);
+    CaffeineCacheMetrics.monitor(registry, retryCache, RETRY_CACHE, tags);
+    Gauge.builder(RETRY_CACHE_HIT_RATIO, retryCache, cache -> cache.stats().hitRate())
+        .description("Share of lookups that found the key in the local cache of denied keys")
+        .tags(tags)
+        .register(registry);
+  }
+
+  private static MeterRegistry disabledRegistry() {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    registry.config().meterFilter(MeterFilter.deny());
+    return registry;
+  }
+}
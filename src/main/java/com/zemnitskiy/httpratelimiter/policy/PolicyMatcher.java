@@ -0,0 +1,242 @@
+package com.zemnitskiy.httpratelimiter.policy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The {@code PolicyMatcher} class finds the value of the most specific rule that matches a
+ * request's method, path and client tier.
+ *
+ * <p>The path patterns of the rules are compiled into a tree with one level per path segment. The
+ * literal children of a node sit in an open-addressing table that is probed with the hash of the
+ * characters of the segment, so a request path is matched in one pass over its characters,
+ * without regular expressions and without creating substrings. Methods are compared as bits of a
+ * mask and tiers with {@link String#equals}.
+ *
+ * <p>At every segment a literal child is tried before {@code *}, and {@code *} before a trailing
+ * {@code **}, falling back to the next one if nothing matches below. Among the rules of the same
+ * pattern, the first declared one that accepts the method and the tier wins.
+ *
+ * @param <T> the type of the values of the rules
+ */
+final class PolicyMatcher<T> {
+
+  private static final String[] METHODS =
+      {"GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "TRACE"};
+
+  /**
+   * The method bit of non-standard methods.
+   */
+  private static final int OTHER_METHOD = 1 << METHODS.length;
+
+  private static final int ANY_METHOD = -1;
+
+  private final Node<T> root = new Node<>();
+
+  /**
+   * Compiles {@code rules}, in order of precedence.
+   *
+   * @throws IllegalArgumentException if a pattern uses {@code **} other than as its last segment
+   */
+  PolicyMatcher(List<Rule<T>> rules) {
+    for (Rule<T> rule : rules) {
+      add(rule);
+    }
+    root.compile();
+  }
+
+  /**
+   * A rule of the matcher.
+   *
+   * @param pattern the path pattern
+   * @param methods the methods the rule applies to, or empty for all methods
+   * @param tier the client tier the rule applies to, or {@code null} for all clients
+   * @param value the value returned for a match
+   */
+  record Rule<T>(String pattern, List<String> methods, String tier, T value) {
+  }
+
+  private void add(Rule<T> rule) {
+    String[] segments = rule.pattern().split("/");
+    Node<T> node = root;
+    int last = segments.length - 1;
+    while (last >= 0 && segments[last].isEmpty()) {
+      last--;
+    }
+    for (int i = 0; i <= last; i++) {
+      String segment = segments[i];
+      if (segment.isEmpty()) {
+        continue;
+      }
+      if (segment.equals("**")) {
+        if (i != last) {
+          throw new IllegalArgumentException(
+              "** must be the last segment of path pattern " + rule.pattern());
+        }
+        node.rest.add(new CompiledRule<>(methodMask(rule.methods()), rule.tier(), rule.value()));
+        return;
+      }
+      if (!segment.equals("*")) {
+        node = node.literals.computeIfAbsent(segment, _ -> new Node<>());
+      } else {
+        if (node.wildcard == null) {
+          node.wildcard = new Node<>();
+        }
+        node = node.wildcard;
+      }
+    }
+    node.exact.add(new CompiledRule<>(methodMask(rule.methods()), rule.tier(), rule.value()));
+  }
+
+  private static int methodMask(List<String> methods) {
+    if (methods.isEmpty()) {
+      return ANY_METHOD;
+    }
+    int mask = 0;
+    for (String method : methods) {
+      mask |= methodBit(method.trim().toUpperCase(Locale.ROOT));
+    }
+    return mask;
+  }
+
+  private static int methodBit(String method) {
+    for (int i = 0; i < METHODS.length; i++) {
+      if (METHODS[i].equals(method)) {
+        return 1 << i;
+      }
+    }
+    return OTHER_METHOD;
+  }
+
+  /**
+   * Returns the value of the most specific rule that matches the request.
+   *
+   * @param method the HTTP method of the request, in upper case
+   * @param path the path of the request, without the query
+   * @param tier the client tier of the request, or {@code null} if it has none
+   * @return the value of the matching rule, or {@code null} if no rule matches
+   */
+  T match(String method, String path, String tier) {
+    return match(root, path, 0, methodBit(method), tier);
+  }
+
+  private T match(Node<T> node, String path, int from, int methodBit, String tier) {
+    int start = from;
+    while (start < path.length() && path.charAt(start) == '/') {
+      start++;
+    }
+    if (start == path.length()) {
+      T value = select(node.exactRules, methodBit, tier);
+      return value != null ? value : select(node.restRules, methodBit, tier);
+    }
+    int end = path.indexOf('/', start);
+    if (end < 0) {
+      end = path.length();
+    }
+    Node<T> literal = node.child(path, start, end);
+    if (literal != null) {
+      T value = match(literal, path, end, methodBit, tier);
+      if (value != null) {
+        return value;
+      }
+    }
+    if (node.wildcard != null) {
+      T value = match(node.wildcard, path, end, methodBit, tier);
+      if (value != null) {
+        return value;
+      }
+    }
+    return select(node.restRules, methodBit, tier);
+  }
+
+  private static <T> T select(CompiledRule<T>[] rules, int methodBit, String tier) {
+    for (CompiledRule<T> rule : rules) {
+      if ((rule.methods & methodBit) != 0 && (rule.tier == null || rule.tier.equals(tier))) {
+        return rule.value;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The hash of {@code text} between {@code from} and {@code to}, equal to the
+   * {@link String#hashCode()} of that substring, spread so that its low bits are usable as an
+   * index.
+   */
+  private static int hash(String text, int from, int to) {
+    int hash = 0;
+    for (int i = from; i < to; i++) {
+      hash = 31 * hash + text.charAt(i);
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  private record CompiledRule<T>(int methods, String tier, T value) {
+  }
+
+  /**
+   * A node of the pattern tree, one path segment deep. The builder fields are dropped by
+   * {@link #compile()}.
+   */
+  private static final class Node<T> {
+
+    private Map<String, Node<T>> literals = new HashMap<>();
+
+    private List<CompiledRule<T>> exact = new ArrayList<>();
+
+    private List<CompiledRule<T>> rest = new ArrayList<>();
+
+    private Node<T> wildcard;
+
+    private String[] keys;
+
+    private Node<T>[] children;
+
+    private CompiledRule<T>[] exactRules;
+
+    private CompiledRule<T>[] restRules;
+
+    @SuppressWarnings("unchecked")
+    private void compile() {
+      // At most half full, so that a miss ends after a probe or two
+      int capacity = Integer.highestOneBit(Math.max(1, literals.size()) * 4 - 1);
+      keys = new String[capacity];
+      children = (Node<T>[]) new Node<?>[capacity];
+      for (Map.Entry<String, Node<T>> entry : literals.entrySet()) {
+        String key = entry.getKey();
+        int slot = hash(key, 0, key.length()) & (capacity - 1);
+        while (keys[slot] != null) {
+          slot = (slot + 1) & (capacity - 1);
+        }
+        keys[slot] = key;
+        children[slot] = entry.getValue();
+        entry.getValue().compile();
+      }
+      if (wildcard != null) {
+        wildcard.compile();
+      }
+      exactRules = (CompiledRule<T>[]) exact.toArray(new CompiledRule<?>[0]);
+      restRules = (CompiledRule<T>[]) rest.toArray(new CompiledRule<?>[0]);
+      literals = null;
+      exact = null;
+      rest = null;
+    }
+
+    private Node<T> child(String path, int from, int to) {
+      int length = to - from;
+      int mask = keys.length - 1;
+      for (int slot = hash(path, from, to) & mask; ; slot = (slot + 1) & mask) {
+        String key = keys[slot];
+        if (key == null) {
+          return null;
+        }
+        if (key.length() == length && path.regionMatches(from, key, 0, length)) {
+          return children[slot];
+        }
+      }
+    }
+  }
+}
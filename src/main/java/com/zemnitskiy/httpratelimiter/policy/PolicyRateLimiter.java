@@ -0,0 +1,181 @@
+package com.zemnitskiy.httpratelimiter.policy;
+
+import com.zemnitskiy.httpratelimiter.strategy.AsyncRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.BinaryClientKeyStrategy.BinaryKeyFunction;
+import com.zemnitskiy.httpratelimiter.strategy.BinaryKeyRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.CompletionAwareRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.QueueingRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The {@code PolicyRateLimiter} class is the rate limiter of one policy, with the ways it can be
+ * called worked out once when the policies are compiled.
+ *
+ * <p>The rate limiter of a policy has state of its own. Strategies that keep their state in Redis
+ * share the key space with the other policies, so the {@code String} keys of a policy are prefixed
+ * with its name. Binary keys are only supported by in-memory strategies and are passed unchanged.
+ */
+public final class PolicyRateLimiter {
+
+  private final String name;
+
+  private final RateLimiterStrategy rateLimiter;
+
+  private final String keyPrefix;
+
+  private final BinaryKeyFunction<RateLimitDecision> binaryTryAcquire;
+
+  private final AsyncRateLimiterStrategy asyncRateLimiter;
+
+  private final CompletionAwareRateLimiterStrategy completionAwareRateLimiter;
+
+  private final QueueingRateLimiterStrategy queueingRateLimiter;
+
+  private final byte[] rejectionBody;
+
+  private final boolean blocking;
+
+  /**
+   * Creates the rate limiter of a policy.
+   *
+   * @param name the name of the policy, or {@code null} for the default rate limiter, whose keys
+   * are not prefixed
+   * @param rateLimiter the rate limiter
+   */
+  PolicyRateLimiter(String name, RateLimiterStrategy rateLimiter) {
+    this.name = name;
+    this.rateLimiter = rateLimiter;
+    this.keyPrefix = name == null ? null : name + ":";
+    this.binaryTryAcquire = rateLimiter instanceof BinaryKeyRateLimiterStrategy binaryLimiter
+        ? binaryLimiter::tryAcquire : null;
+    this.asyncRateLimiter = rateLimiter instanceof AsyncRateLimiterStrategy async ? async : null;
+    this.completionAwareRateLimiter =
+        rateLimiter instanceof CompletionAwareRateLimiterStrategy aware ? aware : null;
+    this.queueingRateLimiter =
+        rateLimiter instanceof QueueingRateLimiterStrategy queueing ? queueing : null;
+    this.rejectionBody = Objects.requireNonNullElse(rateLimiter.rejectionMessage(),
+        "Too many requests").getBytes(StandardCharsets.UTF_8);
+    this.blocking = rateLimiter.isBlocking();
+  }
+
+  /**
+   * Returns the name of the policy.
+   *
+   * @return the name, or {@code null} for the default rate limiter
+   */
+  public String name() {
+    return name;
+  }
+
+  /**
+   * Returns the rate limiter of the policy.
+   *
+   * @return the rate limiter
+   */
+  public RateLimiterStrategy rateLimiter() {
+    return rateLimiter;
+  }
+
+  /**
+   * Returns the rate limiter bound as a binary key function.
+   *
+   * @return the function, or {@code null} if the rate limiter has no binary keys
+   */
+  public BinaryKeyFunction<RateLimitDecision> binaryTryAcquire() {
+    return binaryTryAcquire;
+  }
+
+  /**
+   * Returns the body of the 429 response of a denied request, rendered once from the
+   * {@link RateLimiterStrategy#rejectionMessage() rejection message} of the rate limiter. The
+   * array is shared and must not be modified.
+   *
+   * @return the UTF-8 bytes of the body
+   */
+  public byte[] rejectionBody() {
+    return rejectionBody;
+  }
+
+  /**
+   * Returns whether {@link #tryAcquireAsync(String)} decides without blocking.
+   *
+   * @return {@code true} if the rate limiter is an {@link AsyncRateLimiterStrategy}
+   */
+  public boolean isAsync() {
+    return asyncRateLimiter != null;
+  }
+
+  /**
+   * Returns whether {@link #tryAcquire(String)} can block the calling thread on I/O.
+   *
+   * @return {@code true} if the rate limiter is blocking
+   */
+  public boolean isBlocking() {
+    return blocking;
+  }
+
+  /**
+   * Returns the rate limiter if it has to be told when the requests it allowed complete.
+   *
+   * @return the rate limiter, or {@code null} if it is not a
+   * {@link CompletionAwareRateLimiterStrategy}
+   */
+  public CompletionAwareRateLimiterStrategy completionAwareRateLimiter() {
+    return completionAwareRateLimiter;
+  }
+
+  /**
+   * Returns whether {@link #reserve(String)} can delay a request instead of rejecting it.
+   *
+   * @return {@code true} if the rate limiter is a {@link QueueingRateLimiterStrategy}
+   */
+  public boolean isQueueing() {
+    return queueingRateLimiter != null;
+  }
+
+  /**
+   * Applies the rate limiter to the {@code String} key of a client.
+   *
+   * @param clientKey the key of the client
+   * @return the decision for the request
+   */
+  public RateLimitDecision tryAcquire(String clientKey) {
+    return rateLimiter.tryAcquire(keyPrefix == null ? clientKey : keyPrefix.concat(clientKey));
+  }
+
+  /**
+   * Applies the rate limiter to the {@code String} key of a client without blocking.
+   *
+   * @param clientKey the key of the client
+   * @return a stage that completes with the decision
+   * @throws IllegalStateException if the rate limiter is not asynchronous
+   */
+  public CompletionStage<RateLimitDecision> tryAcquireAsync(String clientKey) {
+    if (asyncRateLimiter == null) {
+      throw new IllegalStateException("Rate limiter of policy " + name + " is not asynchronous");
+    }
+    return asyncRateLimiter.tryAcquireAsync(
+        keyPrefix == null ? clientKey : keyPrefix.concat(clientKey));
+  }
+
+  /**
+   * Reserves the turn of a request of a client in the queue of its {@code String} key.
+   *
+   * @param clientKey the key of the client
+   * @return the nanoseconds the request has to wait, or a negative number if the queue is full,
+   * see {@link QueueingRateLimiterStrategy#reserve(String)}
+   * @throws IllegalStateException if the rate limiter does not queue requests
+   */
+  public long reserve(String clientKey) {
+    if (queueingRateLimiter == null) {
+      throw new IllegalStateException(
+          "Rate limiter of policy " + name + " does not queue requests");
+    }
+    return queueingRateLimiter.reserve(
+        keyPrefix == null ? clientKey : keyPrefix.concat(clientKey));
+  }
+}
@@ -0,0 +1,41 @@
+package com.zemnitskiy.httpratelimiter.policy;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The {@code RateLimitPolicy} record declares a limit for the requests that match a path pattern,
+ * and optionally only some HTTP methods and one client tier.
+ *
+ * <p>Path patterns are made of {@code /}-separated segments. A segment is either literal, or
+ * {@code *} for any single segment. A trailing {@code **} matches any number of remaining
+ * segments, including none. Empty segments are ignored, so {@code /api/} is the same as
+ * {@code /api}.
+ *
+ * @param name the name of the policy. It is unique and namespaces the keys of the policy.
+ * @param path the path pattern, starting with {@code /}
+ * @param methods the HTTP methods the policy applies to, or empty for all methods
+ * @param tier the client tier the policy applies to, or {@code null} for all clients
+ * @param maxRequestsPerPeriod the maximum number of requests per {@code basePeriod}
+ * @param basePeriod the period the limit applies to
+ */
+public record RateLimitPolicy(String name, String path, List<String> methods, String tier,
+                              int maxRequestsPerPeriod, Duration basePeriod) {
+
+  public RateLimitPolicy {
+    if (name == null || name.isEmpty()) {
+      throw new IllegalArgumentException("Policy name must be set");
+    }
+    if (path == null || !path.startsWith("/")) {
+      throw new IllegalArgumentException("Path of policy " + name + " must start with /");
+    }
+    if (maxRequestsPerPeriod <= 0) {
+      throw new IllegalArgumentException(
+          "maxRequestsPerPeriod of policy " + name + " must be greater than 0");
+    }
+    if (basePeriod == null) {
+      throw new IllegalArgumentException("basePeriod of policy " + name + " must be set");
+    }
+    methods = methods == null ? List.of() : List.copyOf(methods);
+  }
+}
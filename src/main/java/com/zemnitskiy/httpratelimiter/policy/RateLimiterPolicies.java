@@ -0,0 +1,217 @@
+package com.zemnitskiy.httpratelimiter.policy;
+
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterFactory;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.util.UrlPathHelper;
+
+/**
+ * The {@code RateLimiterPolicies} class selects the rate limiter of a request from declared
+ * {@link RateLimitPolicy policies}, and falls back to the default rate limiter for requests that
+ * match none of them.
+ *
+ * <p>The policies are compiled into a {@link PolicyMatcher} when the application starts, and each
+ * gets a rate limiter of its own from the configured strategy. The tier of a client is read from a
+ * request header, which is expected to be set by a trusted gateway that has authenticated the
+ * client. A client that sends no tier only matches the policies that apply to all tiers.
+ *
+ * <p>Requests are matched by the path Spring uses to map them to a handler: without the context
+ * path, percent-decoded, and without {@code ;} path parameters. A client therefore cannot escape
+ * the policy of a path by spelling the path differently.
+ */
+public final class RateLimiterPolicies implements AutoCloseable {
+
+  public static final String DEFAULT_TIER_HEADER = "X-Client-Tier";
+
+  private final PolicyRateLimiter defaultRateLimiter;
+
+  /**
+   * The compiled policies, or {@code null} if there are none.
+   */
+  private final PolicyMatcher<PolicyRateLimiter> matcher;
+
+  private final List<PolicyRateLimiter> policyRateLimiters;
+
+  private final String tierHeader;
+
+  /**
+   * Compiles {@code policies}.
+   *
+   * @param defaultRateLimiter the rate limiter of requests that match no policy
+   * @param policies the policies, the first declared one winning among policies with the same
+   * path pattern
+   * @param factory creates the rate limiter of each policy
+   * @param tierHeader the request header that carries the client tier
+   * @throws IllegalArgumentException if two policies have the same name or a path pattern is
+   * invalid
+   */
+  public RateLimiterPolicies(RateLimiterStrategy defaultRateLimiter,
+      List<RateLimitPolicy> policies, RateLimiterFactory factory, String tierHeader) {
+    this.defaultRateLimiter = new PolicyRateLimiter(null, defaultRateLimiter);
+    this.tierHeader = tierHeader;
+    this.policyRateLimiters = new ArrayList<>(policies.size());
+    if (policies.isEmpty()) {
+      this.matcher = null;
+      return;
+    }
+    Set<String> names = new HashSet<>();
+    List<PolicyMatcher.Rule<PolicyRateLimiter>> rules = new ArrayList<>(policies.size());
+    for (RateLimitPolicy policy : policies) {
+      if (!names.add(policy.name())) {
+        throw new IllegalArgumentException("Duplicate rate limit policy " + policy.name());
+      }
+      PolicyRateLimiter rateLimiter = new PolicyRateLimiter(policy.name(),
+          factory.create(policy.maxRequestsPerPeriod(), policy.basePeriod()));
+      policyRateLimiters.add(rateLimiter);
+      rules.add(new PolicyMatcher.Rule<>(policy.path(), policy.methods(), policy.tier(),
+          rateLimiter));
+    }
+    this.matcher = new PolicyMatcher<>(rules);
+  }
+
+  /**
+   * Wraps a single rate limiter that applies to every request.
+   *
+   * @param rateLimiter the rate limiter
+   * @return policies without any policy
+   */
+  public static RateLimiterPolicies of(RateLimiterStrategy rateLimiter) {
+    return new RateLimiterPolicies(rateLimiter, List.of(), (_, _) -> rateLimiter,
+        DEFAULT_TIER_HEADER);
+  }
+
+  /**
+   * Returns the rate limiter of requests that match no policy.
+   *
+   * @return the default rate limiter
+   */
+  public PolicyRateLimiter defaultRateLimiter() {
+    return defaultRateLimiter;
+  }
+
+  /**
+   * Returns the rate limiters of the policies, in the order the policies were declared.
+   *
+   * @return the rate limiters of the policies, without the default rate limiter
+   */
+  public List<PolicyRateLimiter> policyRateLimiters() {
+    return List.copyOf(policyRateLimiters);
+  }
+
+  /**
+   * Returns whether the default rate limiter or the rate limiter of any policy can delay a
+   * request instead of rejecting it.
+   *
+   * @return {@code true} if a rate limiter is a queueing one
+   */
+  public boolean isQueueing() {
+    if (defaultRateLimiter.isQueueing()) {
+      return true;
+    }
+    for (PolicyRateLimiter rateLimiter : policyRateLimiters) {
+      if (rateLimiter.isQueueing()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the rate limiter of a request.
+   *
+   * @param method the HTTP method of the request
+   * @param path the path of the request, without the query
+   * @param tier the client tier, or {@code null} if the client has none
+   * @return the rate limiter of the matching policy, or the default rate limiter
+   */
+  public PolicyRateLimiter resolve(String method, String path, String tier) {
+    if (matcher == null) {
+      return defaultRateLimiter;
+    }
+    PolicyRateLimiter rateLimiter = matcher.match(method, path, tier);
+    return rateLimiter != null ? rateLimiter : defaultRateLimiter;
+  }
+
+  /**
+   * Returns the rate limiter of a servlet request, matching the lookup path that Spring MVC maps
+   * it by.
+   *
+   * @param request the request
+   * @return the rate limiter of the matching policy, or the default rate limiter
+   */
+  public PolicyRateLimiter resolve(HttpServletRequest request) {
+    if (matcher == null) {
+      return defaultRateLimiter;
+    }
+    return resolve(request.getMethod(),
+        UrlPathHelper.defaultInstance.getLookupPathForRequest(request),
+        request.getHeader(tierHeader));
+  }
+
+  /**
+   * Returns the rate limiter of a reactive request, matching its path within the application with
+   * the segments decoded.
+   *
+   * @param request the request
+   * @return the rate limiter of the matching policy, or the default rate limiter
+   */
+  public PolicyRateLimiter resolve(ServerHttpRequest request) {
+    if (matcher == null) {
+      return defaultRateLimiter;
+    }
+    return resolve(request.getMethod().name(),
+        lookupPath(request.getPath().pathWithinApplication()),
+        request.getHeaders().getFirst(tierHeader));
+  }
+
+  /**
+   * Joins the segments of {@code path} as Spring WebFlux matches them: decoded and without path
+   * parameters. A path with nothing to decode or remove is returned as is.
+   */
+  private static String lookupPath(PathContainer path) {
+    String value = path.value();
+    if (value.indexOf('%') < 0 && value.indexOf(';') < 0) {
+      return value;
+    }
+    StringBuilder lookupPath = new StringBuilder(value.length());
+    for (PathContainer.Element element : path.elements()) {
+      lookupPath.append(element instanceof PathContainer.PathSegment segment
+          ? segment.valueToMatch() : element.value());
+    }
+    return lookupPath.toString();
+  }
+
+  /**
+   * Closes the rate limiters of the policies. The default rate limiter is owned by the caller.
+   * A rate limiter that fails to close does not keep the others open.
+   *
+   * @throws IllegalStateException if a rate limiter fails to close, with the failures of the
+   *     other rate limiters suppressed
+   */
+  @Override
+  public void close() {
+    IllegalStateException failure = null;
+    for (PolicyRateLimiter rateLimiter : policyRateLimiters) {
+      if (rateLimiter.rateLimiter() instanceof AutoCloseable closeable) {
+        try {
+          closeable.close();
+        } catch (Exception e) {
+          if (failure == null) {
+            failure = new IllegalStateException("Failed to close a policy rate limiter", e);
+          } else {
+            failure.addSuppressed(e);
+          }
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+}
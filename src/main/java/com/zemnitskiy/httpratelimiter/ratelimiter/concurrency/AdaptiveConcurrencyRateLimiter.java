@@ -0,0 +1,151 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.concurrency;
+
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.strategy.CompletionAwareRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code AdaptiveConcurrencyRateLimiter} class limits the number of requests in flight
+ * instead of the requests per period, and adjusts the limit to the latency of the requests it
+ * lets through with a {@link GradientConcurrencyLimit}.
+ *
+ * <p>The limit is shared by all clients: it protects the service, not a quota. When the service
+ * slows down, the latencies rise, the limit drops, and the requests above it are rejected at once
+ * instead of waiting in a queue. When the service recovers, the limit grows back. A denied request
+ * is told to retry after one second.
+ *
+ * <p>A request is counted in flight from the decision until the front-end reports its completion
+ * through {@link #onCompletion(long, boolean)}.
+ */
+public final class AdaptiveConcurrencyRateLimiter implements CompletionAwareRateLimiterStrategy,
+    MeterBinder {
+
+  private static final int RETRY_AFTER_SECONDS = 1;
+
+  private final GradientConcurrencyLimit gradient;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private volatile int limit;
+
+  private final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyRateLimiter.class);
+
+  /**
+   * Creates a limiter.
+   *
+   * @param initialLimit the number of requests allowed in flight before the first completion
+   * @param minLimit the lowest limit, which is kept however slow the service gets
+   * @param maxLimit the highest limit
+   * @param longWindow the number of completions the long-term average latency spans
+   */
+  public AdaptiveConcurrencyRateLimiter(int initialLimit, int minLimit, int maxLimit,
+      int longWindow) {
+    this.gradient = new GradientConcurrencyLimit(initialLimit, minLimit, maxLimit, longWindow);
+    this.limit = gradient.limit();
+  }
+
+  /**
+   * Attempts to let a request in.
+   *
+   * @param key the unique key representing the client or request source
+   * @throws RateLimitExceededException if the limit of requests in flight has been reached
+   */
+  @Override
+  public void allowRequest(String key) {
+    RateLimitDecision decision = tryAcquire(key);
+    if (!decision.allowed()) {
+      throw new RateLimitExceededException(
+          "Too many requests. The service is at its limit of " + limit
+              + " concurrent requests.", decision.retryAfterSeconds());
+    }
+  }
+
+  /**
+   * Returns the message of a denied request. Unlike the message of the
+   * {@link RateLimitExceededException}, it does not name the limit, which changes over time.
+   *
+   * @return the message
+   */
+  @Override
+  public String rejectionMessage() {
+    return "Too many requests. The service is at its limit of concurrent requests.";
+  }
+
+  /**
+   * Lets a request in if fewer requests than the limit are in flight. Every allowed request has
+   * to be followed by a call to {@link #onCompletion(long, boolean)}.
+   *
+   * @param key the unique key representing the client or request source, which does not affect
+   * the decision
+   * @return the decision, with the number of requests that may still start at once
+   */
+  @Override
+  public RateLimitDecision tryAcquire(String key) {
+    while (true) {
+      int current = inFlight.get();
+      int currentLimit = limit;
+      if (current >= currentLimit) {
+        if (log.isTraceEnabled()) {
+          log.trace("Request denied for key: {}. In flight: {}, limit: {}", key, current,
+              currentLimit);
+        }
+        return RateLimitDecision.deny(RETRY_AFTER_SECONDS, RETRY_AFTER_SECONDS);
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        if (log.isTraceEnabled()) {
+          log.trace("Request allowed for key: {}. In flight: {}, limit: {}", key, current + 1,
+              currentLimit);
+        }
+        return RateLimitDecision.allow(currentLimit - current - 1, RateLimitDecision.UNKNOWN);
+      }
+    }
+  }
+
+  /**
+   * Releases the request and updates the limit with its latency.
+   *
+   * @param latencyNanos the time from the decision to the completion of the request
+   * @param failed {@code true} if the handler threw or the response is a server error
+   */
+  @Override
+  public void onCompletion(long latencyNanos, boolean failed) {
+    int completing = inFlight.getAndDecrement();
+    synchronized (gradient) {
+      limit = gradient.update(latencyNanos, completing, failed);
+    }
+  }
+
+  /**
+   * Returns the current limit.
+   *
+   * @return the number of requests allowed in flight
+   */
+  public int limit() {
+    return limit;
+  }
+
+  /**
+   * Returns the number of requests in flight.
+   *
+   * @return the requests allowed and not completed yet
+   */
+  public int inFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * Registers the gauges of the limit and the requests in flight.
+   *
+   * @param registry the registry to register with
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    RateLimiterMetrics.monitorConcurrency(registry, this, this::limit, this::inFlight);
+  }
+}
@@ -0,0 +1,103 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.concurrency;
+
+/**
+ * The {@code GradientConcurrencyLimit} class estimates how many requests a service can handle at
+ * once from the latencies of the requests it completes.
+ *
+ * <p>The limit follows the gradient between the long-term average latency, which stands for the
+ * latency of the service without queueing, and the latency of the latest request. While the two
+ * agree the gradient is {@code 1}, and the limit grows by a small queue allowance of
+ * {@code sqrt(limit)}. When requests start to queue and the latest latency rises more than 50%
+ * above the average, the limit shrinks in proportion, down to half of it per sample. The new
+ * limit is blended into the old one, so a single slow request moves it only a little.
+ *
+ * <p>The long-term average drifts toward a higher latency under sustained load. When it exceeds
+ * twice the latest latency, it is pulled back down, so the limit recovers after the service
+ * speeds up again. A failed request is a sign of overload whatever its latency, and cuts the limit
+ * by 10%. While fewer than half of the permitted requests are in flight, the limit is not raised,
+ * because the latencies say nothing about higher concurrency.
+ *
+ * <p>The class is not thread-safe.
+ */
+final class GradientConcurrencyLimit {
+
+  private static final double TOLERANCE = 1.5;
+
+  private static final double SMOOTHING = 0.2;
+
+  private static final double FAILURE_BACKOFF = 0.9;
+
+  private final int minLimit;
+
+  private final int maxLimit;
+
+  private final double longRttWeight;
+
+  private double limit;
+
+  private double longRtt;
+
+  /**
+   * Creates a limit.
+   *
+   * @param initialLimit the limit before the first sample
+   * @param minLimit the lowest limit
+   * @param maxLimit the highest limit
+   * @param longWindow the number of samples the long-term average latency spans
+   */
+  GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, int longWindow) {
+    if (minLimit <= 0 || minLimit > maxLimit) {
+      throw new IllegalArgumentException("minLimit must be between 1 and maxLimit");
+    }
+    if (initialLimit < minLimit || initialLimit > maxLimit) {
+      throw new IllegalArgumentException("initialLimit must be between minLimit and maxLimit");
+    }
+    if (longWindow <= 0) {
+      throw new IllegalArgumentException("longWindow must be greater than 0");
+    }
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.longRttWeight = 2.0 / (longWindow + 1);
+    this.limit = initialLimit;
+  }
+
+  /**
+   * Returns the current limit.
+   *
+   * @return the number of requests that may be in flight at once
+   */
+  int limit() {
+    return (int) limit;
+  }
+
+  /**
+   * Updates the limit with the latency of a completed request.
+   *
+   * @param latencyNanos the latency of the request
+   * @param inFlight the number of requests that were in flight when it completed, itself included
+   * @param failed {@code true} if the request failed
+   * @return the new limit
+   */
+  int update(long latencyNanos, int inFlight, boolean failed) {
+    if (failed) {
+      limit = Math.max(minLimit, limit * FAILURE_BACKOFF);
+      return limit();
+    }
+    double shortRtt = Math.max(1, latencyNanos);
+    if (longRtt == 0) {
+      longRtt = shortRtt;
+    } else {
+      longRtt += (shortRtt - longRtt) * longRttWeight;
+      if (longRtt > 2 * shortRtt) {
+        longRtt *= 0.95;
+      }
+    }
+    if (inFlight < limit / 2) {
+      return limit();
+    }
+    double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+    double target = limit * gradient + Math.sqrt(limit);
+    limit = Math.clamp(limit * (1 - SMOOTHING) + target * SMOOTHING, minLimit, maxLimit);
+    return limit();
+  }
+}
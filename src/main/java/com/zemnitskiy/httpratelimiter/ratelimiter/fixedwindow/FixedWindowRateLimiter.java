@@ -1,11 +1,20 @@
 package com.zemnitskiy.httpratelimiter.ratelimiter.fixedwindow;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.snapshot.SnapshotReader;
+import com.zemnitskiy.httpratelimiter.snapshot.SnapshotSupport;
+import com.zemnitskiy.httpratelimiter.snapshot.SnapshotWriter;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStore;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStoreFactory;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStoreSnapshots;
+import com.zemnitskiy.httpratelimiter.strategy.BinaryKeyRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
 import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
-import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import java.time.Duration;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,34 +23,81 @@ import org.slf4j.LoggerFactory;
  * window algorithm. It allows a maximum number of requests within a specified time period, known as
  * the window.
  *
- * <p>This class uses Caffeine cache to store and manage the state of the rate limit for each
- * client. It ensures that requests are tracked per key and the limit is enforced based on the
+ * <p>This class uses a {@link LongStateStore} to store and manage the state of the rate limit for
+ * each client. It ensures that requests are tracked per key and the limit is enforced based on the
  * configured properties.
  *
+ * <p>The state of each key is a single 64-bit word that packs the window start with the request
+ * count. A new window is started in place by the same atomic update that counts the request, so
+ * keys that stay active never allocate. The store only removes keys that have been idle for a
+ * whole period.
+ *
+ * <p>The windows can be saved to a snapshot and restored after a restart. A restored window keeps
+ * its count and ends when it would have ended without the restart.
  */
-public final class FixedWindowRateLimiter implements RateLimiterStrategy {
+public final class FixedWindowRateLimiter implements BinaryKeyRateLimiterStrategy, MeterBinder,
+    SnapshotSupport, AutoCloseable {
+
+  static final int COUNT_BITS = 24;
+
+  static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
 
   private final int maxRequests;
 
   private final Duration basePeriod;
 
-  private final Cache<String, FixedWindowRateLimiterData> cache;
+  private final long periodMillis;
+
+  private final Ticker ticker;
+
+  private final long epochNanos;
+
+  private final LongStateStore store;
+
+  private final LongStateStore.StateUpdate countRequest = this::countRequest;
+
+  private final String rejectionMessage;
 
   private final Logger log = LoggerFactory.getLogger(FixedWindowRateLimiter.class);
 
   public FixedWindowRateLimiter(int maxRequests,
       Duration basePeriod) {
+    this(maxRequests, basePeriod, Ticker.systemTicker());
+  }
+
+  public FixedWindowRateLimiter(int maxRequests, Duration basePeriod, Ticker ticker) {
+    this(maxRequests, basePeriod, ticker, LongStateStoreFactory.CAFFEINE);
+  }
+
+  /**
+   * Creates a limiter that reads time from {@code ticker}. The same ticker drives the expiry of
+   * idle keys.
+   *
+   * @param maxRequests the maximum number of requests per window
+   * @param basePeriod the window length
+   * @param ticker the time source, in nanoseconds
+   * @param storeFactory creates the store that holds the state of each key
+   */
+  public FixedWindowRateLimiter(int maxRequests, Duration basePeriod, Ticker ticker,
+      LongStateStoreFactory storeFactory) {
     if (maxRequests <= 0) {
       throw new IllegalArgumentException("maxRequestsPerPeriod must be greater than 0");
     }
+    if (maxRequests > COUNT_MASK) {
+      throw new IllegalArgumentException("maxRequestsPerPeriod must not exceed " + COUNT_MASK);
+    }
     if (basePeriod == null) {
       throw new IllegalArgumentException("basePeriod must be set");
     }
-    this.cache = Caffeine.newBuilder()
-        .expireAfterWrite(basePeriod)
-        .build();
+    this.store = storeFactory.create(basePeriod, ticker);
     this.maxRequests = maxRequests;
     this.basePeriod = basePeriod;
+    this.periodMillis = basePeriod.toMillis();
+    this.ticker = ticker;
+    // Time starts one period in, so that a window restored from a snapshot never starts below zero
+    this.epochNanos = ticker.read() - basePeriod.toNanos();
+    this.rejectionMessage = "Too many requests. You have only " + maxRequests + " requests for "
+        + basePeriod.toSeconds() + " seconds.";
   }
 
   /**
@@ -52,6 +108,10 @@ public final class FixedWindowRateLimiter implements RateLimiterStrategy {
    * current window, additional requests are denied until the next window starts. The request count is reset at the start
    * of each new window.
    *
+   * <p>Each key's window starts with its first request. Once {@code basePeriod} has passed since
+   * the window start, the next request resets the packed word to a new window that starts at the
+   * current time and counts that request.
+   *
    * <p>If the number of requests within the current window for the key is below the maximum allowed, the request is
    * allowed, and the count is incremented. If the limit has been reached, a {@link RateLimitExceededException} is thrown,
    * indicating that the request cannot be processed until the next window period.
@@ -69,29 +129,146 @@ public final class FixedWindowRateLimiter implements RateLimiterStrategy {
    */
   @Override
   public void allowRequest(String key) {
-    FixedWindowRateLimiterData currentKeyData = cache.get(key,
-        _ -> new FixedWindowRateLimiterData(new AtomicInteger(0),
-            System.currentTimeMillis()));
-    log.trace("Attempting to allow request for key: {}. Current count: {}", key,
-        currentKeyData.counter().get());
-
-    while (true) {
-      int data = currentKeyData.counter().get();
-      if (data < maxRequests) {
-        if (currentKeyData.counter().compareAndExchange(data, data + 1) == data) {
-          log.trace("Request allowed for key: {}. New count: {}", key, data + 1);
-          return;
-        }
+    RateLimitDecision decision = tryAcquire(key);
+    if (!decision.allowed()) {
+      int timeout = decision.retryAfterSeconds();
+      throw new RateLimitExceededException(
+          "Too many requests. You have only " + maxRequests + " requests." + " for "
+              + basePeriod.toSeconds() + " seconds you could make new request in " + timeout
+              + " seconds", timeout
+      );
+    }
+  }
+
+  /**
+   * Returns the message of a denied request, with the limit of this rate limiter. Unlike the
+   * message of the {@link RateLimitExceededException}, it does not say when the window ends.
+   *
+   * @return the message
+   */
+  @Override
+  public String rejectionMessage() {
+    return rejectionMessage;
+  }
+
+  /**
+   * Applies the fixed window algorithm described in {@link #allowRequest(String)} and reports the
+   * outcome without throwing.
+   *
+   * @param key the unique key representing the client or request source
+   * @return the decision, with the requests left in the current window and the seconds until the
+   * window ends
+   */
+  @Override
+  public RateLimitDecision tryAcquire(String key) {
+    long now = TimeUnit.NANOSECONDS.toMillis(ticker.read() - epochNanos);
+    long previous = store.getAndUpdate(key, now, countRequest);
+    RateLimitDecision decision = decide(previous, now);
+    if (log.isTraceEnabled()) {
+      if (decision.allowed()) {
+        log.trace("Request allowed for key: {}. Remaining: {}", key, decision.remaining());
       } else {
         log.trace("Rate limit exceeded for key: {}, Max requests: {}", key, maxRequests);
-        int timeout = (int) ((int) basePeriod.toSeconds()
-            - (System.currentTimeMillis() - currentKeyData.startTime()) / 1000L);
-        throw new RateLimitExceededException(
-            "Too many requests. You have only " + maxRequests + " requests." + " for "
-                + basePeriod.toSeconds() + " seconds you could make new request in " + timeout
-                + " seconds", timeout
-        );
       }
     }
+    return decision;
+  }
+
+  /**
+   * Applies the fixed window algorithm to a binary key, such as the binary form of an IP address.
+   *
+   * @param keyHigh the upper 64 bits of the key
+   * @param keyLow the lower 64 bits of the key
+   * @return the decision, with the requests left in the current window and the seconds until the
+   * window ends
+   */
+  @Override
+  public RateLimitDecision tryAcquire(long keyHigh, long keyLow) {
+    long now = TimeUnit.NANOSECONDS.toMillis(ticker.read() - epochNanos);
+    return decide(store.getAndUpdate(keyHigh, keyLow, now, countRequest), now);
+  }
+
+  /**
+   * Builds the decision from the state that {@link #countRequest} replaced.
+   */
+  private RateLimitDecision decide(long previous, long now) {
+    long updated = countRequest(previous, now);
+    long windowStart = updated >>> COUNT_BITS;
+    long count = updated & COUNT_MASK;
+    int resetSeconds = Math.toIntExact(Math.ceilDiv(windowStart + periodMillis - now, 1000L));
+    if (updated == previous) {
+      return RateLimitDecision.deny(resetSeconds, resetSeconds);
+    }
+    return RateLimitDecision.allow((int) (maxRequests - count), resetSeconds);
+  }
+
+  /**
+   * Counts one request in the packed state, starting a new window first if the current one is
+   * over. Returns the state unchanged if the window is already full.
+   */
+  private long countRequest(long state, long now) {
+    long windowStart = state >>> COUNT_BITS;
+    long count = state & COUNT_MASK;
+    if (count == 0 || now - windowStart >= periodMillis) {
+      windowStart = now;
+      count = 0;
+    }
+    if (count >= maxRequests) {
+      return state;
+    }
+    return (windowStart << COUNT_BITS) | (count + 1);
+  }
+
+  @Override
+  public String snapshotId() {
+    return "FixedWindowRateLimiter " + maxRequests + "/" + basePeriod;
+  }
+
+  /**
+   * Writes every window that has not ended, with its count and its age in place of its start.
+   *
+   * @param writer the writer of this rate limiter's section of the snapshot
+   */
+  @Override
+  public void writeSnapshot(SnapshotWriter writer) {
+    long now = TimeUnit.NANOSECONDS.toMillis(ticker.read() - epochNanos);
+    LongStateStoreSnapshots.write(store, now, writer, state -> {
+      long age = now - (state >>> COUNT_BITS);
+      long count = state & COUNT_MASK;
+      return count == 0 || age >= periodMillis ? 0 : (age << COUNT_BITS) | count;
+    });
+  }
+
+  /**
+   * Restores the windows that have not ended since the snapshot.
+   *
+   * @param reader the reader of this rate limiter's section of the snapshot
+   */
+  @Override
+  public void readSnapshot(SnapshotReader reader) {
+    long now = TimeUnit.NANOSECONDS.toMillis(ticker.read() - epochNanos);
+    long restored = LongStateStoreSnapshots.read(store, now, reader, written -> {
+      long age = (written >>> COUNT_BITS) + reader.elapsedMillis();
+      return age >= periodMillis ? 0 : ((now - age) << COUNT_BITS) | (written & COUNT_MASK);
+    });
+    log.debug("Restored {} fixed windows", restored);
+  }
+
+  /**
+   * Registers the key count and the estimated memory of the state store.
+   *
+   * @param registry the registry to register with
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    RateLimiterMetrics.monitorStateStore(registry, this, store);
+  }
+
+  /**
+   * Closes the state store, stopping its background work.
+   */
+  @Override
+  public void close() {
+    store.close();
   }
 }
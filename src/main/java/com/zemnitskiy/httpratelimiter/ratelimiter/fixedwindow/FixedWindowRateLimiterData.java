@@ -1,5 +0,0 @@
-package com.zemnitskiy.httpratelimiter.ratelimiter.fixedwindow;
-
-import java.util.concurrent.atomic.AtomicInteger;
-
-public record FixedWindowRateLimiterData(AtomicInteger counter, long startTime) {}
@@ -0,0 +1,216 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.gcra;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * The {@code GcraRedisRateLimiter} class implements a distributed rate limiting strategy based on
+ * the generic cell rate algorithm (GCRA) in Redis.
+ *
+ * <p>Redis holds a single value per key, the theoretical arrival time (TAT), which is the moment
+ * the key would have no backlog left if requests were spaced evenly at
+ * {@code basePeriod / maxRequests}. Each request moves the TAT one emission interval ahead and is
+ * allowed while the TAT stays within one period from now. Memory and time per call are constant,
+ * so Redis memory grows with the number of active keys, not with the request volume as with the
+ * sorted set of {@code rate_limiter.lua}.
+ *
+ * <p>The script is loaded once. {@link RedisTemplate} runs it with {@code EVALSHA} and only sends
+ * the script body again if Redis no longer has it cached.
+ */
+public final class GcraRedisRateLimiter implements RateLimiterStrategy, MeterBinder {
+
+  private final RedisTemplate<String, String> redisTemplate;
+
+  private final RedisScript<List<Long>> gcraScript;
+
+  private final String emissionIntervalArg;
+
+  private final String burstToleranceArg;
+
+  private final Ticker ticker;
+
+  private final long epochNanos;
+
+  private final Cache<String, Long> retryCache;
+
+  private volatile Timer scriptTimer = RateLimiterMetrics.disabledScriptTimer();
+
+  private final String exceptionMessage;
+
+  private final Logger log = LoggerFactory.getLogger(GcraRedisRateLimiter.class);
+
+  public GcraRedisRateLimiter(RedisTemplate<String, String> redisTemplate, int maxRequests,
+      Duration basePeriod, Resource luaScriptResource) {
+    this(redisTemplate, maxRequests, basePeriod, luaScriptResource, Ticker.systemTicker());
+  }
+
+  /**
+   * Creates a limiter whose local cache of denied keys reads time from {@code ticker}.
+   *
+   * @param redisTemplate the Redis template for interacting with Redis
+   * @param maxRequests the maximum number of requests per {@code basePeriod}
+   * @param basePeriod the period over which {@code maxRequests} are spread
+   * @param luaScriptResource the GCRA Lua script
+   * @param ticker the time source, in nanoseconds
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public GcraRedisRateLimiter(RedisTemplate<String, String> redisTemplate, int maxRequests,
+      Duration basePeriod, Resource luaScriptResource, Ticker ticker) {
+    if (maxRequests <= 0) {
+      throw new IllegalArgumentException("maxRequestsPerPeriod must be greater than 0");
+    }
+    if (basePeriod == null) {
+      throw new IllegalArgumentException("basePeriod must be set");
+    }
+    long periodMicros = TimeUnit.NANOSECONDS.toMicros(basePeriod.toNanos());
+    if (periodMicros < maxRequests) {
+      throw new IllegalArgumentException(
+          "basePeriod must be at least maxRequestsPerPeriod microseconds");
+    }
+    this.redisTemplate = redisTemplate;
+    // Whole microseconds keep the script's arithmetic exact. The burst is derived from the rounded
+    // interval, so exactly maxRequests fit into it.
+    long emissionInterval = periodMicros / maxRequests;
+    this.emissionIntervalArg = String.valueOf(emissionInterval);
+    this.burstToleranceArg = String.valueOf(emissionInterval * maxRequests);
+    this.ticker = ticker;
+    this.epochNanos = ticker.read();
+    this.retryCache = Caffeine.newBuilder()
+        .expireAfterWrite(basePeriod)
+        .ticker(ticker)
+        .recordStats()
+        .build();
+    try (InputStream inputStream = luaScriptResource.getInputStream()) {
+      this.gcraScript = (RedisScript) RedisScript.of(
+          new String(inputStream.readAllBytes(), StandardCharsets.UTF_8), List.class);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Failed to load Lua script", e);
+    }
+    this.exceptionMessage = String.format(
+        "Too many requests. You have only %d requests for %d seconds",
+        maxRequests,
+        basePeriod.toSeconds()
+    );
+  }
+
+  /**
+   * Attempts to allow a request for the given client key.
+   *
+   * <p>The Lua script reads the theoretical arrival time of the key, or takes the current time if
+   * it lies in the past, and adds one emission interval to it. If the resulting backlog exceeds
+   * one period the request is denied and the key is left unchanged. Otherwise the new TAT is
+   * stored with an expiry equal to the backlog, after which the key is equivalent to a new one.
+   *
+   * <p>The retry delay of a denied key is cached locally, so that repeated requests are denied
+   * without a Redis call until it has passed.
+   *
+   * @param clientKey the unique key representing the client or request source
+   * @throws RateLimitExceededException if the rate limit for the client has been exceeded
+   * @see <a href="https://en.wikipedia.org/wiki/Generic_cell_rate_algorithm">Generic cell rate
+   * algorithm - Wikipedia</a>
+   */
+  @Override
+  public void allowRequest(String clientKey) {
+    RateLimitDecision decision = tryAcquire(clientKey);
+    if (!decision.allowed()) {
+      throw new RateLimitExceededException(exceptionMessage, decision.retryAfterSeconds());
+    }
+  }
+
+  /**
+   * Returns the message of a denied request, with the limits of this rate limiter.
+   *
+   * @return the message of the {@link RateLimitExceededException} of a denied request
+   */
+  @Override
+  public String rejectionMessage() {
+    return exceptionMessage;
+  }
+
+  /**
+   * Returns {@code true}: every decision is a round trip to Redis.
+   *
+   * @return {@code true}
+   */
+  @Override
+  public boolean isBlocking() {
+    return true;
+  }
+
+  /**
+   * Applies the GCRA described in {@link #allowRequest(String)} and reports the outcome without
+   * throwing.
+   *
+   * @param clientKey the unique key representing the client or request source
+   * @return the decision, with the requests left in the burst and the seconds until the backlog is
+   * gone
+   * @throws IllegalStateException if the Lua script does not return a result
+   */
+  @Override
+  public RateLimitDecision tryAcquire(String clientKey) {
+    long now = ticker.read() - epochNanos;
+    Long retryAt = retryCache.getIfPresent(clientKey);
+    if (retryAt != null && retryAt > now) {
+      return RateLimitDecision.deny(toSeconds(retryAt - now), RateLimitDecision.UNKNOWN);
+    }
+
+    long scriptStart = System.nanoTime();
+    List<Long> result = redisTemplate.execute(gcraScript,
+        Collections.singletonList(clientKey),
+        emissionIntervalArg,
+        burstToleranceArg);
+    scriptTimer.record(System.nanoTime() - scriptStart, TimeUnit.NANOSECONDS);
+    if (result == null || result.size() < 3) {
+      throw new IllegalStateException(
+          "Could not get result from Redis lua script for " + clientKey);
+    }
+
+    long retryAfterMillis = result.get(0);
+    int resetSeconds = Math.toIntExact(Math.ceilDiv(result.get(2), 1000L));
+    if (retryAfterMillis > 0) {
+      log.trace("Rate limit exceeded for client: {}. Retry after {} millis", clientKey,
+          retryAfterMillis);
+      long waitNanos = TimeUnit.MILLISECONDS.toNanos(retryAfterMillis);
+      retryCache.put(clientKey, now + waitNanos);
+      return RateLimitDecision.deny(toSeconds(waitNanos), resetSeconds);
+    }
+
+    log.trace("Request allowed for client: {}", clientKey);
+    return RateLimitDecision.allow(result.get(1).intValue(), resetSeconds);
+  }
+
+  /**
+   * Registers the timer of the script calls and the meters of the local cache of denied keys.
+   *
+   * @param registry the registry to register with
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    scriptTimer = RateLimiterMetrics.scriptTimer(registry, this, "gcra");
+    RateLimiterMetrics.monitorRetryCache(registry, this, retryCache);
+  }
+
+  private static int toSeconds(long nanos) {
+    return Math.toIntExact(Math.ceilDiv(nanos, TimeUnit.SECONDS.toNanos(1)));
+  }
+}
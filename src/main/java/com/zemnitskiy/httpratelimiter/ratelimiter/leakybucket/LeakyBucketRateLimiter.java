@@ -0,0 +1,216 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.leakybucket;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStore;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStoreFactory;
+import com.zemnitskiy.httpratelimiter.strategy.QueueingRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code LeakyBucketRateLimiter} class implements the leaky bucket as a queue. The requests of
+ * a key leave the bucket evenly spaced, one every {@code basePeriod / maxRequests}, and a request
+ * that arrives too early waits for its turn instead of being rejected. Only when
+ * {@code queueSize} requests of the key are already waiting is a request rejected.
+ *
+ * <p>The bucket of a key is a single 64-bit word in a {@link LongStateStore}: the time at which
+ * the next request of the key may leave. A request reserves that time and pushes it back by one
+ * interval, so the queue itself holds no requests and needs no thread. Waiting is left to the
+ * front-end, see {@link QueueingRateLimiterStrategy}.
+ *
+ * <p>Times are counted in units of {@code 1 / maxRequests} milliseconds, so the interval is a
+ * whole number of units, {@code basePeriod} in milliseconds, and no fraction of it is lost.
+ */
+public final class LeakyBucketRateLimiter implements QueueingRateLimiterStrategy, MeterBinder,
+    AutoCloseable {
+
+  private final int maxRequests;
+
+  private final long periodMillis;
+
+  private final long maxWait;
+
+  private final Ticker ticker;
+
+  private final long epochNanos;
+
+  private final LongStateStore store;
+
+  private final LongStateStore.StateUpdate enqueue = this::enqueue;
+
+  private final LongStateStore.StateUpdate leave = this::leave;
+
+  private final String exceptionMessage;
+
+  private final Logger log = LoggerFactory.getLogger(LeakyBucketRateLimiter.class);
+
+  public LeakyBucketRateLimiter(int maxRequests, Duration basePeriod, int queueSize) {
+    this(maxRequests, basePeriod, queueSize, Ticker.systemTicker(),
+        LongStateStoreFactory.CAFFEINE);
+  }
+
+  /**
+   * Creates a limiter that reads time from {@code ticker}. The same ticker drives the expiry of
+   * idle keys.
+   *
+   * @param maxRequests the number of requests that leave the bucket per {@code basePeriod}
+   * @param basePeriod the period
+   * @param queueSize the number of requests of a key that may wait at once
+   * @param ticker the time source, in nanoseconds
+   * @param storeFactory creates the store that holds the bucket of each key
+   */
+  public LeakyBucketRateLimiter(int maxRequests, Duration basePeriod, int queueSize,
+      Ticker ticker, LongStateStoreFactory storeFactory) {
+    if (maxRequests <= 0) {
+      throw new IllegalArgumentException("maxRequestsPerPeriod must be greater than 0");
+    }
+    if (basePeriod == null) {
+      throw new IllegalArgumentException("basePeriod must be set");
+    }
+    if (basePeriod.toMillis() <= 0) {
+      throw new IllegalArgumentException("basePeriod must be at least 1 millisecond");
+    }
+    if (queueSize < 0) {
+      throw new IllegalArgumentException("queueSize must not be negative");
+    }
+    this.maxRequests = maxRequests;
+    this.periodMillis = basePeriod.toMillis();
+    this.maxWait = queueSize * periodMillis;
+    this.ticker = ticker;
+    this.epochNanos = ticker.read();
+    // A key that has been idle until its last queued request left is the same as a new one
+    this.store = storeFactory.create(
+        Duration.ofMillis(Math.ceilDiv(maxWait + periodMillis, maxRequests)), ticker);
+    this.exceptionMessage = "Too many requests. You have only " + maxRequests + " requests for "
+        + basePeriod.toSeconds() + " seconds.";
+  }
+
+  /**
+   * Lets a request of the given key through if it does not have to wait for its turn.
+   *
+   * @param key the unique key representing the client or request source
+   * @throws RateLimitExceededException if the previous request of the key left less than one
+   * interval ago. The exception carries the number of seconds until the next request may leave.
+   * @see <a href="https://en.wikipedia.org/wiki/Leaky_bucket">Leaky bucket - Wikipedia</a>
+   */
+  @Override
+  public void allowRequest(String key) {
+    RateLimitDecision decision = tryAcquire(key);
+    if (!decision.allowed()) {
+      throw new RateLimitExceededException(exceptionMessage, decision.retryAfterSeconds());
+    }
+  }
+
+  /**
+   * Returns the message of a denied request, with the limits of this bucket.
+   *
+   * @return the message of the {@link RateLimitExceededException} of a denied request
+   */
+  @Override
+  public String rejectionMessage() {
+    return exceptionMessage;
+  }
+
+  /**
+   * Lets a request of the given key through if it does not have to wait for its turn, and reports
+   * the outcome without throwing. Requests are never queued.
+   *
+   * @param key the unique key representing the client or request source
+   * @return the decision, with the seconds until the next request of the key may leave
+   */
+  @Override
+  public RateLimitDecision tryAcquire(String key) {
+    long now = now();
+    long previous = store.getAndUpdate(key, now, leave);
+    long wait = Math.max(previous, now * maxRequests) - now * maxRequests;
+    if (wait > 0) {
+      int retryAfter = seconds(wait);
+      if (log.isTraceEnabled()) {
+        log.trace("Rate limit exceeded for key: {}. Retry after: {} seconds", key, retryAfter);
+      }
+      return RateLimitDecision.deny(retryAfter, retryAfter);
+    }
+    log.trace("Request allowed for key: {}", key);
+    return RateLimitDecision.allow(0, seconds(periodMillis));
+  }
+
+  /**
+   * Reserves the turn of a request of the given key, unless {@code queueSize} requests of the key
+   * are already waiting.
+   *
+   * @param key the unique key representing the client or request source
+   * @return the nanoseconds until the turn of the request, or a negative number whose absolute
+   * value is the time until the queue has room again
+   */
+  @Override
+  public long reserve(String key) {
+    long now = now();
+    long previous = store.getAndUpdate(key, now, enqueue);
+    long wait = Math.max(previous, now * maxRequests) - now * maxRequests;
+    if (wait > maxWait) {
+      if (log.isTraceEnabled()) {
+        log.trace("Queue full for key: {}", key);
+      }
+      // Below one nanosecond the time until room rounds to 0, which would mean "proceed now"
+      return -Math.max(1, nanos(wait - maxWait));
+    }
+    if (log.isTraceEnabled()) {
+      log.trace("Request queued for key: {}. Wait: {} ms", key, wait / maxRequests);
+    }
+    return nanos(wait);
+  }
+
+  private long now() {
+    return TimeUnit.NANOSECONDS.toMillis(ticker.read() - epochNanos);
+  }
+
+  /**
+   * Takes the next turn if it has come. Returns the state unchanged otherwise.
+   */
+  private long leave(long state, long now) {
+    long current = now * maxRequests;
+    return state > current ? state : current + periodMillis;
+  }
+
+  /**
+   * Takes the next turn if no more than {@code maxWait} away. Returns the state unchanged
+   * otherwise.
+   */
+  private long enqueue(long state, long now) {
+    long next = Math.max(state, now * maxRequests);
+    return next - now * maxRequests > maxWait ? state : next + periodMillis;
+  }
+
+  private long nanos(long units) {
+    return units * 1_000_000 / maxRequests;
+  }
+
+  private int seconds(long units) {
+    return Math.toIntExact(Math.ceilDiv(Math.ceilDiv(units, maxRequests), 1000L));
+  }
+
+  /**
+   * Registers the key count and the estimated memory of the state store.
+   *
+   * @param registry the registry to register with
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    RateLimiterMetrics.monitorStateStore(registry, this, store);
+  }
+
+  /**
+   * Closes the state store, stopping its background work.
+   */
+  @Override
+  public void close() {
+    store.close();
+  }
+}
@@ -0,0 +1,226 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.multiwindow;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindowcounter.SlidingWindowCounters;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code MultiWindowRateLimiter} class enforces several limits on the same key at once, such
+ * as 10 requests per second, 300 per minute and 5000 per hour.
+ *
+ * <p>Each window is a sliding window counter: the number of requests in the window that ends now
+ * is estimated from the counts of the previous and the current fixed window. The counters of all
+ * windows of a key are held in one {@link WindowCounters} object, so a request is decided with a
+ * single cache lookup, instead of one per window as stacked rate limiters would need.
+ *
+ * <p>A request is only counted if every window has room for it. A request denied by one window
+ * therefore does not use up the quota of the others.
+ */
+public final class MultiWindowRateLimiter implements RateLimiterStrategy, MeterBinder {
+
+  private final RateLimitWindow[] windows;
+
+  private final long[] periodMillis;
+
+  private final long[] maxWeighted;
+
+  private final Ticker ticker;
+
+  private final long epochNanos;
+
+  private final Cache<String, WindowCounters> cache;
+
+  private final String exceptionMessage;
+
+  private final Logger log = LoggerFactory.getLogger(MultiWindowRateLimiter.class);
+
+  public MultiWindowRateLimiter(List<RateLimitWindow> windows) {
+    this(windows, Ticker.systemTicker());
+  }
+
+  /**
+   * Creates a limiter that reads time from {@code ticker}. The same ticker drives the expiry of
+   * idle keys.
+   *
+   * @param windows the limits that apply together
+   * @param ticker the time source, in nanoseconds
+   */
+  public MultiWindowRateLimiter(List<RateLimitWindow> windows, Ticker ticker) {
+    if (windows == null || windows.isEmpty()) {
+      throw new IllegalArgumentException("At least one window must be set");
+    }
+    this.windows = windows.toArray(new RateLimitWindow[0]);
+    this.periodMillis = new long[this.windows.length];
+    this.maxWeighted = new long[this.windows.length];
+    long longestPeriod = 0;
+    for (int i = 0; i < this.windows.length; i++) {
+      periodMillis[i] = this.windows[i].period().toMillis();
+      maxWeighted[i] = this.windows[i].maxRequests() * periodMillis[i];
+      longestPeriod = Math.max(longestPeriod, periodMillis[i]);
+    }
+    this.ticker = ticker;
+    this.epochNanos = ticker.read();
+    // After two idle windows of the longest period no count matters any more
+    this.cache = Caffeine.newBuilder()
+        .expireAfterAccess(2 * longestPeriod, TimeUnit.MILLISECONDS)
+        .ticker(ticker)
+        .build();
+    this.exceptionMessage = RateLimitWindow.describe(this.windows);
+  }
+
+  /**
+   * Attempts to allow a request for the given key against every window.
+   *
+   * <p>For each window the number of requests in the sliding window that ends now is estimated as
+   * {@code previousCount * (1 - elapsed / period) + currentCount}. The request is allowed if the
+   * estimate, including this request, stays within the limit of every window, and is then counted
+   * in all of them. Otherwise no window counts it.
+   *
+   * @param key the unique key representing the client or request source
+   * @throws RateLimitExceededException if a window of the key is full. The exception carries the
+   * number of seconds until every full window has room again.
+   */
+  @Override
+  public void allowRequest(String key) {
+    RateLimitDecision decision = tryAcquire(key);
+    if (!decision.allowed()) {
+      throw new RateLimitExceededException(exceptionMessage, decision.retryAfterSeconds());
+    }
+  }
+
+  /**
+   * Returns the message of a denied request, with the limits of this rate limiter.
+   *
+   * @return the message of the {@link RateLimitExceededException} of a denied request
+   */
+  @Override
+  public String rejectionMessage() {
+    return exceptionMessage;
+  }
+
+  /**
+   * Applies the windows as described in {@link #allowRequest(String)} and reports the outcome
+   * without throwing.
+   *
+   * @param key the unique key representing the client or request source
+   * @return the decision, with the requests left in the tightest window and the seconds until no
+   * window holds a count
+   */
+  @Override
+  public RateLimitDecision tryAcquire(String key) {
+    long now = TimeUnit.NANOSECONDS.toMillis(ticker.read() - epochNanos);
+    WindowCounters counters = cache.get(key, _ -> new WindowCounters(windows.length));
+    RateLimitDecision decision;
+    synchronized (counters) {
+      decision = countRequest(counters, now);
+    }
+    if (log.isTraceEnabled()) {
+      if (decision.allowed()) {
+        log.trace("Request allowed for key: {}. Remaining: {}", key, decision.remaining());
+      } else {
+        log.trace("Rate limit exceeded for key: {}. Retry after: {} seconds", key,
+            decision.retryAfterSeconds());
+      }
+    }
+    return decision;
+  }
+
+  /**
+   * Checks every window and counts the request in all of them if none is full. Must be called
+   * while holding the lock of {@code counters}.
+   */
+  private RateLimitDecision countRequest(WindowCounters counters, long now) {
+    long retryAfterMillis = 0;
+    long remaining = Long.MAX_VALUE;
+    for (int i = 0; i < windows.length; i++) {
+      long period = periodMillis[i];
+      counters.rollOver(i, now / period);
+      long elapsed = now % period;
+      long weighted = counters.previous[i] * (period - elapsed)
+          + (counters.current[i] + 1L) * period;
+      if (weighted > maxWeighted[i]) {
+        retryAfterMillis = Math.max(retryAfterMillis,
+            SlidingWindowCounters.waitMillis(periodMillis[i], windows[i].maxRequests(),
+                counters.previous[i], counters.current[i], elapsed));
+      } else {
+        remaining = Math.min(remaining, (maxWeighted[i] - weighted) / period);
+      }
+    }
+
+    if (retryAfterMillis > 0) {
+      return RateLimitDecision.deny(SlidingWindowCounters.toSeconds(retryAfterMillis),
+          resetSeconds(counters, now));
+    }
+    for (int i = 0; i < windows.length; i++) {
+      counters.current[i]++;
+    }
+    return RateLimitDecision.allow((int) remaining, resetSeconds(counters, now));
+  }
+
+  /**
+   * Computes when no window contributes to the estimate any more: for each window, at its end if
+   * nothing was counted in it, otherwise one period later.
+   */
+  private int resetSeconds(WindowCounters counters, long now) {
+    long resetMillis = 0;
+    for (int i = 0; i < windows.length; i++) {
+      resetMillis = Math.max(resetMillis, SlidingWindowCounters.resetMillis(periodMillis[i],
+          counters.current[i], now % periodMillis[i]));
+    }
+    return SlidingWindowCounters.toSeconds(resetMillis);
+  }
+
+  /**
+   * Registers the number of keys with counters.
+   *
+   * @param registry the registry to register with
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    RateLimiterMetrics.monitorKeys(registry, this, cache);
+  }
+
+  /**
+   * The counters of all windows of one key, as parallel primitive arrays indexed by window.
+   *
+   * <p>This class is not thread-safe. Callers must synchronize on the instance.
+   */
+  static final class WindowCounters {
+
+    private final long[] windowIndex;
+
+    private final long[] previous;
+
+    private final long[] current;
+
+    WindowCounters(int windows) {
+      this.windowIndex = new long[windows];
+      this.previous = new long[windows];
+      this.current = new long[windows];
+    }
+
+    /**
+     * Moves window {@code i} to the fixed window {@code index}: the current count becomes the
+     * previous count if exactly one window has passed, and both are dropped if more have.
+     */
+    void rollOver(int i, long index) {
+      if (windowIndex[i] == index) {
+        return;
+      }
+      previous[i] = windowIndex[i] + 1 == index ? current[i] : 0;
+      current[i] = 0;
+      windowIndex[i] = index;
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.multiwindow;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * The {@code MultiWindowRedisRateLimiter} class enforces several limits on the same key at once in
+ * Redis, with the sliding window counters of {@link MultiWindowRateLimiter}.
+ *
+ * <p>The counters of all windows of a key are fields of one Redis hash, and a single Lua script
+ * checks every window and counts the request in all of them, so a request costs one round trip
+ * however many windows there are. The script only writes the hash if every window has room, so a
+ * request denied by one window does not use up the quota of the others.
+ *
+ * <p>The script is loaded once. {@link RedisTemplate} runs it with {@code EVALSHA} and only sends
+ * the script body again if Redis no longer has it cached.
+ */
+public final class MultiWindowRedisRateLimiter implements RateLimiterStrategy, MeterBinder {
+
+  private final RedisTemplate<String, String> redisTemplate;
+
+  private final RedisScript<List<Long>> multiWindowScript;
+
+  /**
+   * The script arguments: the maximum requests and the period in milliseconds of each window.
+   */
+  private final Object[] windowArgs;
+
+  private final Ticker ticker;
+
+  private final long epochNanos;
+
+  private final Cache<String, Long> retryCache;
+
+  private volatile Timer scriptTimer = RateLimiterMetrics.disabledScriptTimer();
+
+  private final String exceptionMessage;
+
+  private final Logger log = LoggerFactory.getLogger(MultiWindowRedisRateLimiter.class);
+
+  public MultiWindowRedisRateLimiter(RedisTemplate<String, String> redisTemplate,
+      List<RateLimitWindow> windows, Resource luaScriptResource) {
+    this(redisTemplate, windows, luaScriptResource, Ticker.systemTicker());
+  }
+
+  /**
+   * Creates a limiter whose local cache of denied keys reads time from {@code ticker}.
+   *
+   * @param redisTemplate the Redis template for interacting with Redis
+   * @param windows the limits that apply together
+   * @param luaScriptResource the multi-window Lua script
+   * @param ticker the time source, in nanoseconds
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public MultiWindowRedisRateLimiter(RedisTemplate<String, String> redisTemplate,
+      List<RateLimitWindow> windows, Resource luaScriptResource, Ticker ticker) {
+    if (windows == null || windows.isEmpty()) {
+      throw new IllegalArgumentException("At least one window must be set");
+    }
+    this.redisTemplate = redisTemplate;
+    this.windowArgs = new Object[windows.size() * 2];
+    Duration longestPeriod = Duration.ZERO;
+    for (int i = 0; i < windows.size(); i++) {
+      RateLimitWindow window = windows.get(i);
+      windowArgs[2 * i] = String.valueOf(window.maxRequests());
+      windowArgs[2 * i + 1] = String.valueOf(window.period().toMillis());
+      if (window.period().compareTo(longestPeriod) > 0) {
+        longestPeriod = window.period();
+      }
+    }
+    this.ticker = ticker;
+    this.epochNanos = ticker.read();
+    this.retryCache = Caffeine.newBuilder()
+        .expireAfterWrite(longestPeriod.multipliedBy(2))
+        .ticker(ticker)
+        .recordStats()
+        .build();
+    try (InputStream inputStream = luaScriptResource.getInputStream()) {
+      this.multiWindowScript = (RedisScript) RedisScript.of(
+          new String(inputStream.readAllBytes(), StandardCharsets.UTF_8), List.class);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Failed to load Lua script", e);
+    }
+    this.exceptionMessage = RateLimitWindow.describe(windows.toArray(new RateLimitWindow[0]));
+  }
+
+  /**
+   * Attempts to allow a request for the given client key against every window.
+   *
+   * <p>The Lua script rolls the counters of each window over to the current fixed window and
+   * estimates the requests in the sliding window that ends now, as
+   * {@code previousCount * (1 - elapsed / period) + currentCount}. If every window has room for
+   * the request, it is counted in all of them and the hash is kept for two of the longest periods.
+   * Otherwise the hash is left unchanged.
+   *
+   * <p>The retry delay of a denied key is cached locally, so that repeated requests are denied
+   * without a Redis call until it has passed.
+   *
+   * @param clientKey the unique key representing the client or request source
+   * @throws RateLimitExceededException if a window of the client is full
+   */
+  @Override
+  public void allowRequest(String clientKey) {
+    RateLimitDecision decision = tryAcquire(clientKey);
+    if (!decision.allowed()) {
+      throw new RateLimitExceededException(exceptionMessage, decision.retryAfterSeconds());
+    }
+  }
+
+  /**
+   * Returns the message of a denied request, with the limits of this rate limiter.
+   *
+   * @return the message of the {@link RateLimitExceededException} of a denied request
+   */
+  @Override
+  public String rejectionMessage() {
+    return exceptionMessage;
+  }
+
+  /**
+   * Returns {@code true}: every decision is a round trip to Redis.
+   *
+   * @return {@code true}
+   */
+  @Override
+  public boolean isBlocking() {
+    return true;
+  }
+
+  /**
+   * Applies the windows as described in {@link #allowRequest(String)} and reports the outcome
+   * without throwing.
+   *
+   * @param clientKey the unique key representing the client or request source
+   * @return the decision, with the requests left in the tightest window and the seconds until no
+   * window holds a count
+   * @throws IllegalStateException if the Lua script does not return a result
+   */
+  @Override
+  public RateLimitDecision tryAcquire(String clientKey) {
+    long now = ticker.read() - epochNanos;
+    Long retryAt = retryCache.getIfPresent(clientKey);
+    if (retryAt != null && retryAt > now) {
+      return RateLimitDecision.deny(toSeconds(retryAt - now), RateLimitDecision.UNKNOWN);
+    }
+
+    long scriptStart = System.nanoTime();
+    List<Long> result = redisTemplate.execute(multiWindowScript,
+        Collections.singletonList(clientKey), windowArgs);
+    scriptTimer.record(System.nanoTime() - scriptStart, TimeUnit.NANOSECONDS);
+    if (result == null || result.size() < 3) {
+      throw new IllegalStateException(
+          "Could not get result from Redis lua script for " + clientKey);
+    }
+
+    long retryAfterMillis = result.get(0);
+    int resetSeconds = Math.toIntExact(Math.ceilDiv(result.get(2), 1000L));
+    if (retryAfterMillis > 0) {
+      log.trace("Rate limit exceeded for client: {}. Retry after {} millis", clientKey,
+          retryAfterMillis);
+      long waitNanos = TimeUnit.MILLISECONDS.toNanos(retryAfterMillis);
+      retryCache.put(clientKey, now + waitNanos);
+      return RateLimitDecision.deny(toSeconds(waitNanos), resetSeconds);
+    }
+
+    log.trace("Request allowed for client: {}", clientKey);
+    return RateLimitDecision.allow(result.get(1).intValue(), resetSeconds);
+  }
+
+  /**
+   * Registers the timer of the script calls and the meters of the local cache of denied keys.
+   *
+   * @param registry the registry to register with
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    scriptTimer = RateLimiterMetrics.scriptTimer(registry, this, "multi_window");
+    RateLimiterMetrics.monitorRetryCache(registry, this, retryCache);
+  }
+
+  private static int toSeconds(long nanos) {
+    return Math.toIntExact(Math.ceilDiv(nanos, TimeUnit.SECONDS.toNanos(1)));
+  }
+}
@@ -0,0 +1,40 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.multiwindow;
+
+import java.time.Duration;
+
+/**
+ * The {@code RateLimitWindow} record is one of the limits that a multi-window rate limiter
+ * enforces together, such as 300 requests per minute.
+ *
+ * @param maxRequests the maximum number of requests per {@code period}
+ * @param period the window length, in whole milliseconds
+ */
+public record RateLimitWindow(int maxRequests, Duration period) {
+
+  public RateLimitWindow {
+    if (maxRequests <= 0) {
+      throw new IllegalArgumentException("maxRequests of a window must be greater than 0");
+    }
+    if (period == null) {
+      throw new IllegalArgumentException("period of a window must be set");
+    }
+    if (period.toMillis() <= 0) {
+      throw new IllegalArgumentException("period of a window must be at least 1 millisecond");
+    }
+  }
+
+  /**
+   * Describes the windows for the message of a {@code RateLimitExceededException}.
+   */
+  static String describe(RateLimitWindow[] windows) {
+    StringBuilder message = new StringBuilder("Too many requests. You have only ");
+    for (int i = 0; i < windows.length; i++) {
+      if (i > 0) {
+        message.append(", ");
+      }
+      message.append(windows[i].maxRequests()).append(" requests for ")
+          .append(windows[i].period().toSeconds()).append(" seconds");
+    }
+    return message.append('.').toString();
+  }
+}
@@ -0,0 +1,212 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.strategy.AsyncRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Mono;
+
+/**
+ * The {@code AsyncSlidingWindowRedisRateLimiter} class runs the Redis sliding window of
+ * {@link SlidingWindowRedisRateLimiter} through the reactive Lettuce API, so that no thread is
+ * blocked while the script runs in Redis.
+ *
+ * <p>{@link #tryAcquireAsync(String)} returns as soon as the script has been sent. The Lettuce
+ * event loop completes the returned stage when the reply arrives. During a Redis latency spike
+ * the slow calls wait as in-flight commands on the connection instead of holding request threads,
+ * and allowed traffic keeps being served.
+ *
+ * <p>The blocking {@link #tryAcquire(String)} waits for the same stage. On a virtual thread the
+ * wait unmounts the thread from its carrier, so the blocked time per request still does not limit
+ * the number of requests in flight.
+ */
+public final class AsyncSlidingWindowRedisRateLimiter implements AsyncRateLimiterStrategy,
+    MeterBinder {
+
+  private final ReactiveStringRedisTemplate redisTemplate;
+
+  private final RedisScript<Long> rateLimiterScript;
+
+  private final List<String> scriptArgs;
+
+  private final Ticker ticker;
+
+  private final long epochNanos;
+
+  private final Cache<String, Long> retryCache;
+
+  private volatile Timer scriptTimer = RateLimiterMetrics.disabledScriptTimer();
+
+  private final String exceptionMessage;
+
+  private final Logger log = LoggerFactory.getLogger(AsyncSlidingWindowRedisRateLimiter.class);
+
+  public AsyncSlidingWindowRedisRateLimiter(ReactiveStringRedisTemplate redisTemplate,
+      int maxRequests, Duration basePeriod, Resource luaScriptResource) {
+    this(redisTemplate, maxRequests, basePeriod, luaScriptResource, Ticker.systemTicker());
+  }
+
+  /**
+   * Creates a limiter whose local cache of denied keys reads time from {@code ticker}.
+   *
+   * @param redisTemplate the reactive Redis template for interacting with Redis
+   * @param maxRequests the maximum number of requests per {@code basePeriod}
+   * @param basePeriod the window length
+   * @param luaScriptResource the Lua script that checks a single key
+   * @param ticker the time source, in nanoseconds
+   */
+  public AsyncSlidingWindowRedisRateLimiter(ReactiveStringRedisTemplate redisTemplate,
+      int maxRequests, Duration basePeriod, Resource luaScriptResource, Ticker ticker) {
+    if (maxRequests <= 0) {
+      throw new IllegalArgumentException("maxRequestsPerPeriod must be greater than 0");
+    }
+    if (basePeriod == null) {
+      throw new IllegalArgumentException("basePeriod must be set");
+    }
+    this.redisTemplate = redisTemplate;
+    this.scriptArgs = List.of(String.valueOf(maxRequests), String.valueOf(basePeriod.toMillis()));
+    this.ticker = ticker;
+    this.epochNanos = ticker.read();
+    this.retryCache = Caffeine.newBuilder()
+        .expireAfterWrite(basePeriod)
+        .ticker(ticker)
+        .recordStats()
+        .build();
+    try (InputStream inputStream = luaScriptResource.getInputStream()) {
+      this.rateLimiterScript = RedisScript.of(
+          new String(inputStream.readAllBytes(), StandardCharsets.UTF_8), Long.class);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Failed to load Lua script", e);
+    }
+    this.exceptionMessage = String.format(
+        "Too many requests. You have only %d requests for %d seconds",
+        maxRequests,
+        basePeriod.toSeconds()
+    );
+  }
+
+  /**
+   * Attempts to allow a request for the given client key, waiting for the Redis reply.
+   *
+   * @param clientKey the unique key representing the client or request source
+   * @throws RateLimitExceededException if the rate limit for the client has been exceeded
+   * @see SlidingWindowRedisRateLimiter#allowRequest(String)
+   */
+  @Override
+  public void allowRequest(String clientKey) {
+    RateLimitDecision decision = tryAcquire(clientKey);
+    if (!decision.allowed()) {
+      throw new RateLimitExceededException(exceptionMessage, decision.retryAfterSeconds());
+    }
+  }
+
+  /**
+   * Returns the message of a denied request, with the limits of this rate limiter.
+   *
+   * @return the message of the {@link RateLimitExceededException} of a denied request
+   */
+  @Override
+  public String rejectionMessage() {
+    return exceptionMessage;
+  }
+
+  /**
+   * Waits for the decision of {@link #tryAcquireAsync(String)}.
+   *
+   * @param clientKey the unique key representing the client or request source
+   * @return the decision for the request
+   * @throws IllegalStateException if the Lua script does not return a result
+   */
+  @Override
+  public RateLimitDecision tryAcquire(String clientKey) {
+    try {
+      return tryAcquireAsync(clientKey).toCompletableFuture().join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Applies the Redis sliding window without blocking.
+   *
+   * <p>A key that was denied is denied again from the local cache, without a Redis call, until
+   * its retry delay has passed. The returned stage is then already complete.
+   *
+   * <p>The Lua script does not report the remaining quota, so allowed decisions carry
+   * {@link RateLimitDecision#UNKNOWN} for the remaining requests and the reset time.
+   *
+   * @param clientKey the unique key representing the client or request source
+   * @return a stage that completes with the decision, or with an {@link IllegalStateException} if
+   * the Lua script does not return a result
+   */
+  @Override
+  public CompletionStage<RateLimitDecision> tryAcquireAsync(String clientKey) {
+    long now = ticker.read() - epochNanos;
+    Long retryAt = retryCache.getIfPresent(clientKey);
+    if (retryAt != null && retryAt > now) {
+      return CompletableFuture.completedFuture(
+          RateLimitDecision.deny(toSeconds(retryAt - now), RateLimitDecision.UNKNOWN));
+    }
+    long scriptStart = System.nanoTime();
+    return redisTemplate.execute(rateLimiterScript, Collections.singletonList(clientKey),
+            scriptArgs)
+        .next()
+        .doOnNext(_ -> scriptTimer.record(System.nanoTime() - scriptStart, TimeUnit.NANOSECONDS))
+        .switchIfEmpty(Mono.error(() -> new IllegalStateException(
+            "Could not get result from Redis lua script for " + clientKey)))
+        .map(result -> decide(clientKey, now, result))
+        .toFuture();
+  }
+
+  private RateLimitDecision decide(String clientKey, long now, long retryAfterMillis) {
+    if (retryAfterMillis != 0) {
+      log.trace("Rate limit exceeded for client: {}. Retry after {} millis", clientKey,
+          retryAfterMillis);
+      long waitNanos = TimeUnit.MILLISECONDS.toNanos(retryAfterMillis);
+      retryCache.put(clientKey, now + waitNanos);
+      return RateLimitDecision.deny(toSeconds(waitNanos), RateLimitDecision.UNKNOWN);
+    }
+    log.trace("Request allowed for client: {}", clientKey);
+    return RateLimitDecision.allow();
+  }
+
+  /**
+   * Registers the timer of the script calls and the meters of the local cache of denied keys.
+   * The timer runs from sending the script to the arrival of its reply.
+   *
+   * @param registry the registry to register with
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    scriptTimer = RateLimiterMetrics.scriptTimer(registry, this, "sliding_window");
+    RateLimiterMetrics.monitorRetryCache(registry, this, retryCache);
+  }
+
+  private static int toSeconds(long nanos) {
+    return Math.toIntExact(Math.ceilDiv(nanos, TimeUnit.SECONDS.toNanos(1)));
+  }
+}
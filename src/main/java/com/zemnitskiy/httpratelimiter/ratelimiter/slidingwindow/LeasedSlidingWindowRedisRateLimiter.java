@@ -0,0 +1,373 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * The {@code LeasedSlidingWindowRedisRateLimiter} class implements the Redis sliding window of
+ * {@link SlidingWindowRedisRateLimiter} with local quota leasing. Instead of one Redis call per
+ * request, an instance reserves a batch of permits for a key in a single Lua call and spends them
+ * locally until they run out or the lease expires. Permits that were not spent are returned to
+ * Redis when a new lease is taken, when the key is evicted and when the limiter is closed.
+ *
+ * <p>For a key that receives {@code n} requests per lease duration, Redis sees about
+ * {@code n / leaseSize} calls instead of {@code n}.
+ *
+ * <p><b>Error bound:</b> the global limit is enforced on reservation, so Redis never hands out
+ * more than {@code maxRequests} permits per window. A leased permit is recorded at the time it was
+ * reserved, though, and may be spent up to {@code leaseDuration} later. In any window of
+ * {@code basePeriod} the number of admitted requests can therefore exceed {@code maxRequests} by at
+ * most {@code leaseSize} per instance. In the other direction, permits held by one instance are not
+ * available to the others until they are spent or returned, which delays them by at most
+ * {@code leaseDuration}. Both errors shrink with {@code leaseSize} and {@code leaseDuration}.
+ */
+public final class LeasedSlidingWindowRedisRateLimiter implements RateLimiterStrategy,
+    AutoCloseable, MeterBinder {
+
+  private final RedisTemplate<String, String> redisTemplate;
+
+  private final RedisScript<Long> leaseScript;
+
+  private final RedisScript<Long> releaseScript;
+
+  private final int maxRequests;
+
+  private final Duration basePeriod;
+
+  private final int leaseSize;
+
+  private final long leaseNanos;
+
+  private final Ticker ticker;
+
+  private final long epochNanos;
+
+  private final String instanceId = UUID.randomUUID().toString();
+
+  private final AtomicLong leaseSequence = new AtomicLong();
+
+  private final Cache<String, LeaseSlot> cache;
+
+  private volatile Timer leaseTimer = RateLimiterMetrics.disabledScriptTimer();
+
+  private volatile Timer releaseTimer = RateLimiterMetrics.disabledScriptTimer();
+
+  private final String exceptionMessage;
+
+  private final Logger log = LoggerFactory.getLogger(LeasedSlidingWindowRedisRateLimiter.class);
+
+  public LeasedSlidingWindowRedisRateLimiter(RedisTemplate<String, String> redisTemplate,
+      int maxRequests, Duration basePeriod, int leaseSize, Duration leaseDuration,
+      Resource leaseScriptResource, Resource releaseScriptResource) {
+    this(redisTemplate, maxRequests, basePeriod, leaseSize, leaseDuration, leaseScriptResource,
+        releaseScriptResource, Ticker.systemTicker());
+  }
+
+  /**
+   * Creates a limiter that reads time from {@code ticker}. The same ticker drives the expiry of
+   * idle keys.
+   *
+   * @param redisTemplate the Redis template for interacting with Redis
+   * @param maxRequests the maximum number of requests per {@code basePeriod}
+   * @param basePeriod the window length
+   * @param leaseSize the largest number of permits reserved in one Redis call. It is capped at
+   * {@code maxRequests}.
+   * @param leaseDuration how long reserved permits may be spent locally
+   * @param leaseScriptResource the Lua script that reserves permits
+   * @param releaseScriptResource the Lua script that returns unused permits
+   * @param ticker the time source, in nanoseconds
+   */
+  public LeasedSlidingWindowRedisRateLimiter(RedisTemplate<String, String> redisTemplate,
+      int maxRequests, Duration basePeriod, int leaseSize, Duration leaseDuration,
+      Resource leaseScriptResource, Resource releaseScriptResource, Ticker ticker) {
+    if (maxRequests <= 0) {
+      throw new IllegalArgumentException("maxRequestsPerPeriod must be greater than 0");
+    }
+    if (basePeriod == null) {
+      throw new IllegalArgumentException("basePeriod must be set");
+    }
+    if (leaseSize <= 0) {
+      throw new IllegalArgumentException("leaseSize must be greater than 0");
+    }
+    if (leaseDuration == null || leaseDuration.isNegative() || leaseDuration.isZero()) {
+      throw new IllegalArgumentException("leaseDuration must be positive");
+    }
+    this.redisTemplate = redisTemplate;
+    this.maxRequests = maxRequests;
+    this.basePeriod = basePeriod;
+    this.leaseSize = Math.min(leaseSize, maxRequests);
+    this.leaseNanos = leaseDuration.toNanos();
+    this.ticker = ticker;
+    this.epochNanos = ticker.read();
+    this.leaseScript = loadScript(leaseScriptResource);
+    this.releaseScript = loadScript(releaseScriptResource);
+    // A lease cannot outlive the window it was reserved in, so an idle key can go after one period
+    this.cache = Caffeine.newBuilder()
+        .expireAfterAccess(basePeriod)
+        .ticker(ticker)
+        .<String, LeaseSlot>removalListener((key, slot, _) -> {
+          if (key != null && slot != null) {
+            release(key, slot.lease);
+          }
+        })
+        .build();
+    this.exceptionMessage = String.format(
+        "Too many requests. You have only %d requests for %d seconds",
+        maxRequests,
+        basePeriod.toSeconds()
+    );
+  }
+
+  private static RedisScript<Long> loadScript(Resource resource) {
+    try (InputStream inputStream = resource.getInputStream()) {
+      return RedisScript.of(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8),
+          Long.class);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Failed to load Lua script", e);
+    }
+  }
+
+  /**
+   * Attempts to allow a request for the given client key.
+   *
+   * <p>The request spends one permit of the local lease for the key. Only when the lease is used
+   * up or has expired does the limiter go to Redis, where the Lua script trims the sliding window
+   * and reserves up to {@code leaseSize} of the permits still free in it. Threads that need a new
+   * lease for the same key at the same time share a single Redis call.
+   *
+   * <p>If Redis has no permits left, the retry delay it reports is cached, and requests for the key
+   * are denied locally until it has passed.
+   *
+   * @param clientKey the unique key representing the client or request source
+   * @throws RateLimitExceededException if the rate limit for the client has been exceeded
+   */
+  @Override
+  public void allowRequest(String clientKey) {
+    RateLimitDecision decision = tryAcquire(clientKey);
+    if (!decision.allowed()) {
+      throw new RateLimitExceededException(exceptionMessage, decision.retryAfterSeconds());
+    }
+  }
+
+  /**
+   * Returns the message of a denied request, with the limits of this rate limiter.
+   *
+   * @return the message of the {@link RateLimitExceededException} of a denied request
+   */
+  @Override
+  public String rejectionMessage() {
+    return exceptionMessage;
+  }
+
+  /**
+   * Returns {@code true}: a request that finds its lease used up waits for the lock of its key
+   * and the round trip to Redis that renews the lease.
+   *
+   * @return {@code true}
+   */
+  @Override
+  public boolean isBlocking() {
+    return true;
+  }
+
+  /**
+   * Applies the leased sliding window described in {@link #allowRequest(String)} and reports the
+   * outcome without throwing.
+   *
+   * <p>Only Redis knows the global remaining quota, so allowed decisions carry
+   * {@link RateLimitDecision#UNKNOWN} for the remaining requests and the reset time.
+   *
+   * @param clientKey the unique key representing the client or request source
+   * @return the decision for the request
+   * @throws IllegalStateException if the Lua script does not return a result
+   */
+  @Override
+  public RateLimitDecision tryAcquire(String clientKey) {
+    LeaseSlot slot = cache.get(clientKey, _ -> new LeaseSlot());
+    long now = ticker.read() - epochNanos;
+    Lease lease = slot.lease;
+    if (lease != null && lease.tryTake(now)) {
+      return RateLimitDecision.allow();
+    }
+    if (slot.retryAt > now) {
+      return denied(slot.retryAt - now);
+    }
+    slot.renewal.lock();
+    try {
+      // Another thread may have renewed the lease while this one was waiting
+      lease = slot.lease;
+      if (lease != null && lease.tryTake(now)) {
+        return RateLimitDecision.allow();
+      }
+      if (slot.retryAt > now) {
+        return denied(slot.retryAt - now);
+      }
+      release(clientKey, lease);
+      slot.lease = null;
+
+      String leaseId = instanceId + ":" + leaseSequence.incrementAndGet();
+      long scriptStart = System.nanoTime();
+      Long result = redisTemplate.execute(leaseScript,
+          Collections.singletonList(clientKey),
+          String.valueOf(maxRequests),
+          String.valueOf(basePeriod.toMillis()),
+          String.valueOf(leaseSize),
+          leaseId);
+      leaseTimer.record(System.nanoTime() - scriptStart, TimeUnit.NANOSECONDS);
+      if (result == null) {
+        throw new IllegalStateException(
+            "Could not get result from Redis lua script for " + clientKey);
+      }
+
+      if (result <= 0) {
+        log.trace("Rate limit exceeded for client: {}. Retry after {} millis", clientKey, -result);
+        slot.retryAt = now + TimeUnit.MILLISECONDS.toNanos(-result);
+        return denied(slot.retryAt - now);
+      }
+
+      Lease fresh = new Lease(leaseId, result.intValue(), now + leaseNanos);
+      fresh.tryTake(now);
+      slot.lease = fresh;
+      log.trace("Leased {} permits for client: {}", result, clientKey);
+      return RateLimitDecision.allow();
+    } finally {
+      slot.renewal.unlock();
+    }
+  }
+
+  private static RateLimitDecision denied(long waitNanos) {
+    int retryAfter = Math.toIntExact(Math.ceilDiv(waitNanos, TimeUnit.SECONDS.toNanos(1)));
+    return RateLimitDecision.deny(retryAfter, RateLimitDecision.UNKNOWN);
+  }
+
+  /**
+   * Returns the unused permits of {@code lease} to Redis. Failing to return them is not an error:
+   * they drop out of the window on their own after one period.
+   */
+  private void release(String clientKey, Lease lease) {
+    if (lease == null) {
+      return;
+    }
+    int unused = lease.remaining.getAndSet(0);
+    if (unused <= 0) {
+      return;
+    }
+    try {
+      long scriptStart = System.nanoTime();
+      redisTemplate.execute(releaseScript,
+          Collections.singletonList(clientKey),
+          lease.id,
+          String.valueOf(lease.granted - unused + 1),
+          String.valueOf(lease.granted));
+      releaseTimer.record(System.nanoTime() - scriptStart, TimeUnit.NANOSECONDS);
+      log.trace("Returned {} unused permits for client: {}", unused, clientKey);
+    } catch (DataAccessException e) {
+      log.warn("Could not return {} unused permits for client: {}", unused, clientKey, e);
+    }
+  }
+
+  /**
+   * Returns the unused permits of every lease this instance holds, so that other instances can
+   * use them right away.
+   */
+  @Override
+  public void close() {
+    cache.asMap().forEach((clientKey, slot) -> {
+      slot.renewal.lock();
+      try {
+        release(clientKey, slot.lease);
+        slot.lease = null;
+      } finally {
+        slot.renewal.unlock();
+      }
+    });
+  }
+
+  /**
+   * Registers the timers of the lease and release scripts and the number of keys with a lease
+   * slot.
+   *
+   * @param registry the registry to register with
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    leaseTimer = RateLimiterMetrics.scriptTimer(registry, this, "lease");
+    releaseTimer = RateLimiterMetrics.scriptTimer(registry, this, "release");
+    RateLimiterMetrics.monitorKeys(registry, this, cache);
+  }
+
+  /**
+   * The lease state of one key. Renewal is serialized on the slot; spending is lock-free.
+   * Renewal calls Redis while holding the lock, so it is a {@link ReentrantLock} rather than a
+   * monitor, which would pin a virtual thread to its carrier for the whole round trip.
+   */
+  private static final class LeaseSlot {
+
+    private final ReentrantLock renewal = new ReentrantLock();
+
+    private volatile Lease lease;
+
+    private volatile long retryAt;
+  }
+
+  /**
+   * A batch of permits reserved in Redis. Permit {@code i} is stored as the member
+   * {@code id:i}, and permits are spent from the lowest number up.
+   */
+  private static final class Lease {
+
+    private final String id;
+
+    private final int granted;
+
+    private final long expiresAt;
+
+    private final AtomicInteger remaining;
+
+    private Lease(String id, int granted, long expiresAt) {
+      this.id = id;
+      this.granted = granted;
+      this.expiresAt = expiresAt;
+      this.remaining = new AtomicInteger(granted);
+    }
+
+    private boolean tryTake(long now) {
+      if (now >= expiresAt) {
+        return false;
+      }
+      while (true) {
+        int current = remaining.get();
+        if (current <= 0) {
+          return false;
+        }
+        if (remaining.compareAndSet(current, current - 1)) {
+          return true;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,209 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow;
+
+import com.zemnitskiy.httpratelimiter.sharding.ShardedRedisTemplate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * The {@code RedisScriptBatcher} class gathers script calls for different keys from concurrent
+ * threads and runs them as a single multi-key script call. Each caller blocks until the batch that
+ * carries its key has been executed and then receives its own result.
+ *
+ * <p>A single flusher thread takes the first waiting call, then keeps collecting calls until the
+ * batch holds {@code maxBatchSize} keys or {@code maxDelay} has passed. With a zero delay, a batch
+ * holds whatever queued up while the previous one was in flight, so an idle system adds no
+ * latency and a busy one sends fewer, larger calls.
+ *
+ * <p>The script receives the keys of the batch in {@code KEYS}, in arrival order and possibly
+ * repeated, followed by the shared arguments in {@code ARGV}. It must return one integer per key.
+ *
+ * <p>A script call may only touch keys of one node. Against a {@link ShardedRedisTemplate} a batch
+ * is split into one call per node, and against Redis Cluster into one call per hash slot. Keys
+ * without a shared hash tag rarely share a slot, so in Redis Cluster batching mostly saves the
+ * queueing and little of the round trips.
+ */
+final class RedisScriptBatcher implements AutoCloseable {
+
+  private final RedisTemplate<String, String> redisTemplate;
+
+  private final RedisScript<List<Long>> script;
+
+  private final Object[] args;
+
+  private final ToIntFunction<String> partition;
+
+  private final int maxBatchSize;
+
+  private final long maxDelayNanos;
+
+  private final BlockingQueue<Call> queue = new LinkedBlockingQueue<>();
+
+  private final Thread flusher;
+
+  private volatile boolean closed;
+
+  private final Logger log = LoggerFactory.getLogger(RedisScriptBatcher.class);
+
+  RedisScriptBatcher(RedisTemplate<String, String> redisTemplate, RedisScript<List<Long>> script,
+      int maxBatchSize, Duration maxDelay, Object... args) {
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("maxBatchSize must be greater than 0");
+    }
+    if (maxDelay == null || maxDelay.isNegative()) {
+      throw new IllegalArgumentException("maxDelay must not be negative");
+    }
+    this.redisTemplate = redisTemplate;
+    this.script = script;
+    this.args = args;
+    this.partition = partitionOf(redisTemplate);
+    this.maxBatchSize = maxBatchSize;
+    this.maxDelayNanos = maxDelay.toNanos();
+    this.flusher = Thread.ofPlatform()
+        .name("redis-script-batcher")
+        .daemon()
+        .start(this::run);
+  }
+
+  /**
+   * Selects how a batch is split so that every script call stays on one node.
+   *
+   * @return the node or hash slot of a key, or {@code null} if all keys live on one node
+   */
+  private static ToIntFunction<String> partitionOf(RedisTemplate<String, String> redisTemplate) {
+    if (redisTemplate instanceof ShardedRedisTemplate sharded) {
+      return sharded::shardOf;
+    }
+    if (redisTemplate.getConnectionFactory() instanceof LettuceConnectionFactory factory
+        && factory.isClusterAware()) {
+      return ClusterSlotHashUtil::calculateSlot;
+    }
+    return null;
+  }
+
+  /**
+   * Runs the script for {@code key} as part of the next batch and waits for its result.
+   *
+   * @param key the key to run the script for
+   * @return the result the script returned for {@code key}, or {@code null} if it returned none
+   * @throws IllegalStateException if the batcher has been closed
+   */
+  Long execute(String key) {
+    if (closed) {
+      throw new IllegalStateException("Redis script batcher is closed");
+    }
+    Call call = new Call(key);
+    queue.add(call);
+    if (closed && queue.remove(call)) {
+      // The flusher may already have stopped and will not see this call
+      throw new IllegalStateException("Redis script batcher is closed");
+    }
+    try {
+      return call.result.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  private void run() {
+    List<Call> batch = new ArrayList<>(maxBatchSize);
+    try {
+      while (!closed) {
+        batch.add(queue.take());
+        collect(batch);
+        flush(batch);
+        batch.clear();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      queue.drainTo(batch);
+      IllegalStateException closedException =
+          new IllegalStateException("Redis script batcher is closed");
+      batch.forEach(call -> call.result.completeExceptionally(closedException));
+    }
+  }
+
+  private void collect(List<Call> batch) throws InterruptedException {
+    queue.drainTo(batch, maxBatchSize - batch.size());
+    long deadline = System.nanoTime() + maxDelayNanos;
+    while (batch.size() < maxBatchSize) {
+      long wait = deadline - System.nanoTime();
+      if (wait <= 0) {
+        return;
+      }
+      Call next = queue.poll(wait, TimeUnit.NANOSECONDS);
+      if (next == null) {
+        return;
+      }
+      batch.add(next);
+      queue.drainTo(batch, maxBatchSize - batch.size());
+    }
+  }
+
+  private void flush(List<Call> batch) {
+    if (partition == null || batch.size() == 1) {
+      flushOnOneNode(batch);
+      return;
+    }
+    Map<Integer, List<Call>> partitions = new LinkedHashMap<>();
+    for (Call call : batch) {
+      partitions.computeIfAbsent(partition.applyAsInt(call.key), _ -> new ArrayList<>())
+          .add(call);
+    }
+    partitions.values().forEach(this::flushOnOneNode);
+  }
+
+  private void flushOnOneNode(List<Call> batch) {
+    List<String> keys = new ArrayList<>(batch.size());
+    for (Call call : batch) {
+      keys.add(call.key);
+    }
+    List<Long> results;
+    try {
+      results = redisTemplate.execute(script, keys, args);
+    } catch (RuntimeException e) {
+      batch.forEach(call -> call.result.completeExceptionally(e));
+      return;
+    }
+    log.trace("Executed batch of {} keys", keys.size());
+    for (int i = 0; i < batch.size(); i++) {
+      batch.get(i).result.complete(
+          results != null && i < results.size() ? results.get(i) : null);
+    }
+  }
+
+  /**
+   * Stops the flusher thread. Calls that have not been sent yet fail with an
+   * {@link IllegalStateException}.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    flusher.interrupt();
+  }
+
+  private record Call(String key, CompletableFuture<Long> result) {
+
+    private Call(String key) {
+      this(key, new CompletableFuture<>());
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow;
+
+/**
+ * The {@code SlidingWindowLog} class is a ring buffer of request timestamps used by
+ * {@link SlidingWindowRateLimiter}. Timestamps are kept as primitive {@code long} values, so
+ * admitting and evicting requests is index arithmetic and does not allocate.
+ *
+ * <p>The buffer never holds more than {@code maxRequests} timestamps. It starts small and doubles
+ * up to that capacity the first time a key needs it, so clients that make only a few requests do
+ * not pin a full {@code maxRequests}-sized array.
+ *
+ * <p>This class is not thread-safe. Callers must synchronize on the instance.
+ */
+final class SlidingWindowLog {
+
+  private static final int INITIAL_CAPACITY = 8;
+
+  private final int maxRequests;
+
+  private long[] timestamps;
+
+  private int head;
+
+  private int size;
+
+  SlidingWindowLog(int maxRequests) {
+    this.maxRequests = maxRequests;
+    this.timestamps = new long[Math.min(maxRequests, INITIAL_CAPACITY)];
+  }
+
+  /**
+   * Removes every timestamp older than {@code oldestAllowedRequestTime}.
+   *
+   * @param oldestAllowedRequestTime the start of the current window, in milliseconds
+   * @return the number of removed timestamps
+   */
+  int evictOlderThan(long oldestAllowedRequestTime) {
+    int removed = 0;
+    while (size > 0 && timestamps[head] < oldestAllowedRequestTime) {
+      head = next(head);
+      size--;
+      removed++;
+    }
+    if (size == 0) {
+      head = 0;
+    }
+    return removed;
+  }
+
+  /**
+   * Records {@code timestamp} if fewer than {@code maxRequests} timestamps are held.
+   *
+   * @param timestamp the request time, in milliseconds
+   * @return {@code true} if the timestamp was recorded, {@code false} if the log is full
+   */
+  boolean tryAdd(long timestamp) {
+    if (size == maxRequests) {
+      return false;
+    }
+    if (size == timestamps.length) {
+      grow();
+    }
+    int tail = head + size;
+    timestamps[tail < timestamps.length ? tail : tail - timestamps.length] = timestamp;
+    size++;
+    return true;
+  }
+
+  /**
+   * Returns the oldest recorded timestamp. Must only be called when the log is not empty.
+   *
+   * @return the oldest timestamp, in milliseconds
+   */
+  long oldest() {
+    return timestamps[head];
+  }
+
+  /**
+   * Returns the most recent recorded timestamp. Must only be called when the log is not empty.
+   *
+   * @return the newest timestamp, in milliseconds
+   */
+  long newest() {
+    int tail = head + size - 1;
+    return timestamps[tail < timestamps.length ? tail : tail - timestamps.length];
+  }
+
+  /**
+   * Returns a recorded timestamp by its position, oldest first.
+   *
+   * @param index the position, below {@link #size()}
+   * @return the timestamp, in milliseconds
+   */
+  long get(int index) {
+    int slot = head + index;
+    return timestamps[slot < timestamps.length ? slot : slot - timestamps.length];
+  }
+
+  int size() {
+    return size;
+  }
+
+  private int next(int index) {
+    return index + 1 == timestamps.length ? 0 : index + 1;
+  }
+
+  private void grow() {
+    long[] grown = new long[Math.min(maxRequests, timestamps.length * 2)];
+    int firstPart = Math.min(size, timestamps.length - head);
+    System.arraycopy(timestamps, head, grown, 0, firstPart);
+    System.arraycopy(timestamps, 0, grown, firstPart, size - firstPart);
+    timestamps = grown;
+    head = 0;
+  }
+}
@@ -2,14 +2,19 @@ package com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.snapshot.SnapshotReader;
+import com.zemnitskiy.httpratelimiter.snapshot.SnapshotSupport;
+import com.zemnitskiy.httpratelimiter.snapshot.SnapshotWriter;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
 import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
 import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.LinkedList;
-import java.util.Queue;
 import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,15 +25,22 @@ import org.slf4j.LoggerFactory;
  * more dynamic control over the request rate.
  *
  * <p>This class uses Caffeine cache to store the request timestamps per client key, maintaining
- * the state of the sliding window.`
+ * the state of the sliding window. Timestamps are kept in a {@link SlidingWindowLog}, a primitive
+ * ring buffer bounded by {@code maxRequests}, so the request path does not box or allocate.
+ *
+ * <p>The logs can be saved to a snapshot and restored after a restart, so a client that used its
+ * limit before the restart stays limited until its requests leave the window.
  */
-public final class SlidingWindowRateLimiter implements RateLimiterStrategy {
+public final class SlidingWindowRateLimiter implements RateLimiterStrategy, MeterBinder,
+    SnapshotSupport {
 
   private final int maxRequests;
 
   private final Duration basePeriod;
 
-  private final Cache<String, Queue<Long>> cache;
+  private final Cache<String, SlidingWindowLog> cache;
+
+  private final String exceptionMessage;
 
   private final Logger log = LoggerFactory.getLogger(SlidingWindowRateLimiter.class);
 
@@ -48,16 +60,18 @@ public final class SlidingWindowRateLimiter implements RateLimiterStrategy {
         .build();
     this.maxRequests = maxRequests;
     this.basePeriod = basePeriod;
+    this.exceptionMessage = "Too many requests. You have only " + maxRequests + " requests for "
+        + basePeriod.toSeconds() + " seconds.";
   }
 
 
   /**
    * Attempts to allow a request for the given key based on a sliding window rate limiting strategy.
    *
-   * <p>The sliding window rate limiting strategy works by maintaining a queue of timestamps representing
+   * <p>The sliding window rate limiting strategy works by maintaining a log of timestamps representing
    * the times of past requests. It calculates the current window based on the configured time period and
    * allows or denies new requests based on the number of requests within this window. The window "slides"
-   * as time progresses, meaning that outdated timestamps are removed from the queue to reflect the new
+   * as time progresses, meaning that outdated timestamps are removed from the log to reflect the new
    * window period.
    *
    * <p>If the number of requests within the sliding window for the key is below the maximum allowed,
@@ -73,9 +87,35 @@ public final class SlidingWindowRateLimiter implements RateLimiterStrategy {
    */
   @Override
   public void allowRequest(String key) {
+    RateLimitDecision decision = tryAcquire(key);
+    if (!decision.allowed()) {
+      throw new RateLimitExceededException(exceptionMessage, decision.retryAfterSeconds());
+    }
+  }
+
+  /**
+   * Returns the message of a denied request, with the limits of this rate limiter.
+   *
+   * @return the message of the {@link RateLimitExceededException} of a denied request
+   */
+  @Override
+  public String rejectionMessage() {
+    return exceptionMessage;
+  }
+
+  /**
+   * Applies the sliding window algorithm described in {@link #allowRequest(String)} and reports the
+   * outcome without throwing.
+   *
+   * @param key the unique key representing the client or request source
+   * @return the decision, with the requests left in the sliding window and the seconds until every
+   * recorded request has left it
+   */
+  @Override
+  public RateLimitDecision tryAcquire(String key) {
     log.trace("Attempting to allow request for key: {}", key);
 
-    Queue<Long> timestamps = cache.get(key, _ -> new LinkedList<>());
+    SlidingWindowLog timestamps = cache.get(key, _ -> new SlidingWindowLog(maxRequests));
     synchronized (timestamps) {
       long now = System.currentTimeMillis();
       long oldestAllowedRequestTime = now - basePeriod.toMillis();
@@ -86,30 +126,93 @@ public final class SlidingWindowRateLimiter implements RateLimiterStrategy {
       }
 
       // Remove outdated timestamps
-      while (!timestamps.isEmpty() && oldestAllowedRequestTime > timestamps.peek()) {
-        long removedTimestamp = timestamps.poll();
+      int removed = timestamps.evictOlderThan(oldestAllowedRequestTime);
+      if (removed > 0 && log.isTraceEnabled()) {
+        log.trace("Removed {} outdated timestamps for key: {}", removed, key);
+      }
+
+      if (timestamps.tryAdd(now)) {
         if (log.isTraceEnabled()) {
-          log.trace("Removed outdated timestamp: {}",
-              formatter.format(Instant.ofEpochMilli(removedTimestamp)));
+          log.trace("Request allowed for key: {}. Current log size: {}", key, timestamps.size());
         }
+        return RateLimitDecision.allow(maxRequests - timestamps.size(),
+            (int) Math.ceilDiv(basePeriod.toMillis(), 1000L));
       }
 
-      if (timestamps.size() < maxRequests) {
-        timestamps.offer(now);
-        log.trace("Request allowed for key: {}. Current queue size: {}", key, timestamps.size());
-        return;
+      long waitTime = timestamps.oldest() - oldestAllowedRequestTime;
+      int retryAfterSeconds = (int) TimeUnit.MILLISECONDS.toSeconds(waitTime);
+      if (log.isTraceEnabled()) {
+        log.trace("Too many requests for key: {}. Retry after: {} seconds", key,
+            retryAfterSeconds);
       }
+      return RateLimitDecision.deny(retryAfterSeconds,
+          (int) Math.ceilDiv(timestamps.newest() - oldestAllowedRequestTime, 1000L));
+    }
+  }
 
-      @SuppressWarnings("DataFlowIssue")
-      long waitTime = timestamps.peek() - oldestAllowedRequestTime;
-      int retryAfterSeconds = (int) TimeUnit.MILLISECONDS.toSeconds(waitTime);
-      log.trace("Too many requests for key: {}. Retry after: {} seconds", key, retryAfterSeconds);
+  @Override
+  public String snapshotId() {
+    return "SlidingWindowRateLimiter " + maxRequests + "/" + basePeriod;
+  }
+
+  /**
+   * Writes the request log of every key, as the ages of its requests, oldest first.
+   *
+   * @param writer the writer of this rate limiter's section of the snapshot
+   */
+  @Override
+  public void writeSnapshot(SnapshotWriter writer) {
+    cache.asMap().forEach((key, timestamps) -> {
+      synchronized (timestamps) {
+        long now = System.currentTimeMillis();
+        timestamps.evictOlderThan(now - basePeriod.toMillis());
+        if (timestamps.size() == 0) {
+          return;
+        }
+        writer.putString(key);
+        writer.putInt(timestamps.size());
+        for (int i = 0; i < timestamps.size(); i++) {
+          writer.putLong(now - timestamps.get(i));
+        }
+      }
+    });
+  }
 
-      throw new RateLimitExceededException(
-          "Too many requests. You have only " + maxRequests + " requests for "
-              + basePeriod.toSeconds() + " seconds.",
-          retryAfterSeconds);
+  /**
+   * Restores the requests that are still inside the window.
+   *
+   * @param reader the reader of this rate limiter's section of the snapshot
+   */
+  @Override
+  public void readSnapshot(SnapshotReader reader) {
+    long now = System.currentTimeMillis();
+    long oldestAllowedRequestTime = now - basePeriod.toMillis();
+    int restored = 0;
+    while (reader.hasRemaining()) {
+      String key = reader.getString();
+      int size = reader.getInt();
+      SlidingWindowLog timestamps = new SlidingWindowLog(maxRequests);
+      for (int i = 0; i < size; i++) {
+        long timestamp = now - reader.getLong() - reader.elapsedMillis();
+        if (timestamp >= oldestAllowedRequestTime) {
+          timestamps.tryAdd(timestamp);
+        }
+      }
+      if (timestamps.size() > 0) {
+        cache.put(key, timestamps);
+        restored++;
+      }
     }
+    log.debug("Restored {} request logs", restored);
   }
-}
 
+  /**
+   * Registers the number of keys with a request log.
+   *
+   * @param registry the registry to register with
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    RateLimiterMetrics.monitorKeys(registry, this, cache);
+  }
+}
@@ -2,13 +2,20 @@ package com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
 import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
 import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.Resource;
@@ -20,8 +27,12 @@ import org.springframework.data.redis.core.script.RedisScript;
  * sliding window algorithm and Redis for distributed request management. This allows rate limiting
  * across multiple instances of a service.
  *
+ * <p>Optionally, concurrent calls can be gathered into batches that are checked with one multi-key
+ * script call, see {@link RedisScriptBatcher}. This trades a small added latency for far fewer
+ * round trips to Redis under high load.
  */
-public final class SlidingWindowRedisRateLimiter implements RateLimiterStrategy {
+public final class SlidingWindowRedisRateLimiter implements RateLimiterStrategy, AutoCloseable,
+    MeterBinder {
 
   private final RedisTemplate<String, String> redisTemplate;
   private final RedisScript<Long> rateLimiterScript;
@@ -32,12 +43,35 @@ public final class SlidingWindowRedisRateLimiter implements RateLimiterStrategy
 
   private final Cache<String, Long> cache;
 
+  private final RedisScriptBatcher batcher;
+
+  private volatile Timer scriptTimer = RateLimiterMetrics.disabledScriptTimer();
+
   private final Logger log = LoggerFactory.getLogger(SlidingWindowRedisRateLimiter.class);
 
   private String exceptionMessage;
 
   public SlidingWindowRedisRateLimiter(RedisTemplate<String, String> redisTemplate,
       int maxRequests, Duration basePeriod, Resource luaScriptResource) {
+    this(redisTemplate, maxRequests, basePeriod, luaScriptResource, null, 0, null);
+  }
+
+  /**
+   * Creates a limiter that sends concurrent calls to Redis in batches. Without a batch script,
+   * every call goes to Redis on its own.
+   *
+   * @param redisTemplate the Redis template for interacting with Redis
+   * @param maxRequests the maximum number of requests per {@code basePeriod}
+   * @param basePeriod the window length
+   * @param luaScriptResource the Lua script that checks a single key
+   * @param batchScriptResource the Lua script that checks every key of a batch, or {@code null}
+   * @param maxBatchSize the largest number of calls sent in one batch
+   * @param maxBatchDelay how long a batch may wait for more calls before it is sent
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public SlidingWindowRedisRateLimiter(RedisTemplate<String, String> redisTemplate,
+      int maxRequests, Duration basePeriod, Resource luaScriptResource,
+      Resource batchScriptResource, int maxBatchSize, Duration maxBatchDelay) {
     if (maxRequests <= 0) {
       throw new IllegalArgumentException("maxRequestsPerPeriod must be greater than 0");
     }
@@ -46,13 +80,25 @@ public final class SlidingWindowRedisRateLimiter implements RateLimiterStrategy
     }
     this.cache = Caffeine.newBuilder()
         .expireAfterWrite(basePeriod)
+        .recordStats()
         .build();
     this.maxRequests = maxRequests;
     this.basePeriod = basePeriod;
     this.redisTemplate = redisTemplate;
-    try (InputStream inputStream = luaScriptResource.getInputStream()) {
-      this.rateLimiterScript = RedisScript.of(
-          new String(inputStream.readAllBytes(), StandardCharsets.UTF_8), Long.class);
+    this.rateLimiterScript = RedisScript.of(loadScript(luaScriptResource), Long.class);
+    if (batchScriptResource == null) {
+      this.batcher = null;
+      return;
+    }
+    RedisScript<List<Long>> batchScript =
+        (RedisScript) RedisScript.of(loadScript(batchScriptResource), List.class);
+    this.batcher = new RedisScriptBatcher(redisTemplate, batchScript, maxBatchSize, maxBatchDelay,
+        String.valueOf(maxRequests), String.valueOf(basePeriod.toMillis()));
+  }
+
+  private static String loadScript(Resource resource) {
+    try (InputStream inputStream = resource.getInputStream()) {
+      return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
     } catch (IOException e) {
       throw new IllegalArgumentException("Failed to load Lua script", e);
     }
@@ -84,18 +130,61 @@ public final class SlidingWindowRedisRateLimiter implements RateLimiterStrategy
    */
   @Override
   public void allowRequest(String clientKey) {
+    RateLimitDecision decision = tryAcquire(clientKey);
+    if (!decision.allowed()) {
+      throw new RateLimitExceededException(getExceptionMessage(), decision.retryAfterSeconds());
+    }
+  }
+
+  /**
+   * Returns the message of a denied request, with the limits of this rate limiter.
+   *
+   * @return the message of the {@link RateLimitExceededException} of a denied request
+   */
+  @Override
+  public String rejectionMessage() {
+    return getExceptionMessage();
+  }
+
+  /**
+   * Returns {@code true}: every decision is a round trip to Redis.
+   *
+   * @return {@code true}
+   */
+  @Override
+  public boolean isBlocking() {
+    return true;
+  }
+
+  /**
+   * Applies the Redis sliding window described in {@link #allowRequest(String)} and reports the
+   * outcome without throwing.
+   *
+   * <p>The Lua script does not report the remaining quota, so allowed decisions carry
+   * {@link RateLimitDecision#UNKNOWN} for the remaining requests and the reset time.
+   *
+   * @param clientKey the unique key representing the client or request source
+   * @return the decision for the request
+   * @throws IllegalStateException if the Lua script does not return a result
+   */
+  @Override
+  public RateLimitDecision tryAcquire(String clientKey) {
 
     log.trace("Attempting to allow request for key: {}", clientKey);
     Long cachedRetryTime = cache.getIfPresent(clientKey);
-    Long currentTime = System.currentTimeMillis();
+    long currentTime = System.currentTimeMillis();
     if (cachedRetryTime != null && cachedRetryTime > currentTime) {
-      throw new RateLimitExceededException(getExceptionMessage(),
-          Math.toIntExact(Math.ceilDiv(cachedRetryTime - currentTime, 1000)));
+      int retryAfter = Math.toIntExact(Math.ceilDiv(cachedRetryTime - currentTime, 1000));
+      return RateLimitDecision.deny(retryAfter, RateLimitDecision.UNKNOWN);
     }
-    Long result = redisTemplate.execute(rateLimiterScript,
-        Collections.singletonList(clientKey),
-        String.valueOf(maxRequests),
-        String.valueOf(basePeriod.toMillis()));
+    long scriptStart = System.nanoTime();
+    Long result = batcher != null
+        ? batcher.execute(clientKey)
+        : redisTemplate.execute(rateLimiterScript,
+            Collections.singletonList(clientKey),
+            String.valueOf(maxRequests),
+            String.valueOf(basePeriod.toMillis()));
+    scriptTimer.record(System.nanoTime() - scriptStart, TimeUnit.NANOSECONDS);
 
     if (result == null) {
       throw new IllegalStateException(
@@ -105,10 +194,34 @@ public final class SlidingWindowRedisRateLimiter implements RateLimiterStrategy
     if (result != 0) {
       log.trace("Rate limit exceeded for client: {}. Retry after {} millis", clientKey, result);
       cache.put(clientKey, System.currentTimeMillis() + result);
-      throw new RateLimitExceededException(getExceptionMessage(), result.intValue() / 1000);
+      return RateLimitDecision.deny(result.intValue() / 1000, RateLimitDecision.UNKNOWN);
     }
 
     log.trace("Request allowed for client: {}", clientKey);
+    return RateLimitDecision.allow();
+  }
+
+  /**
+   * Registers the timer of the script calls and the meters of the local cache of denied keys.
+   * With batching, the timer covers the wait for the batch as well as its round trip.
+   *
+   * @param registry the registry to register with
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    scriptTimer = RateLimiterMetrics.scriptTimer(registry, this,
+        batcher != null ? "sliding_window_batch" : "sliding_window");
+    RateLimiterMetrics.monitorRetryCache(registry, this, cache);
+  }
+
+  /**
+   * Stops the batching stage, if there is one.
+   */
+  @Override
+  public void close() {
+    if (batcher != null) {
+      batcher.close();
+    }
   }
 
   /**
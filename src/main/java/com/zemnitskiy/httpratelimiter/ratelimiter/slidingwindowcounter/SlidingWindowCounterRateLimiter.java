@@ -0,0 +1,253 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindowcounter;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStore;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStoreFactory;
+import com.zemnitskiy.httpratelimiter.strategy.BinaryKeyRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code SlidingWindowCounterRateLimiter} class implements a rate limiting strategy based on the
+ * sliding window counter algorithm. It approximates a sliding window from the request counts of
+ * the previous and the current fixed window.
+ *
+ * <p>The state of each key is a single 64-bit word in a {@link LongStateStore} that packs the
+ * current window index together with the previous and current counts, so memory per key is
+ * constant and every request is decided with one atomic update.
+ */
+public final class SlidingWindowCounterRateLimiter implements BinaryKeyRateLimiterStrategy,
+    MeterBinder, AutoCloseable {
+
+  static final int COUNT_BITS = 20;
+
+  static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+  static final int WINDOW_SHIFT = COUNT_BITS * 2;
+
+  static final long WINDOW_MASK = (1L << (Long.SIZE - WINDOW_SHIFT)) - 1;
+
+  private final int maxRequests;
+
+  private final long periodMillis;
+
+  private final Ticker ticker;
+
+  private final long epochNanos;
+
+  private final LongStateStore store;
+
+  private final LongStateStore.StateUpdate countRequest = this::countRequest;
+
+  private final String exceptionMessage;
+
+  private final Logger log = LoggerFactory.getLogger(SlidingWindowCounterRateLimiter.class);
+
+  public SlidingWindowCounterRateLimiter(int maxRequests, Duration basePeriod) {
+    this(maxRequests, basePeriod, Ticker.systemTicker());
+  }
+
+  public SlidingWindowCounterRateLimiter(int maxRequests, Duration basePeriod, Ticker ticker) {
+    this(maxRequests, basePeriod, ticker, LongStateStoreFactory.CAFFEINE);
+  }
+
+  /**
+   * Creates a limiter that reads time from {@code ticker}. The same ticker drives the expiry of
+   * idle keys.
+   *
+   * @param maxRequests the maximum number of requests per {@code basePeriod}
+   * @param basePeriod the window length
+   * @param ticker the time source, in nanoseconds
+   * @param storeFactory creates the store that holds the state of each key
+   */
+  public SlidingWindowCounterRateLimiter(int maxRequests, Duration basePeriod, Ticker ticker,
+      LongStateStoreFactory storeFactory) {
+    if (maxRequests <= 0) {
+      throw new IllegalArgumentException("maxRequestsPerPeriod must be greater than 0");
+    }
+    if (maxRequests > COUNT_MASK) {
+      throw new IllegalArgumentException("maxRequestsPerPeriod must not exceed " + COUNT_MASK);
+    }
+    if (basePeriod == null) {
+      throw new IllegalArgumentException("basePeriod must be set");
+    }
+    if (basePeriod.toMillis() <= 0) {
+      throw new IllegalArgumentException("basePeriod must be at least 1 millisecond");
+    }
+    this.maxRequests = maxRequests;
+    this.periodMillis = basePeriod.toMillis();
+    this.ticker = ticker;
+    this.epochNanos = ticker.read();
+    // After two idle windows the previous count no longer matters, so the key can go
+    this.store = storeFactory.create(basePeriod.multipliedBy(2), ticker);
+    this.exceptionMessage = "Too many requests. You have only " + maxRequests + " requests for "
+        + basePeriod.toSeconds() + " seconds.";
+  }
+
+  /**
+   * Attempts to allow a request for the given key based on a sliding window counter strategy.
+   *
+   * <p>Time is divided into fixed windows of {@code basePeriod}. The number of requests in the
+   * sliding window that ends now is estimated as
+   * {@code previousCount * (1 - elapsed / basePeriod) + currentCount}, where {@code elapsed} is the
+   * time since the current window started. The request is allowed if the estimate, including this
+   * request, does not exceed the maximum. Weighting the previous window this way removes the burst
+   * of up to twice the limit that a plain fixed window allows around a window boundary.
+   *
+   * <p>When a new window starts, the current count becomes the previous count. This happens in
+   * place through the same atomic update that records the request.
+   *
+   * @param key the unique key representing the client or request source
+   * @throws RateLimitExceededException if the rate limit for the key has been exceeded. The
+   * exception carries the number of seconds until the estimate drops below the limit.
+   * @see <a href="https://blog.cloudflare.com/counting-things-a-lot-of-different-things/">Counting
+   * things, a lot of different things - Cloudflare</a>
+   */
+  @Override
+  public void allowRequest(String key) {
+    RateLimitDecision decision = tryAcquire(key);
+    if (!decision.allowed()) {
+      throw new RateLimitExceededException(exceptionMessage, decision.retryAfterSeconds());
+    }
+  }
+
+  /**
+   * Returns the message of a denied request, with the limits of this rate limiter.
+   *
+   * @return the message of the {@link RateLimitExceededException} of a denied request
+   */
+  @Override
+  public String rejectionMessage() {
+    return exceptionMessage;
+  }
+
+  /**
+   * Applies the sliding window counter algorithm described in {@link #allowRequest(String)} and
+   * reports the outcome without throwing.
+   *
+   * @param key the unique key representing the client or request source
+   * @return the decision, with the requests left under the current estimate and the seconds until
+   * both counted windows have passed
+   */
+  @Override
+  public RateLimitDecision tryAcquire(String key) {
+    long now = TimeUnit.NANOSECONDS.toMillis(ticker.read() - epochNanos);
+    long previous = store.getAndUpdate(key, now, countRequest);
+    RateLimitDecision decision = decide(previous, now);
+    if (log.isTraceEnabled()) {
+      if (decision.allowed()) {
+        log.trace("Request allowed for key: {}", key);
+      } else {
+        log.trace("Rate limit exceeded for key: {}. Retry after: {} seconds", key,
+            decision.retryAfterSeconds());
+      }
+    }
+    return decision;
+  }
+
+  /**
+   * Applies the sliding window counter algorithm to a binary key, such as the binary form of an IP
+   * address.
+   *
+   * @param keyHigh the upper 64 bits of the key
+   * @param keyLow the lower 64 bits of the key
+   * @return the decision, with the requests left under the current estimate and the seconds until
+   * both counted windows have passed
+   */
+  @Override
+  public RateLimitDecision tryAcquire(long keyHigh, long keyLow) {
+    long now = TimeUnit.NANOSECONDS.toMillis(ticker.read() - epochNanos);
+    return decide(store.getAndUpdate(keyHigh, keyLow, now, countRequest), now);
+  }
+
+  /**
+   * Builds the decision from the state that {@link #countRequest} replaced.
+   */
+  private RateLimitDecision decide(long previous, long now) {
+    long updated = countRequest(previous, now);
+    long elapsed = now % periodMillis;
+
+    if (updated == previous) {
+      long current = rollOver(previous, now);
+      long currentCount = current & COUNT_MASK;
+      long previousCount = (current >>> COUNT_BITS) & COUNT_MASK;
+      return RateLimitDecision.deny(retryAfterSeconds(previousCount, currentCount, elapsed),
+          resetSeconds(currentCount, elapsed));
+    }
+
+    long currentCount = updated & COUNT_MASK;
+    long previousCount = (updated >>> COUNT_BITS) & COUNT_MASK;
+    long weighted = previousCount * (periodMillis - elapsed) + currentCount * periodMillis;
+    return RateLimitDecision.allow(
+        (int) ((maxRequests * periodMillis - weighted) / periodMillis),
+        resetSeconds(currentCount, elapsed));
+  }
+
+  /**
+   * Moves the packed state to the window that contains {@code now}: the current count becomes
+   * the previous count if exactly one window has passed, and both are dropped if more have.
+   */
+  private long rollOver(long state, long now) {
+    long windowTag = (now / periodMillis) & WINDOW_MASK;
+    long storedWindow = state >>> WINDOW_SHIFT;
+    if (storedWindow == windowTag) {
+      return state;
+    }
+    long previousCount = ((storedWindow + 1) & WINDOW_MASK) == windowTag ? state & COUNT_MASK : 0;
+    return (windowTag << WINDOW_SHIFT) | (previousCount << COUNT_BITS);
+  }
+
+  /**
+   * Counts one request in the packed state if the weighted estimate leaves room for it. Returns
+   * the state unchanged otherwise.
+   */
+  private long countRequest(long state, long now) {
+    long current = rollOver(state, now);
+    long currentCount = current & COUNT_MASK;
+    long previousCount = (current >>> COUNT_BITS) & COUNT_MASK;
+    long elapsed = now % periodMillis;
+
+    // previous * (1 - elapsed / period) + current + 1 <= max, scaled by period
+    long weighted = previousCount * (periodMillis - elapsed)
+        + (currentCount + 1) * periodMillis;
+    if (weighted > maxRequests * periodMillis) {
+      return state;
+    }
+    return current + 1;
+  }
+
+  private int resetSeconds(long currentCount, long elapsed) {
+    return SlidingWindowCounters.toSeconds(
+        SlidingWindowCounters.resetMillis(periodMillis, currentCount, elapsed));
+  }
+
+  private int retryAfterSeconds(long previousCount, long currentCount, long elapsed) {
+    return SlidingWindowCounters.toSeconds(SlidingWindowCounters.waitMillis(periodMillis,
+        maxRequests, previousCount, currentCount, elapsed));
+  }
+
+  /**
+   * Registers the key count and the estimated memory of the state store.
+   *
+   * @param registry the registry to register with
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    RateLimiterMetrics.monitorStateStore(registry, this, store);
+  }
+
+  /**
+   * Closes the state store, stopping its background work.
+   */
+  @Override
+  public void close() {
+    store.close();
+  }
+}
@@ -0,0 +1,60 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindowcounter;
+
+/**
+ * {@code SlidingWindowCounters} holds the arithmetic of the sliding window counter estimate,
+ * shared by the strategies that weight the count of the previous window by the part of it that
+ * still overlaps the sliding window.
+ *
+ * <p>The estimate at {@code elapsed} milliseconds into the current window is
+ * {@code previous * (period - elapsed) / period + current}. Both methods assume that no other
+ * requests arrive in the meantime.
+ */
+public final class SlidingWindowCounters {
+
+  private SlidingWindowCounters() {
+  }
+
+  /**
+   * Computes how long a client has to wait until the estimate leaves room for one more request.
+   *
+   * @param periodMillis the length of a window in milliseconds
+   * @param maxRequests the number of requests allowed per window
+   * @param previousCount the count of the previous window
+   * @param currentCount the count of the current window
+   * @param elapsed the milliseconds elapsed in the current window
+   * @return the wait in milliseconds
+   */
+  public static long waitMillis(long periodMillis, long maxRequests, long previousCount,
+      long currentCount, long elapsed) {
+    if (currentCount >= maxRequests) {
+      // Wait for the next window, then until the current count has been weighted down enough
+      long offset = Math.ceilDiv(periodMillis * (currentCount - maxRequests + 1), currentCount);
+      return periodMillis - elapsed + offset;
+    }
+    return Math.ceilDiv(periodMillis * (previousCount - maxRequests + currentCount + 1),
+        previousCount) - elapsed;
+  }
+
+  /**
+   * Computes when neither window contributes to the estimate any more: at the end of the current
+   * window if nothing was counted in it, otherwise one period later.
+   *
+   * @param periodMillis the length of a window in milliseconds
+   * @param currentCount the count of the current window
+   * @param elapsed the milliseconds elapsed in the current window
+   * @return the time until the reset in milliseconds
+   */
+  public static long resetMillis(long periodMillis, long currentCount, long elapsed) {
+    return periodMillis - elapsed + (currentCount > 0 ? periodMillis : 0);
+  }
+
+  /**
+   * Rounds a number of milliseconds up to whole seconds.
+   *
+   * @param millis the milliseconds
+   * @return the seconds
+   */
+  public static int toSeconds(long millis) {
+    return Math.toIntExact(Math.ceilDiv(millis, 1000L));
+  }
+}
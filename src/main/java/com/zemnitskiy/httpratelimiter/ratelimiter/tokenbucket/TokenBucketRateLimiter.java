@@ -0,0 +1,267 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.tokenbucket;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStore;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStoreFactory;
+import com.zemnitskiy.httpratelimiter.strategy.BinaryKeyRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code TokenBucketRateLimiter} class implements a rate limiting strategy based on the token
+ * bucket algorithm. Each key owns a bucket of {@code capacity} tokens that refills at
+ * {@code maxRequests} tokens per {@code basePeriod}. A request takes one token, so a client can burst
+ * up to {@code capacity} requests and is then held to the sustained rate.
+ *
+ * <p>The bucket is a single 64-bit word per key in a {@link LongStateStore} that packs the number
+ * of missing tokens with the time of the last refill. Refill is computed lazily when the key is
+ * accessed, so there is no background thread: every request is one atomic update.
+ *
+ * <p>Times in the bucket are counted in units of {@code 1 / maxRequests} milliseconds, so a token
+ * takes a whole number of units, {@code basePeriod} in milliseconds, to earn and no fraction of it
+ * is lost. They are kept modulo {@code 2^42}, which is enough as long as a bucket does not take
+ * longer than that to refill.
+ */
+public final class TokenBucketRateLimiter implements BinaryKeyRateLimiterStrategy, MeterBinder,
+    AutoCloseable {
+
+  static final int TIME_BITS = 42;
+
+  static final long TIME_MASK = (1L << TIME_BITS) - 1;
+
+  static final long MAX_CAPACITY = (1L << (Long.SIZE - TIME_BITS)) - 1;
+
+  private final int capacity;
+
+  private final int maxRequests;
+
+  private final long periodMillis;
+
+  private final long fullRefillUnits;
+
+  private final Ticker ticker;
+
+  private final long epochNanos;
+
+  private final LongStateStore store;
+
+  private final LongStateStore.StateUpdate takeToken = this::takeToken;
+
+  private final String exceptionMessage;
+
+  private final Logger log = LoggerFactory.getLogger(TokenBucketRateLimiter.class);
+
+  public TokenBucketRateLimiter(int capacity, int maxRequests, Duration basePeriod) {
+    this(capacity, maxRequests, basePeriod, Ticker.systemTicker());
+  }
+
+  public TokenBucketRateLimiter(int capacity, int maxRequests, Duration basePeriod,
+      Ticker ticker) {
+    this(capacity, maxRequests, basePeriod, ticker, LongStateStoreFactory.CAFFEINE);
+  }
+
+  /**
+   * Creates a limiter that reads time from {@code ticker}. The same ticker drives the expiry of
+   * idle keys.
+   *
+   * @param capacity the bucket size, which is the largest burst a client can make
+   * @param maxRequests the number of tokens added per {@code basePeriod}
+   * @param basePeriod the refill period
+   * @param ticker the time source, in nanoseconds
+   * @param storeFactory creates the store that holds the bucket of each key
+   */
+  public TokenBucketRateLimiter(int capacity, int maxRequests, Duration basePeriod,
+      Ticker ticker, LongStateStoreFactory storeFactory) {
+    if (maxRequests <= 0) {
+      throw new IllegalArgumentException("maxRequestsPerPeriod must be greater than 0");
+    }
+    if (capacity <= 0 || capacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException(
+          "capacity must be greater than 0 and not exceed " + MAX_CAPACITY);
+    }
+    if (basePeriod == null) {
+      throw new IllegalArgumentException("basePeriod must be set");
+    }
+    if (basePeriod.toMillis() <= 0) {
+      throw new IllegalArgumentException("basePeriod must be at least 1 millisecond");
+    }
+    if (basePeriod.toMillis() > TIME_MASK / (capacity + 1)) {
+      throw new IllegalArgumentException(
+          "basePeriod is too long for a bucket of " + capacity + " tokens");
+    }
+    this.capacity = capacity;
+    this.maxRequests = maxRequests;
+    this.periodMillis = basePeriod.toMillis();
+    this.fullRefillUnits = periodMillis * capacity;
+    this.ticker = ticker;
+    this.epochNanos = ticker.read();
+    // A bucket that has been idle long enough to refill completely is the same as a new one
+    this.store = storeFactory.create(
+        Duration.ofMillis(Math.ceilDiv(fullRefillUnits, maxRequests)), ticker);
+    this.exceptionMessage = "Too many requests. You have only " + maxRequests + " requests for "
+        + basePeriod.toSeconds() + " seconds with bursts of up to " + capacity + " requests.";
+  }
+
+  /**
+   * Attempts to take one token from the bucket of the given key.
+   *
+   * <p>The bucket state stores how many tokens are missing rather than how many are left, so a
+   * zero state is a full bucket and new keys need no initialization. Before a token is taken, the
+   * tokens earned since the last refill are added back. The refill time only advances by the time
+   * those whole tokens took to earn, so the fraction of the next token is not lost.
+   *
+   * @param key the unique key representing the client or request source
+   * @throws RateLimitExceededException if the bucket of the key is empty. The exception carries
+   * the number of seconds until the next token is added.
+   * @see <a href="https://en.wikipedia.org/wiki/Token_bucket">Token bucket - Wikipedia</a>
+   */
+  @Override
+  public void allowRequest(String key) {
+    RateLimitDecision decision = tryAcquire(key);
+    if (!decision.allowed()) {
+      throw new RateLimitExceededException(exceptionMessage, decision.retryAfterSeconds());
+    }
+  }
+
+  /**
+   * Returns the message of a denied request, with the limits of this bucket.
+   *
+   * @return the message of the {@link RateLimitExceededException} of a denied request
+   */
+  @Override
+  public String rejectionMessage() {
+    return exceptionMessage;
+  }
+
+  /**
+   * Applies the token bucket algorithm described in {@link #allowRequest(String)} and reports the
+   * outcome without throwing.
+   *
+   * @param key the unique key representing the client or request source
+   * @return the decision, with the tokens left in the bucket and the seconds until it is full again
+   */
+  @Override
+  public RateLimitDecision tryAcquire(String key) {
+    long now = TimeUnit.NANOSECONDS.toMillis(ticker.read() - epochNanos);
+    long previous = store.getAndUpdate(key, now, takeToken);
+    RateLimitDecision decision = decide(previous, now);
+    if (log.isTraceEnabled()) {
+      if (decision.allowed()) {
+        log.trace("Request allowed for key: {}", key);
+      } else {
+        log.trace("Rate limit exceeded for key: {}. Retry after: {} seconds", key,
+            decision.retryAfterSeconds());
+      }
+    }
+    return decision;
+  }
+
+  /**
+   * Applies the token bucket algorithm to a binary key, such as the binary form of an IP address.
+   *
+   * @param keyHigh the upper 64 bits of the key
+   * @param keyLow the lower 64 bits of the key
+   * @return the decision, with the tokens left in the bucket and the seconds until it is full again
+   */
+  @Override
+  public RateLimitDecision tryAcquire(long keyHigh, long keyLow) {
+    long now = TimeUnit.NANOSECONDS.toMillis(ticker.read() - epochNanos);
+    return decide(store.getAndUpdate(keyHigh, keyLow, now, takeToken), now);
+  }
+
+  /**
+   * Builds the decision from the state that {@link #takeToken} replaced.
+   */
+  private RateLimitDecision decide(long previous, long now) {
+    long updated = takeToken(previous, now);
+
+    if (updated == previous) {
+      long elapsed = (units(now) - (refill(previous, now) & TIME_MASK)) & TIME_MASK;
+      int retryAfter = Math.toIntExact(
+          Math.ceilDiv(periodMillis - elapsed, maxRequests * 1000L));
+      return RateLimitDecision.deny(retryAfter, resetSeconds(capacity));
+    }
+
+    long missing = updated >>> TIME_BITS;
+    return RateLimitDecision.allow((int) (capacity - missing), resetSeconds(missing));
+  }
+
+  /**
+   * Adds the tokens earned since the last refill to the packed bucket. The refill time only
+   * advances by the time those whole tokens took to earn, which is exact in units.
+   */
+  private long refill(long state, long now) {
+    long missing = state >>> TIME_BITS;
+    long lastRefill = state & TIME_MASK;
+    if (missing == 0) {
+      return state;
+    }
+    long elapsed = (units(now) - lastRefill) & TIME_MASK;
+    if (elapsed >= fullRefillUnits) {
+      return 0;
+    }
+    long refill = elapsed / periodMillis;
+    if (refill >= missing) {
+      return 0;
+    }
+    if (refill > 0) {
+      missing -= refill;
+      lastRefill = (lastRefill + refill * periodMillis) & TIME_MASK;
+    }
+    return (missing << TIME_BITS) | lastRefill;
+  }
+
+  /**
+   * Takes one token from the packed bucket after refilling it. Returns the state unchanged if the
+   * bucket is empty.
+   */
+  private long takeToken(long state, long now) {
+    long current = refill(state, now);
+    long missing = current >>> TIME_BITS;
+    if (missing >= capacity) {
+      return state;
+    }
+    // A full bucket starts refilling from the moment its first token is taken
+    return ((missing + 1) << TIME_BITS) | (missing == 0 ? units(now) : current & TIME_MASK);
+  }
+
+  /**
+   * Converts milliseconds to units of {@code 1 / maxRequests} milliseconds, modulo {@code 2^42}.
+   */
+  private long units(long now) {
+    return now * maxRequests & TIME_MASK;
+  }
+
+  /**
+   * Computes how long refilling {@code missing} tokens takes, ignoring the fraction of the next
+   * token that has already been earned.
+   */
+  private int resetSeconds(long missing) {
+    return Math.toIntExact(Math.ceilDiv(Math.ceilDiv(missing * periodMillis, maxRequests), 1000L));
+  }
+
+  /**
+   * Registers the key count and the estimated memory of the state store.
+   *
+   * @param registry the registry to register with
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    RateLimiterMetrics.monitorStateStore(registry, this, store);
+  }
+
+  /**
+   * Closes the state store, stopping its background work.
+   */
+  @Override
+  public void close() {
+    store.close();
+  }
+}
@@ -0,0 +1,122 @@
+package com.zemnitskiy.httpratelimiter.sharding;
+
+import com.zemnitskiy.httpratelimiter.storage.StripedLongStateStore;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code ConsistentHashRing} class assigns keys to a fixed set of named nodes, so that adding
+ * or removing a node moves as few keys as possible.
+ *
+ * <p>Each node is placed on a ring of 64-bit positions at {@code virtualNodes} points, derived
+ * from its name alone. A key belongs to the node of the first point at or after the position of
+ * the key, wrapping around at the end. Adding a node only takes over the keys that fall just
+ * before its own points, about one in {@code n + 1} of them, and every other key stays where it
+ * was. The more virtual nodes, the closer the nodes get to an even share of the keys.
+ *
+ * <p>Keys follow the hash tag rule of Redis Cluster: if a key contains a non-empty part between
+ * the first {@code {} and the first {@code }} after it, only that part is hashed. Keys with the
+ * same tag always land on the same node.
+ *
+ * @param <T> the type of the nodes
+ */
+public final class ConsistentHashRing<T> {
+
+  /**
+   * The low bits of a point that carry the index of its node while the ring is sorted.
+   */
+  private static final long NODE_MASK = 0xFFFF;
+
+  private final List<T> nodes;
+
+  private final long[] points;
+
+  private final int[] owners;
+
+  /**
+   * Creates a ring.
+   *
+   * @param nodes the nodes by name. Names place the nodes on the ring, so a node keeps its keys as
+   * long as its name stays the same, whatever the order of the nodes.
+   * @param virtualNodes the number of points of each node
+   */
+  public ConsistentHashRing(Map<String, T> nodes, int virtualNodes) {
+    if (nodes == null || nodes.isEmpty() || nodes.size() > NODE_MASK + 1) {
+      throw new IllegalArgumentException("nodes must hold between 1 and " + (NODE_MASK + 1)
+          + " nodes");
+    }
+    if (virtualNodes <= 0) {
+      throw new IllegalArgumentException("virtualNodes must be greater than 0");
+    }
+    this.nodes = List.copyOf(nodes.values());
+    long[] ring = new long[nodes.size() * virtualNodes];
+    int node = 0;
+    for (String name : nodes.keySet()) {
+      for (int i = 0; i < virtualNodes; i++) {
+        // The node index sits in the low bits, so that points sort by position first
+        ring[node * virtualNodes + i] =
+            (StripedLongStateStore.fingerprint(name + '#' + i) & ~NODE_MASK) | node;
+      }
+      node++;
+    }
+    Arrays.sort(ring);
+    this.points = new long[ring.length];
+    this.owners = new int[ring.length];
+    for (int i = 0; i < ring.length; i++) {
+      points[i] = ring[i] & ~NODE_MASK;
+      owners[i] = (int) (ring[i] & NODE_MASK);
+    }
+  }
+
+  /**
+   * Returns the node of a key.
+   *
+   * @param key the key
+   * @return the node the key belongs to
+   */
+  public T nodeFor(String key) {
+    return nodes.get(indexFor(key));
+  }
+
+  /**
+   * Returns the index of the node of a key, in the order the nodes were given.
+   *
+   * @param key the key
+   * @return the index of the node the key belongs to
+   */
+  public int indexFor(String key) {
+    long position = StripedLongStateStore.fingerprint(hashTag(key)) & ~NODE_MASK;
+    int point = Arrays.binarySearch(points, position);
+    if (point < 0) {
+      point = -point - 1;
+    }
+    return owners[point == points.length ? 0 : point];
+  }
+
+  /**
+   * Returns the nodes, in the order they were given.
+   *
+   * @return the nodes
+   */
+  public List<T> nodes() {
+    return nodes;
+  }
+
+  /**
+   * Returns the part of a key that is hashed: its hash tag if it has one, the whole key otherwise.
+   *
+   * @param key the key
+   * @return the hashed part of the key
+   */
+  static String hashTag(String key) {
+    int start = key.indexOf('{');
+    if (start >= 0) {
+      int end = key.indexOf('}', start + 1);
+      if (end > start + 1) {
+        return key.substring(start + 1, end);
+      }
+    }
+    return key;
+  }
+}
@@ -0,0 +1,96 @@
+package com.zemnitskiy.httpratelimiter.sharding;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * The {@code ShardedRedisTemplate} class spreads the scripts of the Redis rate limiters over
+ * several independent Redis nodes, so that their capacity grows with the number of nodes.
+ *
+ * <p>Each script call is sent to the node that a {@link ConsistentHashRing} assigns to its first
+ * key. All the state of a key lives on one node, and a script that touches several keys has to
+ * find them all on that node: a call whose keys belong to different nodes is rejected rather
+ * than run against part of its keys. Keys can be grouped on one node with a hash tag, as in Redis
+ * Cluster.
+ *
+ * <p>Only script calls are routed. Any other operation runs against the first node.
+ */
+public final class ShardedRedisTemplate extends StringRedisTemplate implements DisposableBean {
+
+  private final ConsistentHashRing<RedisTemplate<String, String>> ring;
+
+  /**
+   * Creates a template over the given nodes.
+   *
+   * @param nodes the template of each node by name, such as {@code host:port}
+   * @param virtualNodes the number of ring points of each node
+   */
+  public ShardedRedisTemplate(Map<String, ? extends RedisTemplate<String, String>> nodes,
+      int virtualNodes) {
+    this.ring = new ConsistentHashRing<>(new LinkedHashMap<>(nodes), virtualNodes);
+    setConnectionFactory(ring.nodes().getFirst().getConnectionFactory());
+  }
+
+  /**
+   * Returns the index of the node of a key, in the order of {@link #nodes()}.
+   *
+   * @param key the key
+   * @return the index of the node the key belongs to
+   */
+  public int shardOf(String key) {
+    return ring.indexFor(key);
+  }
+
+  /**
+   * Returns the templates of the nodes.
+   *
+   * @return the node templates
+   */
+  public List<RedisTemplate<String, String>> nodes() {
+    return ring.nodes();
+  }
+
+  /**
+   * Runs a script on the node of its keys.
+   *
+   * @param script the script to run
+   * @param keys the keys of the script, which must all belong to the same node
+   * @param args the arguments of the script
+   * @return the result of the script
+   * @throws IllegalArgumentException if there are no keys or they belong to different nodes
+   */
+  @Override
+  public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+    if (keys.isEmpty()) {
+      throw new IllegalArgumentException("A sharded script call needs at least one key");
+    }
+    int shard = shardOf(keys.getFirst());
+    for (int i = 1; i < keys.size(); i++) {
+      if (shardOf(keys.get(i)) != shard) {
+        throw new IllegalArgumentException("The keys of a script call belong to different nodes");
+      }
+    }
+    return ring.nodes().get(shard).execute(script, keys, args);
+  }
+
+  /**
+   * Closes the connections of the nodes.
+   *
+   * @throws Exception if a connection factory fails to close
+   */
+  @Override
+  public void destroy() throws Exception {
+    for (RedisTemplate<String, String> node : ring.nodes()) {
+      RedisConnectionFactory connectionFactory = node.getConnectionFactory();
+      if (connectionFactory instanceof DisposableBean disposable) {
+        disposable.destroy();
+      }
+    }
+  }
+}
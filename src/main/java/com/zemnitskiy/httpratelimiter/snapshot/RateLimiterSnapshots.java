@@ -0,0 +1,211 @@
+package com.zemnitskiy.httpratelimiter.snapshot;
+
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterFactory;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code RateLimiterSnapshots} class saves the state of the in-memory rate limiters to a file
+ * at a fixed interval and on shutdown, and restores it when the rate limiters are created again,
+ * so that a restart does not hand every client a fresh quota at the same moment.
+ *
+ * <p>The file starts with a magic number, a version and the wall-clock time of the snapshot,
+ * followed by one section per rate limiter: its {@link SnapshotSupport#snapshotId() identifier},
+ * the length of its payload and the payload. A rate limiter created under an identifier found in
+ * the file reads its section before it serves its first request. Sections whose rate limiter
+ * changed its strategy or limits are ignored.
+ *
+ * <p>A snapshot is written through a memory mapping to a temporary file, which then replaces the
+ * previous snapshot in a single rename, so a crash while writing leaves the previous snapshot
+ * intact. The file is read through a memory mapping as well. A file that cannot be read is
+ * ignored, and the rate limiters start empty.
+ */
+public final class RateLimiterSnapshots implements AutoCloseable {
+
+  static final int MAGIC = 0x524C534E;
+
+  static final int VERSION = 1;
+
+  private static final int INITIAL_REGION_SIZE = 1 << 20;
+
+  private final Path path;
+
+  private final Clock clock;
+
+  private final Map<String, ByteBuffer> restoredSections;
+
+  private final long elapsedMillis;
+
+  private final List<Section> sections = new CopyOnWriteArrayList<>();
+
+  private final Map<String, Integer> occurrences = new HashMap<>();
+
+  private final ScheduledExecutorService scheduler;
+
+  private final Logger log = LoggerFactory.getLogger(RateLimiterSnapshots.class);
+
+  /**
+   * Reads the previous snapshot, if there is one, and starts taking snapshots.
+   *
+   * @param path the snapshot file
+   * @param interval the time between snapshots, or zero to only take one on {@link #close()}
+   * @param clock the wall clock, which measures the time between a snapshot and its restore
+   */
+  public RateLimiterSnapshots(Path path, Duration interval, Clock clock) {
+    if (interval == null || interval.isNegative()) {
+      throw new IllegalArgumentException("interval must not be negative");
+    }
+    this.path = path;
+    this.clock = clock;
+    this.restoredSections = new HashMap<>();
+    this.elapsedMillis = load();
+    if (interval.isZero()) {
+      this.scheduler = null;
+    } else {
+      this.scheduler = Executors.newSingleThreadScheduledExecutor(
+          Thread.ofPlatform().name("rate-limiter-snapshot").daemon().factory());
+      scheduler.scheduleWithFixedDelay(this::snapshot, interval.toMillis(), interval.toMillis(),
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Includes the rate limiters of {@code factory} that support snapshots in every snapshot, and
+   * restores their state from the previous one when they are created.
+   *
+   * @param factory creates the rate limiters
+   * @return the factory of tracked rate limiters
+   */
+  public RateLimiterFactory track(RateLimiterFactory factory) {
+    return (maxRequests, basePeriod) -> {
+      RateLimiterStrategy rateLimiter = factory.create(maxRequests, basePeriod);
+      if (rateLimiter instanceof SnapshotSupport support) {
+        register(support);
+      }
+      return rateLimiter;
+    };
+  }
+
+  /**
+   * Restores the state of a rate limiter and includes it in later snapshots. Rate limiters with
+   * the same identifier are told apart by the order they are registered in.
+   */
+  synchronized void register(SnapshotSupport support) {
+    String baseId = support.snapshotId();
+    int occurrence = occurrences.merge(baseId, 1, Integer::sum);
+    String id = baseId + '#' + occurrence;
+    ByteBuffer section = restoredSections.remove(id);
+    if (section != null) {
+      try {
+        support.readSnapshot(new SnapshotReader(section, elapsedMillis));
+        log.info("Restored rate limiter state {} from a snapshot taken {} ms ago", id,
+            elapsedMillis);
+      } catch (RuntimeException e) {
+        log.warn("Could not restore rate limiter state {}", id, e);
+      }
+    }
+    sections.add(new Section(id, support));
+  }
+
+  /**
+   * Reads the sections of the snapshot file.
+   *
+   * @return the milliseconds since the snapshot was taken
+   */
+  private long load() {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (file.getInt() != MAGIC || file.getInt() != VERSION) {
+        log.warn("Ignoring {}, it is not a rate limiter snapshot of version {}", path, VERSION);
+        return 0;
+      }
+      long takenAt = file.getLong();
+      Map<String, ByteBuffer> loaded = new HashMap<>();
+      while (file.hasRemaining()) {
+        byte[] id = new byte[file.getInt()];
+        file.get(id);
+        int length = file.getInt();
+        loaded.put(new String(id, StandardCharsets.UTF_8),
+            file.slice(file.position(), length));
+        file.position(file.position() + length);
+      }
+      restoredSections.putAll(loaded);
+      return Math.max(0, clock.millis() - takenAt);
+    } catch (NoSuchFileException e) {
+      return 0;
+    } catch (IOException | BufferUnderflowException | IllegalArgumentException
+             | IndexOutOfBoundsException e) {
+      log.warn("Ignoring unreadable rate limiter snapshot {}", path, e);
+      return 0;
+    }
+  }
+
+  /**
+   * Writes the state of every tracked rate limiter to the snapshot file.
+   */
+  public synchronized void snapshot() {
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    long started = System.nanoTime();
+    try {
+      long bytes;
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+          StandardOpenOption.READ, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING)) {
+        SnapshotWriter writer = new SnapshotWriter(channel, INITIAL_REGION_SIZE);
+        writer.putInt(MAGIC);
+        writer.putInt(VERSION);
+        writer.putLong(clock.millis());
+        for (Section section : sections) {
+          writer.putString(section.id());
+          long lengthPosition = writer.position();
+          writer.putInt(0);
+          section.support().writeSnapshot(writer);
+          writer.putIntAt(lengthPosition,
+              Math.toIntExact(writer.position() - lengthPosition - Integer.BYTES));
+        }
+        writer.finish();
+        bytes = writer.position();
+      }
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      log.debug("Wrote rate limiter snapshot of {} bytes in {} ms", bytes,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not write rate limiter snapshot {}", path, e);
+    }
+  }
+
+  /**
+   * Stops the periodic snapshots and takes a last one, after a snapshot in progress has finished.
+   */
+  @Override
+  public void close() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+    }
+    snapshot();
+  }
+
+  private record Section(String id, SnapshotSupport support) {
+  }
+}
@@ -0,0 +1,84 @@
+package com.zemnitskiy.httpratelimiter.snapshot;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The {@code SnapshotReader} class reads one section of a snapshot file written by
+ * {@link SnapshotWriter}. The section is a view of the memory mapping of the file, so reading
+ * copies nothing but the values themselves.
+ */
+public final class SnapshotReader {
+
+  private final ByteBuffer section;
+
+  private final long elapsedMillis;
+
+  /**
+   * Creates a reader of a section.
+   *
+   * @param section the bytes of the section
+   * @param elapsedMillis the milliseconds between the snapshot and now
+   */
+  public SnapshotReader(ByteBuffer section, long elapsedMillis) {
+    this.section = section;
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  /**
+   * Returns how long ago the snapshot was taken. Add it to the ages in the snapshot to get the
+   * ages now.
+   *
+   * @return the milliseconds between the snapshot and now, never negative
+   */
+  public long elapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /**
+   * Returns whether the section holds more values.
+   *
+   * @return {@code true} if not everything has been read
+   */
+  public boolean hasRemaining() {
+    return section.hasRemaining();
+  }
+
+  /**
+   * Reads a byte.
+   *
+   * @return the byte
+   */
+  public byte getByte() {
+    return section.get();
+  }
+
+  /**
+   * Reads an {@code int}.
+   *
+   * @return the number
+   */
+  public int getInt() {
+    return section.getInt();
+  }
+
+  /**
+   * Reads a {@code long}.
+   *
+   * @return the number
+   */
+  public long getLong() {
+    return section.getLong();
+  }
+
+  /**
+   * Reads a string.
+   *
+   * @return the string
+   */
+  public String getString() {
+    byte[] bytes = new byte[section.getInt()];
+    section.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,35 @@
+package com.zemnitskiy.httpratelimiter.snapshot;
+
+/**
+ * The {@code SnapshotSupport} interface is implemented by in-memory rate limiters whose state can
+ * be saved by {@link RateLimiterSnapshots} and restored after a restart.
+ *
+ * <p>Times are written as ages: how many milliseconds before the snapshot a window started or a
+ * request was made. On restore, the time the application was down is added to every age, so the
+ * downtime counts towards the windows like any other time.
+ */
+public interface SnapshotSupport {
+
+  /**
+   * Returns the identifier of the state of this rate limiter. A snapshot is only restored into a
+   * rate limiter with the same identifier, so it should include the strategy and its limits.
+   *
+   * @return the snapshot identifier
+   */
+  String snapshotId();
+
+  /**
+   * Writes the state of every live key.
+   *
+   * @param writer the writer of this rate limiter's section of the snapshot
+   */
+  void writeSnapshot(SnapshotWriter writer);
+
+  /**
+   * Restores the state written by {@link #writeSnapshot(SnapshotWriter)}, leaving out the keys
+   * whose windows have ended since.
+   *
+   * @param reader the reader of this rate limiter's section of the snapshot
+   */
+  void readSnapshot(SnapshotReader reader);
+}
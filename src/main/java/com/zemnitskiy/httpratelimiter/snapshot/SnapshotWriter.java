@@ -0,0 +1,116 @@
+package com.zemnitskiy.httpratelimiter.snapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The {@code SnapshotWriter} class writes a snapshot file through a memory mapping, so writing an
+ * entry is a copy into the page cache and not a system call.
+ *
+ * <p>The file is mapped a region at a time. When a region is full, it is flushed and the next,
+ * twice as large, is mapped after it. Numbers are written big-endian and strings as their UTF-8
+ * length followed by their bytes.
+ */
+public final class SnapshotWriter {
+
+  private static final int MAX_REGION_SIZE = 1 << 30;
+
+  private final FileChannel channel;
+
+  private long regionStart;
+
+  private MappedByteBuffer region;
+
+  SnapshotWriter(FileChannel channel, int initialRegionSize) throws IOException {
+    this.channel = channel;
+    this.region = channel.map(FileChannel.MapMode.READ_WRITE, 0, initialRegionSize);
+  }
+
+  /**
+   * Writes a byte.
+   *
+   * @param value the byte
+   */
+  public void putByte(byte value) {
+    ensureRemaining(Byte.BYTES).put(value);
+  }
+
+  /**
+   * Writes an {@code int}.
+   *
+   * @param value the number
+   */
+  public void putInt(int value) {
+    ensureRemaining(Integer.BYTES).putInt(value);
+  }
+
+  /**
+   * Writes a {@code long}.
+   *
+   * @param value the number
+   */
+  public void putLong(long value) {
+    ensureRemaining(Long.BYTES).putLong(value);
+  }
+
+  /**
+   * Writes a string.
+   *
+   * @param value the string
+   */
+  public void putString(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    putInt(bytes.length);
+    ensureRemaining(bytes.length).put(bytes);
+  }
+
+  /**
+   * Returns the number of bytes written so far.
+   */
+  long position() {
+    return regionStart + region.position();
+  }
+
+  /**
+   * Overwrites an {@code int} written earlier, such as a length that was not known in advance.
+   */
+  void putIntAt(long position, int value) {
+    if (position >= regionStart) {
+      region.putInt((int) (position - regionStart), value);
+      return;
+    }
+    try {
+      channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, value), position);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Flushes the last region and cuts the file to the bytes written.
+   */
+  void finish() throws IOException {
+    region.force();
+    channel.truncate(position());
+    channel.force(false);
+  }
+
+  private MappedByteBuffer ensureRemaining(int bytes) {
+    if (region.remaining() < bytes) {
+      long start = position();
+      int size = (int) Math.min(MAX_REGION_SIZE, Math.max(2L * region.capacity(), bytes));
+      region.force();
+      try {
+        region = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      regionStart = start;
+    }
+    return region;
+  }
+}
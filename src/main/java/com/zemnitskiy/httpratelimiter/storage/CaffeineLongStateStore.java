@@ -0,0 +1,110 @@
+package com.zemnitskiy.httpratelimiter.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code CaffeineLongStateStore} class keeps one {@link AtomicLong} per key in a Caffeine
+ * cache that expires keys after they have been idle. Updates are lock-free compare-and-set loops
+ * on the {@code AtomicLong}.
+ *
+ * <p>Binary keys are wrapped in a small record to be used as cache keys.
+ *
+ * <p>The memory of the cache is not tracked. It is estimated from the number of keys, at the cost
+ * of a Caffeine node with access ordering, an {@code AtomicLong}, a hash table slot and a key about
+ * the size of an IPv4 address string.
+ */
+public final class CaffeineLongStateStore implements LongStateStore {
+
+  /**
+   * The estimated bytes per key: a 64-byte cache node, a 16-byte {@code AtomicLong}, an 8-byte
+   * table slot and a 56-byte key.
+   */
+  static final long BYTES_PER_KEY = 144;
+
+  private final Cache<Object, AtomicLong> cache;
+
+  /**
+   * Creates a store whose expiry is driven by {@code ticker}.
+   *
+   * @param expireAfterAccess how long a key is kept after it was last accessed
+   * @param ticker the time source, in nanoseconds
+   */
+  public CaffeineLongStateStore(Duration expireAfterAccess, Ticker ticker) {
+    this.cache = Caffeine.newBuilder()
+        .expireAfterAccess(expireAfterAccess)
+        .ticker(ticker)
+        .build();
+  }
+
+  @Override
+  public long getAndUpdate(String key, long now, StateUpdate update) {
+    return update(key, now, update);
+  }
+
+  @Override
+  public long getAndUpdate(long keyHigh, long keyLow, long now, StateUpdate update) {
+    return update(new BinaryKey(keyHigh, keyLow), now, update);
+  }
+
+  private long update(Object key, long now, StateUpdate update) {
+    AtomicLong state = cache.get(key, _ -> new AtomicLong());
+    while (true) {
+      long current = state.get();
+      long updated = update.apply(current, now);
+      if (updated == current || state.compareAndSet(current, updated)) {
+        return current;
+      }
+    }
+  }
+
+  @Override
+  public long get(String key, long now) {
+    return read(key);
+  }
+
+  @Override
+  public long get(long keyHigh, long keyLow, long now) {
+    return read(new BinaryKey(keyHigh, keyLow));
+  }
+
+  private long read(Object key) {
+    AtomicLong state = cache.policy().getIfPresentQuietly(key);
+    return state == null ? 0 : state.get();
+  }
+
+  @Override
+  public void forEach(long now, EntryVisitor visitor) {
+    cache.asMap().forEach((key, state) -> {
+      if (key instanceof BinaryKey binaryKey) {
+        visitor.visit(binaryKey.high(), binaryKey.low(), state.get());
+      } else {
+        visitor.visit((String) key, state.get());
+      }
+    });
+  }
+
+  /**
+   * Stores nothing, since this store keys its states by the keys themselves.
+   */
+  @Override
+  public boolean putFingerprint(long fingerprint, long now, long state) {
+    return false;
+  }
+
+  @Override
+  public long estimatedSize() {
+    return cache.estimatedSize();
+  }
+
+  @Override
+  public long estimatedMemoryBytes() {
+    return cache.estimatedSize() * BYTES_PER_KEY;
+  }
+
+  private record BinaryKey(long high, long low) {
+  }
+}
@@ -0,0 +1,161 @@
+package com.zemnitskiy.httpratelimiter.storage;
+
+/**
+ * The {@code LongStateStore} interface holds one 64-bit state word per key for the rate limiting
+ * strategies that pack their whole per-key state into a {@code long}.
+ *
+ * <p>A key that is not in the store, or that has been idle for longer than the store's expiry,
+ * has the state {@code 0}. Strategies are written so that {@code 0} is the state of a new key.
+ *
+ * <p>Keys are either {@code String}s or 128-bit numbers, such as the binary form of an IP
+ * address, which saves building a {@code String} per request.
+ *
+ * <p>A store may run background work, which {@link #close()} stops. The rate limiter that
+ * created a store closes it.
+ */
+public interface LongStateStore extends AutoCloseable {
+
+  /**
+   * Atomically replaces the state of {@code key} with {@code update.apply(state, now)} and returns
+   * the state it replaced.
+   *
+   * <p>{@code update} must be a pure function of its arguments: an implementation may call it more
+   * than once if another thread changes the state concurrently. Returning the state unchanged
+   * leaves the store untouched apart from the access time of the key.
+   *
+   * @param key the key whose state is updated
+   * @param now the current time in milliseconds, read from the same clock for every call. It is
+   * passed to {@code update} and may be used to track idle keys.
+   * @param update the function that computes the new state
+   * @return the previous state of the key
+   */
+  long getAndUpdate(String key, long now, StateUpdate update);
+
+  /**
+   * Returns the current state of {@code key} without recording an access.
+   *
+   * @param key the key to look up
+   * @param now the current time in milliseconds, on the clock used for
+   * {@link #getAndUpdate(String, long, StateUpdate)}
+   * @return the state of the key, or {@code 0} if it is not in the store or has expired
+   */
+  long get(String key, long now);
+
+  /**
+   * Same as {@link #getAndUpdate(String, long, StateUpdate)} for a 128-bit binary key. Binary keys
+   * and {@code String} keys are separate keys.
+   *
+   * @param keyHigh the upper 64 bits of the key
+   * @param keyLow the lower 64 bits of the key
+   * @param now the current time in milliseconds
+   * @param update the function that computes the new state
+   * @return the previous state of the key
+   */
+  long getAndUpdate(long keyHigh, long keyLow, long now, StateUpdate update);
+
+  /**
+   * Same as {@link #get(String, long)} for a 128-bit binary key.
+   *
+   * @param keyHigh the upper 64 bits of the key
+   * @param keyLow the lower 64 bits of the key
+   * @param now the current time in milliseconds
+   * @return the state of the key, or {@code 0} if it is not in the store or has expired
+   */
+  long get(long keyHigh, long keyLow, long now);
+
+  /**
+   * Visits every key that has not expired, with its state. Keys the store holds only by their
+   * fingerprint are visited as fingerprints.
+   *
+   * <p>Keys may be updated while they are visited. Each state is read atomically, but the visit
+   * is not a consistent picture of the whole store.
+   *
+   * @param now the current time in milliseconds, on the clock used for
+   * {@link #getAndUpdate(String, long, StateUpdate)}
+   * @param visitor receives the keys and their states
+   */
+  void forEach(long now, EntryVisitor visitor);
+
+  /**
+   * Sets the state of a key visited as a fingerprint by {@link #forEach(long, EntryVisitor)}.
+   *
+   * @param fingerprint the fingerprint of the key
+   * @param now the current time in milliseconds
+   * @param state the new state
+   * @return {@code false} if this store does not key its states by fingerprint, in which case
+   * nothing is stored
+   */
+  boolean putFingerprint(long fingerprint, long now, long state);
+
+  /**
+   * Returns the approximate number of keys in the store. Keys that have expired but not yet been
+   * reclaimed may be included.
+   *
+   * @return the approximate number of keys
+   */
+  long estimatedSize();
+
+  /**
+   * Returns the approximate number of bytes the store occupies on the heap, including the space
+   * reserved for keys that are not there yet.
+   *
+   * @return the approximate memory of the store
+   */
+  long estimatedMemoryBytes();
+
+  /**
+   * Stops the background work of the store, if it has any. The store must not be used
+   * afterwards. Does nothing by default.
+   */
+  @Override
+  default void close() {
+  }
+
+  /**
+   * Computes the new state of a key from its current state.
+   */
+  @FunctionalInterface
+  interface StateUpdate {
+
+    /**
+     * Computes the new state.
+     *
+     * @param state the current state, {@code 0} for a new key
+     * @param now the time passed to {@link LongStateStore#getAndUpdate}
+     * @return the new state
+     */
+    long apply(long state, long now);
+  }
+
+  /**
+   * Receives the keys of {@link LongStateStore#forEach(long, EntryVisitor)}, in the form the store
+   * holds them in.
+   */
+  interface EntryVisitor {
+
+    /**
+     * Visits a {@code String} key.
+     *
+     * @param key the key
+     * @param state its state
+     */
+    void visit(String key, long state);
+
+    /**
+     * Visits a 128-bit binary key.
+     *
+     * @param keyHigh the upper 64 bits of the key
+     * @param keyLow the lower 64 bits of the key
+     * @param state its state
+     */
+    void visit(long keyHigh, long keyLow, long state);
+
+    /**
+     * Visits a key known only by its fingerprint.
+     *
+     * @param fingerprint the fingerprint of the key
+     * @param state its state
+     */
+    void visitFingerprint(long fingerprint, long state);
+  }
+}
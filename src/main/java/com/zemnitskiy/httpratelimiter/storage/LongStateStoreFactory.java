@@ -0,0 +1,38 @@
+package com.zemnitskiy.httpratelimiter.storage;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import java.time.Duration;
+
+/**
+ * The {@code LongStateStoreFactory} interface creates the {@link LongStateStore} of a strategy.
+ * The strategy knows how long its keys have to be kept, the factory chooses the implementation.
+ */
+@FunctionalInterface
+public interface LongStateStoreFactory {
+
+  /**
+   * Creates stores backed by a Caffeine cache of {@link java.util.concurrent.atomic.AtomicLong}.
+   */
+  LongStateStoreFactory CAFFEINE = CaffeineLongStateStore::new;
+
+  /**
+   * Creates stores backed by striped open-addressing tables of primitive arrays.
+   */
+  LongStateStoreFactory STRIPED = (expireAfterAccess, _) ->
+      new StripedLongStateStore(expireAfterAccess);
+
+  /**
+   * Creates stores backed by a concurrent hash map whose idle keys a timer wheel expires on a
+   * background thread.
+   */
+  LongStateStoreFactory TIMER_WHEEL = TimerWheelLongStateStore::new;
+
+  /**
+   * Creates a store.
+   *
+   * @param expireAfterAccess how long a key is kept after it was last updated
+   * @param ticker the time source of the strategy, in nanoseconds
+   * @return the new store
+   */
+  LongStateStore create(Duration expireAfterAccess, Ticker ticker);
+}
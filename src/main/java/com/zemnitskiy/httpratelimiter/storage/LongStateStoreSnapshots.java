@@ -0,0 +1,119 @@
+package com.zemnitskiy.httpratelimiter.storage;
+
+import com.zemnitskiy.httpratelimiter.snapshot.SnapshotReader;
+import com.zemnitskiy.httpratelimiter.snapshot.SnapshotWriter;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * The {@code LongStateStoreSnapshots} class writes the keys of a {@link LongStateStore} to a
+ * snapshot and reads them back, for the strategies that keep their state in one.
+ *
+ * <p>Each key is written as a tag, the key and its state: 17 bytes for a fingerprint, 25 for a
+ * binary key. The state word is converted by the strategy on the way out and on the way back, so
+ * that times relative to the clock of the old process are moved to the clock of the new one.
+ * Fingerprints can only be restored into a store that keys its states by fingerprint, and are
+ * skipped by the others.
+ */
+public final class LongStateStoreSnapshots {
+
+  private static final byte STRING_KEY = 1;
+
+  private static final byte BINARY_KEY = 2;
+
+  private static final byte FINGERPRINT = 3;
+
+  private LongStateStoreSnapshots() {
+  }
+
+  /**
+   * Writes every key of {@code store} whose converted state is not {@code 0}.
+   *
+   * @param store the store to write
+   * @param now the current time in milliseconds, on the clock of the store
+   * @param writer the writer of the snapshot section
+   * @param toSnapshot converts a state to the form it is written in, or to {@code 0} to leave the
+   * key out
+   */
+  public static void write(LongStateStore store, long now, SnapshotWriter writer,
+      LongUnaryOperator toSnapshot) {
+    store.forEach(now, new LongStateStore.EntryVisitor() {
+      @Override
+      public void visit(String key, long state) {
+        long written = toSnapshot.applyAsLong(state);
+        if (written != 0) {
+          writer.putByte(STRING_KEY);
+          writer.putString(key);
+          writer.putLong(written);
+        }
+      }
+
+      @Override
+      public void visit(long keyHigh, long keyLow, long state) {
+        long written = toSnapshot.applyAsLong(state);
+        if (written != 0) {
+          writer.putByte(BINARY_KEY);
+          writer.putLong(keyHigh);
+          writer.putLong(keyLow);
+          writer.putLong(written);
+        }
+      }
+
+      @Override
+      public void visitFingerprint(long fingerprint, long state) {
+        long written = toSnapshot.applyAsLong(state);
+        if (written != 0) {
+          writer.putByte(FINGERPRINT);
+          writer.putLong(fingerprint);
+          writer.putLong(written);
+        }
+      }
+    });
+  }
+
+  /**
+   * Restores the keys written by
+   * {@link #write(LongStateStore, long, SnapshotWriter, LongUnaryOperator)}.
+   *
+   * @param store the store to restore into
+   * @param now the current time in milliseconds, on the clock of the store
+   * @param reader the reader of the snapshot section
+   * @param fromSnapshot converts a written state back to a state, or to {@code 0} to leave the key
+   * out
+   * @return the number of restored keys
+   */
+  public static long read(LongStateStore store, long now, SnapshotReader reader,
+      LongUnaryOperator fromSnapshot) {
+    long restored = 0;
+    while (reader.hasRemaining()) {
+      byte tag = reader.getByte();
+      switch (tag) {
+        case STRING_KEY -> {
+          String key = reader.getString();
+          long state = fromSnapshot.applyAsLong(reader.getLong());
+          if (state != 0) {
+            store.getAndUpdate(key, now, (_, _) -> state);
+            restored++;
+          }
+        }
+        case BINARY_KEY -> {
+          long keyHigh = reader.getLong();
+          long keyLow = reader.getLong();
+          long state = fromSnapshot.applyAsLong(reader.getLong());
+          if (state != 0) {
+            store.getAndUpdate(keyHigh, keyLow, now, (_, _) -> state);
+            restored++;
+          }
+        }
+        case FINGERPRINT -> {
+          long fingerprint = reader.getLong();
+          long state = fromSnapshot.applyAsLong(reader.getLong());
+          if (state != 0 && store.putFingerprint(fingerprint, now, state)) {
+            restored++;
+          }
+        }
+        default -> throw new IllegalStateException("Unknown snapshot entry tag " + tag);
+      }
+    }
+    return restored;
+  }
+}
@@ -0,0 +1,335 @@
+package com.zemnitskiy.httpratelimiter.storage;
+
+import java.time.Duration;
+
+/**
+ * The {@code StripedLongStateStore} class is a purpose-built {@link LongStateStore} for tracking
+ * millions of keys with a small footprint.
+ *
+ * <p>Keys are not stored. Each key is reduced to a 64-bit fingerprint, binary keys by mixing their
+ * two halves without touching any characters, and the store is split into stripes selected by the
+ * upper bits of the fingerprint. Each stripe is an open-addressing table
+ * with linear probing over three parallel primitive arrays: the fingerprints, the state words and
+ * the last access times. A key therefore costs 20 bytes per slot, about 27 to 40 bytes at the load
+ * factors the tables run at, with no object per key and no pointer to follow on lookup.
+ *
+ * <p>Each stripe is guarded by its own lock, which is held only for the probe and the update, so
+ * threads working on different stripes do not contend. Idle keys are not removed one by one. When
+ * a stripe fills up, it is rebuilt without the keys that have expired, and it grows or shrinks to
+ * fit the keys that remain.
+ *
+ * <p>Access times are stored as {@code int} milliseconds relative to an epoch of the stripe. Before
+ * a time would no longer fit, the stripe is rebuilt around a new epoch, so the times stay exact
+ * however long the store runs.
+ *
+ * <p>Two keys with the same fingerprint share their state. With a 64-bit fingerprint the chance
+ * of any collision among ten million keys is below one in a hundred thousand.
+ */
+public final class StripedLongStateStore implements LongStateStore {
+
+  static final int MIN_STRIPE_CAPACITY = 16;
+
+  /**
+   * A fingerprint, a state word and an access time.
+   */
+  static final int BYTES_PER_SLOT = Long.BYTES + Long.BYTES + Integer.BYTES;
+
+  private static final int ARRAY_HEADER_BYTES = 16;
+
+  private final Stripe[] stripes;
+
+  private final int stripeShift;
+
+  private final int expireAfterAccessMillis;
+
+  /**
+   * Creates a store with four stripes per available processor, rounded up to a power of two.
+   *
+   * @param expireAfterAccess how long a key is kept after it was last accessed
+   */
+  public StripedLongStateStore(Duration expireAfterAccess) {
+    this(expireAfterAccess, 4 * Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a store.
+   *
+   * @param expireAfterAccess how long a key is kept after it was last accessed, at most
+   * {@link Integer#MAX_VALUE} milliseconds
+   * @param stripeCount the number of independently locked stripes, rounded up to a power of two
+   */
+  public StripedLongStateStore(Duration expireAfterAccess, int stripeCount) {
+    if (expireAfterAccess == null || expireAfterAccess.toMillis() <= 0) {
+      throw new IllegalArgumentException("expireAfterAccess must be at least 1 millisecond");
+    }
+    if (stripeCount <= 0) {
+      throw new IllegalArgumentException("stripeCount must be greater than 0");
+    }
+    // Access times are stored as int milliseconds, so an age above this cannot be told apart
+    this.expireAfterAccessMillis = (int) Math.min(expireAfterAccess.toMillis(), Integer.MAX_VALUE);
+    int stripeBits = Integer.SIZE - Integer.numberOfLeadingZeros(stripeCount - 1);
+    this.stripes = new Stripe[1 << stripeBits];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new Stripe(MIN_STRIPE_CAPACITY);
+    }
+    this.stripeShift = Long.SIZE - stripeBits;
+  }
+
+  /**
+   * Computes the 64-bit fingerprint of {@code key}: FNV-1a over the characters followed by the
+   * MurmurHash3 finalizer, so that both the upper bits (stripe) and the lower bits (slot) are well
+   * mixed. Zero marks a free slot and is never returned.
+   *
+   * @param key the key
+   * @return the fingerprint, never {@code 0}
+   */
+  public static long fingerprint(String key) {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      hash = (hash ^ key.charAt(i)) * 0x100000001B3L;
+    }
+    hash = mix(hash);
+    return hash == 0 ? 1 : hash;
+  }
+
+  /**
+   * Computes the 64-bit fingerprint of a binary key. The key is already a number, so the two
+   * halves only need to be mixed together. Zero is never returned.
+   *
+   * @param keyHigh the upper 64 bits of the key
+   * @param keyLow the lower 64 bits of the key
+   * @return the fingerprint, never {@code 0}
+   */
+  public static long fingerprint(long keyHigh, long keyLow) {
+    long hash = mix(mix(keyLow) ^ keyHigh);
+    return hash == 0 ? 1 : hash;
+  }
+
+  /**
+   * The MurmurHash3 64-bit finalizer.
+   */
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  private Stripe stripeFor(long fingerprint) {
+    return stripes[stripeShift == Long.SIZE ? 0 : (int) (fingerprint >>> stripeShift)];
+  }
+
+  @Override
+  public long getAndUpdate(String key, long now, StateUpdate update) {
+    return getAndUpdate(fingerprint(key), now, update);
+  }
+
+  @Override
+  public long getAndUpdate(long keyHigh, long keyLow, long now, StateUpdate update) {
+    return getAndUpdate(fingerprint(keyHigh, keyLow), now, update);
+  }
+
+  private long getAndUpdate(long fingerprint, long now, StateUpdate update) {
+    Stripe stripe = stripeFor(fingerprint);
+    synchronized (stripe) {
+      if (now - stripe.epoch > Integer.MAX_VALUE) {
+        stripe.rebuild(now, expireAfterAccessMillis);
+      }
+      int slot = stripe.find(fingerprint);
+      long current;
+      if (slot < 0) {
+        slot = stripe.insert(fingerprint, now, expireAfterAccessMillis);
+        current = 0;
+      } else {
+        current = stripe.isExpired(slot, now, expireAfterAccessMillis) ? 0 : stripe.states[slot];
+      }
+      stripe.states[slot] = update.apply(current, now);
+      stripe.accessTimes[slot] = (int) (now - stripe.epoch);
+      return current;
+    }
+  }
+
+  @Override
+  public long get(String key, long now) {
+    return get(fingerprint(key), now);
+  }
+
+  @Override
+  public long get(long keyHigh, long keyLow, long now) {
+    return get(fingerprint(keyHigh, keyLow), now);
+  }
+
+  private long get(long fingerprint, long now) {
+    Stripe stripe = stripeFor(fingerprint);
+    synchronized (stripe) {
+      int slot = stripe.find(fingerprint);
+      if (slot < 0 || stripe.isExpired(slot, now, expireAfterAccessMillis)) {
+        return 0;
+      }
+      return stripe.states[slot];
+    }
+  }
+
+  /**
+   * Visits every key as a fingerprint, since the keys themselves are not stored. Each stripe is
+   * locked while its keys are visited.
+   */
+  @Override
+  public void forEach(long now, EntryVisitor visitor) {
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        for (int slot = 0; slot < stripe.fingerprints.length; slot++) {
+          if (stripe.fingerprints[slot] != 0
+              && !stripe.isExpired(slot, now, expireAfterAccessMillis)) {
+            visitor.visitFingerprint(stripe.fingerprints[slot], stripe.states[slot]);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean putFingerprint(long fingerprint, long now, long state) {
+    if (fingerprint == 0) {
+      throw new IllegalArgumentException("fingerprint must not be 0");
+    }
+    getAndUpdate(fingerprint, now, (_, _) -> state);
+    return true;
+  }
+
+  @Override
+  public long estimatedSize() {
+    long size = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Counts the three arrays of every stripe at their full capacity, since that is what the tables
+   * occupy whether or not their slots are in use.
+   */
+  @Override
+  public long estimatedMemoryBytes() {
+    long bytes = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        bytes += (long) stripe.fingerprints.length * BYTES_PER_SLOT + 3 * ARRAY_HEADER_BYTES;
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * One open-addressing table. All fields are guarded by the stripe's monitor.
+   */
+  private static final class Stripe {
+
+    private long[] fingerprints;
+
+    private long[] states;
+
+    /**
+     * The access times, in milliseconds after {@link #epoch}.
+     */
+    private int[] accessTimes;
+
+    private long epoch;
+
+    private int size;
+
+    private Stripe(int capacity) {
+      allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+      fingerprints = new long[capacity];
+      states = new long[capacity];
+      accessTimes = new int[capacity];
+      size = 0;
+    }
+
+    private int find(long fingerprint) {
+      int mask = fingerprints.length - 1;
+      for (int slot = (int) fingerprint & mask; ; slot = (slot + 1) & mask) {
+        long stored = fingerprints[slot];
+        if (stored == fingerprint) {
+          return slot;
+        }
+        if (stored == 0) {
+          return -1;
+        }
+      }
+    }
+
+    private boolean isExpired(int slot, long now, int expireAfterAccessMillis) {
+      return now - epoch - accessTimes[slot] >= expireAfterAccessMillis;
+    }
+
+    private int insert(long fingerprint, long now, int expireAfterAccessMillis) {
+      // Keep the load factor at or below 3/4 so that probe sequences stay short
+      if ((size + 1) * 4L > fingerprints.length * 3L) {
+        rebuild(now, expireAfterAccessMillis);
+      }
+      int mask = fingerprints.length - 1;
+      int slot = (int) fingerprint & mask;
+      while (fingerprints[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      fingerprints[slot] = fingerprint;
+      states[slot] = 0;
+      size++;
+      return slot;
+    }
+
+    /**
+     * Drops expired keys and resizes the table so that the remaining keys fill between 1/8 and 1/2
+     * of it, which leaves room for at least a quarter of the capacity before the next rebuild. The
+     * epoch moves to {@code now}, and the access times of the remaining keys, which are less than
+     * the expiry time ago, move with it.
+     */
+    private void rebuild(long now, int expireAfterAccessMillis) {
+      long[] oldFingerprints = fingerprints;
+      long[] oldStates = states;
+      int[] oldAccessTimes = accessTimes;
+      long age = now - epoch;
+
+      int live = 0;
+      for (int i = 0; i < oldFingerprints.length; i++) {
+        if (oldFingerprints[i] != 0 && age - oldAccessTimes[i] < expireAfterAccessMillis) {
+          live++;
+        }
+      }
+      int capacity = oldFingerprints.length;
+      while ((live + 1) * 2L > capacity) {
+        capacity *= 2;
+      }
+      while (capacity > MIN_STRIPE_CAPACITY && (live + 1) * 8L < capacity) {
+        capacity /= 2;
+      }
+
+      allocate(capacity);
+      epoch = now;
+      int mask = capacity - 1;
+      for (int i = 0; i < oldFingerprints.length; i++) {
+        long fingerprint = oldFingerprints[i];
+        if (fingerprint == 0 || age - oldAccessTimes[i] >= expireAfterAccessMillis) {
+          continue;
+        }
+        int slot = (int) fingerprint & mask;
+        while (fingerprints[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        fingerprints[slot] = fingerprint;
+        states[slot] = oldStates[i];
+        accessTimes[slot] = (int) (oldAccessTimes[i] - age);
+        size++;
+      }
+    }
+  }
+}
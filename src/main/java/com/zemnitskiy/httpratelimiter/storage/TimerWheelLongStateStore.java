@@ -0,0 +1,348 @@
+package com.zemnitskiy.httpratelimiter.storage;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code TimerWheelLongStateStore} class keeps one entry per key in a
+ * {@link ConcurrentHashMap} and expires idle keys in bulk on a background thread, so that the
+ * request path does no expiry bookkeeping: a request looks the key up and updates its entry under
+ * the entry's own lock, and that is all.
+ *
+ * <p>Expiry is driven by a hashed timer wheel of {@value #SLOTS} slots, each an eighth of the
+ * expiry time wide. A new key is handed to the background thread through a lock-free queue, which
+ * files it in the slot of its deadline. When the wheel reaches a slot, every key in it is checked
+ * at once: keys that have been idle for the whole expiry time are removed from the map, and the
+ * others, which have been accessed since they were filed, are filed again at their new deadline.
+ * Accesses never move a key in the wheel, so a busy key costs the background thread one check per
+ * expiry time however many requests it gets.
+ *
+ * <p>A removed key is gone within an eighth of the expiry time after its deadline. Until then, an
+ * idle key reads as {@code 0}, like in the other stores.
+ *
+ * <p>The callers pass the time on a clock of their own. The background thread reads
+ * {@code ticker} instead, and learns the offset between the two clocks from the arrivals of new
+ * keys. The offset it learns is never smaller than the real one, so keys are never removed early.
+ *
+ * <p>Closing the store stops its background expiry. A store that is dropped without being closed
+ * stops it once it has been garbage collected.
+ *
+ * <p>The memory of the map is not tracked. It is estimated from the number of keys, like for
+ * {@link CaffeineLongStateStore}.
+ */
+public final class TimerWheelLongStateStore implements LongStateStore {
+
+  /**
+   * The estimated bytes per key: a 40-byte entry, a 32-byte map node, an 8-byte table slot, an
+   * 8-byte wheel slot and a 56-byte key.
+   */
+  static final long BYTES_PER_KEY = 144;
+
+  /**
+   * The number of slots of the wheel. Deadlines are at most {@value #TICKS_PER_EXPIRY} ticks
+   * ahead, so a key is never more than one turn of the wheel away.
+   */
+  static final int SLOTS = 16;
+
+  private static final int TICKS_PER_EXPIRY = 8;
+
+  private static final ScheduledExecutorService SWEEPER =
+      Executors.newSingleThreadScheduledExecutor(
+          Thread.ofPlatform().name("rate-limiter-expiry").daemon().factory());
+
+  private final ConcurrentHashMap<Object, Entry> entries = new ConcurrentHashMap<>();
+
+  private final Queue<Arrival> arrivals = new ConcurrentLinkedQueue<>();
+
+  private final long expireAfterAccessMillis;
+
+  private final long tickMillis;
+
+  private final Ticker ticker;
+
+  /**
+   * The scheduled turns of the wheel, or {@code null} if idle keys are only removed by
+   * {@link #expire(long)}.
+   */
+  private final ScheduledFuture<?> sweeping;
+
+  /**
+   * The keys filed by the tick of their deadline. The wheel and the fields below are only touched
+   * by the thread that turns it.
+   */
+  private final List<List<Entry>> wheel = new ArrayList<>(SLOTS);
+
+  private long clockOffsetMillis = Long.MAX_VALUE;
+
+  private boolean started;
+
+  private long nextTick;
+
+  /**
+   * Creates a store and starts expiring its idle keys in the background.
+   *
+   * @param expireAfterAccess how long a key is kept after it was last accessed
+   * @param ticker the time source of the callers, in nanoseconds
+   */
+  public TimerWheelLongStateStore(Duration expireAfterAccess, Ticker ticker) {
+    this(expireAfterAccess, ticker, true);
+  }
+
+  /**
+   * Creates a store whose idle keys are only removed by calls to {@link #expire(long)}.
+   */
+  TimerWheelLongStateStore(Duration expireAfterAccess, Ticker ticker, boolean sweep) {
+    if (expireAfterAccess == null || expireAfterAccess.toMillis() <= 0) {
+      throw new IllegalArgumentException("expireAfterAccess must be at least 1 millisecond");
+    }
+    this.expireAfterAccessMillis = expireAfterAccess.toMillis();
+    this.tickMillis = Math.ceilDiv(expireAfterAccessMillis, TICKS_PER_EXPIRY);
+    this.ticker = ticker;
+    for (int i = 0; i < SLOTS; i++) {
+      wheel.add(new ArrayList<>());
+    }
+    if (sweep) {
+      Sweeper sweeper = new Sweeper(this);
+      sweeper.future = SWEEPER.scheduleWithFixedDelay(sweeper, tickMillis, tickMillis,
+          TimeUnit.MILLISECONDS);
+      this.sweeping = sweeper.future;
+    } else {
+      this.sweeping = null;
+    }
+  }
+
+  /**
+   * Stops expiring idle keys in the background. Keys that are idle by then stay in the map.
+   */
+  @Override
+  public void close() {
+    if (sweeping != null) {
+      sweeping.cancel(false);
+    }
+  }
+
+  @Override
+  public long getAndUpdate(String key, long now, StateUpdate update) {
+    return update(key, now, update);
+  }
+
+  @Override
+  public long getAndUpdate(long keyHigh, long keyLow, long now, StateUpdate update) {
+    return update(new BinaryKey(keyHigh, keyLow), now, update);
+  }
+
+  private long update(Object key, long now, StateUpdate update) {
+    while (true) {
+      Entry entry = entries.get(key);
+      if (entry == null) {
+        Entry created = new Entry(key, now);
+        entry = entries.putIfAbsent(key, created);
+        if (entry == null) {
+          entry = created;
+          arrivals.add(new Arrival(created, now, ticker.read()));
+        }
+      }
+      synchronized (entry) {
+        if (entry.removed) {
+          // Removed by the background thread after the lookup
+          continue;
+        }
+        long current = now - entry.accessed >= expireAfterAccessMillis ? 0 : entry.state;
+        entry.state = update.apply(current, now);
+        entry.accessed = now;
+        return current;
+      }
+    }
+  }
+
+  @Override
+  public long get(String key, long now) {
+    return read(entries.get(key), now);
+  }
+
+  @Override
+  public long get(long keyHigh, long keyLow, long now) {
+    return read(entries.get(new BinaryKey(keyHigh, keyLow)), now);
+  }
+
+  private long read(Entry entry, long now) {
+    if (entry == null) {
+      return 0;
+    }
+    synchronized (entry) {
+      return entry.removed || now - entry.accessed >= expireAfterAccessMillis ? 0 : entry.state;
+    }
+  }
+
+  @Override
+  public void forEach(long now, EntryVisitor visitor) {
+    entries.forEach((key, entry) -> {
+      long state;
+      synchronized (entry) {
+        if (entry.removed || now - entry.accessed >= expireAfterAccessMillis) {
+          return;
+        }
+        state = entry.state;
+      }
+      if (key instanceof BinaryKey binaryKey) {
+        visitor.visit(binaryKey.high(), binaryKey.low(), state);
+      } else {
+        visitor.visit((String) key, state);
+      }
+    });
+  }
+
+  /**
+   * Stores nothing, since this store keys its states by the keys themselves.
+   */
+  @Override
+  public boolean putFingerprint(long fingerprint, long now, long state) {
+    return false;
+  }
+
+  @Override
+  public long estimatedSize() {
+    return entries.mappingCount();
+  }
+
+  @Override
+  public long estimatedMemoryBytes() {
+    return entries.mappingCount() * BYTES_PER_KEY;
+  }
+
+  /**
+   * Files the new keys in the wheel and turns it up to {@code now}, removing the keys that have
+   * been idle for the expiry time. Only one thread may call this method.
+   *
+   * @param now the current time on the clock of the callers
+   */
+  void expire(long now) {
+    fileArrivals();
+    if (!started) {
+      return;
+    }
+    long lastTick = Math.floorDiv(now, tickMillis);
+    // One turn checks every slot, however long the wheel has stood still
+    nextTick = Math.max(nextTick, lastTick - SLOTS + 1);
+    for (long tick = nextTick; tick <= lastTick; tick = ++nextTick) {
+      int slot = (int) (tick & (SLOTS - 1));
+      List<Entry> due = wheel.get(slot);
+      if (due.isEmpty()) {
+        continue;
+      }
+      wheel.set(slot, new ArrayList<>());
+      for (Entry entry : due) {
+        long accessed;
+        synchronized (entry) {
+          accessed = entry.accessed;
+          if (now - accessed >= expireAfterAccessMillis) {
+            entry.removed = true;
+            entries.remove(entry.key, entry);
+            continue;
+          }
+        }
+        file(entry, accessed + expireAfterAccessMillis);
+      }
+    }
+  }
+
+  /**
+   * Files the keys created since the last call at their first deadline, and narrows down the
+   * offset between the clock of the callers and the ticker.
+   */
+  private void fileArrivals() {
+    for (Arrival arrival = arrivals.poll(); arrival != null; arrival = arrivals.poll()) {
+      // The ticker was read after the caller's clock, so the offset is never underestimated
+      clockOffsetMillis = Math.min(clockOffsetMillis,
+          TimeUnit.NANOSECONDS.toMillis(arrival.nanos()) - arrival.now());
+      if (!started) {
+        started = true;
+        nextTick = Math.floorDiv(arrival.now(), tickMillis);
+      }
+      file(arrival.entry(), arrival.now() + expireAfterAccessMillis);
+    }
+  }
+
+  /**
+   * Turns the wheel up to the current time of the callers, as read from the ticker.
+   */
+  private void sweep() {
+    fileArrivals();
+    if (clockOffsetMillis != Long.MAX_VALUE) {
+      expire(TimeUnit.NANOSECONDS.toMillis(ticker.read()) - clockOffsetMillis);
+    }
+  }
+
+  /**
+   * Files {@code entry} in the slot of the tick of {@code deadline}, or of the next tick if that
+   * one has passed.
+   */
+  private void file(Entry entry, long deadline) {
+    long tick = Math.max(Math.floorDiv(deadline, tickMillis), nextTick + 1);
+    wheel.get((int) (tick & (SLOTS - 1))).add(entry);
+  }
+
+  /**
+   * The state of a key and the time it was last accessed. All fields but {@code key} are guarded
+   * by the entry's monitor.
+   */
+  private static final class Entry {
+
+    private final Object key;
+
+    private long state;
+
+    private long accessed;
+
+    private boolean removed;
+
+    private Entry(Object key, long accessed) {
+      this.key = key;
+      this.accessed = accessed;
+    }
+  }
+
+  /**
+   * A new key, with the time of its creation on both clocks.
+   */
+  private record Arrival(Entry entry, long now, long nanos) {
+  }
+
+  private record BinaryKey(long high, long low) {
+  }
+
+  /**
+   * Turns the wheel of a store on the shared background thread. It holds the store weakly and
+   * stops once the store is no longer used.
+   */
+  private static final class Sweeper implements Runnable {
+
+    private final WeakReference<TimerWheelLongStateStore> store;
+
+    private volatile ScheduledFuture<?> future;
+
+    private Sweeper(TimerWheelLongStateStore store) {
+      this.store = new WeakReference<>(store);
+    }
+
+    @Override
+    public void run() {
+      TimerWheelLongStateStore current = store.get();
+      if (current != null) {
+        current.sweep();
+      } else if (future != null) {
+        future.cancel(false);
+      }
+    }
+  }
+}
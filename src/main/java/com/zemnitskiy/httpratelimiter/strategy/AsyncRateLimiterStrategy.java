@@ -0,0 +1,24 @@
+package com.zemnitskiy.httpratelimiter.strategy;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The {@code AsyncRateLimiterStrategy} interface is implemented by rate limiting strategies that
+ * can decide without blocking the calling thread, typically because the decision needs a round
+ * trip to Redis.
+ *
+ * <p>Reactive front-ends use {@link #tryAcquireAsync(String)} and continue when the decision
+ * arrives. The blocking methods of {@link RateLimiterStrategy} remain available and wait for the
+ * same decision, which is cheap when the caller runs on a virtual thread.
+ */
+public interface AsyncRateLimiterStrategy extends RateLimiterStrategy {
+
+  /**
+   * Applies the same rate limiting logic as {@link #tryAcquire(String)} without blocking.
+   *
+   * @param key the unique key representing the client or request source
+   * @return a stage that completes with the decision for the request, or exceptionally if the
+   * decision could not be made
+   */
+  CompletionStage<RateLimitDecision> tryAcquireAsync(String key);
+}
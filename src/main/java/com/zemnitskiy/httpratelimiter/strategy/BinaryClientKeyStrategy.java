@@ -0,0 +1,46 @@
+package com.zemnitskiy.httpratelimiter.strategy;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * The {@code BinaryClientKeyStrategy} interface is implemented by client key strategies that can
+ * extract the client key as a 128-bit number without creating any objects.
+ *
+ * <p>Two {@code long} values cannot be returned without allocating a holder, so the key is handed
+ * to a {@link BinaryKeyFunction} instead, typically
+ * {@link BinaryKeyRateLimiterStrategy#tryAcquire(long, long)} bound once at startup.
+ */
+public interface BinaryClientKeyStrategy extends ClientKeyStrategy {
+
+  /**
+   * Extracts the binary client key from {@code request} and applies {@code function} to it.
+   *
+   * <p>If the request carries a client key that has no binary form, for example a header value
+   * that is not an IP address, {@code function} is not called and {@code null} is returned. The
+   * caller should then fall back to {@link #getClientKey(HttpServletRequest)}.
+   *
+   * @param request the HTTP request from which the client key should be extracted
+   * @param function the function to apply to the key
+   * @param <R> the result type of {@code function}
+   * @return the result of {@code function}, or {@code null} if the key has no binary form
+   */
+  <R> R applyClientKey(HttpServletRequest request, BinaryKeyFunction<R> function);
+
+  /**
+   * Consumes a 128-bit client key.
+   *
+   * @param <R> the result type
+   */
+  @FunctionalInterface
+  interface BinaryKeyFunction<R> {
+
+    /**
+     * Applies this function to a key.
+     *
+     * @param keyHigh the upper 64 bits of the key
+     * @param keyLow the lower 64 bits of the key
+     * @return the result
+     */
+    R apply(long keyHigh, long keyLow);
+  }
+}
@@ -0,0 +1,24 @@
+package com.zemnitskiy.httpratelimiter.strategy;
+
+/**
+ * The {@code BinaryKeyRateLimiterStrategy} interface is implemented by rate limiting strategies
+ * that can take the client key as a 128-bit number instead of a {@code String}.
+ *
+ * <p>Binary keys come from a {@link BinaryClientKeyStrategy}. Going through this interface saves
+ * building a {@code String} for every request, and lets the store use the number directly instead
+ * of hashing the characters of a key again.
+ */
+public interface BinaryKeyRateLimiterStrategy extends RateLimiterStrategy {
+
+  /**
+   * Applies the same rate limiting logic as {@link #tryAcquire(String)} to a binary key.
+   *
+   * <p>A binary key and a {@code String} key are never the same key, even if they describe the
+   * same client. A deployment should use one kind of key consistently.
+   *
+   * @param keyHigh the upper 64 bits of the key
+   * @param keyLow the lower 64 bits of the key
+   * @return the decision for the request
+   */
+  RateLimitDecision tryAcquire(long keyHigh, long keyLow);
+}
@@ -0,0 +1,21 @@
+package com.zemnitskiy.httpratelimiter.strategy;
+
+/**
+ * The {@code CompletionAwareRateLimiterStrategy} interface is implemented by rate limiting
+ * strategies that need to know when an allowed request has been handled, typically because they
+ * limit the requests in flight rather than the requests per period.
+ *
+ * <p>The front-ends call {@link #onCompletion(long, boolean)} exactly once for every request the
+ * strategy allowed, after the handler has returned or failed, and never for a denied request.
+ */
+public interface CompletionAwareRateLimiterStrategy extends RateLimiterStrategy {
+
+  /**
+   * Reports that an allowed request has been handled.
+   *
+   * @param latencyNanos the time from the decision to the completion of the request, in
+   * nanoseconds
+   * @param failed {@code true} if the handler threw or the response is a server error
+   */
+  void onCompletion(long latencyNanos, boolean failed);
+}
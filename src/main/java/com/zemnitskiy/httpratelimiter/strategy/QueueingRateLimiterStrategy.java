@@ -0,0 +1,23 @@
+package com.zemnitskiy.httpratelimiter.strategy;
+
+/**
+ * The {@code QueueingRateLimiterStrategy} interface is implemented by rate limiting strategies
+ * that can delay a request over the limit instead of rejecting it.
+ *
+ * <p>A front-end that can park a request without holding a thread calls
+ * {@link #reserve(String)} and lets the request proceed once the returned delay has passed. Other
+ * front-ends call {@link #tryAcquire(String)}, which allows a request only if it would not have
+ * to wait.
+ */
+public interface QueueingRateLimiterStrategy extends RateLimiterStrategy {
+
+  /**
+   * Reserves the next free slot of {@code key} for a request, if the queue of the key has room.
+   *
+   * @param key the unique key representing the client or request source
+   * @return the number of nanoseconds the request has to wait before it may proceed, {@code 0} to
+   * proceed at once, or a negative number if the queue is full. The absolute value of a negative
+   * number is the time until the queue has room again.
+   */
+  long reserve(String key);
+}
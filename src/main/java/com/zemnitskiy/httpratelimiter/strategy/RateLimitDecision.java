@@ -0,0 +1,61 @@
+package com.zemnitskiy.httpratelimiter.strategy;
+
+/**
+ * The {@code RateLimitDecision} record is the outcome of {@link RateLimiterStrategy#tryAcquire}.
+ *
+ * <p>A denied request is reported through a decision instead of a
+ * {@link RateLimitExceededException}, so rejecting a request costs no stack trace and no message
+ * formatting. The record is small and short-lived, and callers that consume it immediately usually
+ * let the JIT scalar-replace it. Strategies that cannot report quota details return the shared
+ * {@link #allow()} instance.
+ *
+ * @param allowed {@code true} if the request may proceed
+ * @param remaining the number of requests the key may still make in the current period, or
+ * {@link #UNKNOWN}
+ * @param resetSeconds the number of seconds until the key's quota is fully restored, or
+ * {@link #UNKNOWN}
+ * @param retryAfterSeconds the number of seconds to wait before retrying a denied request, or
+ * {@code 0} if the request was allowed
+ */
+public record RateLimitDecision(boolean allowed, int remaining, int resetSeconds,
+                                int retryAfterSeconds) {
+
+  /**
+   * Marks a value the strategy cannot determine.
+   */
+  public static final int UNKNOWN = -1;
+
+  private static final RateLimitDecision ALLOWED = new RateLimitDecision(true, UNKNOWN, UNKNOWN,
+      0);
+
+  /**
+   * Returns the shared decision for an allowed request without quota details.
+   *
+   * @return the allowed decision
+   */
+  public static RateLimitDecision allow() {
+    return ALLOWED;
+  }
+
+  /**
+   * Creates a decision for an allowed request.
+   *
+   * @param remaining the number of requests still available
+   * @param resetSeconds the number of seconds until the quota is fully restored
+   * @return the allowed decision
+   */
+  public static RateLimitDecision allow(int remaining, int resetSeconds) {
+    return new RateLimitDecision(true, remaining, resetSeconds, 0);
+  }
+
+  /**
+   * Creates a decision for a denied request.
+   *
+   * @param retryAfterSeconds the number of seconds to wait before retrying
+   * @param resetSeconds the number of seconds until the quota is fully restored
+   * @return the denied decision
+   */
+  public static RateLimitDecision deny(int retryAfterSeconds, int resetSeconds) {
+    return new RateLimitDecision(false, 0, resetSeconds, retryAfterSeconds);
+  }
+}
@@ -0,0 +1,20 @@
+package com.zemnitskiy.httpratelimiter.strategy;
+
+import java.time.Duration;
+
+/**
+ * The {@code RateLimiterFactory} interface creates rate limiters of one configured strategy with
+ * different limits. Each created limiter has its own state.
+ */
+@FunctionalInterface
+public interface RateLimiterFactory {
+
+  /**
+   * Creates a rate limiter.
+   *
+   * @param maxRequests the maximum number of requests per {@code basePeriod}
+   * @param basePeriod the period the limit applies to
+   * @return the new rate limiter
+   */
+  RateLimiterStrategy create(int maxRequests, Duration basePeriod);
+}
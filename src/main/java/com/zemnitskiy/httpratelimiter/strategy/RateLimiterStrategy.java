@@ -20,4 +20,35 @@ public interface RateLimiterStrategy {
    */
   void allowRequest(String key) throws RateLimitExceededException;
 
-}
\ No newline at end of file
+  /**
+   * Determines whether a request associated with the given key should be allowed or blocked, and
+   * reports the outcome as a {@link RateLimitDecision}.
+   *
+   * <p>This method applies the same rate limiting logic as {@link #allowRequest(String)} but never
+   * throws for a denied request, which keeps the deny path as cheap as the allow path.
+   *
+   * @param key the unique key representing the client or request source
+   * @return the decision for the request
+   */
+  RateLimitDecision tryAcquire(String key);
+
+  /**
+   * Returns the message that the body of a 429 response carries when this strategy denies a
+   * request. Front-ends render it once, so it should not change over time.
+   *
+   * @return the message, by default without the limits of the strategy
+   */
+  default String rejectionMessage() {
+    return "Too many requests";
+  }
+
+  /**
+   * Returns whether {@link #tryAcquire(String)} can block the calling thread on I/O, such as a
+   * round trip to Redis. Reactive front-ends never call a blocking strategy on an event loop.
+   *
+   * @return {@code true} if a decision can wait for I/O, by default {@code false}
+   */
+  default boolean isBlocking() {
+    return false;
+  }
+}
@@ -0,0 +1,34 @@
+package com.zemnitskiy.httpratelimiter.strategy;
+
+import com.zemnitskiy.httpratelimiter.strategy.BinaryClientKeyStrategy.BinaryKeyFunction;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+/**
+ * The {@code ReactiveClientKeyStrategy} interface is the counterpart of {@link ClientKeyStrategy}
+ * for reactive applications: it extracts the client key from a {@link ServerHttpRequest}.
+ */
+public interface ReactiveClientKeyStrategy {
+
+  /**
+   * Extracts a unique client key from the given {@link ServerHttpRequest}.
+   *
+   * @param request the HTTP request from which the client key should be extracted
+   * @return a unique client key as a {@code String}
+   */
+  String getClientKey(ServerHttpRequest request);
+
+  /**
+   * Extracts the client key as a 128-bit number and applies {@code function} to it, in the same
+   * way as {@link BinaryClientKeyStrategy#applyClientKey}.
+   *
+   * <p>The default implementation has no binary keys and returns {@code null}.
+   *
+   * @param request the HTTP request from which the client key should be extracted
+   * @param function the function to apply to the key
+   * @param <R> the result type of {@code function}
+   * @return the result of {@code function}, or {@code null} if the key has no binary form
+   */
+  default <R> R applyClientKey(ServerHttpRequest request, BinaryKeyFunction<R> function) {
+    return null;
+  }
+}
@@ -0,0 +1,219 @@
+package com.zemnitskiy.httpratelimiter.web;
+
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.policy.PolicyRateLimiter;
+import com.zemnitskiy.httpratelimiter.policy.RateLimiterPolicies;
+import com.zemnitskiy.httpratelimiter.strategy.BinaryClientKeyStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.BinaryClientKeyStrategy.BinaryKeyFunction;
+import com.zemnitskiy.httpratelimiter.strategy.ClientKeyStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.CompletionAwareRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+
+/**
+ * Applies the rate limiter of the policy a servlet request matches to the client of the request.
+ * Shared by {@link RateLimiterInterceptor} and {@link RateLimiterFilter}.
+ *
+ * <p>When both the client key strategy and the rate limiter support binary keys, the client key is
+ * passed as a 128-bit number and no {@code String} key is built. Requests whose key has no binary
+ * form use the {@code String} key.
+ *
+ * <p>A request allowed by a {@link CompletionAwareRateLimiterStrategy} is remembered in a request
+ * attribute, and the front-end reports its completion through {@link #complete}.
+ *
+ * <p>If the front-end parks requests, a request that a
+ * {@link com.zemnitskiy.httpratelimiter.strategy.QueueingRateLimiterStrategy} delays is put in
+ * async mode and dispatched again by the container when its turn comes. No thread waits for it in
+ * the meantime. The allowed decision of a parked request is returned with
+ * {@link HttpServletRequest#isAsyncStarted()} set, and the front-end must not pass it on. The
+ * request is marked as parked, and the front-end passes it on when the container dispatches it
+ * again and {@link #unpark} confirms the mark.
+ */
+final class ClientRateLimiter {
+
+  private static final String IN_FLIGHT_ATTRIBUTE =
+      ClientRateLimiter.class.getName() + ".inFlight";
+
+  private static final String PARKED_ATTRIBUTE = ClientRateLimiter.class.getName() + ".parked";
+
+  private final RateLimiterPolicies policies;
+
+  private final ClientKeyStrategy clientKeyStrategy;
+
+  /**
+   * The client key strategy if it supports binary keys, otherwise {@code null}.
+   */
+  private final BinaryClientKeyStrategy binaryClientKeyStrategy;
+
+  private final RateLimiterMetrics metrics;
+
+  private final Logger log;
+
+  private final boolean parkRequests;
+
+  /**
+   * Creates a limiter that records its decisions to {@code metrics} and logs them to {@code log},
+   * the logger of the front-end. Unless {@code parkRequests} is set, queueing rate limiters reject
+   * the requests they would delay.
+   */
+  ClientRateLimiter(RateLimiterPolicies policies, ClientKeyStrategy clientKeyStrategy,
+      RateLimiterMetrics metrics, Logger log, boolean parkRequests) {
+    this.policies = policies;
+    this.clientKeyStrategy = clientKeyStrategy;
+    this.metrics = metrics;
+    this.log = log;
+    this.parkRequests = parkRequests;
+    this.binaryClientKeyStrategy =
+        clientKeyStrategy instanceof BinaryClientKeyStrategy binaryKeys ? binaryKeys : null;
+  }
+
+  /**
+   * Determines the policy and the client of {@code request} and applies the policy's rate limiter
+   * to the client. A denied request is answered with the 429 response of the rate limiter, and the
+   * front-end must not pass it on.
+   *
+   * @throws IOException if the 429 response cannot be written
+   */
+  RateLimitDecision tryAcquire(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    long start = System.nanoTime();
+    PolicyRateLimiter rateLimiter = policies.resolve(request);
+    BinaryKeyFunction<RateLimitDecision> binaryTryAcquire = rateLimiter.binaryTryAcquire();
+    RateLimitDecision decision = binaryClientKeyStrategy == null || binaryTryAcquire == null
+        ? null : binaryClientKeyStrategy.applyClientKey(request, binaryTryAcquire);
+    if (decision == null) {
+      String clientKey = clientKeyStrategy.getClientKey(request);
+      log.debug("{} Trying access endpoint", clientKey);
+      decision = parkRequests && rateLimiter.isQueueing() && request.isAsyncSupported()
+          ? reserve(rateLimiter, clientKey, request) : rateLimiter.tryAcquire(clientKey);
+    }
+    metrics.record(decision, start);
+    CompletionAwareRateLimiterStrategy completionAware = rateLimiter.completionAwareRateLimiter();
+    if (completionAware != null && decision.allowed()) {
+      request.setAttribute(IN_FLIGHT_ATTRIBUTE, new InFlight(completionAware, start));
+    }
+    if (log.isDebugEnabled()) {
+      if (decision.allowed()) {
+        log.debug("{} Endpoint access Allowed", clientKeyStrategy.getClientKey(request));
+      } else {
+        log.debug("{} Endpoint access denied, retry after {}",
+            clientKeyStrategy.getClientKey(request), decision.retryAfterSeconds());
+      }
+    }
+    if (!decision.allowed()) {
+      TooManyRequestsResponse.write(response, decision, rateLimiter.rejectionBody());
+    }
+    return decision;
+  }
+
+  /**
+   * Reserves the turn of the request in the queue of its client, and parks the request until then.
+   */
+  private RateLimitDecision reserve(PolicyRateLimiter rateLimiter, String clientKey,
+      HttpServletRequest request) {
+    long wait = rateLimiter.reserve(clientKey);
+    if (wait < 0) {
+      int retryAfter = Math.toIntExact(Math.ceilDiv(-wait, TimeUnit.SECONDS.toNanos(1)));
+      return RateLimitDecision.deny(retryAfter, retryAfter);
+    }
+    if (wait > 0) {
+      request.setAttribute(PARKED_ATTRIBUTE, Boolean.TRUE);
+      AsyncContext parked = request.startAsync();
+      // The request is dispatched when its turn comes, however long the queue
+      parked.setTimeout(0);
+      Runnable release = parked::dispatch;
+      Releaser.SCHEDULER.schedule(release, wait, TimeUnit.NANOSECONDS);
+    }
+    return RateLimitDecision.allow();
+  }
+
+  /**
+   * Reports whether {@code request} is dispatched again after being parked, and removes its mark,
+   * so that a later dispatch of the same request is not taken for its turn.
+   *
+   * @param request the dispatched request
+   * @return {@code true} if the request was parked and its turn has come
+   */
+  boolean unpark(HttpServletRequest request) {
+    if (request.getAttribute(PARKED_ATTRIBUTE) == null) {
+      return false;
+    }
+    request.removeAttribute(PARKED_ATTRIBUTE);
+    return true;
+  }
+
+  /**
+   * Reports the completion of {@code request} to the rate limiter that allowed it, if that rate
+   * limiter asked for it. Calling this again for the same request has no effect.
+   *
+   * @param request the completed request
+   * @param response its response
+   * @param threw {@code true} if handling the request threw
+   */
+  void complete(HttpServletRequest request, HttpServletResponse response, boolean threw) {
+    if (request.getAttribute(IN_FLIGHT_ATTRIBUTE) instanceof InFlight inFlight) {
+      request.removeAttribute(IN_FLIGHT_ATTRIBUTE);
+      inFlight.rateLimiter().onCompletion(System.nanoTime() - inFlight.start(),
+          threw || response.getStatus() >= 500);
+    }
+  }
+
+  /**
+   * Reports the completion of {@code request}, whose async processing has started, once that
+   * processing completes, fails or times out. Does nothing if the rate limiter of the request did
+   * not ask for its completion.
+   *
+   * @param request the request in async mode
+   * @param response its response
+   */
+  void completeWhenAsyncEnds(HttpServletRequest request, HttpServletResponse response) {
+    if (request.getAttribute(IN_FLIGHT_ATTRIBUTE) == null) {
+      return;
+    }
+    request.getAsyncContext().addListener(new AsyncListener() {
+
+      @Override
+      public void onComplete(AsyncEvent event) {
+        complete(request, response, false);
+      }
+
+      @Override
+      public void onTimeout(AsyncEvent event) {
+        complete(request, response, true);
+      }
+
+      @Override
+      public void onError(AsyncEvent event) {
+        complete(request, response, true);
+      }
+
+      @Override
+      public void onStartAsync(AsyncEvent event) {
+        // Async processing started again on a later dispatch, which drops the listeners
+        event.getAsyncContext().addListener(this);
+      }
+    });
+  }
+
+  private record InFlight(CompletionAwareRateLimiterStrategy rateLimiter, long start) {
+  }
+
+  /**
+   * Holds the thread that dispatches parked requests, which is only started once a request is
+   * parked.
+   */
+  private static final class Releaser {
+
+    static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("rate-limiter-release").daemon().factory());
+  }
+}
@@ -0,0 +1,142 @@
+package com.zemnitskiy.httpratelimiter.web;
+
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.policy.RateLimiterPolicies;
+import com.zemnitskiy.httpratelimiter.strategy.ClientKeyStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code RateLimiterFilter} class applies rate limiting as a servlet {@link Filter}, in front
+ * of {@code DispatcherServlet}.
+ *
+ * <p>A rejected request is answered with the pre-rendered 429 (Too Many Requests) response and
+ * never reaches Spring MVC: no handler mapping, no interceptors and no exception resolution run
+ * for it. Registered with the highest precedence, the filter also runs before the other filters of
+ * the application. A filter that parks requests is registered after Spring's own request filters
+ * instead, see below.
+ *
+ * <p>The filter is a plain {@link Filter} rather than a {@code OncePerRequestFilter}, which would
+ * set and check a request attribute on every request. Only {@code REQUEST} dispatches are counted.
+ * It should be registered for the {@code REQUEST} and {@code ASYNC} dispatcher types, so that it
+ * can resume the requests it parked, and it passes every other async dispatch on unchanged.
+ *
+ * <p>The completion of an allowed request is reported to a
+ * {@link com.zemnitskiy.httpratelimiter.strategy.CompletionAwareRateLimiterStrategy} when the
+ * chain returns, or, if the handler started async processing, when that processing ends.
+ *
+ * <p>A request that a {@link com.zemnitskiy.httpratelimiter.strategy.QueueingRateLimiterStrategy}
+ * delays is parked in async mode, without holding a container thread, and dispatched again with
+ * the {@code ASYNC} dispatcher type when its turn comes. On that dispatch the filter passes the
+ * request down the chain without counting it again, and reports its completion. A
+ * {@code OncePerRequestFilter} skips async dispatches by default, so a filter of that kind that
+ * comes after this one never sees a parked request. With a queueing strategy, the filter must
+ * therefore come after the filters the request needs, such as Spring's character encoding, form
+ * content and request context filters, which then run on the {@code REQUEST} dispatch before the
+ * request is parked. Requests whose chain does not support async processing are not parked, and
+ * are rejected if they would have to wait.
+ */
+public class RateLimiterFilter implements Filter {
+
+  private final ClientRateLimiter clientRateLimiter;
+
+  /**
+   * Constructs a {@code RateLimiterFilter} with the specified rate limiter and client key strategy.
+   *
+   * @param rateLimiter the strategy to be used for rate limiting
+   * @param clientKeyStrategy the strategy to determine the client's unique key
+   */
+  public RateLimiterFilter(RateLimiterStrategy rateLimiter, ClientKeyStrategy clientKeyStrategy) {
+    this(rateLimiter, clientKeyStrategy, RateLimiterMetrics.disabled());
+  }
+
+  /**
+   * Constructs a {@code RateLimiterFilter} that records its decisions to {@code metrics}.
+   *
+   * @param rateLimiter the strategy to be used for rate limiting
+   * @param clientKeyStrategy the strategy to determine the client's unique key
+   * @param metrics the meters of the rate limiter's decisions
+   */
+  public RateLimiterFilter(RateLimiterStrategy rateLimiter, ClientKeyStrategy clientKeyStrategy,
+      RateLimiterMetrics metrics) {
+    this(RateLimiterPolicies.of(rateLimiter), clientKeyStrategy, metrics);
+  }
+
+  /**
+   * Constructs a {@code RateLimiterFilter} that applies the rate limiter of the policy each
+   * request matches.
+   *
+   * @param policies the rate limiters of the policies and the default rate limiter
+   * @param clientKeyStrategy the strategy to determine the client's unique key
+   * @param metrics the meters of the rate limiter's decisions
+   */
+  public RateLimiterFilter(RateLimiterPolicies policies, ClientKeyStrategy clientKeyStrategy,
+      RateLimiterMetrics metrics) {
+    this.clientRateLimiter = new ClientRateLimiter(policies, clientKeyStrategy, metrics,
+        LoggerFactory.getLogger(RateLimiterFilter.class), true);
+  }
+
+  /**
+   * Applies the rate limiter to the client of the request, and either passes the request down the
+   * chain and reports its completion, parks it until its turn, or writes the 429 response and
+   * stops. A parked request is passed down the chain when it is dispatched again.
+   *
+   * @param request the current request
+   * @param response the current response
+   * @param chain the rest of the filter chain
+   * @throws IOException if the 429 response cannot be written or the chain fails
+   * @throws ServletException if the chain fails
+   */
+  @Override
+  public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+      throws IOException, ServletException {
+    if (request instanceof HttpServletRequest httpRequest
+        && response instanceof HttpServletResponse httpResponse) {
+      if (httpRequest.getDispatcherType() != DispatcherType.REQUEST) {
+        if (clientRateLimiter.unpark(httpRequest)) {
+          proceed(httpRequest, httpResponse, chain);
+        } else {
+          chain.doFilter(request, response);
+        }
+        return;
+      }
+      RateLimitDecision decision = clientRateLimiter.tryAcquire(httpRequest, httpResponse);
+      if (!decision.allowed()) {
+        return;
+      }
+      if (httpRequest.isAsyncStarted()) {
+        // Parked until its turn, when the container dispatches it again
+        return;
+      }
+      proceed(httpRequest, httpResponse, chain);
+      return;
+    }
+    chain.doFilter(request, response);
+  }
+
+  private void proceed(HttpServletRequest request, HttpServletResponse response,
+      FilterChain chain) throws IOException, ServletException {
+    boolean threw = true;
+    try {
+      chain.doFilter(request, response);
+      threw = false;
+    } finally {
+      if (!threw && request.isAsyncStarted()) {
+        // The handler goes on after the chain returns
+        clientRateLimiter.completeWhenAsyncEnds(request, response);
+      } else {
+        clientRateLimiter.complete(request, response, threw);
+      }
+    }
+  }
+}
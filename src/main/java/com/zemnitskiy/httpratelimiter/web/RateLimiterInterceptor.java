@@ -1,12 +1,17 @@
 package com.zemnitskiy.httpratelimiter.web;
 
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.policy.RateLimiterPolicies;
 import com.zemnitskiy.httpratelimiter.strategy.ClientKeyStrategy;
-import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
 import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.slf4j.Logger;
+import java.io.IOException;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 import reactor.util.annotation.NonNull;
@@ -16,14 +21,27 @@ import reactor.util.annotation.NonNull;
  * based on a client's unique key.
  *
  * <p>This interceptor checks each incoming request, determines the client's key, and applies the
- * appropriate rate limiting strategy. If the request exceeds the rate limit, an exception is thrown.
+ * appropriate rate limiting strategy. If the request exceeds the rate limit, the interceptor writes
+ * the 429 response itself from the strategy's {@link RateLimitDecision}, so a rejection neither
+ * creates an exception nor goes through Spring's exception resolution.
+ *
+ * <p>When both the client key strategy and the rate limiter support binary keys, the client key is
+ * passed as a 128-bit number and no {@code String} key is built. Requests whose key has no binary
+ * form use the {@code String} key.
+ *
+ * <p>The completion of an allowed request is reported to a
+ * {@link com.zemnitskiy.httpratelimiter.strategy.CompletionAwareRateLimiterStrategy} in
+ * {@link #afterCompletion}, with the time spent in the handler and whether it failed.
+ *
+ * <p>The interceptor runs after {@code DispatcherServlet} has resolved the handler. To reject
+ * requests before any Spring MVC processing, use {@link RateLimiterFilter} instead. The filter is
+ * also the servlet front-end that parks the requests a queueing strategy delays. The interceptor
+ * only lets through the requests that would not have to wait.
  */
 @Component
 public class RateLimiterInterceptor implements HandlerInterceptor {
 
-  private final RateLimiterStrategy rateLimiter;
-  private final ClientKeyStrategy clientKeyStrategy;
-  private final Logger log = LoggerFactory.getLogger(RateLimiterInterceptor.class);
+  private final ClientRateLimiter clientRateLimiter;
 
   /**
    * Constructs a {@code RateLimiterInterceptor} with the specified rate limiter and client key strategy.
@@ -33,8 +51,34 @@ public class RateLimiterInterceptor implements HandlerInterceptor {
    */
   public RateLimiterInterceptor(RateLimiterStrategy rateLimiter,
       ClientKeyStrategy clientKeyStrategy) {
-    this.rateLimiter = rateLimiter;
-    this.clientKeyStrategy = clientKeyStrategy;
+    this(rateLimiter, clientKeyStrategy, RateLimiterMetrics.disabled());
+  }
+
+  /**
+   * Constructs a {@code RateLimiterInterceptor} that records its decisions to {@code metrics}.
+   *
+   * @param rateLimiter the strategy to be used for rate limiting
+   * @param clientKeyStrategy the strategy to determine the client's unique key
+   * @param metrics the meters of the rate limiter's decisions
+   */
+  public RateLimiterInterceptor(RateLimiterStrategy rateLimiter,
+      ClientKeyStrategy clientKeyStrategy, RateLimiterMetrics metrics) {
+    this(RateLimiterPolicies.of(rateLimiter), clientKeyStrategy, metrics);
+  }
+
+  /**
+   * Constructs a {@code RateLimiterInterceptor} that applies the rate limiter of the policy each
+   * request matches.
+   *
+   * @param policies the rate limiters of the policies and the default rate limiter
+   * @param clientKeyStrategy the strategy to determine the client's unique key
+   * @param metrics the meters of the rate limiter's decisions
+   */
+  @Autowired
+  public RateLimiterInterceptor(RateLimiterPolicies policies,
+      ClientKeyStrategy clientKeyStrategy, RateLimiterMetrics metrics) {
+    this.clientRateLimiter = new ClientRateLimiter(policies, clientKeyStrategy, metrics,
+        LoggerFactory.getLogger(RateLimiterInterceptor.class), false);
   }
 
   /**
@@ -42,22 +86,40 @@ public class RateLimiterInterceptor implements HandlerInterceptor {
    * the request based on the rate limit.
    *
    * <p>If the request is allowed, it proceeds to the next step in the request processing chain. If the rate limit
-   * is exceeded, an exception is thrown.
+   * is exceeded, a 429 (Too Many Requests) response with a Retry-After header is written and the chain is stopped.
+   *
+   * <p>Only the first dispatch of a request is limited. When an async handler completes, the
+   * request is dispatched to the handler again. That dispatch proceeds without taking another
+   * permit, and its {@link #afterCompletion} releases the permit of the first dispatch.
    *
    * @param request the current HTTP request
    * @param response the current HTTP response
    * @param handler the chosen handler to execute, for type and/or instance examination
    * @return {@code true} if the request is allowed to proceed; {@code false} otherwise
-   * @throws RateLimitExceededException if the rate limit is exceeded for the client's key
+   * @throws IOException if the 429 response cannot be written
    */
   @Override
   public boolean preHandle(@NonNull HttpServletRequest request,
       @NonNull HttpServletResponse response,
-      @NonNull Object handler) {
-    String clientKey = clientKeyStrategy.getClientKey(request);
-    log.debug("{} Trying access endpoint", clientKey);
-    rateLimiter.allowRequest(clientKey);
-    log.debug("{} Endpoint access Allowed", clientKey);
-    return true;
+      @NonNull Object handler) throws IOException {
+    if (request.getDispatcherType() != DispatcherType.REQUEST) {
+      return true;
+    }
+    return clientRateLimiter.tryAcquire(request, response).allowed();
+  }
+
+  /**
+   * Reports the completion of an allowed request to a rate limiter that limits the requests in
+   * flight.
+   *
+   * @param request the current HTTP request
+   * @param response the current HTTP response
+   * @param handler the handler that handled the request
+   * @param ex the exception the handler threw, if any
+   */
+  @Override
+  public void afterCompletion(@NonNull HttpServletRequest request,
+      @NonNull HttpServletResponse response, @NonNull Object handler, @Nullable Exception ex) {
+    clientRateLimiter.complete(request, response, ex != null);
   }
-}
\ No newline at end of file
+}
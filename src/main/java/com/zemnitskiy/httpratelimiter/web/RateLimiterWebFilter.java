@@ -0,0 +1,198 @@
+package com.zemnitskiy.httpratelimiter.web;
+
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.policy.PolicyRateLimiter;
+import com.zemnitskiy.httpratelimiter.policy.RateLimiterPolicies;
+import com.zemnitskiy.httpratelimiter.strategy.AsyncRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.BinaryClientKeyStrategy.BinaryKeyFunction;
+import com.zemnitskiy.httpratelimiter.strategy.CompletionAwareRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.QueueingRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.ReactiveClientKeyStrategy;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The {@code RateLimiterWebFilter} class applies rate limiting as a reactive {@link WebFilter},
+ * for applications that run on Spring WebFlux.
+ *
+ * <p>It has the highest precedence, so a rejected request is answered with the pre-rendered 429
+ * (Too Many Requests) response before any handler mapping or other filter runs. The body is the
+ * byte array pre-rendered from the message of the rate limiter, wrapped without copying.
+ *
+ * <p>An {@link AsyncRateLimiterStrategy} is used through its non-blocking method, and the chain
+ * continues when the decision arrives. A {@link RateLimiterStrategy#isBlocking() blocking}
+ * strategy, such as the blocking Redis strategies, is called on the bounded elastic scheduler, so
+ * that a slow Redis never holds an event loop. The in-memory strategies decide on the thread that
+ * handles the request, without blocking. A {@link CompletionAwareRateLimiterStrategy} is told when
+ * the rest of the chain has completed. A request that a {@link QueueingRateLimiterStrategy} delays
+ * continues down the chain on a timer when its turn comes.
+ */
+public class RateLimiterWebFilter implements WebFilter, Ordered {
+
+  private final RateLimiterPolicies policies;
+
+  private final ReactiveClientKeyStrategy clientKeyStrategy;
+
+  private final RateLimiterMetrics metrics;
+
+  private final Logger log = LoggerFactory.getLogger(RateLimiterWebFilter.class);
+
+  /**
+   * Constructs a {@code RateLimiterWebFilter} with the specified rate limiter and client key
+   * strategy.
+   *
+   * @param rateLimiter the strategy to be used for rate limiting
+   * @param clientKeyStrategy the strategy to determine the client's unique key
+   */
+  public RateLimiterWebFilter(RateLimiterStrategy rateLimiter,
+      ReactiveClientKeyStrategy clientKeyStrategy) {
+    this(rateLimiter, clientKeyStrategy, RateLimiterMetrics.disabled());
+  }
+
+  /**
+   * Constructs a {@code RateLimiterWebFilter} that records its decisions to {@code metrics}. The
+   * decision time of an asynchronous strategy runs until its decision arrives.
+   *
+   * @param rateLimiter the strategy to be used for rate limiting
+   * @param clientKeyStrategy the strategy to determine the client's unique key
+   * @param metrics the meters of the rate limiter's decisions
+   */
+  public RateLimiterWebFilter(RateLimiterStrategy rateLimiter,
+      ReactiveClientKeyStrategy clientKeyStrategy, RateLimiterMetrics metrics) {
+    this(RateLimiterPolicies.of(rateLimiter), clientKeyStrategy, metrics);
+  }
+
+  /**
+   * Constructs a {@code RateLimiterWebFilter} that applies the rate limiter of the policy each
+   * request matches.
+   *
+   * @param policies the rate limiters of the policies and the default rate limiter
+   * @param clientKeyStrategy the strategy to determine the client's unique key
+   * @param metrics the meters of the rate limiter's decisions
+   */
+  public RateLimiterWebFilter(RateLimiterPolicies policies,
+      ReactiveClientKeyStrategy clientKeyStrategy, RateLimiterMetrics metrics) {
+    this.policies = policies;
+    this.clientKeyStrategy = clientKeyStrategy;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Applies the rate limiter to the client of the request, and either passes the exchange down the
+   * chain or writes the 429 response.
+   *
+   * @param exchange the current exchange
+   * @param chain the rest of the filter chain
+   * @return completion of the request handling
+   */
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    ServerHttpRequest request = exchange.getRequest();
+    long start = System.nanoTime();
+    PolicyRateLimiter rateLimiter = policies.resolve(request);
+    if (rateLimiter.isAsync()) {
+      return Mono.fromCompletionStage(
+              rateLimiter.tryAcquireAsync(clientKeyStrategy.getClientKey(request)))
+          .flatMap(decision -> {
+            metrics.record(decision, start);
+            return decision.allowed() ? chain.filter(exchange)
+                : reject(exchange, rateLimiter, decision);
+          });
+    }
+    if (rateLimiter.isQueueing()) {
+      return reserve(exchange, chain, rateLimiter, start);
+    }
+    if (rateLimiter.isBlocking()) {
+      return Mono.fromCallable(() -> tryAcquire(request, rateLimiter))
+          .subscribeOn(Schedulers.boundedElastic())
+          .flatMap(decision -> proceed(exchange, chain, rateLimiter, decision, start));
+    }
+    return proceed(exchange, chain, rateLimiter, tryAcquire(request, rateLimiter), start);
+  }
+
+  private RateLimitDecision tryAcquire(ServerHttpRequest request, PolicyRateLimiter rateLimiter) {
+    BinaryKeyFunction<RateLimitDecision> binaryTryAcquire = rateLimiter.binaryTryAcquire();
+    RateLimitDecision decision = binaryTryAcquire == null ? null
+        : clientKeyStrategy.applyClientKey(request, binaryTryAcquire);
+    return decision != null ? decision
+        : rateLimiter.tryAcquire(clientKeyStrategy.getClientKey(request));
+  }
+
+  /**
+   * Records the decision, and either passes the exchange down the chain or writes the 429
+   * response.
+   */
+  private Mono<Void> proceed(ServerWebExchange exchange, WebFilterChain chain,
+      PolicyRateLimiter rateLimiter, RateLimitDecision decision, long start) {
+    metrics.record(decision, start);
+    if (!decision.allowed()) {
+      return reject(exchange, rateLimiter, decision);
+    }
+    CompletionAwareRateLimiterStrategy completionAware = rateLimiter.completionAwareRateLimiter();
+    if (completionAware == null) {
+      return chain.filter(exchange);
+    }
+    return chain.filter(exchange).doFinally(signal -> {
+      HttpStatusCode status = exchange.getResponse().getStatusCode();
+      completionAware.onCompletion(System.nanoTime() - start,
+          signal == SignalType.ON_ERROR || status != null && status.is5xxServerError());
+    });
+  }
+
+  /**
+   * Reserves the turn of the request in the queue of its client, and delays the rest of the chain
+   * until then.
+   */
+  private Mono<Void> reserve(ServerWebExchange exchange, WebFilterChain chain,
+      PolicyRateLimiter rateLimiter, long start) {
+    long wait = rateLimiter.reserve(clientKeyStrategy.getClientKey(exchange.getRequest()));
+    if (wait < 0) {
+      int retryAfter = Math.toIntExact(Math.ceilDiv(-wait, TimeUnit.SECONDS.toNanos(1)));
+      RateLimitDecision decision = RateLimitDecision.deny(retryAfter, retryAfter);
+      metrics.record(decision, start);
+      return reject(exchange, rateLimiter, decision);
+    }
+    metrics.record(RateLimitDecision.allow(), start);
+    return wait == 0 ? chain.filter(exchange)
+        : Mono.delay(Duration.ofNanos(wait)).then(Mono.defer(() -> chain.filter(exchange)));
+  }
+
+  private Mono<Void> reject(ServerWebExchange exchange, PolicyRateLimiter rateLimiter,
+      RateLimitDecision decision) {
+    ServerHttpRequest request = exchange.getRequest();
+    if (log.isDebugEnabled()) {
+      log.debug("{} Endpoint access denied, retry after {}",
+          clientKeyStrategy.getClientKey(request), decision.retryAfterSeconds());
+    }
+    ServerHttpResponse response = exchange.getResponse();
+    response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+    HttpHeaders headers = response.getHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, TooManyRequestsResponse.retryAfter(decision));
+    headers.setContentType(MediaType.TEXT_PLAIN);
+    byte[] body = rateLimiter.rejectionBody();
+    headers.setContentLength(body.length);
+    return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.HIGHEST_PRECEDENCE;
+  }
+}
@@ -0,0 +1,49 @@
+package com.zemnitskiy.httpratelimiter.web;
+
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+/**
+ * The pre-rendered parts of the 429 (Too Many Requests) response shared by the rate limiting
+ * front-ends: the {@code Retry-After} values of the first hour, so that writing a rejection formats
+ * nothing. The body is rendered once per rate limiter, see
+ * {@link com.zemnitskiy.httpratelimiter.policy.PolicyRateLimiter#rejectionBody()}.
+ */
+final class TooManyRequestsResponse {
+
+  private static final String[] RETRY_AFTER_VALUES = new String[3601];
+
+  static {
+    for (int i = 0; i < RETRY_AFTER_VALUES.length; i++) {
+      RETRY_AFTER_VALUES[i] = Integer.toString(i);
+    }
+  }
+
+  private TooManyRequestsResponse() {
+  }
+
+  /**
+   * Returns the {@code Retry-After} header value for the decision.
+   */
+  static String retryAfter(RateLimitDecision decision) {
+    int seconds = decision.retryAfterSeconds();
+    return seconds >= 0 && seconds < RETRY_AFTER_VALUES.length ? RETRY_AFTER_VALUES[seconds]
+        : Integer.toString(seconds);
+  }
+
+  /**
+   * Writes the 429 response with a {@code Retry-After} header and the pre-rendered {@code body}.
+   */
+  static void write(HttpServletResponse response, RateLimitDecision decision, byte[] body)
+      throws IOException {
+    response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter(decision));
+    response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+  }
+}
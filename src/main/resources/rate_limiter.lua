@@ -17,7 +17,13 @@ redis.log(redis.LOG_DEBUG, "Current count: " .. currentCount)
 redis.log(redis.LOG_DEBUG, "Window size (ms): " .. windowSize)
 
 if currentCount < maxRequests then
-    redis.call("ZADD", key, currentTime, currentTime)
+    -- The member starts with the exact time, and ZADD NX skips any member another call in the same
+    -- microsecond has taken, so no request replaces another
+    local memberPrefix = time[1] .. "." .. time[2] .. ":"
+    local sequence = currentCount
+    while redis.call("ZADD", key, "NX", currentTime, memberPrefix .. sequence) == 0 do
+        sequence = sequence + 1
+    end
     redis.call('EXPIRE', key, windowSize / 1000)
     return 0
 else
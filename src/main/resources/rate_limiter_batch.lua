@@ -0,0 +1,27 @@
+local maxRequests = tonumber(ARGV[1])
+local windowSize = tonumber(ARGV[2])
+
+local time = redis.call("TIME")
+local currentTime = tonumber(time[1]) * 1000 + tonumber(time[2]) / 1000 -- Current time in milliseconds
+local windowStart = currentTime - windowSize
+-- The members of this call start with the exact time, and ZADD NX skips any member another call
+-- in the same microsecond has taken, so no request replaces another
+local memberPrefix = time[1] .. "." .. time[2] .. ":"
+
+-- KEYS may repeat a key, so every request gets a member of its own
+local results = {}
+for i, key in ipairs(KEYS) do
+    redis.call("ZREMRANGEBYSCORE", key, 0, windowStart)
+    if redis.call("ZCARD", key) < maxRequests then
+        local sequence = i
+        while redis.call("ZADD", key, "NX", currentTime, memberPrefix .. sequence) == 0 do
+            sequence = sequence + #KEYS
+        end
+        redis.call("PEXPIRE", key, windowSize)
+        results[i] = 0
+    else
+        local oldestRequestTime = tonumber(redis.call("ZRANGE", key, 0, 0, "WITHSCORES")[2])
+        results[i] = math.ceil(oldestRequestTime + windowSize - currentTime)
+    end
+end
+return results
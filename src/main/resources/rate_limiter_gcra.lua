@@ -0,0 +1,23 @@
+local key = KEYS[1]
+local emissionInterval = tonumber(ARGV[1]) -- Microseconds per request
+local burstTolerance = tonumber(ARGV[2]) -- Microseconds of backlog allowed, emissionInterval * maxRequests
+
+local time = redis.call("TIME")
+local currentTime = tonumber(time[1]) * 1000000 + tonumber(time[2]) -- Current time in microseconds
+
+-- Theoretical arrival time: the moment the key has no backlog left
+local tat = tonumber(redis.call("GET", key))
+if tat == nil or tat < currentTime then
+    tat = currentTime
+end
+
+local newTat = tat + emissionInterval
+if newTat - currentTime > burstTolerance then
+    -- {retry after (ms), remaining, reset (ms)}
+    return {math.ceil((newTat - burstTolerance - currentTime) / 1000), 0,
+        math.ceil((tat - currentTime) / 1000)}
+end
+
+local backlog = newTat - currentTime
+redis.call("SET", key, string.format("%.0f", newTat), "PX", math.ceil(backlog / 1000))
+return {0, math.floor((burstTolerance - backlog) / emissionInterval), math.ceil(backlog / 1000)}
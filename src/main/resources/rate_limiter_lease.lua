@@ -0,0 +1,24 @@
+local key = KEYS[1]
+local maxRequests = tonumber(ARGV[1])
+local windowSize = tonumber(ARGV[2])
+local leaseSize = tonumber(ARGV[3])
+local leaseId = ARGV[4]
+
+local time = redis.call("TIME")
+local currentTime = tonumber(time[1]) * 1000 + tonumber(time[2]) / 1000 -- Current time in milliseconds
+
+redis.call("ZREMRANGEBYSCORE", key, 0, currentTime - windowSize)
+
+local granted = math.min(leaseSize, maxRequests - redis.call("ZCARD", key))
+if granted > 0 then
+    -- Every permit is a member of its own, so unused ones can be returned by name
+    for i = 1, granted do
+        redis.call("ZADD", key, currentTime, leaseId .. ":" .. i)
+    end
+    redis.call("PEXPIRE", key, windowSize)
+    return granted
+end
+
+local oldestRequestTime = tonumber(redis.call("ZRANGE", key, 0, 0, "WITHSCORES")[2])
+-- A negative result is the retry delay in milliseconds
+return -math.ceil(oldestRequestTime + windowSize - currentTime)
@@ -0,0 +1,84 @@
+local key = KEYS[1]
+-- ARGV holds one pair per window: max requests, period (ms)
+local windows = #ARGV / 2
+
+local time = redis.call("TIME")
+local currentTime = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) -- Current time in milliseconds
+
+-- Each window keeps the index of its current fixed window and the counts of that window and the one before
+local fields = {}
+for i = 1, windows do
+    local period = ARGV[2 * i]
+    fields[3 * i - 2] = "i:" .. period
+    fields[3 * i - 1] = "p:" .. period
+    fields[3 * i] = "c:" .. period
+end
+local values = redis.call("HMGET", key, unpack(fields))
+
+local retryAfter = 0
+local remaining = -1
+local reset = 0
+local allowedReset = 0
+local longestPeriod = 0
+local state = {}
+for i = 1, windows do
+    local maxRequests = tonumber(ARGV[2 * i - 1])
+    local period = tonumber(ARGV[2 * i])
+    local index = math.floor(currentTime / period)
+    local storedIndex = tonumber(values[3 * i - 2])
+    local previous = tonumber(values[3 * i - 1]) or 0
+    local current = tonumber(values[3 * i]) or 0
+    if storedIndex ~= index then
+        if storedIndex == index - 1 then
+            previous = current
+        else
+            previous = 0
+        end
+        current = 0
+    end
+    state[i] = {index, previous, current}
+
+    local elapsed = currentTime % period
+    local weighted = previous * (period - elapsed) + (current + 1) * period
+    if weighted > maxRequests * period then
+        local wait
+        if current >= maxRequests then
+            wait = period - elapsed + math.ceil(period * (current - maxRequests + 1) / current)
+        else
+            wait = math.ceil(period * (previous - maxRequests + current + 1) / previous) - elapsed
+        end
+        retryAfter = math.max(retryAfter, wait)
+    else
+        local left = math.floor((maxRequests * period - weighted) / period)
+        if remaining < 0 or left < remaining then
+            remaining = left
+        end
+    end
+
+    if current > 0 then
+        reset = math.max(reset, 2 * period - elapsed)
+    else
+        reset = math.max(reset, period - elapsed)
+    end
+    allowedReset = math.max(allowedReset, 2 * period - elapsed)
+    longestPeriod = math.max(longestPeriod, period)
+end
+
+-- A request denied by one window is not counted in any of them
+if retryAfter > 0 then
+    -- {retry after (ms), remaining, reset (ms)}
+    return {retryAfter, 0, reset}
+end
+
+local updates = {}
+for i = 1, windows do
+    updates[6 * i - 5] = fields[3 * i - 2]
+    updates[6 * i - 4] = state[i][1]
+    updates[6 * i - 3] = fields[3 * i - 1]
+    updates[6 * i - 2] = state[i][2]
+    updates[6 * i - 1] = fields[3 * i]
+    updates[6 * i] = state[i][3] + 1
+end
+redis.call("HSET", key, unpack(updates))
+redis.call("PEXPIRE", key, 2 * longestPeriod)
+return {0, remaining, allowedReset}
@@ -0,0 +1,17 @@
+local key = KEYS[1]
+local leaseId = ARGV[1]
+local first = tonumber(ARGV[2])
+local last = tonumber(ARGV[3])
+
+-- unpack() pushes every member on the Lua stack, which holds about 8000 values, so a large
+-- lease is removed in chunks
+local chunkSize = 1000
+local removed = 0
+for chunkFirst = first, last, chunkSize do
+    local members = {}
+    for i = chunkFirst, math.min(chunkFirst + chunkSize - 1, last) do
+        members[#members + 1] = leaseId .. ":" .. i
+    end
+    removed = removed + redis.call("ZREM", key, unpack(members))
+end
+return removed
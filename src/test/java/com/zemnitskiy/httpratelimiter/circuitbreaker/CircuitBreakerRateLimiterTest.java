@@ -0,0 +1,172 @@
+package com.zemnitskiy.httpratelimiter.circuitbreaker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.google.common.testing.FakeTicker;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.strategy.AsyncRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.CompletionAwareRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.QueueingRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+class CircuitBreakerRateLimiterTest {
+
+  private static final int MAX_REQUESTS = 6;
+  private static final Duration BASE_PERIOD = Duration.ofSeconds(10);
+  private static final RateLimitDecision REMOTE_DECISION = RateLimitDecision.allow(42, 10);
+
+  private FakeTicker ticker;
+
+  private RateLimiterStrategy remote;
+
+  private CircuitBreakerRateLimiter rateLimiter;
+
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @BeforeEach
+  public void setUp() {
+    ticker = new FakeTicker();
+    remote = mock(RateLimiterStrategy.class);
+    rateLimiter = wrap(remote);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    release.countDown();
+    rateLimiter.close();
+  }
+
+  private CircuitBreakerRateLimiter wrap(RateLimiterStrategy rateLimiter) {
+    return (CircuitBreakerRateLimiter) CircuitBreakerRateLimiter.wrap((_, _) -> rateLimiter,
+        Duration.ofMillis(50), 4, 0.5, Duration.ofSeconds(5), 3, ticker::read)
+        .create(MAX_REQUESTS, BASE_PERIOD);
+  }
+
+  @Test
+  void testHealthyRemote_DecidesRequests() {
+    when(remote.tryAcquire("client1")).thenReturn(REMOTE_DECISION);
+
+    assertSame(REMOTE_DECISION, rateLimiter.tryAcquire("client1"));
+  }
+
+  @Test
+  void testFailingRemote_FallsBackToShareOfLimit() {
+    when(remote.tryAcquire(anyString()))
+        .thenThrow(new RedisConnectionFailureException("Redis is down"));
+
+    // Three instances share the limit, so each falls back to a third of it
+    assertTrue(rateLimiter.tryAcquire("client1").allowed());
+    assertTrue(rateLimiter.tryAcquire("client1").allowed());
+    RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+        () -> rateLimiter.allowRequest("client1"));
+    assertEquals("Too many requests. You have only 6 requests for 10 seconds.",
+        exception.getMessage());
+  }
+
+  @Test
+  void testSlowRemote_IsCutOffByLatencyBudget() {
+    when(remote.tryAcquire(anyString())).thenAnswer(_ -> {
+      release.await();
+      return REMOTE_DECISION;
+    });
+
+    RateLimitDecision decision = assertTimeout(Duration.ofSeconds(1),
+        () -> rateLimiter.tryAcquire("client1"));
+    assertTrue(decision.allowed());
+    assertEquals(1, decision.remaining(), "The fallback decided the request");
+  }
+
+  @Test
+  void testOpenBreaker_SkipsRemoteUntilProbeSucceeds() {
+    when(remote.tryAcquire(anyString()))
+        .thenThrow(new RedisConnectionFailureException("Redis is down"));
+    rateLimiter.tryAcquire("client1");
+    rateLimiter.tryAcquire("client2");
+    verify(remote, times(2)).tryAcquire(anyString());
+
+    rateLimiter.tryAcquire("client3");
+    verify(remote, times(2)).tryAcquire(anyString());
+
+    ticker.advance(Duration.ofSeconds(5));
+    doReturn(REMOTE_DECISION).when(remote).tryAcquire(anyString());
+    assertSame(REMOTE_DECISION, rateLimiter.tryAcquire("client3"));
+    assertSame(REMOTE_DECISION, rateLimiter.tryAcquire("client4"));
+  }
+
+  @Test
+  void testAsyncRemote_IsCalledWithoutThread() throws Exception {
+    AsyncRateLimiterStrategy asyncRemote = mock(AsyncRateLimiterStrategy.class);
+    when(asyncRemote.tryAcquireAsync("client1")).thenReturn(new CompletableFuture<>());
+    try (CircuitBreakerRateLimiter asyncRateLimiter = wrap(asyncRemote)) {
+      CompletableFuture<RateLimitDecision> decision =
+          asyncRateLimiter.tryAcquireAsync("client1").toCompletableFuture();
+
+      assertTrue(decision.get().allowed(), "The budget ran out and the fallback decided");
+      assertFalse(decision.isCompletedExceptionally());
+    }
+  }
+
+  @Test
+  void testCompletionAwareStrategy_ShouldBeRejected() {
+    RateLimiterStrategy completionAware = mock(CompletionAwareRateLimiterStrategy.class);
+
+    assertThrows(IllegalArgumentException.class, () -> wrap(completionAware));
+  }
+
+  @Test
+  void testClose_ReportsRemoteFailureUnchecked() throws Exception {
+    RateLimiterStrategy closeableRemote = mock(RateLimiterStrategy.class,
+        withSettings().extraInterfaces(AutoCloseable.class));
+    Exception closeFailure = new Exception("Redis is down");
+    doThrow(closeFailure).when((AutoCloseable) closeableRemote).close();
+    CircuitBreakerRateLimiter closeable = wrap(closeableRemote);
+
+    assertSame(closeFailure, assertThrows(IllegalStateException.class, closeable::close)
+        .getCause());
+  }
+
+  @Test
+  void testQueueingStrategy_ShouldBeRejected() {
+    RateLimiterStrategy queueing = mock(QueueingRateLimiterStrategy.class);
+
+    assertThrows(IllegalArgumentException.class, () -> wrap(queueing));
+  }
+
+  @Test
+  void testBindTo_CountsFallbackDecisions() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    rateLimiter.bindTo(registry);
+    when(remote.tryAcquire(anyString()))
+        .thenThrow(new RedisConnectionFailureException("Redis is down"));
+
+    rateLimiter.tryAcquire("client1");
+    rateLimiter.tryAcquire("client1");
+
+    assertEquals(2, registry.get(RateLimiterMetrics.FALLBACK_REQUESTS).counter().count());
+    assertEquals(CircuitBreaker.State.OPEN.ordinal(),
+        registry.get(RateLimiterMetrics.CIRCUIT_STATE).gauge().value());
+  }
+}
@@ -0,0 +1,89 @@
+package com.zemnitskiy.httpratelimiter.circuitbreaker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.testing.FakeTicker;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+  private FakeTicker ticker;
+
+  private CircuitBreaker circuitBreaker;
+
+  @BeforeEach
+  public void setUp() {
+    ticker = new FakeTicker();
+    circuitBreaker = new CircuitBreaker(10, 0.5, Duration.ofSeconds(5), ticker::read);
+  }
+
+  @Test
+  void testFailures_BelowThreshold_KeepBreakerClosed() {
+    for (int window = 0; window < 3; window++) {
+      for (int i = 0; i < 4; i++) {
+        circuitBreaker.onFailure();
+      }
+      for (int i = 0; i < 6; i++) {
+        circuitBreaker.onSuccess();
+      }
+    }
+    assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+    assertTrue(circuitBreaker.tryAcquirePermission());
+  }
+
+  @Test
+  void testFailures_ReachingThreshold_OpenBreaker() {
+    for (int i = 0; i < 5; i++) {
+      circuitBreaker.onFailure();
+    }
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+    assertFalse(circuitBreaker.tryAcquirePermission());
+  }
+
+  @Test
+  void testOpenBreaker_ProbesOnceAndClosesOnSuccess() {
+    for (int i = 0; i < 5; i++) {
+      circuitBreaker.onFailure();
+    }
+    ticker.advance(Duration.ofSeconds(5));
+
+    assertTrue(circuitBreaker.tryAcquirePermission());
+    assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.state());
+    assertFalse(circuitBreaker.tryAcquirePermission(), "Only one probe may be in flight");
+
+    circuitBreaker.onSuccess();
+    assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+    assertTrue(circuitBreaker.tryAcquirePermission());
+  }
+
+  @Test
+  void testFailedProbe_OpensBreakerAgain() {
+    for (int i = 0; i < 5; i++) {
+      circuitBreaker.onFailure();
+    }
+    ticker.advance(Duration.ofSeconds(5));
+    assertTrue(circuitBreaker.tryAcquirePermission());
+
+    circuitBreaker.onFailure();
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+    ticker.advance(Duration.ofSeconds(4));
+    assertFalse(circuitBreaker.tryAcquirePermission());
+    ticker.advance(Duration.ofSeconds(1));
+    assertTrue(circuitBreaker.tryAcquirePermission());
+  }
+
+  @Test
+  void testInvalidSettings_ShouldBeRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new CircuitBreaker(0, 0.5, Duration.ofSeconds(1), ticker::read));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CircuitBreaker(10, 0, Duration.ofSeconds(1), ticker::read));
+    assertThrows(IllegalArgumentException.class,
+        () -> new CircuitBreaker(10, 0.5, null, ticker::read));
+  }
+}
@@ -0,0 +1,70 @@
+package com.zemnitskiy.httpratelimiter.clientkey;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+class IpAddressParserTest {
+
+  private static final String[] VALID = {
+      "0.0.0.0", "10.0.0.1", "192.168.0.1", "255.255.255.255", "::", "::1", "1::", "2001:db8::1",
+      "2001:DB8:0:0:8:800:200C:417A", "fe80::1:2", "1:2:3:4:5:6:7:8", "1:2:3:4:5:6:7::",
+      "::2:3:4:5:6:7:8", "ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff", "::ffff:1.2.3.4", "::1.2.3.4",
+      "64:ff9b::192.0.2.33", "1:2:3:4:5:6:1.2.3.4"
+  };
+
+  private static final String[] INVALID = {
+      "", "1", "1.2.3", "1.2.3.4.5", "1.2.3.256", "01.2.3.4", "1..2.3", "1.2.3.4:8080", "-1.2.3.4",
+      "a.b.c.d", "unknown", ":", ":1", "1:", ":::", "1:::2", "1::2::3", "12345::", "1:2:3:4:5:6:7",
+      "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7:8::", "fe80::1%eth0", "[::1]", "::g", "::1.2.3",
+      "1:2:3:4:5:6:7:1.2.3.4", "::1.2.3.4:1", "١.2.3.4"
+  };
+
+  private static long[] parse(String text) {
+    return IpAddressParser.parse(text, 0, text.length(), (high, low) -> new long[] {high, low});
+  }
+
+  private static long[] expected(String text) throws UnknownHostException {
+    byte[] bytes = InetAddress.getByName(text).getAddress();
+    ByteBuffer buffer = ByteBuffer.allocate(16);
+    if (bytes.length == 4) {
+      buffer.putLong(0).putShort((short) 0).putShort((short) 0xFFFF).put(bytes);
+    } else {
+      buffer.put(bytes);
+    }
+    return new long[] {buffer.getLong(0), buffer.getLong(8)};
+  }
+
+  @Test
+  void testParse_MatchesInetAddress() throws UnknownHostException {
+    for (String address : VALID) {
+      assertArrayEquals(expected(address), parse(address), address);
+    }
+  }
+
+  @Test
+  void testParse_Ipv4AndMappedIpv6_AreTheSameKey() {
+    assertArrayEquals(parse("192.168.0.1"), parse("::ffff:192.168.0.1"));
+    assertArrayEquals(parse("192.168.0.1"), parse("::ffff:c0a8:1"));
+  }
+
+  @Test
+  void testParse_Range() {
+    String header = "  10.0.0.1, 10.0.0.2";
+    assertArrayEquals(parse("10.0.0.1"),
+        IpAddressParser.parse(header, 2, 10, (high, low) -> new long[] {high, low}));
+    assertEquals(0x0A000002L, IpAddressParser.parseIpv4(header, 12, header.length()));
+  }
+
+  @Test
+  void testParse_Invalid_ReturnsNull() {
+    for (String text : INVALID) {
+      assertNull(parse(text), text);
+    }
+  }
+}
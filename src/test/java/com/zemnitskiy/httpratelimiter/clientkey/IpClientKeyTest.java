@@ -1,13 +1,19 @@
 package com.zemnitskiy.httpratelimiter.clientkey;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
+import com.zemnitskiy.httpratelimiter.strategy.BinaryClientKeyStrategy.BinaryKeyFunction;
 import jakarta.servlet.http.HttpServletRequest;
+import java.net.InetSocketAddress;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 
 @ExtendWith(MockitoExtension.class)
 class IpClientKeyTest {
@@ -17,6 +23,7 @@ class IpClientKeyTest {
 
   private final IpClientKey ipClientKey = new IpClientKey();
 
+  private static final BinaryKeyFunction<long[]> KEY = (high, low) -> new long[] {high, low};
 
   @Test
   void testGetClientIP_XForwardedFor() {
@@ -44,4 +51,67 @@ class IpClientKeyTest {
     Mockito.when(request.getRemoteAddr()).thenReturn("192.168.0.4");
     assertEquals("192.168.0.4", ipClientKey.getClientKey(request));
   }
-}
\ No newline at end of file
+
+  @Test
+  void testGetClientIP_XForwardedForWithSpaces() {
+    Mockito.when(request.getHeader("X-Forwarded-For")).thenReturn(" 192.168.0.1 ,192.168.0.2");
+    assertEquals("192.168.0.1", ipClientKey.getClientKey(request));
+  }
+
+  @Test
+  void testGetClientIP_SingleAddress_ReturnsHeaderItself() {
+    String header = "192.168.0.1";
+    Mockito.when(request.getHeader("X-Forwarded-For")).thenReturn(header);
+    assertSame(header, ipClientKey.getClientKey(request));
+  }
+
+  @Test
+  void testApplyClientKey_XForwardedFor() {
+    Mockito.when(request.getHeader("X-Forwarded-For")).thenReturn(" 192.168.0.1 , 192.168.0.2");
+    assertArrayEquals(new long[] {0, 0xFFFF_C0A8_0001L}, ipClientKey.applyClientKey(request, KEY));
+  }
+
+  @Test
+  void testApplyClientKey_XRealIPv6() {
+    Mockito.when(request.getHeader("X-Forwarded-For")).thenReturn("");
+    Mockito.when(request.getHeader("X-Real-IP")).thenReturn("2001:db8::1");
+    assertArrayEquals(new long[] {0x2001_0DB8_0000_0000L, 1},
+        ipClientKey.applyClientKey(request, KEY));
+  }
+
+  @Test
+  void testApplyClientKey_RemoteAddr() {
+    Mockito.when(request.getHeader("X-Forwarded-For")).thenReturn(null);
+    Mockito.when(request.getHeader("X-Real-IP")).thenReturn(null);
+    Mockito.when(request.getRemoteAddr()).thenReturn("0:0:0:0:0:0:0:1");
+    assertArrayEquals(new long[] {0, 1}, ipClientKey.applyClientKey(request, KEY));
+  }
+
+  @Test
+  void testApplyClientKey_NotAnAddress_ReturnsNull() {
+    Mockito.when(request.getHeader("X-Forwarded-For")).thenReturn("unknown, 192.168.0.2");
+    assertNull(ipClientKey.applyClientKey(request, KEY));
+  }
+
+  @Test
+  void testGetClientIP_Reactive_XForwardedFor() {
+    MockServerHttpRequest reactiveRequest = MockServerHttpRequest.get("/")
+        .header("X-Forwarded-For", "192.168.0.1, 192.168.0.2").build();
+    assertEquals("192.168.0.1", ipClientKey.getClientKey(reactiveRequest));
+    assertArrayEquals(new long[] {0, 0xFFFF_C0A8_0001L},
+        ipClientKey.applyClientKey(reactiveRequest, KEY));
+  }
+
+  @Test
+  void testGetClientIP_Reactive_RemoteAddress() {
+    MockServerHttpRequest ipv4 = MockServerHttpRequest.get("/")
+        .remoteAddress(new InetSocketAddress("192.168.0.4", 8080)).build();
+    assertEquals("192.168.0.4", ipClientKey.getClientKey(ipv4));
+    assertArrayEquals(new long[] {0, 0xFFFF_C0A8_0004L}, ipClientKey.applyClientKey(ipv4, KEY));
+
+    MockServerHttpRequest ipv6 = MockServerHttpRequest.get("/")
+        .remoteAddress(new InetSocketAddress("2001:db8::1", 8080)).build();
+    assertArrayEquals(new long[] {0x2001_0DB8_0000_0000L, 1},
+        ipClientKey.applyClientKey(ipv6, KEY));
+  }
+}
@@ -0,0 +1,53 @@
+package com.zemnitskiy.httpratelimiter.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.zemnitskiy.httpratelimiter.clientkey.IpClientKey;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.policy.RateLimitPolicy;
+import com.zemnitskiy.httpratelimiter.policy.RateLimiterPolicies;
+import com.zemnitskiy.httpratelimiter.ratelimiter.fixedwindow.FixedWindowRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.leakybucket.LeakyBucketRateLimiter;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.servlet.filter.OrderedCharacterEncodingFilter;
+import org.springframework.boot.web.servlet.filter.OrderedFormContentFilter;
+import org.springframework.boot.web.servlet.filter.OrderedRequestContextFilter;
+import org.springframework.core.Ordered;
+
+class FilterConfigTest {
+
+  private static final Duration BASE_PERIOD = Duration.ofSeconds(10);
+
+  private final FilterConfig config = new FilterConfig();
+
+  private int order(RateLimiterPolicies policies) {
+    return config.rateLimiterFilter(policies, new IpClientKey(), RateLimiterMetrics.disabled())
+        .getOrder();
+  }
+
+  @Test
+  void testRateLimiterFilter_WithoutQueueing_RunsFirst() {
+    assertEquals(Ordered.HIGHEST_PRECEDENCE,
+        order(RateLimiterPolicies.of(new FixedWindowRateLimiter(10, BASE_PERIOD))));
+  }
+
+  @Test
+  void testRateLimiterFilter_Queueing_RunsAfterSpringRequestFilters() {
+    RateLimiterPolicies queueingPolicy = new RateLimiterPolicies(
+        new FixedWindowRateLimiter(10, BASE_PERIOD),
+        List.of(new RateLimitPolicy("queued", "/api/**", List.of(), null, 10, BASE_PERIOD)),
+        (maxRequests, basePeriod) -> new LeakyBucketRateLimiter(maxRequests, basePeriod, 5),
+        RateLimiterPolicies.DEFAULT_TIER_HEADER);
+
+    int order = order(queueingPolicy);
+
+    assertTrue(order > new OrderedCharacterEncodingFilter().getOrder());
+    assertTrue(order > OrderedFormContentFilter.DEFAULT_ORDER);
+    assertTrue(order > new OrderedRequestContextFilter().getOrder());
+    // Observation filter
+    assertTrue(order > Ordered.HIGHEST_PRECEDENCE + 1);
+  }
+}
@@ -0,0 +1,47 @@
+package com.zemnitskiy.httpratelimiter.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.policy.RateLimitPolicy;
+import com.zemnitskiy.httpratelimiter.policy.RateLimiterPolicies;
+import com.zemnitskiy.httpratelimiter.ratelimiter.fixedwindow.FixedWindowRateLimiter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MetricsConfigTest {
+
+  private static final Duration BASE_PERIOD = Duration.ofSeconds(10);
+
+  @Test
+  void testRateLimiterMeterBinder_BindsEveryPolicyWithItsOwnTag() {
+    RateLimiterPolicies policies = new RateLimiterPolicies(
+        new FixedWindowRateLimiter(10, BASE_PERIOD),
+        List.of(new RateLimitPolicy("login", "/api/login", List.of(), null, 1, BASE_PERIOD),
+            new RateLimitPolicy("api", "/api/**", List.of(), null, 100, BASE_PERIOD)),
+        FixedWindowRateLimiter::new, RateLimiterPolicies.DEFAULT_TIER_HEADER);
+    policies.resolve("GET", "/api/login", null).tryAcquire("10.0.0.1");
+    policies.resolve("GET", "/api/items", null).tryAcquire("10.0.0.1");
+    policies.resolve("GET", "/api/items", null).tryAcquire("10.0.0.2");
+    MeterRegistry registry = new SimpleMeterRegistry();
+
+    new MetricsConfig().rateLimiterMeterBinder(policies).bindTo(registry);
+
+    assertEquals(0, keys(registry, MetricsConfig.DEFAULT_POLICY));
+    assertEquals(1, keys(registry, "login"));
+    assertEquals(2, keys(registry, "api"));
+  }
+
+  private static double keys(MeterRegistry registry, String policy) {
+    Gauge keys = registry.find(RateLimiterMetrics.KEYS)
+        .tags("strategy", "FixedWindowRateLimiter", MetricsConfig.POLICY_TAG, policy)
+        .gauge();
+    assertNotNull(keys, policy);
+    return keys.value();
+  }
+}
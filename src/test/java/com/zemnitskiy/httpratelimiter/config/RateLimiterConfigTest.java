@@ -0,0 +1,35 @@
+package com.zemnitskiy.httpratelimiter.config;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimiterConfigTest {
+
+  @Mock
+  private ReactiveStringRedisTemplate reactiveRedisTemplate;
+
+  private final RateLimiterConfig config = new RateLimiterConfig();
+
+  @Test
+  void testAsyncSlidingWindowRedisRateLimiter_SingleNode_Starts() {
+    setField(config, "redisNodes", "");
+
+    assertNotNull(config.asyncSlidingWindowRedisRateLimiter(reactiveRedisTemplate));
+  }
+
+  @Test
+  void testAsyncSlidingWindowRedisRateLimiter_ShardedNodes_FailsAtStartup() {
+    setField(config, "redisNodes", "redis-1:6379,redis-2:6379");
+
+    assertThrows(IllegalArgumentException.class,
+        () -> config.asyncSlidingWindowRedisRateLimiter(reactiveRedisTemplate));
+  }
+}
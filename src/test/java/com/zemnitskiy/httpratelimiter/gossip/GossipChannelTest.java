@@ -0,0 +1,207 @@
+package com.zemnitskiy.httpratelimiter.gossip;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.testing.FakeTicker;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterFactory;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GossipChannelTest {
+
+  private final Duration basePeriod = Duration.ofSeconds(10);
+  private final int maxRequests = 10;
+  private final long maxKeys = 10_000;
+
+  private final FakeTicker ticker = new FakeTicker();
+
+  private final List<GossipChannel> channels = new ArrayList<>();
+
+  private final List<InetSocketAddress> addresses = new ArrayList<>();
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    ticker.advance(basePeriod.multipliedBy(100));
+    // Reserve three ports, then give every instance the full list, itself included
+    List<DatagramChannel> reserved = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      DatagramChannel channel = DatagramChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+      reserved.add(channel);
+      addresses.add((InetSocketAddress) channel.getLocalAddress());
+    }
+    for (DatagramChannel channel : reserved) {
+      channel.close();
+    }
+    for (InetSocketAddress address : addresses) {
+      channels.add(new GossipChannel(address, addresses, Duration.ZERO));
+    }
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    for (GossipChannel channel : channels) {
+      channel.close();
+    }
+  }
+
+  private GossipRateLimiter rateLimiter(int instance) {
+    return (GossipRateLimiter) channels.get(instance).rateLimiterFactory(ticker::read, maxKeys)
+        .create(maxRequests, basePeriod);
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline) {
+        throw new AssertionError("Condition not met within 5 seconds");
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  void testFlush_PeersCountRequestsOfEachOther() throws InterruptedException {
+    GossipRateLimiter first = rateLimiter(0);
+    GossipRateLimiter second = rateLimiter(1);
+    GossipRateLimiter third = rateLimiter(2);
+    for (int i = 0; i < 3; i++) {
+      first.tryAcquire("client1");
+    }
+    second.tryAcquire("client1");
+    channels.get(0).flush();
+    channels.get(1).flush();
+
+    await(() -> third.currentCount("client1") == 4);
+    await(() -> first.currentCount("client1") == 4);
+    await(() -> second.currentCount("client1") == 4);
+    assertEquals(maxRequests - 5, third.tryAcquire("client1").remaining());
+  }
+
+  @Test
+  void testFlush_GlobalLimitIsEnforcedAcrossInstances() throws InterruptedException {
+    GossipRateLimiter first = rateLimiter(0);
+    GossipRateLimiter second = rateLimiter(1);
+    for (int i = 0; i < maxRequests; i++) {
+      assertTrue(first.tryAcquire("client1").allowed());
+    }
+    channels.get(0).flush();
+
+    await(() -> second.currentCount("client1") == maxRequests);
+    assertFalse(second.tryAcquire("client1").allowed());
+  }
+
+  @Test
+  void testFlush_OwnDatagrams_AreIgnored() throws InterruptedException {
+    GossipRateLimiter first = rateLimiter(0);
+    GossipRateLimiter second = rateLimiter(1);
+    for (int i = 0; i < 4; i++) {
+      first.tryAcquire("client1");
+    }
+    channels.get(0).flush();
+
+    // Give the datagram it sent to itself time to arrive as well
+    await(() -> second.currentCount("client1") == 4);
+    Thread.sleep(50);
+    assertEquals(4, first.currentCount("client1"));
+  }
+
+  @Test
+  void testFlush_DifferentLimits_AreNotMixed() throws InterruptedException {
+    GossipRateLimiter first = rateLimiter(0);
+    GossipRateLimiter second = rateLimiter(1);
+    RateLimiterStrategy other = channels.get(1).rateLimiterFactory(ticker::read, maxKeys)
+        .create(maxRequests + 1, basePeriod);
+    for (int i = 0; i < maxRequests; i++) {
+      first.tryAcquire("client1");
+    }
+    channels.get(0).flush();
+
+    await(() -> second.currentCount("client1") == maxRequests);
+    assertEquals(maxRequests, other.tryAcquire("client1").remaining());
+  }
+
+  @Test
+  void testFlush_ManyKeys_SpreadOverSeveralDatagrams() throws InterruptedException {
+    GossipRateLimiter first = rateLimiter(0);
+    GossipRateLimiter second = rateLimiter(1);
+    int keys = 500;
+    for (int i = 0; i < keys; i++) {
+      for (int j = 0; j < maxRequests; j++) {
+        first.tryAcquire("client-" + i);
+      }
+    }
+    channels.get(0).flush();
+
+    for (int i = 0; i < keys; i++) {
+      String key = "client-" + i;
+      await(() -> second.currentCount(key) == maxRequests);
+    }
+  }
+
+  @Test
+  void testReceive_MalformedDatagram_IsIgnored() throws IOException, InterruptedException {
+    GossipRateLimiter first = rateLimiter(0);
+    GossipRateLimiter second = rateLimiter(1);
+    try (DatagramChannel stranger = DatagramChannel.open()) {
+      stranger.send(ByteBuffer.wrap(new byte[] {1, 2, 3}), addresses.get(1));
+      ByteBuffer truncated = ByteBuffer.allocate(20).putInt(GossipChannel.MAGIC).putLong(42L)
+          .putInt(7).putShort((short) 100).flip();
+      stranger.send(truncated, addresses.get(1));
+    }
+    for (int i = 0; i < maxRequests; i++) {
+      first.tryAcquire("client1");
+    }
+    channels.get(0).flush();
+
+    await(() -> second.currentCount("client1") == maxRequests);
+  }
+
+  @Test
+  void testReceive_DatagramFromUnknownSender_IsDropped() throws IOException, InterruptedException {
+    GossipRateLimiter first = rateLimiter(0);
+    GossipRateLimiter second = rateLimiter(1);
+    byte[] key = "client1".getBytes(StandardCharsets.UTF_8);
+    long window = ticker.read() / basePeriod.toNanos();
+    ByteBuffer forged = ByteBuffer.allocate(GossipChannel.MAX_DATAGRAM_BYTES)
+        .putInt(GossipChannel.MAGIC).putLong(42L)
+        .putInt((maxRequests + "/" + basePeriod + "#1").hashCode())
+        .putShort((short) key.length).put(key).putLong(window).putInt(maxRequests)
+        .flip();
+    try (DatagramChannel stranger = DatagramChannel.open()
+        .bind(new InetSocketAddress("127.0.0.1", 0))) {
+      stranger.send(forged, addresses.get(1));
+    }
+    first.tryAcquire("client1");
+    channels.get(0).flush();
+
+    await(() -> second.currentCount("client1") >= 1);
+    Thread.sleep(50);
+    assertEquals(1, second.currentCount("client1"));
+  }
+
+  @Test
+  void testRateLimiterFactory_CreatesRateLimitersOfEveryPolicy() {
+    RateLimiterFactory factory = channels.get(0).rateLimiterFactory(ticker::read, maxKeys);
+
+    RateLimiterStrategy rateLimiter = factory.create(2, basePeriod);
+    RateLimiterStrategy sameLimits = factory.create(2, basePeriod);
+    rateLimiter.tryAcquire("client1");
+    rateLimiter.tryAcquire("client1");
+
+    assertFalse(rateLimiter.tryAcquire("client1").allowed());
+    assertTrue(sameLimits.tryAcquire("client1").allowed());
+  }
+}
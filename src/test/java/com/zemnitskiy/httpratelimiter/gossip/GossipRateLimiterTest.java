@@ -0,0 +1,158 @@
+package com.zemnitskiy.httpratelimiter.gossip;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.testing.FakeTicker;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GossipRateLimiterTest {
+
+  private GossipRateLimiter rateLimiter;
+  private FakeTicker ticker;
+
+  private final Duration basePeriod = Duration.ofSeconds(10);
+  private final int maxRequests = 10;
+  private final long maxKeys = 1000;
+
+  private record Delta(String key, long window, int count) {
+  }
+
+  @BeforeEach
+  public void setUp() {
+    ticker = new FakeTicker();
+    // Start at the beginning of window 100
+    ticker.advance(basePeriod.multipliedBy(100));
+    rateLimiter = new GossipRateLimiter(maxRequests, basePeriod, ticker::read, maxKeys);
+  }
+
+  private List<Delta> drain() {
+    List<Delta> deltas = new ArrayList<>();
+    rateLimiter.drainDeltas((key, window, count) -> deltas.add(new Delta(key, window, count)));
+    return deltas;
+  }
+
+  @Test
+  void testAllowRequest_ExceedingLocalLimit_ShouldThrowException() {
+    for (int i = 0; i < maxRequests; i++) {
+      assertDoesNotThrow(() -> rateLimiter.allowRequest("client1"));
+    }
+    RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+        () -> rateLimiter.allowRequest("client1"));
+    assertEquals("Too many requests. You have only 10 requests for 10 seconds.",
+        exception.getMessage());
+    assertEquals(11, exception.getRetryAfter());
+  }
+
+  @Test
+  void testApplyDelta_PeerRequestsCountAgainstLimit() {
+    rateLimiter.applyDelta("client1", 100, maxRequests - 2);
+
+    assertEquals(1, rateLimiter.tryAcquire("client1").remaining());
+    assertEquals(0, rateLimiter.tryAcquire("client1").remaining());
+    assertFalse(rateLimiter.tryAcquire("client1").allowed());
+    assertEquals(maxRequests - 1, rateLimiter.tryAcquire("client2").remaining());
+  }
+
+  @Test
+  void testApplyDelta_PreviousWindowIsWeighted() {
+    ticker.advance(Duration.ofSeconds(5));
+    rateLimiter.applyDelta("client1", 99, maxRequests);
+
+    // Half of the previous window still counts
+    assertEquals(4, rateLimiter.tryAcquire("client1").remaining());
+  }
+
+  @Test
+  void testApplyDelta_ExpiredWindow_IsDropped() {
+    rateLimiter.applyDelta("client1", 98, maxRequests);
+
+    assertEquals(maxRequests - 1, rateLimiter.tryAcquire("client1").remaining());
+  }
+
+  @Test
+  void testApplyDelta_FutureWindow_CountsAsCurrent() {
+    rateLimiter.applyDelta("client1", 101, maxRequests);
+
+    assertFalse(rateLimiter.tryAcquire("client1").allowed());
+  }
+
+  @Test
+  void testDrainDeltas_OneDeltaPerKeyAndWindow() {
+    rateLimiter.tryAcquire("client1");
+    rateLimiter.tryAcquire("client1");
+    rateLimiter.tryAcquire("client2");
+
+    assertEquals(List.of(new Delta("client1", 100, 2), new Delta("client2", 100, 1)), drain());
+    assertTrue(drain().isEmpty());
+  }
+
+  @Test
+  void testDrainDeltas_AcrossWindowBoundary_SplitsByWindow() {
+    rateLimiter.tryAcquire("client1");
+    ticker.advance(basePeriod);
+    rateLimiter.tryAcquire("client1");
+
+    assertEquals(List.of(new Delta("client1", 100, 1), new Delta("client1", 101, 1)), drain());
+  }
+
+  @Test
+  void testDrainDeltas_DoesNotSendPeerRequestsBack() {
+    rateLimiter.applyDelta("client1", 100, 3);
+    rateLimiter.tryAcquire("client1");
+
+    assertEquals(List.of(new Delta("client1", 100, 1)), drain());
+  }
+
+  @Test
+  void testDrainDeltas_DeniedRequests_AreNotSent() {
+    rateLimiter.applyDelta("client1", 100, maxRequests);
+    rateLimiter.tryAcquire("client1");
+
+    assertTrue(drain().isEmpty());
+  }
+
+  @Test
+  void testConstructor_InvalidArguments_ShouldThrowException() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new GossipRateLimiter(0, basePeriod, ticker::read, maxKeys));
+    assertThrows(IllegalArgumentException.class,
+        () -> new GossipRateLimiter(maxRequests, Duration.ZERO, ticker::read, maxKeys));
+    assertThrows(IllegalArgumentException.class,
+        () -> new GossipRateLimiter(maxRequests, basePeriod, ticker::read, 0));
+  }
+
+  @Test
+  void testApplyDelta_KeysReportedByPeers_AreBounded() throws InterruptedException {
+    long index = basePeriod.multipliedBy(100).toMillis() / basePeriod.toMillis();
+    for (int i = 0; i < maxKeys * 10; i++) {
+      rateLimiter.applyDelta("client-" + i, index, 1);
+    }
+
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    while (countedKeys() > maxKeys) {
+      if (System.nanoTime() > deadline) {
+        throw new AssertionError(countedKeys() + " keys are counted, more than " + maxKeys);
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  private long countedKeys() {
+    long keys = 0;
+    for (int i = 0; i < maxKeys * 10; i++) {
+      if (rateLimiter.currentCount("client-" + i) > 0) {
+        keys++;
+      }
+    }
+    return keys;
+  }
+}
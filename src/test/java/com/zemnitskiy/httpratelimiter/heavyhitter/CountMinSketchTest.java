@@ -0,0 +1,61 @@
+package com.zemnitskiy.httpratelimiter.heavyhitter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.zemnitskiy.httpratelimiter.storage.StripedLongStateStore;
+import org.junit.jupiter.api.Test;
+
+class CountMinSketchTest {
+
+  @Test
+  void testAdd_EstimateIsNeverBelowTrueCount() {
+    CountMinSketch sketch = new CountMinSketch(64, 42);
+    for (int key = 0; key < 1000; key++) {
+      for (int i = 0; i <= key % 5; i++) {
+        sketch.add(StripedLongStateStore.fingerprint("client" + key));
+      }
+    }
+    for (int key = 0; key < 1000; key++) {
+      assertTrue(sketch.estimate(StripedLongStateStore.fingerprint("client" + key)) > key % 5);
+    }
+  }
+
+  @Test
+  void testAdd_HeavyKeyDoesNotInflateOtherKeys() {
+    CountMinSketch sketch = new CountMinSketch(1 << 12, 42);
+    long heavy = StripedLongStateStore.fingerprint("heavy");
+    for (int i = 0; i < 10_000; i++) {
+      sketch.add(heavy);
+    }
+    assertEquals(10_000, sketch.estimate(heavy));
+
+    int inflated = 0;
+    for (int key = 0; key < 1000; key++) {
+      if (sketch.estimate(StripedLongStateStore.fingerprint("client" + key)) > 0) {
+        inflated++;
+      }
+    }
+    assertEquals(0, inflated, "A key only shares all of its counters with a heavy key by chance");
+  }
+
+  @Test
+  void testClear_ResetsEstimates() {
+    CountMinSketch sketch = new CountMinSketch(16, 42);
+    long key = StripedLongStateStore.fingerprint(0x2001_0DB8_0000_0000L, 1);
+    sketch.add(key);
+    sketch.add(key);
+    assertEquals(2, sketch.estimate(key));
+
+    sketch.clear();
+    assertEquals(0, sketch.estimate(key));
+  }
+
+  @Test
+  void testMemory_IsFixedByWidth() {
+    // 1000 is rounded up to 1024 counters per row
+    assertEquals(16 + 4 * CountMinSketch.DEPTH * 1024, new CountMinSketch(1000, 42).memoryBytes());
+    assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(0, 42));
+  }
+}
@@ -0,0 +1,171 @@
+package com.zemnitskiy.httpratelimiter.heavyhitter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.google.common.testing.FakeTicker;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.ratelimiter.fixedwindow.FixedWindowRateLimiter;
+import com.zemnitskiy.httpratelimiter.strategy.AsyncRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.CompletionAwareRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.QueueingRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.BinaryKeyRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterFactory;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HeavyHitterRateLimiterTest {
+
+  private static final int MAX_REQUESTS = 10;
+  private static final Duration BASE_PERIOD = Duration.ofSeconds(10);
+
+  private FakeTicker ticker;
+
+  private RateLimiterFactory fixedWindowFactory;
+
+  @BeforeEach
+  public void setUp() {
+    ticker = new FakeTicker();
+    fixedWindowFactory = (maxRequests, basePeriod) -> new FixedWindowRateLimiter(maxRequests,
+        basePeriod, ticker::read);
+  }
+
+  private RateLimiterStrategy wrap(RateLimiterFactory exactFactory) {
+    return HeavyHitterRateLimiter.wrap(exactFactory, 0.5, 1 << 16, ticker::read)
+        .create(MAX_REQUESTS, BASE_PERIOD);
+  }
+
+  @Test
+  void testColdKey_IsDecidedBySketchAlone() {
+    RateLimiterStrategy exact = mock(RateLimiterStrategy.class);
+    when(exact.tryAcquire(anyString())).thenReturn(RateLimitDecision.allow());
+    RateLimiterStrategy rateLimiter = wrap((_, _) -> exact);
+
+    for (int i = 0; i < MAX_REQUESTS / 2; i++) {
+      RateLimitDecision decision = rateLimiter.tryAcquire("client1");
+      assertTrue(decision.allowed());
+      assertEquals(MAX_REQUESTS - i - 1, decision.remaining());
+    }
+    verify(exact, never()).tryAcquire(anyString());
+
+    rateLimiter.tryAcquire("client1");
+    verify(exact, times(1)).tryAcquire("client1");
+  }
+
+  @Test
+  void testFloodOfDistinctKeys_CreatesNoExactState() {
+    RateLimiterStrategy exact = mock(RateLimiterStrategy.class);
+    RateLimiterStrategy rateLimiter = wrap((_, _) -> exact);
+
+    for (int i = 0; i < 20_000; i++) {
+      assertTrue(rateLimiter.tryAcquire("bot" + i).allowed());
+    }
+    verify(exact, never()).tryAcquire(anyString());
+  }
+
+  @Test
+  void testPromotedKey_GetsRestOfLimitFromExactRateLimiter() {
+    RateLimiterStrategy rateLimiter = wrap(fixedWindowFactory);
+    assertInstanceOf(FixedWindowRateLimiter.class,
+        ((HeavyHitterRateLimiter) rateLimiter).exactRateLimiter());
+
+    for (int i = 0; i < MAX_REQUESTS; i++) {
+      rateLimiter.allowRequest("client1");
+    }
+    RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+        () -> rateLimiter.allowRequest("client1"));
+    assertEquals("Too many requests. You have only 10 requests for 10 seconds.",
+        exception.getMessage());
+    assertTrue(rateLimiter.tryAcquire("client2").allowed());
+  }
+
+  @Test
+  void testBinaryKeys_ArePassedToBinaryExactRateLimiter() {
+    RateLimiterStrategy rateLimiter = wrap(fixedWindowFactory);
+    BinaryKeyRateLimiterStrategy binaryLimiter =
+        assertInstanceOf(BinaryKeyRateLimiterStrategy.class, rateLimiter);
+
+    for (int i = 0; i < MAX_REQUESTS; i++) {
+      assertTrue(binaryLimiter.tryAcquire(0x2001_0DB8_0000_0000L, 1).allowed());
+    }
+    assertFalse(binaryLimiter.tryAcquire(0x2001_0DB8_0000_0000L, 1).allowed());
+    assertTrue(binaryLimiter.tryAcquire(0x2001_0DB8_0000_0000L, 2).allowed());
+  }
+
+  @Test
+  void testIdleKey_BecomesColdAgain() {
+    RateLimiterStrategy exact = mock(RateLimiterStrategy.class);
+    when(exact.tryAcquire(anyString())).thenReturn(RateLimitDecision.allow());
+    RateLimiterStrategy rateLimiter = wrap((_, _) -> exact);
+    for (int i = 0; i < MAX_REQUESTS; i++) {
+      rateLimiter.tryAcquire("client1");
+    }
+    verify(exact, times(5)).tryAcquire("client1");
+
+    ticker.advance(BASE_PERIOD.multipliedBy(2));
+    for (int i = 0; i < MAX_REQUESTS / 2; i++) {
+      rateLimiter.tryAcquire("client1");
+    }
+    verify(exact, times(5)).tryAcquire("client1");
+  }
+
+  @Test
+  void testSmallLimit_IsNotWrapped() {
+    RateLimiterStrategy exact = mock(RateLimiterStrategy.class);
+    assertSame(exact, HeavyHitterRateLimiter.wrap((_, _) -> exact, 0.5, 1024, ticker::read)
+        .create(1, BASE_PERIOD));
+  }
+
+  @Test
+  void testInvalidSettings_ShouldBeRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> HeavyHitterRateLimiter.wrap(fixedWindowFactory, 1, 1024, ticker::read));
+    RateLimiterStrategy async = mock(AsyncRateLimiterStrategy.class);
+    assertThrows(IllegalArgumentException.class, () -> wrap((_, _) -> async));
+    RateLimiterStrategy completionAware = mock(CompletionAwareRateLimiterStrategy.class);
+    assertThrows(IllegalArgumentException.class, () -> wrap((_, _) -> completionAware));
+    RateLimiterStrategy queueing = mock(QueueingRateLimiterStrategy.class);
+    assertThrows(IllegalArgumentException.class, () -> wrap((_, _) -> queueing));
+  }
+
+  @Test
+  void testBindTo_ReportsFixedSketchMemory() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    ((HeavyHitterRateLimiter) wrap(fixedWindowFactory)).bindTo(registry);
+
+    assertEquals(2 * (16 + 4 * CountMinSketch.DEPTH * (1 << 16)), registry
+        .get(RateLimiterMetrics.STATE_MEMORY).tag("strategy", "BinaryHeavyHitterRateLimiter")
+        .gauge().value());
+    // The exact rate limiter registers its own meters
+    registry.get(RateLimiterMetrics.KEYS).tag("strategy", "FixedWindowRateLimiter").gauge();
+  }
+
+  @Test
+  void testClose_ReportsExactRateLimiterFailureUnchecked() throws Exception {
+    RateLimiterStrategy exact = mock(RateLimiterStrategy.class,
+        withSettings().extraInterfaces(AutoCloseable.class));
+    Exception closeFailure = new Exception("Redis is down");
+    doThrow(closeFailure).when((AutoCloseable) exact).close();
+    HeavyHitterRateLimiter rateLimiter = (HeavyHitterRateLimiter) wrap((_, _) -> exact);
+
+    assertSame(closeFailure, assertThrows(IllegalStateException.class, rateLimiter::close)
+        .getCause());
+  }
+}
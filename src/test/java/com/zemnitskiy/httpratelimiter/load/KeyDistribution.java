@@ -0,0 +1,108 @@
+package com.zemnitskiy.httpratelimiter.load;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code KeyDistribution} interface decides which client sends the next request of a load
+ * run. Clients are numbered from {@code 0} and turned into the IP address the request is sent
+ * from by {@link #address(long)}.
+ */
+@FunctionalInterface
+public interface KeyDistribution {
+
+  /**
+   * Picks the client of the next request.
+   *
+   * @param random the random source of the calling worker
+   * @return the number of the client
+   */
+  long nextClient(SplittableRandom random);
+
+  /**
+   * Every one of {@code clients} clients is equally likely.
+   *
+   * @param clients the number of clients
+   * @return the distribution
+   */
+  static KeyDistribution uniform(int clients) {
+    if (clients <= 0) {
+      throw new IllegalArgumentException("clients must be greater than 0");
+    }
+    return random -> random.nextInt(clients);
+  }
+
+  /**
+   * Client {@code k} is picked with a probability proportional to {@code 1 / (k + 1)^exponent},
+   * so a few clients send most of the requests, like the clients of a public API.
+   *
+   * @param clients the number of clients
+   * @param exponent the skew, {@code 0} for a uniform distribution
+   * @return the distribution
+   */
+  static KeyDistribution zipf(int clients, double exponent) {
+    if (clients <= 0) {
+      throw new IllegalArgumentException("clients must be greater than 0");
+    }
+    if (exponent < 0) {
+      throw new IllegalArgumentException("exponent must not be negative");
+    }
+    double[] cumulative = new double[clients];
+    double sum = 0;
+    for (int k = 0; k < clients; k++) {
+      sum += 1 / Math.pow(k + 1, exponent);
+      cumulative[k] = sum;
+    }
+    double total = sum;
+    return random -> {
+      int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+      return Math.min(index < 0 ? -index - 1 : index, clients - 1);
+    };
+  }
+
+  /**
+   * Every request comes from a client that has not been seen before, like a flood from spoofed
+   * or rotating addresses.
+   *
+   * @return the distribution
+   */
+  static KeyDistribution flood() {
+    AtomicLong next = new AtomicLong();
+    return _ -> next.getAndIncrement();
+  }
+
+  /**
+   * Parses the name of a distribution.
+   *
+   * @param name {@code uniform}, {@code zipf} or {@code flood}
+   * @param clients the number of clients of the uniform and Zipf distributions
+   * @param exponent the skew of the Zipf distribution
+   * @return the distribution
+   */
+  static KeyDistribution of(String name, int clients, double exponent) {
+    return switch (name) {
+      case "uniform" -> uniform(clients);
+      case "zipf" -> zipf(clients, exponent);
+      case "flood" -> flood();
+      default -> throw new IllegalArgumentException("Unknown key distribution: " + name);
+    };
+  }
+
+  /**
+   * Returns the address of a client: an address of {@code 10.0.0.0/8} for the first 2^24
+   * clients, an address of {@code fd00::/64} for the others.
+   *
+   * @param client the number of the client
+   * @return the address, as sent in {@code X-Forwarded-For}
+   */
+  static String address(long client) {
+    if (client < 1 << 24) {
+      return "10." + (client >>> 16 & 0xFF) + '.' + (client >>> 8 & 0xFF) + '.' + (client & 0xFF);
+    }
+    return "fd00::" + Long.toHexString(client >>> 48) + ':'
+        + Long.toHexString(client >>> 32 & 0xFFFF) + ':'
+        + Long.toHexString(client >>> 16 & 0xFFFF) + ':'
+        + Long.toHexString(client & 0xFFFF);
+  }
+}
@@ -0,0 +1,75 @@
+package com.zemnitskiy.httpratelimiter.load;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class KeyDistributionTest {
+
+  private final SplittableRandom random = new SplittableRandom(1);
+
+  private int[] sample(KeyDistribution distribution, int clients, int requests) {
+    int[] counts = new int[clients];
+    for (int i = 0; i < requests; i++) {
+      long client = distribution.nextClient(random);
+      assertTrue(client >= 0 && client < clients);
+      counts[(int) client]++;
+    }
+    return counts;
+  }
+
+  @Test
+  void testUniform_SpreadsEvenly() {
+    int[] counts = sample(KeyDistribution.uniform(10), 10, 100_000);
+
+    for (int count : counts) {
+      assertTrue(count > 9_000 && count < 11_000, "count was " + count);
+    }
+  }
+
+  @Test
+  void testZipf_FewClientsSendMostRequests() {
+    int[] counts = sample(KeyDistribution.zipf(1000, 1.1), 1000, 100_000);
+
+    // With an exponent of 1.1, the first client sends about 1/H(1000, 1.1) = 18% of requests
+    assertTrue(counts[0] > 16_000 && counts[0] < 20_000, "count was " + counts[0]);
+    assertTrue(counts[0] > counts[1] && counts[1] > counts[9] && counts[9] > counts[99]);
+  }
+
+  @Test
+  void testZipf_ZeroExponent_IsUniform() {
+    int[] counts = sample(KeyDistribution.zipf(10, 0), 10, 100_000);
+
+    for (int count : counts) {
+      assertTrue(count > 9_000 && count < 11_000, "count was " + count);
+    }
+  }
+
+  @Test
+  void testFlood_NeverRepeatsClient() {
+    KeyDistribution flood = KeyDistribution.flood();
+    Set<Long> seen = new HashSet<>();
+
+    for (int i = 0; i < 10_000; i++) {
+      assertTrue(seen.add(flood.nextClient(random)));
+    }
+  }
+
+  @Test
+  void testAddress_FormatsIpv4ThenIpv6() {
+    assertEquals("10.0.0.0", KeyDistribution.address(0));
+    assertEquals("10.1.2.3", KeyDistribution.address(0x010203));
+    assertEquals("10.255.255.255", KeyDistribution.address((1 << 24) - 1));
+    assertEquals("fd00::0:0:100:0", KeyDistribution.address(1 << 24));
+  }
+
+  @Test
+  void testOf_UnknownName_ShouldThrowException() {
+    assertThrows(IllegalArgumentException.class, () -> KeyDistribution.of("normal", 10, 1));
+  }
+}
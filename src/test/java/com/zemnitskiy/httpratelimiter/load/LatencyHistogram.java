@@ -0,0 +1,122 @@
+package com.zemnitskiy.httpratelimiter.load;
+
+import java.util.Arrays;
+
+/**
+ * The {@code LatencyHistogram} class counts latencies in microseconds in buckets of bounded
+ * relative width, so that high percentiles can be read from a long run in constant memory.
+ *
+ * <p>Latencies below {@value #EXACT} microseconds have a bucket each. Above that, every power of
+ * two is split into {@value #SUB_BUCKETS} buckets, so a reported percentile is at most 0.2% below
+ * the latency it stands for. The histogram is not thread-safe: every worker records into its own
+ * and the histograms are {@link #add(LatencyHistogram) added} at the end.
+ */
+public final class LatencyHistogram {
+
+  static final int EXACT = 1024;
+
+  static final int SUB_BUCKETS = 512;
+
+  private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+  private long[] counts = new long[EXACT + 8 * SUB_BUCKETS];
+
+  private long count;
+
+  private long max;
+
+  /**
+   * Counts one latency.
+   *
+   * @param micros the latency in microseconds
+   */
+  public void record(long micros) {
+    long value = Math.max(0, micros);
+    int bucket = bucket(value);
+    if (bucket >= counts.length) {
+      counts = Arrays.copyOf(counts, bucket + SUB_BUCKETS);
+    }
+    counts[bucket]++;
+    count++;
+    max = Math.max(max, value);
+  }
+
+  /**
+   * Adds the latencies of {@code other} to this histogram.
+   *
+   * @param other the histogram to add
+   */
+  public void add(LatencyHistogram other) {
+    if (other.counts.length > counts.length) {
+      counts = Arrays.copyOf(counts, other.counts.length);
+    }
+    for (int i = 0; i < other.counts.length; i++) {
+      counts[i] += other.counts[i];
+    }
+    count += other.count;
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * Returns the number of latencies counted.
+   *
+   * @return the count
+   */
+  public long count() {
+    return count;
+  }
+
+  /**
+   * Returns the highest latency counted.
+   *
+   * @return the latency in microseconds, or {@code 0} if none was counted
+   */
+  public long max() {
+    return max;
+  }
+
+  /**
+   * Returns the latency that {@code quantile} of the counted latencies do not exceed.
+   *
+   * @param quantile the quantile, for example {@code 0.999}
+   * @return the lower bound of the bucket of that latency in microseconds, or {@code 0} if none
+   * was counted
+   */
+  public long percentile(double quantile) {
+    if (quantile < 0 || quantile > 1) {
+      throw new IllegalArgumentException("quantile must be between 0 and 1");
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * count));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(lowerBound(i), max);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Finds the bucket of a latency: the latency itself below {@link #EXACT}, otherwise its
+   * power of two and the top bits below the leading one.
+   */
+  static int bucket(long micros) {
+    if (micros < EXACT) {
+      return (int) micros;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+    return EXACT + (shift - 1) * SUB_BUCKETS + (int) (micros >>> shift) - SUB_BUCKETS;
+  }
+
+  /**
+   * Returns the lowest latency of a bucket.
+   */
+  static long lowerBound(int bucket) {
+    if (bucket < EXACT) {
+      return bucket;
+    }
+    int shift = (bucket - EXACT) / SUB_BUCKETS + 1;
+    return (long) ((bucket - EXACT) % SUB_BUCKETS + SUB_BUCKETS) << shift;
+  }
+}
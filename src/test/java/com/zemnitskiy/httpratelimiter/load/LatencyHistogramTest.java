@@ -0,0 +1,86 @@
+package com.zemnitskiy.httpratelimiter.load;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void testPercentile_SmallLatencies_AreExact() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int micros = 1; micros <= 1000; micros++) {
+      histogram.record(micros);
+    }
+
+    assertEquals(1000, histogram.count());
+    assertEquals(500, histogram.percentile(0.5));
+    assertEquals(990, histogram.percentile(0.99));
+    assertEquals(999, histogram.percentile(0.999));
+    assertEquals(1000, histogram.percentile(1));
+    assertEquals(1000, histogram.max());
+  }
+
+  @Test
+  void testPercentile_LargeLatencies_WithinRelativeError() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 10_000L);
+    }
+
+    long p99 = histogram.percentile(0.99);
+    assertTrue(p99 <= 9_900_000 && p99 >= 9_900_000 * 0.998, "p99 was " + p99);
+    assertEquals(10_000_000, histogram.max());
+  }
+
+  @Test
+  void testPercentile_OneSlowRequest_OnlyInTopPercentile() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 999; i++) {
+      histogram.record(100);
+    }
+    histogram.record(1 << 22);
+
+    assertEquals(100, histogram.percentile(0.99));
+    assertEquals(100, histogram.percentile(0.999));
+    assertEquals(1 << 22, histogram.percentile(0.9999));
+  }
+
+  @Test
+  void testBucket_LowerBoundIsInBucket() {
+    for (long micros = 0; micros < 1L << 40; micros = micros * 3 / 2 + 1) {
+      int bucket = LatencyHistogram.bucket(micros);
+      long lowerBound = LatencyHistogram.lowerBound(bucket);
+      assertEquals(bucket, LatencyHistogram.bucket(lowerBound));
+      assertTrue(lowerBound <= micros && micros - lowerBound <= micros / 512, "" + micros);
+      if (bucket > 0) {
+        assertTrue(LatencyHistogram.lowerBound(bucket - 1) < lowerBound);
+      }
+    }
+  }
+
+  @Test
+  void testAdd_MergesCountsAndMax() {
+    LatencyHistogram first = new LatencyHistogram();
+    LatencyHistogram second = new LatencyHistogram();
+    first.record(10);
+    second.record(20);
+    second.record(100_000_000);
+
+    first.add(second);
+
+    assertEquals(3, first.count());
+    assertEquals(20, first.percentile(0.5));
+    assertEquals(100_000_000, first.max());
+  }
+
+  @Test
+  void testPercentile_Empty_IsZero() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    assertEquals(0, histogram.percentile(0.99));
+    assertThrows(IllegalArgumentException.class, () -> histogram.percentile(1.5));
+  }
+}
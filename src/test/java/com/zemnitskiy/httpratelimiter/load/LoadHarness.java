@@ -0,0 +1,172 @@
+package com.zemnitskiy.httpratelimiter.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code LoadHarness} class sends requests to a running application from a number of
+ * concurrent workers and records the latency of every allowed and every rejected request.
+ *
+ * <p>Without a target rate, every worker sends its next request as soon as the previous one has
+ * returned. With a target rate, the workers send on a fixed schedule that adds up to the rate,
+ * and a latency is measured from the time the request was due rather than the time it was sent.
+ * A stall then shows up in the latencies of all the requests it delayed, instead of hiding them.
+ *
+ * <p>Requests sent during the warm-up are not recorded.
+ */
+public final class LoadHarness {
+
+  private final URI uri;
+
+  private final int concurrency;
+
+  private final double rate;
+
+  private final HttpClient client;
+
+  /**
+   * Creates a harness.
+   *
+   * @param uri the endpoint to send {@code GET} requests to
+   * @param concurrency the number of concurrent workers
+   * @param rate the target rate in requests per second over all workers, or {@code 0} to send
+   * as fast as the application answers
+   */
+  public LoadHarness(URI uri, int concurrency, double rate) {
+    if (concurrency <= 0) {
+      throw new IllegalArgumentException("concurrency must be greater than 0");
+    }
+    if (rate < 0) {
+      throw new IllegalArgumentException("rate must not be negative");
+    }
+    this.uri = uri;
+    this.concurrency = concurrency;
+    this.rate = rate;
+    this.client = HttpClient.newBuilder()
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+  }
+
+  /**
+   * Runs the load.
+   *
+   * @param distribution picks the client of every request
+   * @param warmup how long to send requests before recording
+   * @param duration how long to record
+   * @return the recorded latencies
+   * @throws InterruptedException if interrupted while waiting for the workers
+   */
+  public Result run(KeyDistribution distribution, Duration warmup, Duration duration)
+      throws InterruptedException {
+    long start = System.nanoTime();
+    long measureStart = start + warmup.toNanos();
+    long end = measureStart + duration.toNanos();
+    long interval = rate == 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(concurrency) / rate);
+    SplittableRandom seed = new SplittableRandom(42);
+    List<Future<Result>> workers = new ArrayList<>(concurrency);
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < concurrency; i++) {
+        SplittableRandom random = seed.split();
+        long firstDue = start + interval * i / concurrency;
+        workers.add(executor.submit(
+            () -> work(distribution, random, firstDue, interval, measureStart, end)));
+      }
+    }
+    Result total = new Result(new LatencyHistogram(), new LatencyHistogram(), 0, duration);
+    for (Future<Result> worker : workers) {
+      try {
+        total = total.add(worker.get());
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Load worker failed", e.getCause());
+      }
+    }
+    return total;
+  }
+
+  private Result work(KeyDistribution distribution, SplittableRandom random, long firstDue,
+      long interval, long measureStart, long end) throws InterruptedException {
+    LatencyHistogram allowed = new LatencyHistogram();
+    LatencyHistogram rejected = new LatencyHistogram();
+    long errors = 0;
+    long due = firstDue;
+    while (true) {
+      long sent = System.nanoTime();
+      if (interval > 0) {
+        if (due - sent > 0) {
+          LockSupport.parkNanos(due - sent);
+          sent = System.nanoTime();
+        }
+      } else {
+        due = sent;
+      }
+      if (sent - end >= 0) {
+        break;
+      }
+      HttpRequest request = HttpRequest.newBuilder(uri)
+          .header("X-Forwarded-For", KeyDistribution.address(distribution.nextClient(random)))
+          .timeout(Duration.ofSeconds(10))
+          .GET()
+          .build();
+      int status;
+      try {
+        status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+      } catch (IOException e) {
+        status = -1;
+      }
+      long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due);
+      if (due - measureStart >= 0) {
+        if (status == 429) {
+          rejected.record(latency);
+        } else if (status >= 200 && status < 300) {
+          allowed.record(latency);
+        } else {
+          errors++;
+        }
+      }
+      due += interval;
+    }
+    return new Result(allowed, rejected, errors, Duration.ZERO);
+  }
+
+  /**
+   * The latencies of a load run.
+   *
+   * @param allowed the latencies of the requests that were let through
+   * @param rejected the latencies of the requests answered with 429
+   * @param errors the number of requests that failed or got another status
+   * @param duration how long the latencies were recorded
+   */
+  public record Result(LatencyHistogram allowed, LatencyHistogram rejected, long errors,
+                       Duration duration) {
+
+    private Result add(Result other) {
+      allowed.add(other.allowed());
+      rejected.add(other.rejected());
+      return new Result(allowed, rejected, errors + other.errors(), duration);
+    }
+
+    /**
+     * Returns how many requests of a kind were answered per second.
+     *
+     * @param histogram {@link #allowed()} or {@link #rejected()}
+     * @return the requests per second
+     */
+    public double throughput(LatencyHistogram histogram) {
+      return histogram.count() * 1e9 / duration.toNanos();
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package com.zemnitskiy.httpratelimiter.load;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.zemnitskiy.httpratelimiter.HttpRateLimiterApplication;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the application once per {@code rateLimiter.mode} and key distribution, sends it load
+ * with {@link LoadHarness} and appends the latencies and throughput of the allowed and rejected
+ * requests to a CSV report.
+ *
+ * <p>The load test only runs with the {@code runLoadTests} profile. It is configured with system
+ * properties:
+ * <ul>
+ *   <li>{@code load.modes}: the modes to compare, by default all modes that need no Redis</li>
+ *   <li>{@code load.distributions}: {@code uniform}, {@code zipf} and/or {@code flood}</li>
+ *   <li>{@code load.clients}, {@code load.zipfExponent}: the clients of the uniform and Zipf
+ *   distributions and the skew of the Zipf distribution</li>
+ *   <li>{@code load.concurrency}, {@code load.rate}: the concurrent workers and their target
+ *   rate in requests per second, {@code 0} for as fast as possible</li>
+ *   <li>{@code load.warmup}, {@code load.duration}: the time before recording and the time
+ *   recorded, as ISO-8601 durations</li>
+ *   <li>{@code load.path}, {@code load.report}: the endpoint and the report file</li>
+ * </ul>
+ * Other system properties, such as {@code rateLimiter.maxRequestsPerPeriod} or
+ * {@code spring.data.redis.port}, configure the application itself.
+ */
+class RateLimiterLoadTest {
+
+  private static final String DEFAULT_MODES = "fixedWindowRateLimiter,slidingWindowRateLimiter,"
+      + "slidingWindowCounterRateLimiter,tokenBucketRateLimiter,multiWindowRateLimiter,"
+      + "leakyBucketRateLimiter,adaptiveConcurrencyRateLimiter,gossipRateLimiter";
+
+  private static final String HEADER = "timestamp,mode,distribution,outcome,requests,"
+      + "throughputPerSecond,p50Micros,p99Micros,p999Micros,maxMicros,errors";
+
+  private final Logger log = LoggerFactory.getLogger(RateLimiterLoadTest.class);
+
+  private static List<String> list(String property, String defaultValue) {
+    List<String> values = new ArrayList<>();
+    for (String value : System.getProperty(property, defaultValue).split(",")) {
+      if (!value.isBlank()) {
+        values.add(value.trim());
+      }
+    }
+    return values;
+  }
+
+  @Test
+  void measureModes() throws IOException, InterruptedException {
+    List<String> modes = list("load.modes", DEFAULT_MODES);
+    List<String> distributions = list("load.distributions", "uniform,zipf,flood");
+    int clients = Integer.getInteger("load.clients", 10_000);
+    double zipfExponent = Double.parseDouble(System.getProperty("load.zipfExponent", "1.1"));
+    int concurrency = Integer.getInteger("load.concurrency", 32);
+    double rate = Double.parseDouble(System.getProperty("load.rate", "0"));
+    Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT5S"));
+    Duration duration = Duration.parse(System.getProperty("load.duration", "PT20S"));
+    String path = System.getProperty("load.path", "/test");
+    Path report = Path.of(System.getProperty("load.report", "target/load-report.csv"));
+
+    if (report.getParent() != null) {
+      Files.createDirectories(report.getParent());
+    }
+    if (!Files.exists(report)) {
+      Files.writeString(report, HEADER + System.lineSeparator());
+    }
+    String timestamp = Instant.now().toString();
+    for (String mode : modes) {
+      for (String distribution : distributions) {
+        // A fresh application per run, so that no run starts with the clients of another
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+            HttpRateLimiterApplication.class).run("--rateLimiter.mode=" + mode,
+            "--server.port=0", "--rateLimiter.gossip.port=0",
+            "--logging.level.com.zemnitskiy.httpratelimiter=INFO")) {
+          String port = context.getEnvironment().getProperty("local.server.port");
+          LoadHarness harness = new LoadHarness(URI.create("http://127.0.0.1:" + port + path),
+              concurrency, rate);
+          LoadHarness.Result result = harness.run(
+              KeyDistribution.of(distribution, clients, zipfExponent), warmup, duration);
+          assertTrue(result.allowed().count() + result.rejected().count() > 0,
+              "No request of " + mode + " was answered");
+          String rows = row(timestamp, mode, distribution, "allowed", result, result.allowed())
+              + row(timestamp, mode, distribution, "rejected", result, result.rejected());
+          Files.writeString(report, rows, StandardOpenOption.APPEND);
+          log.info("Load of {} with {} clients:{}{}", mode, distribution,
+              System.lineSeparator(), rows);
+        }
+      }
+    }
+  }
+
+  private static String row(String timestamp, String mode, String distribution, String outcome,
+      LoadHarness.Result result, LatencyHistogram histogram) {
+    return String.format(Locale.ROOT, "%s,%s,%s,%s,%d,%.1f,%d,%d,%d,%d,%d%n", timestamp, mode,
+        distribution, outcome, histogram.count(), result.throughput(histogram),
+        histogram.percentile(0.5), histogram.percentile(0.99), histogram.percentile(0.999),
+        histogram.max(), result.errors());
+  }
+}
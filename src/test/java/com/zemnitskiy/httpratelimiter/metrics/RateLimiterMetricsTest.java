@@ -0,0 +1,73 @@
+package com.zemnitskiy.httpratelimiter.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.testing.FakeTicker;
+import com.zemnitskiy.httpratelimiter.ratelimiter.fixedwindow.FixedWindowRateLimiter;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStoreFactory;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class RateLimiterMetricsTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  @Test
+  void testRecord_CountsOutcomesAndTimesDecisions() {
+    RateLimiterMetrics metrics = new RateLimiterMetrics(registry, new Object());
+
+    metrics.record(RateLimitDecision.allow(), System.nanoTime());
+    metrics.record(RateLimitDecision.allow(), System.nanoTime());
+    metrics.record(RateLimitDecision.deny(1, 1), System.nanoTime());
+
+    assertEquals(2, registry.get(RateLimiterMetrics.REQUESTS)
+        .tags("strategy", "Object", "outcome", "allowed").counter().count());
+    assertEquals(1, registry.get(RateLimiterMetrics.REQUESTS)
+        .tags("strategy", "Object", "outcome", "denied").counter().count());
+    assertEquals(3, registry.get(RateLimiterMetrics.DECISION).timer().count());
+  }
+
+  @Test
+  void testDisabled_RecordsNothing() {
+    RateLimiterMetrics.disabled().record(RateLimitDecision.allow(), System.nanoTime());
+    RateLimiterMetrics.disabledScriptTimer().record(Duration.ofMillis(1));
+
+    assertEquals(0, RateLimiterMetrics.disabledScriptTimer().count());
+  }
+
+  @Test
+  void testMonitorStateStore_ReportsKeysAndMemory() {
+    FakeTicker ticker = new FakeTicker();
+    FixedWindowRateLimiter rateLimiter = new FixedWindowRateLimiter(5, Duration.ofSeconds(10),
+        ticker::read, LongStateStoreFactory.STRIPED);
+    rateLimiter.bindTo(registry);
+
+    rateLimiter.tryAcquire("client1");
+    rateLimiter.tryAcquire("client2");
+
+    assertEquals(2, registry.get(RateLimiterMetrics.KEYS)
+        .tag("strategy", "FixedWindowRateLimiter").gauge().value());
+    assertTrue(registry.get(RateLimiterMetrics.STATE_MEMORY).gauge().value() > 0);
+  }
+
+  @Test
+  void testMonitorRetryCache_ReportsHitRatio() {
+    Cache<String, Long> retryCache = Caffeine.newBuilder().recordStats().build();
+    RateLimiterMetrics.monitorRetryCache(registry, new Object(), retryCache);
+
+    retryCache.put("client1", 1L);
+    retryCache.getIfPresent("client1");
+    retryCache.getIfPresent("client1");
+    retryCache.getIfPresent("client1");
+    retryCache.getIfPresent("client2");
+
+    assertEquals(0.75, registry.get(RateLimiterMetrics.RETRY_CACHE_HIT_RATIO).gauge().value());
+    assertEquals(3, registry.get("cache.gets")
+        .tags("cache", RateLimiterMetrics.RETRY_CACHE, "result", "hit").functionCounter().count());
+  }
+}
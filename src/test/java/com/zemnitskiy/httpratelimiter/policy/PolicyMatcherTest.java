@@ -0,0 +1,100 @@
+package com.zemnitskiy.httpratelimiter.policy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.zemnitskiy.httpratelimiter.policy.PolicyMatcher.Rule;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PolicyMatcherTest {
+
+  private static Rule<String> rule(String pattern, String value) {
+    return new Rule<>(pattern, List.of(), null, value);
+  }
+
+  @Test
+  void testLiteralPath_MatchesOnlyThatPath() {
+    PolicyMatcher<String> matcher = new PolicyMatcher<>(List.of(rule("/api/login", "login")));
+
+    assertEquals("login", matcher.match("GET", "/api/login", null));
+    assertEquals("login", matcher.match("GET", "/api/login/", null));
+    assertEquals("login", matcher.match("GET", "//api//login", null));
+    assertNull(matcher.match("GET", "/api/logins", null));
+    assertNull(matcher.match("GET", "/api", null));
+    assertNull(matcher.match("GET", "/api/login/x", null));
+  }
+
+  @Test
+  void testWildcards() {
+    PolicyMatcher<String> matcher = new PolicyMatcher<>(List.of(
+        rule("/users/*/orders", "orders"),
+        rule("/static/**", "static")));
+
+    assertEquals("orders", matcher.match("GET", "/users/42/orders", null));
+    assertNull(matcher.match("GET", "/users/orders", null));
+    assertEquals("static", matcher.match("GET", "/static", null));
+    assertEquals("static", matcher.match("GET", "/static/css/site.css", null));
+    assertNull(matcher.match("GET", "/", null));
+  }
+
+  @Test
+  void testMostSpecificPatternWins_WithFallback() {
+    PolicyMatcher<String> matcher = new PolicyMatcher<>(List.of(
+        rule("/api/**", "api"),
+        rule("/api/*/status", "status"),
+        rule("/api/users/me", "me")));
+
+    assertEquals("me", matcher.match("GET", "/api/users/me", null));
+    assertEquals("status", matcher.match("GET", "/api/users/status", null));
+    assertEquals("api", matcher.match("GET", "/api/users/other", null));
+    assertEquals("api", matcher.match("GET", "/api/users/me/more", null));
+  }
+
+  @Test
+  void testMethodsAndTiers_FirstDeclaredRuleWins() {
+    PolicyMatcher<String> matcher = new PolicyMatcher<>(List.of(
+        new Rule<>("/api/search", List.of("POST"), null, "post"),
+        new Rule<>("/api/search", List.of("get", "HEAD"), "pro", "pro"),
+        new Rule<>("/api/search", List.of(), null, "any")));
+
+    assertEquals("post", matcher.match("POST", "/api/search", "pro"));
+    assertEquals("pro", matcher.match("GET", "/api/search", "pro"));
+    assertEquals("pro", matcher.match("HEAD", "/api/search", "pro"));
+    assertEquals("any", matcher.match("GET", "/api/search", "free"));
+    assertEquals("any", matcher.match("GET", "/api/search", null));
+    assertEquals("any", matcher.match("PROPFIND", "/api/search", null));
+  }
+
+  @Test
+  void testMethodMismatch_FallsBackToLessSpecificPattern() {
+    PolicyMatcher<String> matcher = new PolicyMatcher<>(List.of(
+        new Rule<>("/api/login", List.of("POST"), null, "login"),
+        rule("/api/**", "api")));
+
+    assertEquals("login", matcher.match("POST", "/api/login", null));
+    assertEquals("api", matcher.match("GET", "/api/login", null));
+  }
+
+  @Test
+  void testManyLiteralSegments() {
+    List<Rule<String>> rules = new ArrayList<>();
+    for (int i = 0; i < 1_000; i++) {
+      rules.add(rule("/items/" + i, "item" + i));
+    }
+    PolicyMatcher<String> matcher = new PolicyMatcher<>(rules);
+
+    for (int i = 0; i < 1_000; i++) {
+      assertEquals("item" + i, matcher.match("GET", "/items/" + i, null));
+    }
+    assertNull(matcher.match("GET", "/items/1000", null));
+  }
+
+  @Test
+  void testDoubleWildcardNotLast_ShouldBeRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new PolicyMatcher<>(List.of(rule("/api/**/status", "x"))));
+  }
+}
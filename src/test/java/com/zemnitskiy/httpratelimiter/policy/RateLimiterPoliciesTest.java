@@ -0,0 +1,161 @@
+package com.zemnitskiy.httpratelimiter.policy;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.zemnitskiy.httpratelimiter.ratelimiter.fixedwindow.FixedWindowRateLimiter;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterFactory;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimiterPoliciesTest {
+
+  private static final Duration BASE_PERIOD = Duration.ofSeconds(10);
+
+  private static final RateLimiterFactory FIXED_WINDOW = FixedWindowRateLimiter::new;
+
+  private static final List<RateLimitPolicy> POLICIES = List.of(
+      new RateLimitPolicy("login", "/api/login", List.of("POST"), null, 1, BASE_PERIOD),
+      new RateLimitPolicy("pro", "/api/**", List.of(), "pro", 100, BASE_PERIOD));
+
+  @Mock
+  private RateLimiterStrategy redisLikeRateLimiter;
+
+  private interface CloseableRateLimiter extends RateLimiterStrategy, AutoCloseable {
+
+    @Override
+    void close();
+  }
+
+  private final RateLimiterPolicies policies = new RateLimiterPolicies(
+      new FixedWindowRateLimiter(3, BASE_PERIOD), POLICIES, FIXED_WINDOW, "X-Client-Tier");
+
+  @Test
+  void testResolve_SelectsPolicyOrDefault() {
+    assertEquals("login", policies.resolve("POST", "/api/login", null).name());
+    assertEquals("pro", policies.resolve("GET", "/api/login", "pro").name());
+    assertSame(policies.defaultRateLimiter(), policies.resolve("GET", "/api/login", null));
+    assertNull(policies.defaultRateLimiter().name());
+  }
+
+  @Test
+  void testResolve_ServletAndReactiveRequests() {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/items");
+    request.addHeader("X-Client-Tier", "pro");
+    assertEquals("pro", policies.resolve(request).name());
+
+    assertEquals("login", policies.resolve(MockServerHttpRequest.post("/api/login").build())
+        .name());
+    assertEquals("pro", policies.resolve(
+        MockServerHttpRequest.get("/api/items").header("X-Client-Tier", "pro").build()).name());
+  }
+
+  @Test
+  void testResolve_ServletRequest_MatchesDecodedPathWithinApplication() {
+    for (String uri : List.of("/api/logi%6E", "/api/login;jsessionid=1", "/api/login;x/")) {
+      assertEquals("login", policies.resolve(new MockHttpServletRequest("POST", uri)).name(),
+          uri);
+    }
+    MockHttpServletRequest withContextPath = new MockHttpServletRequest("POST", "/app/api/login");
+    withContextPath.setContextPath("/app");
+    assertEquals("login", policies.resolve(withContextPath).name());
+  }
+
+  @Test
+  void testResolve_ReactiveRequest_MatchesDecodedPathWithinApplication() {
+    for (String uri : List.of("/api/logi%6E", "/api/login;x", "/api/log%69n;a=b/")) {
+      assertEquals("login", policies.resolve(
+          MockServerHttpRequest.method(HttpMethod.POST, URI.create(uri)).build()).name(), uri);
+    }
+    assertEquals("login", policies.resolve(MockServerHttpRequest.post("/app/api/login")
+        .contextPath("/app").build()).name());
+  }
+
+  @Test
+  void testPolicies_HaveIsolatedState() {
+    PolicyRateLimiter login = policies.resolve("POST", "/api/login", null);
+    PolicyRateLimiter fallback = policies.defaultRateLimiter();
+
+    assertTrue(login.tryAcquire("client1").allowed());
+    assertFalse(login.tryAcquire("client1").allowed());
+    assertTrue(fallback.tryAcquire("client1").allowed());
+    assertNotNull(login.binaryTryAcquire());
+    assertTrue(login.binaryTryAcquire().apply(0, 1).allowed());
+  }
+
+  @Test
+  void testPolicyKeys_ArePrefixedWithPolicyName() {
+    RateLimiterPolicies shared = new RateLimiterPolicies(redisLikeRateLimiter, POLICIES,
+        (_, _) -> redisLikeRateLimiter, "X-Client-Tier");
+    when(redisLikeRateLimiter.tryAcquire("login:10.0.0.1")).thenReturn(RateLimitDecision.allow());
+    when(redisLikeRateLimiter.tryAcquire("10.0.0.1")).thenReturn(RateLimitDecision.allow());
+
+    shared.resolve("POST", "/api/login", null).tryAcquire("10.0.0.1");
+    shared.defaultRateLimiter().tryAcquire("10.0.0.1");
+
+    verify(redisLikeRateLimiter).tryAcquire("login:10.0.0.1");
+    verify(redisLikeRateLimiter).tryAcquire("10.0.0.1");
+    assertNull(shared.resolve("POST", "/api/login", null).binaryTryAcquire());
+    assertFalse(shared.defaultRateLimiter().isAsync());
+  }
+
+  @Test
+  void testClose_ClosesEveryPolicyRateLimiterDespiteFailures() {
+    List<CloseableRateLimiter> created = new ArrayList<>();
+    RateLimiterPolicies closeable = new RateLimiterPolicies(redisLikeRateLimiter, POLICIES,
+        (_, _) -> {
+          CloseableRateLimiter rateLimiter = mock(CloseableRateLimiter.class);
+          created.add(rateLimiter);
+          return rateLimiter;
+        }, "X-Client-Tier");
+    RuntimeException loginFailure = new RuntimeException("login");
+    RuntimeException proFailure = new RuntimeException("pro");
+    doThrow(loginFailure).when(created.get(0)).close();
+    doThrow(proFailure).when(created.get(1)).close();
+
+    IllegalStateException failure = assertThrows(IllegalStateException.class, closeable::close);
+
+    assertSame(loginFailure, failure.getCause());
+    assertArrayEquals(new Throwable[] {proFailure}, failure.getSuppressed());
+    verify(created.get(1)).close();
+  }
+
+  @Test
+  void testDuplicatePolicyNames_ShouldBeRejected() {
+    List<RateLimitPolicy> duplicates = List.of(
+        new RateLimitPolicy("a", "/a", List.of(), null, 1, BASE_PERIOD),
+        new RateLimitPolicy("a", "/b", List.of(), null, 1, BASE_PERIOD));
+    assertThrows(IllegalArgumentException.class, () -> new RateLimiterPolicies(
+        new FixedWindowRateLimiter(3, BASE_PERIOD), duplicates, FIXED_WINDOW, "X-Client-Tier"));
+  }
+
+  @Test
+  void testInvalidPolicy_ShouldBeRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new RateLimitPolicy("a", "api", List.of(), null, 1, BASE_PERIOD));
+    assertThrows(IllegalArgumentException.class,
+        () -> new RateLimitPolicy("a", "/api", List.of(), null, 0, BASE_PERIOD));
+  }
+}
@@ -0,0 +1,76 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.concurrency;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyRateLimiterTest {
+
+  private static final long MILLISECOND = 1_000_000;
+
+  private final AdaptiveConcurrencyRateLimiter rateLimiter =
+      new AdaptiveConcurrencyRateLimiter(3, 1, 100, 10);
+
+  @Test
+  void testTryAcquire_ShouldDenyAtLimitUntilCompletion() {
+    assertEquals(2, rateLimiter.tryAcquire("client1").remaining());
+    assertEquals(1, rateLimiter.tryAcquire("client2").remaining());
+    assertEquals(0, rateLimiter.tryAcquire("client3").remaining());
+
+    RateLimitDecision denied = rateLimiter.tryAcquire("client4");
+    assertFalse(denied.allowed());
+    assertEquals(1, denied.retryAfterSeconds());
+    assertEquals(3, rateLimiter.inFlight());
+
+    rateLimiter.onCompletion(MILLISECOND, false);
+
+    assertEquals(2, rateLimiter.inFlight());
+    assertTrue(rateLimiter.tryAcquire("client4").allowed());
+  }
+
+  @Test
+  void testAllowRequest_AtLimit_ShouldThrowException() {
+    for (int i = 0; i < 3; i++) {
+      assertDoesNotThrow(() -> rateLimiter.allowRequest("client1"));
+    }
+
+    RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+        () -> rateLimiter.allowRequest("client1"));
+    assertEquals("Too many requests. The service is at its limit of 3 concurrent requests.",
+        exception.getMessage());
+    assertEquals(1, exception.getRetryAfter());
+  }
+
+  @Test
+  void testOnCompletion_Failures_ShouldLowerLimit() {
+    AdaptiveConcurrencyRateLimiter limiter = new AdaptiveConcurrencyRateLimiter(20, 1, 100, 10);
+
+    for (int i = 0; i < 5; i++) {
+      assertTrue(limiter.tryAcquire("client1").allowed());
+      limiter.onCompletion(MILLISECOND, true);
+    }
+
+    assertEquals(11, limiter.limit());
+    assertEquals(0, limiter.inFlight());
+  }
+
+  @Test
+  void testBindTo_ShouldRegisterGauges() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    rateLimiter.bindTo(registry);
+    rateLimiter.tryAcquire("client1");
+
+    assertEquals(3, registry.get(RateLimiterMetrics.CONCURRENCY_LIMIT)
+        .tag("strategy", "AdaptiveConcurrencyRateLimiter").gauge().value());
+    assertEquals(1, registry.get(RateLimiterMetrics.IN_FLIGHT)
+        .tag("strategy", "AdaptiveConcurrencyRateLimiter").gauge().value());
+  }
+}
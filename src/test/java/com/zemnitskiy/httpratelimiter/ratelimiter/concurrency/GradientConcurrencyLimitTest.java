@@ -0,0 +1,85 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.concurrency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class GradientConcurrencyLimitTest {
+
+  private static final long MILLISECOND = 1_000_000;
+
+  @Test
+  void testUpdate_SteadyLatencyUnderLoad_ShouldRaiseLimit() {
+    GradientConcurrencyLimit gradient = new GradientConcurrencyLimit(10, 1, 1000, 10);
+
+    for (int i = 0; i < 50; i++) {
+      gradient.update(MILLISECOND, gradient.limit(), false);
+    }
+
+    assertTrue(gradient.limit() > 20, "limit was " + gradient.limit());
+  }
+
+  @Test
+  void testUpdate_RisingLatency_ShouldLowerLimitGradually() {
+    GradientConcurrencyLimit gradient = new GradientConcurrencyLimit(100, 1, 1000, 10);
+    for (int i = 0; i < 20; i++) {
+      gradient.update(MILLISECOND, 0, false);
+    }
+    assertEquals(100, gradient.limit());
+
+    // Ten times the usual latency halves the target, and the limit moves a fifth of the way
+    int limit = gradient.update(10 * MILLISECOND, 100, false);
+    assertTrue(limit >= 91 && limit <= 92, "limit was " + limit);
+
+    // The long-term average catches up with the new latency after a few more samples
+    for (int i = 0; i < 2; i++) {
+      int previous = limit;
+      limit = gradient.update(10 * MILLISECOND, limit, false);
+      assertTrue(limit < previous, "limit was " + limit);
+    }
+  }
+
+  @Test
+  void testUpdate_LowUtilization_ShouldKeepLimit() {
+    GradientConcurrencyLimit gradient = new GradientConcurrencyLimit(10, 1, 1000, 10);
+
+    for (int i = 0; i < 50; i++) {
+      gradient.update(MILLISECOND, 4, false);
+    }
+
+    assertEquals(10, gradient.limit());
+  }
+
+  @Test
+  void testUpdate_Failure_ShouldCutLimitByTenPercent() {
+    GradientConcurrencyLimit gradient = new GradientConcurrencyLimit(100, 1, 1000, 10);
+
+    assertEquals(90, gradient.update(MILLISECOND, 100, true));
+    assertEquals(81, gradient.update(MILLISECOND, 90, true));
+  }
+
+  @Test
+  void testUpdate_ShouldStayWithinBounds() {
+    GradientConcurrencyLimit growing = new GradientConcurrencyLimit(10, 5, 12, 10);
+    for (int i = 0; i < 50; i++) {
+      growing.update(MILLISECOND, growing.limit(), false);
+    }
+    assertEquals(12, growing.limit());
+
+    GradientConcurrencyLimit failing = new GradientConcurrencyLimit(10, 5, 12, 10);
+    for (int i = 0; i < 50; i++) {
+      failing.update(MILLISECOND, failing.limit(), true);
+    }
+    assertEquals(5, failing.limit());
+  }
+
+  @Test
+  void testInvalidSettings_ShouldThrowException() {
+    assertThrows(IllegalArgumentException.class, () -> new GradientConcurrencyLimit(1, 0, 10, 10));
+    assertThrows(IllegalArgumentException.class, () -> new GradientConcurrencyLimit(5, 6, 5, 10));
+    assertThrows(IllegalArgumentException.class, () -> new GradientConcurrencyLimit(11, 1, 10, 10));
+    assertThrows(IllegalArgumentException.class, () -> new GradientConcurrencyLimit(5, 1, 10, 0));
+  }
+}
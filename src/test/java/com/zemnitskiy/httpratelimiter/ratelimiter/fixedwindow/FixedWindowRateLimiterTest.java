@@ -2,17 +2,17 @@ package com.zemnitskiy.httpratelimiter.ratelimiter.fixedwindow;
 
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.springframework.test.util.ReflectionTestUtils.setField;
+import static org.springframework.test.util.ReflectionTestUtils.getField;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.testing.FakeTicker;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStore;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStoreFactory;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
 import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
 import java.time.Duration;
-import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -28,17 +28,21 @@ class FixedWindowRateLimiterTest {
   private final Duration basePeriod = Duration.ofSeconds(10);
   private final int maxRequests = 800;
 
-  private Cache<String, FixedWindowRateLimiterData> cache;
+  private LongStateStore store;
 
   @BeforeEach
   public void setUp() {
-    rateLimiter = new FixedWindowRateLimiter(maxRequests, basePeriod);
     ticker = new FakeTicker();
-    cache = Caffeine.newBuilder()
-        .expireAfterWrite(basePeriod)
-        .ticker(ticker::read)
-        .build();
-    setField(rateLimiter, "cache", cache);
+    rateLimiter = new FixedWindowRateLimiter(maxRequests, basePeriod, ticker::read);
+    store = (LongStateStore) getField(rateLimiter, "store");
+  }
+
+  private long state(String key) {
+    return store.get(key, TimeUnit.NANOSECONDS.toMillis(ticker.read()));
+  }
+
+  private long count(String key) {
+    return state(key) & FixedWindowRateLimiter.COUNT_MASK;
   }
 
   @Test
@@ -46,8 +50,7 @@ class FixedWindowRateLimiterTest {
     for (int i = 0; i < maxRequests; i++) {
       rateLimiter.allowRequest("client1");
     }
-    AtomicInteger count = Objects.requireNonNull(cache.getIfPresent("client1")).counter();
-    assertEquals(maxRequests, count.get(), "Requests within the limit should be allowed.");
+    assertEquals(maxRequests, count("client1"), "Requests within the limit should be allowed.");
   }
 
   @Test
@@ -59,18 +62,64 @@ class FixedWindowRateLimiterTest {
         "A request exceeding the limit should throw a RateLimitExceededException.");
   }
 
+  @Test
+  void testTryAcquire_ExceedingLimit_ShouldReturnDeniedDecision() {
+    for (int i = 0; i < maxRequests - 1; i++) {
+      rateLimiter.tryAcquire("client1");
+    }
+    RateLimitDecision last = rateLimiter.tryAcquire("client1");
+    assertTrue(last.allowed());
+    assertEquals(0, last.remaining());
+
+    ticker.advance(Duration.ofSeconds(4));
+    RateLimitDecision denied = rateLimiter.tryAcquire("client1");
+    assertFalse(denied.allowed(), "A request exceeding the limit should be denied.");
+    assertEquals(6, denied.retryAfterSeconds());
+  }
+
   @Test
   void testCacheClearedAfterBasePeriod() {
     for (int i = 0; i < maxRequests; i++) {
       rateLimiter.allowRequest("client1");
     }
 
-    AtomicInteger count = Objects.requireNonNull(cache.getIfPresent("client1")).counter();
-    assertEquals(maxRequests, count.get(), "The request count should be equal to maxRequests.");
+    assertEquals(maxRequests, count("client1"), "The request count should be equal to maxRequests.");
     ticker.advance(basePeriod);
 
-    FixedWindowRateLimiterData fixedWindowRateLimiterData = cache.getIfPresent("client1");
-    assertNull(fixedWindowRateLimiterData, "Cache should be cleared after the base period.");
+    assertEquals(0, state("client1"), "Cache should be cleared after the base period.");
+  }
+
+  @Test
+  void testWindowRollover_ReusesStateInPlace() {
+    for (int i = 0; i < maxRequests; i++) {
+      rateLimiter.allowRequest("client1");
+    }
+    ticker.advance(basePeriod.minusMillis(1));
+    RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+        () -> rateLimiter.allowRequest("client1"));
+    assertEquals(1, exception.getRetryAfter());
+
+    ticker.advance(Duration.ofMillis(1));
+    rateLimiter.allowRequest("client1");
+    assertEquals(1, store.estimatedSize(),
+        "A new window should reuse the existing state of the key.");
+    assertEquals(1, count("client1"), "The new window should only count the new request.");
+  }
+
+  @Test
+  void testAllowRequest_StripedStore_ShouldEnforceLimitPerWindow() {
+    rateLimiter = new FixedWindowRateLimiter(maxRequests, basePeriod, ticker::read,
+        LongStateStoreFactory.STRIPED);
+    for (int i = 0; i < maxRequests; i++) {
+      rateLimiter.allowRequest("client1");
+      rateLimiter.allowRequest("client2");
+    }
+    assertThrows(RateLimitExceededException.class, () -> rateLimiter.allowRequest("client1"));
+
+    ticker.advance(basePeriod);
+    RateLimitDecision decision = rateLimiter.tryAcquire("client1");
+    assertTrue(decision.allowed());
+    assertEquals(maxRequests - 1, decision.remaining());
   }
 
   @Test
@@ -81,8 +130,7 @@ class FixedWindowRateLimiterTest {
       for (int i = 0; i < maxRequests; i++) {
         rateLimiter.allowRequest(key);
       }
-      AtomicInteger count = Objects.requireNonNull(cache.getIfPresent("client1")).counter();
-      assertEquals(maxRequests, count.get(),
+      assertEquals(maxRequests, count(key),
           "Requests within the limit for " + key + " should be allowed.");
     }
 
@@ -167,4 +215,18 @@ class FixedWindowRateLimiterTest {
     }
   }
 
-}
\ No newline at end of file
+  @Test
+  void testTryAcquire_BinaryKey_ShouldEnforceLimitPerKey() {
+    for (int i = 0; i < maxRequests; i++) {
+      assertTrue(rateLimiter.tryAcquire(0, 1).allowed());
+    }
+    RateLimitDecision decision = rateLimiter.tryAcquire(0, 1);
+    assertFalse(decision.allowed());
+    assertEquals(10, decision.retryAfterSeconds());
+    assertTrue(rateLimiter.tryAcquire(1, 1).allowed(), "Keys differing in the upper half are separate.");
+    assertTrue(rateLimiter.tryAcquire("client1").allowed(), "String keys are separate.");
+
+    ticker.advance(basePeriod);
+    assertEquals(maxRequests - 1, rateLimiter.tryAcquire(0, 1).remaining());
+  }
+}
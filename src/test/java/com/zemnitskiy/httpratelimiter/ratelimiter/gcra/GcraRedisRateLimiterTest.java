@@ -0,0 +1,131 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.gcra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.testing.FakeTicker;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+@ExtendWith(MockitoExtension.class)
+class GcraRedisRateLimiterTest {
+
+  @Mock
+  private RedisTemplate<String, String> redisTemplate;
+
+  private GcraRedisRateLimiter rateLimiter;
+
+  private FakeTicker ticker;
+
+  private static final int MAX_REQUEST = 3;
+  private static final Duration BASE_PERIOD = Duration.ofSeconds(10);
+  private static final Resource LUA_SCRIPT = new ByteArrayResource(
+      "return {0, 0, 0}".getBytes(StandardCharsets.UTF_8));
+
+  private static RedisScript<List<Long>> anyScript() {
+    return any();
+  }
+
+  @BeforeEach
+  public void setUp() {
+    ticker = new FakeTicker();
+    rateLimiter = new GcraRedisRateLimiter(redisTemplate, MAX_REQUEST, BASE_PERIOD, LUA_SCRIPT,
+        ticker::read);
+  }
+
+  @Test
+  void testTryAcquire_PassesWholeMicrosecondIntervals() {
+    when(redisTemplate.execute(anyScript(), anyList(), anyString(), anyString()))
+        .thenReturn(List.of(0L, 2L, 3334L));
+
+    RateLimitDecision decision = rateLimiter.tryAcquire("client1");
+
+    assertTrue(decision.allowed());
+    assertEquals(2, decision.remaining());
+    assertEquals(4, decision.resetSeconds());
+    // 10 s / 3 rounded down to whole microseconds, and three of those as the burst
+    verify(redisTemplate).execute(anyScript(), anyList(), eq("3333333"), eq("9999999"));
+  }
+
+  @Test
+  void testTryAcquire_Denied_CachesRetry() {
+    when(redisTemplate.execute(anyScript(), anyList(), anyString(), anyString()))
+        .thenReturn(List.of(3333L, 0L, 10000L));
+
+    RateLimitDecision decision = rateLimiter.tryAcquire("client1");
+    assertFalse(decision.allowed());
+    assertEquals(4, decision.retryAfterSeconds());
+    assertEquals(10, decision.resetSeconds());
+
+    ticker.advance(Duration.ofSeconds(1));
+    decision = rateLimiter.tryAcquire("client1");
+    assertFalse(decision.allowed());
+    assertEquals(3, decision.retryAfterSeconds());
+    verify(redisTemplate, times(1)).execute(anyScript(), anyList(), anyString(),
+        anyString());
+  }
+
+  @Test
+  void testAllowRequest_ExceedingLimit() {
+    when(redisTemplate.execute(anyScript(), anyList(), anyString(), anyString()))
+        .thenReturn(List.of(2000L, 0L, 10000L));
+
+    RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+        () -> rateLimiter.allowRequest("client1"));
+    assertEquals("Too many requests. You have only 3 requests for 10 seconds",
+        exception.getMessage());
+    assertEquals(2, exception.getRetryAfter());
+  }
+
+  @Test
+  void testIllegalStateException() {
+    when(redisTemplate.execute(anyScript(), anyList(), anyString(), anyString()))
+        .thenReturn(null);
+
+    assertThrows(IllegalStateException.class, () -> rateLimiter.allowRequest("clientKey"),
+        "Could not get result from Redis lua script for clientKey");
+  }
+
+  @Test
+  void testPeriodShorterThanOneMicrosecondPerRequest_ShouldBeRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new GcraRedisRateLimiter(redisTemplate, 1001, Duration.ofMillis(1), LUA_SCRIPT));
+  }
+
+  @Test
+  void testBindTo_TimesScriptCallsAndReportsRetryCacheHits() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    rateLimiter.bindTo(registry);
+    when(redisTemplate.execute(anyScript(), anyList(), anyString(), anyString()))
+        .thenReturn(List.of(3333L, 0L, 10000L));
+
+    rateLimiter.tryAcquire("client1");
+    rateLimiter.tryAcquire("client1");
+
+    assertEquals(1, registry.get(RateLimiterMetrics.SCRIPT).tag("script", "gcra").timer().count());
+    assertEquals(0.5, registry.get(RateLimiterMetrics.RETRY_CACHE_HIT_RATIO).gauge().value());
+  }
+}
@@ -0,0 +1,147 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.leakybucket;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.testing.FakeTicker;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStoreFactory;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LeakyBucketRateLimiterTest {
+
+  private LeakyBucketRateLimiter rateLimiter;
+  private FakeTicker ticker;
+
+  private final Duration basePeriod = Duration.ofSeconds(1);
+  private final int maxRequests = 3;
+  private final int queueSize = 2;
+
+  @BeforeEach
+  public void setUp() {
+    ticker = new FakeTicker();
+    rateLimiter = new LeakyBucketRateLimiter(maxRequests, basePeriod, queueSize, ticker::read,
+        LongStateStoreFactory.CAFFEINE);
+  }
+
+  @Test
+  void testReserve_SpacesRequestsEvenly() {
+    assertEquals(0, rateLimiter.reserve("client1"));
+    assertEquals(333_333_333, rateLimiter.reserve("client1"));
+    assertEquals(666_666_666, rateLimiter.reserve("client1"));
+  }
+
+  @Test
+  void testReserve_QueueFull_ShouldReturnTimeUntilRoom() {
+    for (int i = 0; i <= queueSize; i++) {
+      assertTrue(rateLimiter.reserve("client1") >= 0);
+    }
+
+    assertEquals(-333_333_333, rateLimiter.reserve("client1"));
+    // A rejected request takes no turn
+    assertEquals(-333_333_333, rateLimiter.reserve("client1"));
+
+    ticker.advance(334, TimeUnit.MILLISECONDS);
+    assertEquals(666_000_000, rateLimiter.reserve("client1"));
+    assertTrue(rateLimiter.reserve("client1") < 0);
+  }
+
+  @Test
+  void testReserve_QueueFullForLessThanOneNanosecond_ShouldStillReject() {
+    LeakyBucketRateLimiter fast = new LeakyBucketRateLimiter(2_000_000, Duration.ofMillis(1), 0,
+        ticker::read, LongStateStoreFactory.CAFFEINE);
+
+    assertEquals(0, fast.reserve("client1"));
+    assertEquals(-1, fast.reserve("client1"));
+  }
+
+  @Test
+  void testReserve_KeysHaveSeparateQueues() {
+    assertEquals(0, rateLimiter.reserve("client1"));
+    assertEquals(333_333_333, rateLimiter.reserve("client1"));
+
+    assertEquals(0, rateLimiter.reserve("client2"));
+  }
+
+  @Test
+  void testReserve_AfterQueueDrains_ShouldStartAgain() {
+    for (int i = 0; i <= queueSize; i++) {
+      rateLimiter.reserve("client1");
+    }
+
+    ticker.advance(1, TimeUnit.SECONDS);
+
+    assertEquals(0, rateLimiter.reserve("client1"));
+    assertEquals(333_333_333, rateLimiter.reserve("client1"));
+  }
+
+  @Test
+  void testTryAcquire_ShouldNotQueue() {
+    RateLimitDecision decision = rateLimiter.tryAcquire("client1");
+    assertTrue(decision.allowed());
+    assertEquals(0, decision.remaining());
+    assertEquals(1, decision.resetSeconds());
+
+    decision = rateLimiter.tryAcquire("client1");
+    assertFalse(decision.allowed());
+    assertEquals(1, decision.retryAfterSeconds());
+
+    // The interval is a third of a second, not rounded down to 333 milliseconds
+    ticker.advance(333, TimeUnit.MILLISECONDS);
+    assertFalse(rateLimiter.tryAcquire("client1").allowed());
+    ticker.advance(1, TimeUnit.MILLISECONDS);
+    assertTrue(rateLimiter.tryAcquire("client1").allowed());
+  }
+
+  @Test
+  void testTryAcquire_WaitsBehindQueuedRequests() {
+    rateLimiter.reserve("client1");
+    rateLimiter.reserve("client1");
+
+    ticker.advance(400, TimeUnit.MILLISECONDS);
+    assertFalse(rateLimiter.tryAcquire("client1").allowed());
+    ticker.advance(300, TimeUnit.MILLISECONDS);
+    assertTrue(rateLimiter.tryAcquire("client1").allowed());
+  }
+
+  @Test
+  void testAllowRequest_ShouldThrowWhenItWouldWait() {
+    assertDoesNotThrow(() -> rateLimiter.allowRequest("client1"));
+
+    RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+        () -> rateLimiter.allowRequest("client1"));
+    assertEquals("Too many requests. You have only 3 requests for 1 seconds.",
+        exception.getMessage());
+    assertEquals(1, exception.getRetryAfter());
+  }
+
+  @Test
+  void testReserve_StripedStore() {
+    LeakyBucketRateLimiter striped = new LeakyBucketRateLimiter(maxRequests, basePeriod,
+        queueSize, ticker::read, LongStateStoreFactory.STRIPED);
+
+    assertEquals(0, striped.reserve("client1"));
+    assertEquals(333_333_333, striped.reserve("client1"));
+    assertEquals(666_666_666, striped.reserve("client1"));
+    assertTrue(striped.reserve("client1") < 0);
+  }
+
+  @Test
+  void testInvalidSettings_ShouldThrowException() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new LeakyBucketRateLimiter(0, basePeriod, queueSize));
+    assertThrows(IllegalArgumentException.class,
+        () -> new LeakyBucketRateLimiter(maxRequests, null, queueSize));
+    assertThrows(IllegalArgumentException.class,
+        () -> new LeakyBucketRateLimiter(maxRequests, Duration.ZERO, queueSize));
+    assertThrows(IllegalArgumentException.class,
+        () -> new LeakyBucketRateLimiter(maxRequests, basePeriod, -1));
+  }
+}
@@ -0,0 +1,125 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.multiwindow;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.testing.FakeTicker;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MultiWindowRateLimiterTest {
+
+  private MultiWindowRateLimiter rateLimiter;
+  private FakeTicker ticker;
+
+  @BeforeEach
+  public void setUp() {
+    ticker = new FakeTicker();
+    rateLimiter = new MultiWindowRateLimiter(List.of(
+        new RateLimitWindow(3, Duration.ofSeconds(1)),
+        new RateLimitWindow(5, Duration.ofSeconds(10))), ticker::read);
+  }
+
+  @Test
+  void testTryAcquire_ReportsTightestWindow() {
+    RateLimitDecision decision = rateLimiter.tryAcquire("client1");
+
+    assertTrue(decision.allowed());
+    assertEquals(2, decision.remaining());
+    // The long window holds a count until the end of the window after the current one
+    assertEquals(20, decision.resetSeconds());
+  }
+
+  @Test
+  void testAllowRequest_ShortWindowFull_ShouldThrowException() {
+    for (int i = 0; i < 3; i++) {
+      assertDoesNotThrow(() -> rateLimiter.allowRequest("client1"));
+    }
+    RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+        () -> rateLimiter.allowRequest("client1"));
+    assertEquals("Too many requests. You have only 3 requests for 1 seconds, 5 requests for 10"
+        + " seconds.", exception.getMessage());
+    assertEquals(2, exception.getRetryAfter());
+  }
+
+  @Test
+  void testDeniedRequests_ShouldNotConsumeOtherWindows() {
+    for (int i = 0; i < 3; i++) {
+      rateLimiter.allowRequest("client1");
+    }
+    for (int i = 0; i < 10; i++) {
+      assertFalse(rateLimiter.tryAcquire("client1").allowed());
+    }
+
+    // The short window is free again, and the long one only counts the three allowed requests
+    ticker.advance(Duration.ofSeconds(2));
+    assertTrue(rateLimiter.tryAcquire("client1").allowed());
+    assertTrue(rateLimiter.tryAcquire("client1").allowed());
+
+    RateLimitDecision decision = rateLimiter.tryAcquire("client1");
+    assertFalse(decision.allowed());
+    // The long window is full until the next one starts and its count has been weighted down
+    assertEquals(10, decision.retryAfterSeconds());
+  }
+
+  @Test
+  void testAllowRequest_MultipleKeys_ShouldRespectLimitsIndependently() {
+    for (String key : new String[]{"client1", "client2"}) {
+      for (int i = 0; i < 3; i++) {
+        rateLimiter.allowRequest(key);
+      }
+      assertThrows(RateLimitExceededException.class, () -> rateLimiter.allowRequest(key));
+    }
+  }
+
+  @Test
+  void testAllowRequest_MultipleThreads_LimitedUniqueKeys() throws InterruptedException {
+    int numberOfThreads = 100;
+    int uniqueClientKeys = 10;
+    ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+    AtomicInteger[] successCounters = new AtomicInteger[uniqueClientKeys];
+    for (int i = 0; i < uniqueClientKeys; i++) {
+      successCounters[i] = new AtomicInteger(0);
+    }
+
+    for (int i = 0; i < numberOfThreads; i++) {
+      final String clientKey = "client" + (i % uniqueClientKeys);
+      final int keyIndex = i % uniqueClientKeys;
+      executor.submit(() -> {
+        for (int j = 0; j < 10; j++) {
+          if (rateLimiter.tryAcquire(clientKey).allowed()) {
+            successCounters[keyIndex].incrementAndGet();
+          }
+        }
+      });
+    }
+
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES),
+        "Executor did not terminate in the expected time");
+    for (int i = 0; i < uniqueClientKeys; i++) {
+      assertEquals(3, successCounters[i].get(),
+          "Requests within the limit should be allowed for client" + i);
+    }
+  }
+
+  @Test
+  void testInvalidWindows_ShouldBeRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new MultiWindowRateLimiter(List.of()));
+    assertThrows(IllegalArgumentException.class,
+        () -> new RateLimitWindow(0, Duration.ofSeconds(1)));
+    assertThrows(IllegalArgumentException.class,
+        () -> new RateLimitWindow(1, Duration.ofNanos(1)));
+  }
+}
@@ -0,0 +1,107 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.multiwindow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.testing.FakeTicker;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+@ExtendWith(MockitoExtension.class)
+class MultiWindowRedisRateLimiterTest {
+
+  @Mock
+  private RedisTemplate<String, String> redisTemplate;
+
+  private MultiWindowRedisRateLimiter rateLimiter;
+
+  private FakeTicker ticker;
+
+  private static final Resource LUA_SCRIPT = new ByteArrayResource(
+      "return {0, 0, 0}".getBytes(StandardCharsets.UTF_8));
+
+  private static RedisScript<List<Long>> anyScript() {
+    return any();
+  }
+
+  @BeforeEach
+  public void setUp() {
+    ticker = new FakeTicker();
+    rateLimiter = new MultiWindowRedisRateLimiter(redisTemplate, List.of(
+        new RateLimitWindow(10, Duration.ofSeconds(1)),
+        new RateLimitWindow(300, Duration.ofMinutes(1))), LUA_SCRIPT, ticker::read);
+  }
+
+  @Test
+  void testTryAcquire_PassesAllWindowsInOneCall() {
+    when(redisTemplate.execute(anyScript(), anyList(), anyString(), anyString(),
+        anyString(), anyString())).thenReturn(List.of(0L, 9L, 120000L));
+
+    RateLimitDecision decision = rateLimiter.tryAcquire("client1");
+
+    assertTrue(decision.allowed());
+    assertEquals(9, decision.remaining());
+    assertEquals(120, decision.resetSeconds());
+    verify(redisTemplate).execute(anyScript(), eq(List.of("client1")), eq("10"),
+        eq("1000"), eq("300"), eq("60000"));
+  }
+
+  @Test
+  void testTryAcquire_Denied_CachesRetry() {
+    when(redisTemplate.execute(anyScript(), anyList(), anyString(), anyString(),
+        anyString(), anyString())).thenReturn(List.of(2500L, 0L, 60000L));
+
+    RateLimitDecision decision = rateLimiter.tryAcquire("client1");
+    assertFalse(decision.allowed());
+    assertEquals(3, decision.retryAfterSeconds());
+    assertEquals(60, decision.resetSeconds());
+
+    ticker.advance(Duration.ofSeconds(1));
+    decision = rateLimiter.tryAcquire("client1");
+    assertFalse(decision.allowed());
+    assertEquals(2, decision.retryAfterSeconds());
+    verify(redisTemplate, times(1)).execute(anyScript(), anyList(), anyString(),
+        anyString(), anyString(), anyString());
+  }
+
+  @Test
+  void testAllowRequest_ExceedingLimit() {
+    when(redisTemplate.execute(anyScript(), anyList(), anyString(), anyString(),
+        anyString(), anyString())).thenReturn(List.of(1000L, 0L, 2000L));
+
+    RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+        () -> rateLimiter.allowRequest("client1"));
+    assertEquals("Too many requests. You have only 10 requests for 1 seconds, 300 requests for 60"
+        + " seconds.", exception.getMessage());
+    assertEquals(1, exception.getRetryAfter());
+  }
+
+  @Test
+  void testIllegalStateException() {
+    when(redisTemplate.execute(anyScript(), anyList(), anyString(), anyString(),
+        anyString(), anyString())).thenReturn(null);
+
+    assertThrows(IllegalStateException.class, () -> rateLimiter.allowRequest("clientKey"));
+  }
+}
@@ -0,0 +1,122 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.testing.FakeTicker;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncSlidingWindowRedisRateLimiterTest {
+
+  @Mock
+  private ReactiveStringRedisTemplate redisTemplate;
+
+  private AsyncSlidingWindowRedisRateLimiter rateLimiter;
+
+  private FakeTicker ticker;
+
+  private static final int MAX_REQUEST = 3;
+  private static final Duration BASE_PERIOD = Duration.ofSeconds(10);
+  private static final Resource LUA_SCRIPT = new ByteArrayResource(
+      "return 0".getBytes(StandardCharsets.UTF_8));
+
+  private static RedisScript<Long> anyScript() {
+    return any();
+  }
+
+  @BeforeEach
+  public void setUp() {
+    ticker = new FakeTicker();
+    rateLimiter = new AsyncSlidingWindowRedisRateLimiter(redisTemplate, MAX_REQUEST, BASE_PERIOD,
+        LUA_SCRIPT, ticker::read);
+  }
+
+  @Test
+  void testTryAcquireAsync_CompletesWhenRedisReplies() {
+    Sinks.One<Long> reply = Sinks.one();
+    when(redisTemplate.execute(anyScript(), anyList(), anyList()))
+        .thenReturn(reply.asMono().flux());
+
+    CompletableFuture<RateLimitDecision> decision =
+        rateLimiter.tryAcquireAsync("client1").toCompletableFuture();
+    assertFalse(decision.isDone(), "The call should not wait for the Redis reply.");
+
+    reply.tryEmitValue(0L);
+    assertTrue(decision.join().allowed());
+    verify(redisTemplate).execute(anyScript(), eq(List.of("client1")),
+        eq(List.of("3", "10000")));
+  }
+
+  @Test
+  void testTryAcquire_Denied_CachesRetry() {
+    when(redisTemplate.execute(anyScript(), anyList(), anyList()))
+        .thenReturn(Flux.just(2500L));
+
+    RateLimitDecision decision = rateLimiter.tryAcquire("client1");
+    assertFalse(decision.allowed());
+    assertEquals(3, decision.retryAfterSeconds());
+
+    ticker.advance(Duration.ofSeconds(1));
+    CompletableFuture<RateLimitDecision> cached =
+        rateLimiter.tryAcquireAsync("client1").toCompletableFuture();
+    assertTrue(cached.isDone(), "A cached denial should not call Redis.");
+    assertEquals(2, cached.join().retryAfterSeconds());
+    verify(redisTemplate, times(1)).execute(anyScript(), anyList(), anyList());
+
+    ticker.advance(Duration.ofMillis(1500));
+    when(redisTemplate.execute(anyScript(), anyList(), anyList()))
+        .thenReturn(Flux.just(0L));
+    assertTrue(rateLimiter.tryAcquire("client1").allowed());
+  }
+
+  @Test
+  void testAllowRequest_Denied_ShouldThrowException() {
+    when(redisTemplate.execute(anyScript(), anyList(), anyList()))
+        .thenReturn(Flux.just(1000L));
+
+    RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+        () -> rateLimiter.allowRequest("client1"));
+    assertEquals(1, exception.getRetryAfter());
+  }
+
+  @Test
+  void testTryAcquire_NoResult_ShouldThrowIllegalStateException() {
+    when(redisTemplate.execute(anyScript(), anyList(), anyList()))
+        .thenReturn(Flux.empty());
+
+    assertThrows(IllegalStateException.class, () -> rateLimiter.tryAcquire("client1"));
+  }
+
+  @Test
+  void testInvalidSettings() {
+    assertThrows(IllegalArgumentException.class, () -> new AsyncSlidingWindowRedisRateLimiter(
+        redisTemplate, 0, BASE_PERIOD, LUA_SCRIPT));
+    assertThrows(IllegalArgumentException.class, () -> new AsyncSlidingWindowRedisRateLimiter(
+        redisTemplate, MAX_REQUEST, null, LUA_SCRIPT));
+  }
+}
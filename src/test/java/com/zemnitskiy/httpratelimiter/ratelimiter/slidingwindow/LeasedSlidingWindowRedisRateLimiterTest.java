@@ -0,0 +1,183 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.testing.FakeTicker;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class LeasedSlidingWindowRedisRateLimiterTest {
+
+  @Mock
+  private RedisTemplate<String, String> redisTemplate;
+
+  private LeasedSlidingWindowRedisRateLimiter rateLimiter;
+
+  private FakeTicker ticker;
+
+  private RedisScript<Long> leaseScript;
+
+  private RedisScript<Long> releaseScript;
+
+  private static final int MAX_REQUEST = 5;
+  private static final Duration BASE_PERIOD = Duration.ofSeconds(10);
+  private static final int LEASE_SIZE = 3;
+  private static final Duration LEASE_DURATION = Duration.ofSeconds(1);
+
+  @BeforeEach
+  public void setUp() {
+    ticker = new FakeTicker();
+    rateLimiter = new LeasedSlidingWindowRedisRateLimiter(redisTemplate, MAX_REQUEST, BASE_PERIOD,
+        LEASE_SIZE, LEASE_DURATION, script("return 3"), script("return 0"), ticker::read);
+    leaseScript = getScript("leaseScript");
+    releaseScript = getScript("releaseScript");
+  }
+
+  private static Resource script(String body) {
+    return new ByteArrayResource(body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @SuppressWarnings("unchecked")
+  private RedisScript<Long> getScript(String field) {
+    return (RedisScript<Long>) ReflectionTestUtils.getField(rateLimiter, field);
+  }
+
+  private void stubLease(Long... results) {
+    when(redisTemplate.execute(eq(leaseScript), anyList(), anyString(), anyString(), anyString(),
+        anyString())).thenReturn(results[0], Arrays.copyOfRange(results, 1, results.length));
+  }
+
+  private void verifyLeaseCalls(int count) {
+    verify(redisTemplate, times(count)).execute(eq(leaseScript), anyList(), anyString(),
+        anyString(), anyString(), anyString());
+  }
+
+  @Test
+  void testAllowRequest_SpendsLeaseLocally() {
+    stubLease(3L, 2L);
+
+    for (int i = 0; i < MAX_REQUEST; i++) {
+      assertDoesNotThrow(() -> rateLimiter.allowRequest("client1"));
+    }
+    verifyLeaseCalls(2);
+  }
+
+  @Test
+  void testAllowRequest_RequestsAtMostLeaseSizePermits() {
+    stubLease(3L);
+
+    rateLimiter.allowRequest("client1");
+
+    verify(redisTemplate).execute(eq(leaseScript), eq(List.of("client1")), eq("5"), eq("10000"),
+        eq("3"), anyString());
+  }
+
+  @Test
+  void testTryAcquire_NoPermitsLeft_CachesRetry() {
+    stubLease(-2500L);
+
+    RateLimitDecision decision = rateLimiter.tryAcquire("client1");
+    assertFalse(decision.allowed());
+    assertEquals(3, decision.retryAfterSeconds());
+
+    ticker.advance(Duration.ofMillis(1000));
+    decision = rateLimiter.tryAcquire("client1");
+    assertFalse(decision.allowed());
+    assertEquals(2, decision.retryAfterSeconds());
+    verifyLeaseCalls(1);
+  }
+
+  @Test
+  void testAllowRequest_ExceedingLimit() {
+    stubLease(-2000L);
+
+    RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+        () -> rateLimiter.allowRequest("client1"));
+    assertEquals("Too many requests. You have only 5 requests for 10 seconds",
+        exception.getMessage());
+    assertEquals(2, exception.getRetryAfter());
+  }
+
+  @Test
+  void testExpiredLease_ReturnsUnusedPermits() {
+    stubLease(3L, 3L);
+    rateLimiter.allowRequest("client1");
+
+    ticker.advance(LEASE_DURATION);
+    assertTrue(rateLimiter.tryAcquire("client1").allowed());
+
+    ArgumentCaptor<String> leaseId = ArgumentCaptor.forClass(String.class);
+    verify(redisTemplate, times(2)).execute(eq(leaseScript), anyList(), anyString(),
+        anyString(), anyString(), leaseId.capture());
+    verify(redisTemplate).execute(releaseScript, List.of("client1"),
+        leaseId.getAllValues().getFirst(), "2", "3");
+  }
+
+  @Test
+  void testExhaustedLease_ReturnsNothing() {
+    stubLease(3L, 3L);
+    for (int i = 0; i < LEASE_SIZE + 1; i++) {
+      rateLimiter.allowRequest("client1");
+    }
+
+    verify(redisTemplate, never()).execute(eq(releaseScript), anyList(), anyString(),
+        anyString(), anyString());
+  }
+
+  @Test
+  void testClose_ReturnsUnusedPermits() {
+    stubLease(3L);
+    rateLimiter.allowRequest("client1");
+    rateLimiter.allowRequest("client1");
+
+    rateLimiter.close();
+
+    verify(redisTemplate).execute(eq(releaseScript), eq(List.of("client1")), anyString(),
+        eq("3"), eq("3"));
+  }
+
+  @Test
+  void testIllegalStateException() {
+    stubLease((Long) null);
+
+    assertThrows(IllegalStateException.class, () -> rateLimiter.allowRequest("clientKey"));
+  }
+
+  @Test
+  void testInvalidLeaseSettings() {
+    Resource resource = script("return 0");
+    assertThrows(IllegalArgumentException.class,
+        () -> new LeasedSlidingWindowRedisRateLimiter(redisTemplate, MAX_REQUEST, BASE_PERIOD, 0,
+            LEASE_DURATION, resource, resource));
+    assertThrows(IllegalArgumentException.class,
+        () -> new LeasedSlidingWindowRedisRateLimiter(redisTemplate, MAX_REQUEST, BASE_PERIOD,
+            LEASE_SIZE, Duration.ZERO, resource, resource));
+  }
+}
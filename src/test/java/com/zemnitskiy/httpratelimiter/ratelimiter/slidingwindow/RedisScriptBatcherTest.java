@@ -0,0 +1,155 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.zemnitskiy.httpratelimiter.sharding.ShardedRedisTemplate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+@ExtendWith(MockitoExtension.class)
+class RedisScriptBatcherTest {
+
+  @Mock
+  private RedisTemplate<String, String> redisTemplate;
+
+  @Mock
+  private RedisTemplate<String, String> otherNode;
+
+  @Mock
+  private RedisScript<List<Long>> script;
+
+  @Captor
+  private ArgumentCaptor<List<String>> keys;
+
+  private RedisScriptBatcher batcher;
+
+  @AfterEach
+  public void tearDown() {
+    batcher.close();
+  }
+
+  /**
+   * Answers every key {@code clientN} with {@code N}, so each caller can check it got its own
+   * result back.
+   */
+  private void answerWithKeyNumbers() {
+    answerWithKeyNumbers(redisTemplate);
+  }
+
+  private void answerWithKeyNumbers(RedisTemplate<String, String> redisTemplate) {
+    when(redisTemplate.execute(eq(script), anyList(), any(), any())).thenAnswer(invocation -> {
+      List<String> keys = invocation.getArgument(1);
+      List<Long> results = new ArrayList<>();
+      for (String key : keys) {
+        results.add(Long.parseLong(key.substring("client".length())));
+      }
+      return results;
+    });
+  }
+
+  @Test
+  void testExecute_SingleCall_ReturnsItsResult() {
+    answerWithKeyNumbers();
+    batcher = new RedisScriptBatcher(redisTemplate, script, 16, Duration.ZERO, "5", "10000");
+
+    assertEquals(7L, batcher.execute("client7"));
+    verify(redisTemplate).execute(script, List.of("client7"), "5", "10000");
+  }
+
+  @Test
+  void testExecute_ConcurrentCalls_SharesOneScriptCall() throws Exception {
+    answerWithKeyNumbers();
+    int callers = 8;
+    // The delay is long enough for every caller to arrive, the size budget closes the batch
+    batcher = new RedisScriptBatcher(redisTemplate, script, callers, Duration.ofSeconds(10), "5",
+        "10000");
+    ExecutorService executor = Executors.newFixedThreadPool(callers);
+    List<Future<Long>> results = new ArrayList<>();
+    for (int i = 0; i < callers; i++) {
+      String key = "client" + i;
+      results.add(executor.submit(() -> batcher.execute(key)));
+    }
+
+    for (int i = 0; i < callers; i++) {
+      assertEquals(i, results.get(i).get(10, TimeUnit.SECONDS));
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    verify(redisTemplate, times(1)).execute(eq(script), anyList(), any(), any());
+  }
+
+  @Test
+  void testExecute_ShardedTemplate_SendsOneCallPerNode() throws Exception {
+    Map<String, RedisTemplate<String, String>> nodes = new LinkedHashMap<>();
+    nodes.put("redis-0:6379", redisTemplate);
+    nodes.put("redis-1:6379", otherNode);
+    ShardedRedisTemplate sharded = new ShardedRedisTemplate(nodes, 160);
+    answerWithKeyNumbers(redisTemplate);
+    answerWithKeyNumbers(otherNode);
+    int callers = 8;
+    batcher = new RedisScriptBatcher(sharded, script, callers, Duration.ofSeconds(10), "5",
+        "10000");
+    ExecutorService executor = Executors.newFixedThreadPool(callers);
+    List<Future<Long>> results = new ArrayList<>();
+    for (int i = 0; i < callers; i++) {
+      String key = "client" + i;
+      results.add(executor.submit(() -> batcher.execute(key)));
+    }
+
+    for (int i = 0; i < callers; i++) {
+      assertEquals(i, results.get(i).get(10, TimeUnit.SECONDS));
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    for (int shard = 0; shard < 2; shard++) {
+      verify(sharded.nodes().get(shard)).execute(eq(script), keys.capture(), any(), any());
+      for (String key : keys.getValue()) {
+        assertEquals(shard, sharded.shardOf(key));
+      }
+    }
+  }
+
+  @Test
+  void testExecute_ScriptFails_RethrowsToCaller() {
+    QueryTimeoutException failure = new QueryTimeoutException("timeout");
+    when(redisTemplate.execute(eq(script), anyList(), any(), any())).thenThrow(failure);
+    batcher = new RedisScriptBatcher(redisTemplate, script, 16, Duration.ZERO, "5", "10000");
+
+    assertSame(failure, assertThrows(QueryTimeoutException.class,
+        () -> batcher.execute("client1")));
+  }
+
+  @Test
+  void testExecute_AfterClose_ShouldFail() {
+    batcher = new RedisScriptBatcher(redisTemplate, script, 16, Duration.ZERO, "5", "10000");
+    batcher.close();
+
+    assertThrows(IllegalStateException.class, () -> batcher.execute("client1"));
+  }
+}
@@ -0,0 +1,69 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class SlidingWindowLogTest {
+
+  @Test
+  void testTryAdd_UpToMaxRequests_ThenRejects() {
+    SlidingWindowLog log = new SlidingWindowLog(20);
+    for (int i = 0; i < 20; i++) {
+      assertTrue(log.tryAdd(i), "Timestamps below maxRequests should be recorded.");
+    }
+    assertFalse(log.tryAdd(20), "A full log should reject new timestamps.");
+    assertEquals(20, log.size());
+    assertEquals(0, log.oldest());
+  }
+
+  @Test
+  void testEvictOlderThan_RemovesOnlyOutdatedTimestamps() {
+    SlidingWindowLog log = new SlidingWindowLog(5);
+    for (int i = 0; i < 5; i++) {
+      log.tryAdd(i * 10L);
+    }
+    assertEquals(2, log.evictOlderThan(20));
+    assertEquals(3, log.size());
+    assertEquals(20, log.oldest());
+  }
+
+  @Test
+  void testWrapAround_KeepsTimestampsInOrder() {
+    SlidingWindowLog log = new SlidingWindowLog(12);
+    long now = 0;
+    for (int i = 0; i < 12; i++) {
+      log.tryAdd(now++);
+    }
+    // Repeatedly free and refill slots so head and tail wrap around the buffer several times
+    for (int round = 0; round < 50; round++) {
+      log.evictOlderThan(log.oldest() + 3);
+      assertEquals(9, log.size());
+      for (int i = 0; i < 3; i++) {
+        assertTrue(log.tryAdd(now++));
+      }
+      assertFalse(log.tryAdd(now));
+      assertEquals(now - 12, log.oldest(), "The oldest timestamp should survive wrap-around.");
+    }
+  }
+
+  @Test
+  void testGrowth_PreservesWrappedTimestamps() {
+    SlidingWindowLog log = new SlidingWindowLog(100);
+    for (long i = 0; i < 8; i++) {
+      log.tryAdd(i);
+    }
+    log.evictOlderThan(5);
+    for (long i = 8; i < 40; i++) {
+      assertTrue(log.tryAdd(i));
+    }
+    assertEquals(35, log.size());
+    for (long expected = 5; expected < 40; expected++) {
+      assertEquals(expected, log.oldest());
+      log.evictOlderThan(expected + 1);
+    }
+    assertEquals(0, log.size());
+  }
+}
@@ -12,7 +12,6 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.testing.FakeTicker;
 import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
 import java.time.Duration;
-import java.util.Queue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -29,7 +28,7 @@ class SlidingWindowRateLimiterTest {
 
   private FakeTicker ticker;
 
-  private Cache<String, Queue<Long>> cache;
+  private Cache<String, SlidingWindowLog> cache;
 
   private final Duration basePeriod = Duration.ofSeconds(10);
   private final int maxRequests = 5;
@@ -53,7 +52,7 @@ class SlidingWindowRateLimiterTest {
     for (int i = 0; i < maxRequests; i++) {
       rateLimiter.allowRequest("client1");
     }
-    Queue<Long> timestamps = cache.getIfPresent("client1");
+    SlidingWindowLog timestamps = cache.getIfPresent("client1");
     assertNotNull(timestamps, "Cache should contain timestamps for client1.");
     assertEquals(maxRequests, timestamps.size(), "Requests within the limit should be allowed.");
   }
@@ -76,7 +75,7 @@ class SlidingWindowRateLimiterTest {
 
     ticker.advance(sleepDuration);
 
-    Queue<Long> timestamps = cache.getIfPresent("client1");
+    SlidingWindowLog timestamps = cache.getIfPresent("client1");
     assertNull(timestamps, "Cache should be empty after expiration.");
   }
 
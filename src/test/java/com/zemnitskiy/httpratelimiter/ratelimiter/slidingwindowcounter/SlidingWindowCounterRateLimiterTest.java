@@ -0,0 +1,140 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindowcounter;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.testing.FakeTicker;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SlidingWindowCounterRateLimiterTest {
+
+  private SlidingWindowCounterRateLimiter rateLimiter;
+  private FakeTicker ticker;
+
+  private final Duration basePeriod = Duration.ofSeconds(10);
+  private final int maxRequests = 10;
+
+  @BeforeEach
+  public void setUp() {
+    ticker = new FakeTicker();
+    rateLimiter = new SlidingWindowCounterRateLimiter(maxRequests, basePeriod, ticker::read);
+  }
+
+  @Test
+  void testAllowRequest_WithinLimit_ShouldBeAllowed() {
+    for (int i = 0; i < maxRequests; i++) {
+      assertDoesNotThrow(() -> rateLimiter.allowRequest("client1"));
+    }
+  }
+
+  @Test
+  void testAllowRequest_ExceedingLimit_ShouldThrowException() {
+    for (int i = 0; i < maxRequests; i++) {
+      rateLimiter.allowRequest("client1");
+    }
+    RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+        () -> rateLimiter.allowRequest("client1"));
+    assertEquals("Too many requests. You have only 10 requests for 10 seconds.",
+        exception.getMessage());
+    // The whole window is used, and the next one starts with the full previous count
+    assertEquals(11, exception.getRetryAfter());
+  }
+
+  @Test
+  void testWindowBoundary_PreviousWindowIsWeighted() {
+    ticker.advance(Duration.ofSeconds(9));
+    for (int i = 0; i < maxRequests; i++) {
+      rateLimiter.allowRequest("client1");
+    }
+
+    // At the boundary the previous window still counts fully
+    ticker.advance(Duration.ofSeconds(1));
+    assertThrows(RateLimitExceededException.class, () -> rateLimiter.allowRequest("client1"),
+        "A fixed window would allow a second burst here, the weighted estimate must not.");
+
+    // Half way through the window only half of the previous count remains
+    ticker.advance(Duration.ofSeconds(5));
+    for (int i = 0; i < maxRequests / 2; i++) {
+      rateLimiter.allowRequest("client1");
+    }
+    RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+        () -> rateLimiter.allowRequest("client1"));
+    assertEquals(1, exception.getRetryAfter());
+  }
+
+  @Test
+  void testIdleWindow_PreviousCountIsDropped() {
+    for (int i = 0; i < maxRequests; i++) {
+      rateLimiter.allowRequest("client1");
+    }
+    ticker.advance(basePeriod.multipliedBy(2));
+    for (int i = 0; i < maxRequests; i++) {
+      assertDoesNotThrow(() -> rateLimiter.allowRequest("client1"));
+    }
+  }
+
+  @Test
+  void testAllowRequest_MultipleKeys_ShouldRespectLimitsIndependently() {
+    for (String key : new String[]{"client1", "client2"}) {
+      for (int i = 0; i < maxRequests; i++) {
+        rateLimiter.allowRequest(key);
+      }
+      assertThrows(RateLimitExceededException.class, () -> rateLimiter.allowRequest(key));
+    }
+  }
+
+  @Test
+  void testAllowRequest_MultipleThreads_LimitedUniqueKeys() throws InterruptedException {
+    int numberOfThreads = 100;
+    int uniqueClientKeys = 10;
+    ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+    AtomicInteger[] successCounters = new AtomicInteger[uniqueClientKeys];
+    for (int i = 0; i < uniqueClientKeys; i++) {
+      successCounters[i] = new AtomicInteger(0);
+    }
+
+    for (int i = 0; i < numberOfThreads; i++) {
+      final String clientKey = "client" + (i % uniqueClientKeys);
+      final int keyIndex = i % uniqueClientKeys;
+      executor.submit(() -> {
+        for (int j = 0; j < maxRequests * 2; j++) {
+          try {
+            rateLimiter.allowRequest(clientKey);
+            successCounters[keyIndex].incrementAndGet();
+          } catch (RateLimitExceededException ignored) {
+            // Expect some requests to exceed the limit
+          }
+        }
+      });
+    }
+
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES),
+        "Executor did not terminate in the expected time");
+    for (int i = 0; i < uniqueClientKeys; i++) {
+      assertEquals(maxRequests, successCounters[i].get(),
+          "Requests within the limit should be allowed for client" + i);
+    }
+  }
+
+  @Test
+  void testTryAcquire_BinaryKey_ShouldEnforceLimit() {
+    for (int i = 0; i < maxRequests; i++) {
+      assertTrue(rateLimiter.tryAcquire(0x2001_0DB8_0000_0000L, 1).allowed());
+    }
+    RateLimitDecision decision = rateLimiter.tryAcquire(0x2001_0DB8_0000_0000L, 1);
+    assertFalse(decision.allowed());
+    assertTrue(rateLimiter.tryAcquire(0x2001_0DB8_0000_0000L, 2).allowed());
+  }
+}
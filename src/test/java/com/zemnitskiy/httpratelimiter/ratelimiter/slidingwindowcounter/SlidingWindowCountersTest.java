@@ -0,0 +1,34 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindowcounter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class SlidingWindowCountersTest {
+
+  @Test
+  void testWaitMillis_PreviousWindowFull_WaitsUntilItIsWeightedDown() {
+    // 10 * (1000 - elapsed) / 1000 + 0 + 1 <= 10 once elapsed reaches 100
+    assertEquals(100, SlidingWindowCounters.waitMillis(1000, 10, 10, 0, 0));
+    assertEquals(40, SlidingWindowCounters.waitMillis(1000, 10, 10, 0, 60));
+  }
+
+  @Test
+  void testWaitMillis_CurrentWindowFull_WaitsForTheNextWindow() {
+    assertEquals(1100, SlidingWindowCounters.waitMillis(1000, 10, 0, 10, 0));
+    assertEquals(350, SlidingWindowCounters.waitMillis(1000, 10, 5, 10, 750));
+  }
+
+  @Test
+  void testResetMillis() {
+    assertEquals(750, SlidingWindowCounters.resetMillis(1000, 0, 250));
+    assertEquals(1750, SlidingWindowCounters.resetMillis(1000, 1, 250));
+  }
+
+  @Test
+  void testToSeconds_RoundsUp() {
+    assertEquals(0, SlidingWindowCounters.toSeconds(0));
+    assertEquals(1, SlidingWindowCounters.toSeconds(1));
+    assertEquals(2, SlidingWindowCounters.toSeconds(1001));
+  }
+}
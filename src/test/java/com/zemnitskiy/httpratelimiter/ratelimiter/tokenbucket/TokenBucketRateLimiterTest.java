@@ -0,0 +1,195 @@
+package com.zemnitskiy.httpratelimiter.ratelimiter.tokenbucket;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.testing.FakeTicker;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStore;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitExceededException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TokenBucketRateLimiterTest {
+
+  private TokenBucketRateLimiter rateLimiter;
+  private FakeTicker ticker;
+
+  private final Duration basePeriod = Duration.ofSeconds(10);
+  private final int maxRequests = 5;
+  private final int capacity = 20;
+
+  @BeforeEach
+  public void setUp() {
+    ticker = new FakeTicker();
+    rateLimiter = new TokenBucketRateLimiter(capacity, maxRequests, basePeriod, ticker::read);
+  }
+
+  @Test
+  void testAllowRequest_BurstUpToCapacity_ShouldBeAllowed() {
+    for (int i = 0; i < capacity; i++) {
+      assertDoesNotThrow(() -> rateLimiter.allowRequest("client1"));
+    }
+    RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+        () -> rateLimiter.allowRequest("client1"));
+    // One token every 2 seconds
+    assertEquals(2, exception.getRetryAfter());
+  }
+
+  @Test
+  void testRejectionMessage_MatchesExceptionMessage() {
+    for (int i = 0; i < capacity; i++) {
+      rateLimiter.allowRequest("client1");
+    }
+    RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+        () -> rateLimiter.allowRequest("client1"));
+    assertEquals(exception.getMessage(), rateLimiter.rejectionMessage());
+  }
+
+  @Test
+  void testTryAcquire_ReportsRemainingTokensAndReset() {
+    RateLimitDecision decision = rateLimiter.tryAcquire("client1");
+    assertTrue(decision.allowed());
+    assertEquals(capacity - 1, decision.remaining());
+    assertEquals(2, decision.resetSeconds(), "One missing token takes 2 seconds to refill.");
+
+    for (int i = 1; i < capacity; i++) {
+      rateLimiter.tryAcquire("client1");
+    }
+    decision = rateLimiter.tryAcquire("client1");
+    assertFalse(decision.allowed());
+    assertEquals(0, decision.remaining());
+    assertEquals(2, decision.retryAfterSeconds());
+    assertEquals(40, decision.resetSeconds());
+  }
+
+  @Test
+  void testRefill_AddsTokensAtSustainedRate() {
+    for (int i = 0; i < capacity; i++) {
+      rateLimiter.allowRequest("client1");
+    }
+    ticker.advance(Duration.ofMillis(1999));
+    RateLimitExceededException exception = assertThrows(RateLimitExceededException.class,
+        () -> rateLimiter.allowRequest("client1"));
+    assertEquals(1, exception.getRetryAfter());
+
+    ticker.advance(Duration.ofMillis(1));
+    assertDoesNotThrow(() -> rateLimiter.allowRequest("client1"));
+    assertThrows(RateLimitExceededException.class, () -> rateLimiter.allowRequest("client1"));
+
+    // A full period earns maxRequests tokens, no more
+    ticker.advance(basePeriod);
+    for (int i = 0; i < maxRequests; i++) {
+      assertDoesNotThrow(() -> rateLimiter.allowRequest("client1"));
+    }
+    assertThrows(RateLimitExceededException.class, () -> rateLimiter.allowRequest("client1"));
+  }
+
+  @Test
+  void testRefill_KeepsFractionOfNextToken() {
+    for (int i = 0; i < capacity; i++) {
+      rateLimiter.allowRequest("client1");
+    }
+    // 3 seconds earn one token and half of the next one
+    ticker.advance(Duration.ofSeconds(3));
+    rateLimiter.allowRequest("client1");
+    ticker.advance(Duration.ofSeconds(1));
+    assertDoesNotThrow(() -> rateLimiter.allowRequest("client1"),
+        "The half token earned earlier should complete after one more second.");
+  }
+
+  @Test
+  void testRefill_UnevenTokenInterval_KeepsSustainedRate() {
+    // A token every 333.3 milliseconds, which is not a whole number of milliseconds
+    TokenBucketRateLimiter uneven =
+        new TokenBucketRateLimiter(5, 3, Duration.ofSeconds(1), ticker::read);
+    int allowed = 0;
+    for (int i = 0; i < 600_000; i++) {
+      if (uneven.tryAcquire("client1").allowed()) {
+        allowed++;
+      }
+      ticker.advance(Duration.ofMillis(1));
+    }
+    assertEquals(5 + 1799, allowed, "The bucket should earn 3 tokens per second, no fewer.");
+  }
+
+  @Test
+  void testInvalidSettings_BucketTooSlowToRefill_ShouldThrowException() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new TokenBucketRateLimiter(1_000_000, 1, Duration.ofDays(1), ticker::read));
+  }
+
+  @Test
+  void testRefill_NeverExceedsCapacity() {
+    rateLimiter.allowRequest("client1");
+    ticker.advance(basePeriod.multipliedBy(100));
+    for (int i = 0; i < capacity; i++) {
+      rateLimiter.allowRequest("client1");
+    }
+    assertThrows(RateLimitExceededException.class, () -> rateLimiter.allowRequest("client1"));
+  }
+
+  @Test
+  void testAllowRequest_MultipleThreads_LimitedUniqueKeys() throws InterruptedException {
+    int numberOfThreads = 100;
+    int uniqueClientKeys = 10;
+    ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+    AtomicInteger[] successCounters = new AtomicInteger[uniqueClientKeys];
+    for (int i = 0; i < uniqueClientKeys; i++) {
+      successCounters[i] = new AtomicInteger(0);
+    }
+
+    for (int i = 0; i < numberOfThreads; i++) {
+      final String clientKey = "client" + (i % uniqueClientKeys);
+      final int keyIndex = i % uniqueClientKeys;
+      executor.submit(() -> {
+        for (int j = 0; j < capacity; j++) {
+          try {
+            rateLimiter.allowRequest(clientKey);
+            successCounters[keyIndex].incrementAndGet();
+          } catch (RateLimitExceededException ignored) {
+            // Expect some requests to exceed the limit
+          }
+        }
+      });
+    }
+
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES),
+        "Executor did not terminate in the expected time");
+    for (int i = 0; i < uniqueClientKeys; i++) {
+      assertEquals(capacity, successCounters[i].get(),
+          "Only the burst capacity should be allowed for client" + i);
+    }
+  }
+
+  @Test
+  void testTryAcquire_BinaryKey_ShouldDrainBucket() {
+    for (int i = 0; i < capacity; i++) {
+      assertTrue(rateLimiter.tryAcquire(0, 0xFFFF_0A00_0001L).allowed());
+    }
+    RateLimitDecision decision = rateLimiter.tryAcquire(0, 0xFFFF_0A00_0001L);
+    assertFalse(decision.allowed());
+    assertEquals(2, decision.retryAfterSeconds());
+    assertTrue(rateLimiter.tryAcquire(0, 0xFFFF_0A00_0002L).allowed());
+  }
+
+  @Test
+  void testClose_ClosesStateStore() {
+    LongStateStore store = mock(LongStateStore.class);
+    new TokenBucketRateLimiter(capacity, maxRequests, basePeriod, ticker::read, (_, _) -> store)
+        .close();
+
+    verify(store).close();
+  }
+}
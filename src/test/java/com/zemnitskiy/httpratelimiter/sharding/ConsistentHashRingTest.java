@@ -0,0 +1,87 @@
+package com.zemnitskiy.httpratelimiter.sharding;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ConsistentHashRingTest {
+
+  private static final int KEYS = 100_000;
+
+  private static Map<String, String> nodes(int count) {
+    Map<String, String> nodes = new LinkedHashMap<>();
+    for (int i = 0; i < count; i++) {
+      nodes.put("redis-" + i + ":6379", "redis-" + i);
+    }
+    return nodes;
+  }
+
+  @Test
+  void testNodeFor_SpreadsKeysEvenly() {
+    ConsistentHashRing<String> ring = new ConsistentHashRing<>(nodes(4), 160);
+    int[] counts = new int[4];
+    for (int key = 0; key < KEYS; key++) {
+      counts[ring.indexFor("client" + key)]++;
+    }
+    for (int count : counts) {
+      assertTrue(Math.abs(count - KEYS / 4) < KEYS / 4 / 5, "Share of a node: " + count);
+    }
+  }
+
+  @Test
+  void testNodeFor_AddedNode_OnlyTakesItsShareOfKeys() {
+    ConsistentHashRing<String> before = new ConsistentHashRing<>(nodes(4), 160);
+    ConsistentHashRing<String> after = new ConsistentHashRing<>(nodes(5), 160);
+    int moved = 0;
+    for (int key = 0; key < KEYS; key++) {
+      String oldNode = before.nodeFor("client" + key);
+      String newNode = after.nodeFor("client" + key);
+      if (!oldNode.equals(newNode)) {
+        assertEquals("redis-4", newNode, "A key may only move to the new node");
+        moved++;
+      }
+    }
+    assertTrue(Math.abs(moved - KEYS / 5) < KEYS / 5 / 5, "Moved keys: " + moved);
+  }
+
+  @Test
+  void testNodeFor_DoesNotDependOnNodeOrder() {
+    Map<String, String> reversed = new LinkedHashMap<>();
+    nodes(3).entrySet().stream().toList().reversed()
+        .forEach(node -> reversed.put(node.getKey(), node.getValue()));
+    ConsistentHashRing<String> ring = new ConsistentHashRing<>(nodes(3), 160);
+    ConsistentHashRing<String> reversedRing = new ConsistentHashRing<>(reversed, 160);
+
+    for (int key = 0; key < 1000; key++) {
+      assertEquals(ring.nodeFor("client" + key), reversedRing.nodeFor("client" + key));
+    }
+  }
+
+  @Test
+  void testNodeFor_SameHashTag_SameNode() {
+    ConsistentHashRing<String> ring = new ConsistentHashRing<>(nodes(8), 160);
+    String node = ring.nodeFor("{client1}");
+
+    for (int i = 0; i < 100; i++) {
+      assertEquals(node, ring.nodeFor("policy" + i + ":{client1}"));
+    }
+  }
+
+  @Test
+  void testHashTag_FollowsRedisClusterRule() {
+    assertEquals("client1", ConsistentHashRing.hashTag("login:{client1}"));
+    assertEquals("a", ConsistentHashRing.hashTag("{a}{b}"));
+    assertEquals("{}client1", ConsistentHashRing.hashTag("{}client1"));
+    assertEquals("client{1", ConsistentHashRing.hashTag("client{1"));
+  }
+
+  @Test
+  void testConstructor_NoNodes_ShouldFail() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new ConsistentHashRing<>(Map.of(), 160));
+  }
+}
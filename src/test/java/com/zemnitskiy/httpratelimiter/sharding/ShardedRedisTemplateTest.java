@@ -0,0 +1,82 @@
+package com.zemnitskiy.httpratelimiter.sharding;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+@ExtendWith(MockitoExtension.class)
+class ShardedRedisTemplateTest {
+
+  @Mock
+  private RedisTemplate<String, String> first;
+
+  @Mock
+  private RedisTemplate<String, String> second;
+
+  @Mock
+  private RedisScript<Long> script;
+
+  private ShardedRedisTemplate template;
+
+  @BeforeEach
+  public void setUp() {
+    Map<String, RedisTemplate<String, String>> nodes = new LinkedHashMap<>();
+    nodes.put("redis-0:6379", first);
+    nodes.put("redis-1:6379", second);
+    template = new ShardedRedisTemplate(nodes, 160);
+  }
+
+  /**
+   * Finds a key that belongs to the node with the given index.
+   */
+  private String keyOn(int shard) {
+    for (int key = 0; ; key++) {
+      if (template.shardOf("client" + key) == shard) {
+        return "client" + key;
+      }
+    }
+  }
+
+  @Test
+  void testExecute_RunsOnTheNodeOfTheKey() {
+    String key = keyOn(1);
+    when(second.execute(script, List.of(key), "5")).thenReturn(0L);
+
+    assertEquals(0L, template.execute(script, List.of(key), "5"));
+    verify(first, never()).execute(eq(script), anyList(), any());
+  }
+
+  @Test
+  void testExecute_KeysWithSharedHashTag_RunTogether() {
+    List<String> keys = List.of("login:{client1}", "search:{client1}");
+    RedisTemplate<String, String> node = template.nodes().get(template.shardOf("{client1}"));
+    when(node.execute(script, keys, "5")).thenReturn(0L);
+
+    assertEquals(0L, template.execute(script, keys, "5"));
+  }
+
+  @Test
+  void testExecute_KeysOnDifferentNodes_ShouldFail() {
+    List<String> keys = List.of(keyOn(0), keyOn(1));
+
+    assertThrows(IllegalArgumentException.class, () -> template.execute(script, keys, "5"));
+    verify(first, never()).execute(eq(script), anyList(), any());
+    verify(second, never()).execute(eq(script), anyList(), any());
+  }
+}
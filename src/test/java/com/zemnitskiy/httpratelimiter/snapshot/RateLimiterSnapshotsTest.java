@@ -0,0 +1,194 @@
+package com.zemnitskiy.httpratelimiter.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.testing.FakeTicker;
+import com.zemnitskiy.httpratelimiter.ratelimiter.fixedwindow.FixedWindowRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.slidingwindow.SlidingWindowRateLimiter;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStoreFactory;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterFactory;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RateLimiterSnapshotsTest {
+
+  private static final Instant SNAPSHOT_TIME = Instant.parse("2024-08-01T10:00:00Z");
+
+  private final Duration basePeriod = Duration.ofSeconds(10);
+
+  private final int maxRequests = 5;
+
+  @TempDir
+  private Path directory;
+
+  private Path snapshot() {
+    return directory.resolve("rate-limiter.snapshot");
+  }
+
+  private RateLimiterSnapshots snapshots(Duration sinceSnapshot) {
+    return new RateLimiterSnapshots(snapshot(), Duration.ZERO,
+        Clock.fixed(SNAPSHOT_TIME.plus(sinceSnapshot), ZoneOffset.UTC));
+  }
+
+  private static RateLimiterFactory fixedWindow(FakeTicker ticker, LongStateStoreFactory store) {
+    return (maxRequests, basePeriod) -> new FixedWindowRateLimiter(maxRequests, basePeriod,
+        ticker::read, store);
+  }
+
+  private void exhaust(RateLimiterStrategy rateLimiter, String key) {
+    for (int i = 0; i < maxRequests; i++) {
+      assertTrue(rateLimiter.tryAcquire(key).allowed());
+    }
+  }
+
+  @Test
+  void testRestore_FixedWindow_KeepsCountAndWindowEnd() {
+    FakeTicker ticker = new FakeTicker();
+    try (RateLimiterSnapshots snapshots = snapshots(Duration.ZERO)) {
+      RateLimiterStrategy rateLimiter = snapshots.track(fixedWindow(ticker,
+          LongStateStoreFactory.CAFFEINE)).create(maxRequests, basePeriod);
+      exhaust(rateLimiter, "client1");
+      rateLimiter.tryAcquire("client2");
+      ticker.advance(Duration.ofSeconds(2));
+    }
+
+    // The restart itself took three seconds, so the window of client1 has five seconds left
+    FakeTicker restarted = new FakeTicker();
+    RateLimiterStrategy rateLimiter = snapshots(Duration.ofSeconds(3)).track(
+        fixedWindow(restarted, LongStateStoreFactory.CAFFEINE)).create(maxRequests, basePeriod);
+    RateLimitDecision denied = rateLimiter.tryAcquire("client1");
+    assertFalse(denied.allowed());
+    assertEquals(5, denied.retryAfterSeconds());
+    assertEquals(maxRequests - 2, rateLimiter.tryAcquire("client2").remaining());
+    assertEquals(maxRequests - 1, rateLimiter.tryAcquire("client3").remaining());
+
+    restarted.advance(Duration.ofSeconds(5));
+    assertTrue(rateLimiter.tryAcquire("client1").allowed());
+  }
+
+  @Test
+  void testRestore_FixedWindowInStripedStore_RestoresFingerprints() {
+    FakeTicker ticker = new FakeTicker();
+    try (RateLimiterSnapshots snapshots = snapshots(Duration.ZERO)) {
+      FixedWindowRateLimiter rateLimiter = (FixedWindowRateLimiter) snapshots.track(
+          fixedWindow(ticker, LongStateStoreFactory.STRIPED)).create(maxRequests, basePeriod);
+      exhaust(rateLimiter, "client1");
+      for (int i = 0; i < maxRequests; i++) {
+        rateLimiter.tryAcquire(1L, 2L);
+      }
+    }
+
+    FixedWindowRateLimiter rateLimiter = (FixedWindowRateLimiter) snapshots(Duration.ZERO).track(
+        fixedWindow(new FakeTicker(), LongStateStoreFactory.STRIPED))
+        .create(maxRequests, basePeriod);
+    assertFalse(rateLimiter.tryAcquire("client1").allowed());
+    assertFalse(rateLimiter.tryAcquire(1L, 2L).allowed());
+  }
+
+  @Test
+  void testRestore_WindowEndedDuringRestart_StartsFresh() {
+    try (RateLimiterSnapshots snapshots = snapshots(Duration.ZERO)) {
+      exhaust(snapshots.track(fixedWindow(new FakeTicker(), LongStateStoreFactory.CAFFEINE))
+          .create(maxRequests, basePeriod), "client1");
+    }
+
+    RateLimiterStrategy rateLimiter = snapshots(basePeriod).track(
+        fixedWindow(new FakeTicker(), LongStateStoreFactory.CAFFEINE))
+        .create(maxRequests, basePeriod);
+    assertEquals(maxRequests - 1, rateLimiter.tryAcquire("client1").remaining());
+  }
+
+  @Test
+  void testRestore_SlidingWindow_KeepsRequestsInWindow() {
+    try (RateLimiterSnapshots snapshots = snapshots(Duration.ZERO)) {
+      exhaust(snapshots.track(SlidingWindowRateLimiter::new).create(maxRequests, basePeriod),
+          "client1");
+    }
+
+    RateLimiterStrategy rateLimiter = snapshots(Duration.ZERO)
+        .track(SlidingWindowRateLimiter::new).create(maxRequests, basePeriod);
+    assertFalse(rateLimiter.tryAcquire("client1").allowed());
+    assertTrue(rateLimiter.tryAcquire("client2").allowed());
+  }
+
+  @Test
+  void testRestore_ChangedLimits_IgnoresSection() {
+    try (RateLimiterSnapshots snapshots = snapshots(Duration.ZERO)) {
+      exhaust(snapshots.track(fixedWindow(new FakeTicker(), LongStateStoreFactory.CAFFEINE))
+          .create(maxRequests, basePeriod), "client1");
+    }
+
+    RateLimiterStrategy rateLimiter = snapshots(Duration.ZERO).track(
+        fixedWindow(new FakeTicker(), LongStateStoreFactory.CAFFEINE))
+        .create(maxRequests + 1, basePeriod);
+    assertTrue(rateLimiter.tryAcquire("client1").allowed());
+  }
+
+  @Test
+  void testRestore_SameLimitsTwice_RestoresEachInOrder() {
+    FakeTicker ticker = new FakeTicker();
+    try (RateLimiterSnapshots snapshots = snapshots(Duration.ZERO)) {
+      RateLimiterFactory factory = snapshots.track(
+          fixedWindow(ticker, LongStateStoreFactory.CAFFEINE));
+      exhaust(factory.create(maxRequests, basePeriod), "client1");
+      exhaust(factory.create(maxRequests, basePeriod), "client2");
+    }
+
+    RateLimiterFactory factory = snapshots(Duration.ZERO).track(
+        fixedWindow(new FakeTicker(), LongStateStoreFactory.CAFFEINE));
+    RateLimiterStrategy first = factory.create(maxRequests, basePeriod);
+    RateLimiterStrategy second = factory.create(maxRequests, basePeriod);
+    assertFalse(first.tryAcquire("client1").allowed());
+    assertTrue(first.tryAcquire("client2").allowed());
+    assertFalse(second.tryAcquire("client2").allowed());
+  }
+
+  @Test
+  void testSnapshot_LargerThanOneRegion_IsReadBack() {
+    int keys = 100_000;
+    try (RateLimiterSnapshots snapshots = snapshots(Duration.ZERO)) {
+      RateLimiterStrategy rateLimiter = snapshots.track(
+          fixedWindow(new FakeTicker(), LongStateStoreFactory.CAFFEINE))
+          .create(maxRequests, basePeriod);
+      for (int i = 0; i < keys; i++) {
+        rateLimiter.tryAcquire("a-rather-long-client-key-" + i);
+      }
+    }
+
+    RateLimiterStrategy rateLimiter = snapshots(Duration.ZERO).track(
+        fixedWindow(new FakeTicker(), LongStateStoreFactory.CAFFEINE))
+        .create(maxRequests, basePeriod);
+    for (int i = 0; i < keys; i += 997) {
+      assertEquals(maxRequests - 2,
+          rateLimiter.tryAcquire("a-rather-long-client-key-" + i).remaining());
+    }
+  }
+
+  @Test
+  void testLoad_UnreadableFile_StartsEmpty() throws IOException {
+    Files.write(snapshot(), new byte[] {1, 2, 3});
+
+    RateLimiterStrategy rateLimiter = snapshots(Duration.ZERO).track(
+        fixedWindow(new FakeTicker(), LongStateStoreFactory.CAFFEINE))
+        .create(maxRequests, basePeriod);
+    assertEquals(maxRequests - 1, rateLimiter.tryAcquire("client1").remaining());
+  }
+
+  @Test
+  void testLoad_NoFile_StartsEmpty() {
+    RateLimiterStrategy rateLimiter = snapshots(Duration.ZERO).track(
+        SlidingWindowRateLimiter::new).create(maxRequests, basePeriod);
+    assertTrue(rateLimiter.tryAcquire("client1").allowed());
+  }
+}
@@ -0,0 +1,111 @@
+package com.zemnitskiy.httpratelimiter.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.testing.FakeTicker;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class CaffeineLongStateStoreTest {
+
+  private static final Duration EXPIRE_AFTER_ACCESS = Duration.ofSeconds(10);
+
+  private static final LongStateStore.StateUpdate INCREMENT = (state, _) -> state + 1;
+
+  private final FakeTicker ticker = new FakeTicker();
+
+  private final CaffeineLongStateStore store =
+      new CaffeineLongStateStore(EXPIRE_AFTER_ACCESS, ticker::read);
+
+  @Test
+  void testGetAndUpdate_NewKey_StartsAtZero() {
+    assertEquals(0, store.getAndUpdate("client1", 0, INCREMENT));
+    assertEquals(1, store.getAndUpdate("client1", 0, INCREMENT));
+    assertEquals(2, store.get("client1", 0));
+    assertEquals(0, store.get("client2", 0));
+  }
+
+  @Test
+  void testGetAndUpdate_UnchangedState_ReturnsIt() {
+    store.getAndUpdate("client1", 0, INCREMENT);
+    assertEquals(1, store.getAndUpdate("client1", 0, (state, _) -> state));
+    assertEquals(1, store.get("client1", 0));
+  }
+
+  @Test
+  void testExpiry_IdleKeyReadsAsZero() {
+    store.getAndUpdate("client1", 0, INCREMENT);
+    ticker.advance(EXPIRE_AFTER_ACCESS);
+
+    assertEquals(0, store.get("client1", 0));
+    assertEquals(0, store.getAndUpdate("client1", 0, INCREMENT));
+  }
+
+  @Test
+  void testGetAndUpdate_ConcurrentUpdates_AreAtomic() throws InterruptedException {
+    int threads = 8;
+    int increments = 10_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    for (int t = 0; t < threads; t++) {
+      executor.submit(() -> {
+        for (int i = 0; i < increments; i++) {
+          store.getAndUpdate("client1", 0, INCREMENT);
+        }
+      });
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+    assertEquals((long) threads * increments, store.get("client1", 0));
+  }
+
+  @Test
+  void testBinaryKeys_AreSeparateFromEachOtherAndFromStrings() {
+    assertEquals(0, store.getAndUpdate(0, 1, 0, INCREMENT));
+    assertEquals(1, store.getAndUpdate(0, 1, 0, INCREMENT));
+    assertEquals(0, store.getAndUpdate(1, 0, 0, INCREMENT));
+    assertEquals(2, store.get(0, 1, 0));
+    assertEquals(1, store.get(1, 0, 0));
+    assertEquals(0, store.get(0, 2, 0));
+    assertEquals(0, store.get("client1", 0));
+  }
+
+  @Test
+  void testEstimatedMemory_FollowsKeyCount() {
+    store.getAndUpdate("client1", 0, INCREMENT);
+    store.getAndUpdate(0, 1, 0, INCREMENT);
+    assertEquals(2 * CaffeineLongStateStore.BYTES_PER_KEY, store.estimatedMemoryBytes());
+  }
+
+  @Test
+  void testForEach_VisitsKeysAsStored() {
+    store.getAndUpdate("client1", 0, (_, _) -> 7);
+    store.getAndUpdate(1L, 2L, 0, (_, _) -> 9);
+    Map<String, Long> visited = new HashMap<>();
+    store.forEach(0, new LongStateStore.EntryVisitor() {
+      @Override
+      public void visit(String key, long state) {
+        visited.put(key, state);
+      }
+
+      @Override
+      public void visit(long keyHigh, long keyLow, long state) {
+        visited.put(keyHigh + "/" + keyLow, state);
+      }
+
+      @Override
+      public void visitFingerprint(long fingerprint, long state) {
+        throw new AssertionError("Keys are stored");
+      }
+    });
+    assertEquals(Map.of("client1", 7L, "1/2", 9L), visited);
+    assertFalse(store.putFingerprint(StripedLongStateStore.fingerprint("client2"), 0, 5));
+  }
+}
@@ -0,0 +1,241 @@
+package com.zemnitskiy.httpratelimiter.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class StripedLongStateStoreTest {
+
+  private static final Duration EXPIRE_AFTER_ACCESS = Duration.ofSeconds(10);
+
+  private static final LongStateStore.StateUpdate INCREMENT = (state, _) -> state + 1;
+
+  private final StripedLongStateStore store = new StripedLongStateStore(EXPIRE_AFTER_ACCESS, 4);
+
+  @Test
+  void testGetAndUpdate_NewKey_StartsAtZero() {
+    assertEquals(0, store.get("client1", 0));
+    assertEquals(0, store.getAndUpdate("client1", 0, INCREMENT));
+    assertEquals(1, store.getAndUpdate("client1", 0, INCREMENT));
+    assertEquals(2, store.get("client1", 0));
+    assertEquals(0, store.get("client2", 0));
+  }
+
+  @Test
+  void testGetAndUpdate_PassesTimeToUpdate() {
+    store.getAndUpdate("client1", 1234, (_, now) -> now * 2);
+    assertEquals(2468, store.get("client1", 1234));
+  }
+
+  @Test
+  void testGetAndUpdate_ManyKeys_SurviveGrowth() {
+    int keys = 100_000;
+    for (int i = 0; i < keys; i++) {
+      long value = i;
+      store.getAndUpdate("10.0." + i, 0, (_, _) -> value);
+    }
+    assertEquals(keys, store.estimatedSize());
+    for (int i = 0; i < keys; i++) {
+      assertEquals(i, store.get("10.0." + i, 0));
+    }
+  }
+
+  @Test
+  void testExpiry_IdleKeyReadsAsZero() {
+    store.getAndUpdate("client1", 0, INCREMENT);
+    long expired = EXPIRE_AFTER_ACCESS.toMillis();
+
+    assertEquals(1, store.get("client1", expired - 1));
+    assertEquals(0, store.get("client1", expired));
+    assertEquals(0, store.getAndUpdate("client1", expired, INCREMENT),
+        "An expired key should start over from zero.");
+  }
+
+  @Test
+  void testExpiry_AccessExtendsLifetime() {
+    store.getAndUpdate("client1", 0, INCREMENT);
+    store.getAndUpdate("client1", 9_000, INCREMENT);
+
+    assertEquals(2, store.get("client1", 18_000));
+  }
+
+  @Test
+  void testRebuild_DropsExpiredKeys() {
+    int keys = 10_000;
+    for (int i = 0; i < keys; i++) {
+      store.getAndUpdate("old" + i, 0, INCREMENT);
+    }
+    long later = EXPIRE_AFTER_ACCESS.toMillis();
+    for (int i = 0; i < keys; i++) {
+      store.getAndUpdate("new" + i, later, INCREMENT);
+    }
+
+    assertTrue(store.estimatedSize() < 2L * keys,
+        "Expired keys should be reclaimed when stripes fill up, size: " + store.estimatedSize());
+    for (int i = 0; i < keys; i++) {
+      assertEquals(1, store.get("new" + i, later));
+    }
+  }
+
+  @Test
+  void testTimeWrapAround_KeepsExpiryCorrect() {
+    long start = Integer.MAX_VALUE - 5_000L;
+    store.getAndUpdate("client1", start, INCREMENT);
+
+    assertEquals(1, store.get("client1", start + 9_999));
+    assertEquals(0, store.get("client1", start + 10_000));
+  }
+
+  @Test
+  void testLongIdleKey_ExpiresAfterIntRangeOfMilliseconds() {
+    store.getAndUpdate("client1", 0, INCREMENT);
+    long thirtyDays = Duration.ofDays(30).toMillis();
+
+    assertEquals(0, store.get("client1", thirtyDays));
+    assertEquals(0, store.getAndUpdate("client1", thirtyDays, INCREMENT),
+        "A key idle for longer than the int range of milliseconds should have expired.");
+    assertEquals(1, store.get("client1", thirtyDays + 9_999));
+  }
+
+  @Test
+  void testEpochMove_KeepsLiveKeysAndTheirExpiry() {
+    long start = Integer.MAX_VALUE - 5_000L;
+    store.getAndUpdate("client1", start, INCREMENT);
+    store.getAndUpdate("client2", start + 9_000, INCREMENT);
+    // The first access after Integer.MAX_VALUE milliseconds moves the epoch of the stripe
+    for (int i = 0; i < 64; i++) {
+      store.getAndUpdate("other" + i, start + 9_500, INCREMENT);
+    }
+
+    assertEquals(1, store.get("client1", start + 9_999));
+    assertEquals(0, store.get("client1", start + 10_000));
+    assertEquals(1, store.getAndUpdate("client2", start + 18_999, INCREMENT));
+    assertEquals(2, store.get("client2", start + 28_998));
+    assertEquals(0, store.get("client2", start + 28_999));
+  }
+
+  @Test
+  void testGetAndUpdate_ConcurrentUpdates_AreAtomic() throws InterruptedException {
+    int threads = 8;
+    int increments = 10_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    for (int t = 0; t < threads; t++) {
+      executor.submit(() -> {
+        for (int i = 0; i < increments; i++) {
+          store.getAndUpdate("client" + (i % 16), 0, INCREMENT);
+        }
+      });
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+    for (int k = 0; k < 16; k++) {
+      assertEquals((long) threads * increments / 16, store.get("client" + k, 0));
+    }
+  }
+
+  @Test
+  void testSingleStripe() {
+    StripedLongStateStore single = new StripedLongStateStore(EXPIRE_AFTER_ACCESS, 1);
+    for (int i = 0; i < 1_000; i++) {
+      single.getAndUpdate("client" + i, 0, INCREMENT);
+    }
+    assertEquals(1_000, single.estimatedSize());
+  }
+
+  @Test
+  void testFingerprint_IsNeverZeroAndDiffersForSimilarKeys() {
+    assertNotEquals(0, StripedLongStateStore.fingerprint(""));
+    assertNotEquals(StripedLongStateStore.fingerprint("10.0.0.1"),
+        StripedLongStateStore.fingerprint("10.0.0.2"));
+  }
+
+  @Test
+  void testInvalidSettings() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new StripedLongStateStore(Duration.ZERO, 4));
+    assertThrows(IllegalArgumentException.class,
+        () -> new StripedLongStateStore(EXPIRE_AFTER_ACCESS, 0));
+  }
+
+  @Test
+  void testBinaryKeys_AreSeparateFromEachOtherAndFromStrings() {
+    assertEquals(0, store.getAndUpdate(0, 1, 0, INCREMENT));
+    assertEquals(1, store.getAndUpdate(0, 1, 0, INCREMENT));
+    assertEquals(0, store.getAndUpdate(1, 0, 0, INCREMENT));
+    assertEquals(2, store.get(0, 1, 0));
+    assertEquals(1, store.get(1, 0, 0));
+    assertEquals(0, store.get(0, 2, 0));
+    assertEquals(0, store.get("client1", 0));
+  }
+
+  @Test
+  void testBinaryKeys_ManyIpv4Keys_SurviveGrowth() {
+    int keys = 100_000;
+    for (int i = 0; i < keys; i++) {
+      long value = i;
+      store.getAndUpdate(0, 0xFFFF_0A00_0000L | i, 0, (_, _) -> value);
+    }
+    assertEquals(keys, store.estimatedSize());
+    for (int i = 0; i < keys; i++) {
+      assertEquals(i, store.get(0, 0xFFFF_0A00_0000L | i, 0));
+    }
+  }
+
+  @Test
+  void testBinaryFingerprint_IsNeverZeroAndDiffersForSwappedHalves() {
+    assertNotEquals(0, StripedLongStateStore.fingerprint(0, 0));
+    assertNotEquals(StripedLongStateStore.fingerprint(1, 2), StripedLongStateStore.fingerprint(2, 1));
+  }
+
+  @Test
+  void testEstimatedMemory_FollowsCapacity() {
+    long empty = store.estimatedMemoryBytes();
+    assertEquals(4L * StripedLongStateStore.MIN_STRIPE_CAPACITY
+        * StripedLongStateStore.BYTES_PER_SLOT, empty, 4 * 3 * 16);
+    for (int i = 0; i < 10_000; i++) {
+      store.getAndUpdate("client" + i, 0, INCREMENT);
+    }
+    assertTrue(store.estimatedMemoryBytes() >= 10_000L * StripedLongStateStore.BYTES_PER_SLOT);
+  }
+
+  @Test
+  void testForEach_VisitsLiveFingerprints_WhichCanBePutBack() {
+    store.getAndUpdate("client1", 0, (_, _) -> 7);
+    store.getAndUpdate("client2", 0, (_, _) -> 9);
+    store.getAndUpdate("idle", -EXPIRE_AFTER_ACCESS.toMillis(), (_, _) -> 11);
+    Map<Long, Long> visited = new HashMap<>();
+    store.forEach(0, new LongStateStore.EntryVisitor() {
+      @Override
+      public void visit(String key, long state) {
+        throw new AssertionError("Keys are not stored");
+      }
+
+      @Override
+      public void visit(long keyHigh, long keyLow, long state) {
+        throw new AssertionError("Keys are not stored");
+      }
+
+      @Override
+      public void visitFingerprint(long fingerprint, long state) {
+        visited.put(fingerprint, state);
+      }
+    });
+    assertEquals(Map.of(StripedLongStateStore.fingerprint("client1"), 7L,
+        StripedLongStateStore.fingerprint("client2"), 9L), visited);
+
+    StripedLongStateStore restored = new StripedLongStateStore(EXPIRE_AFTER_ACCESS, 4);
+    visited.forEach((fingerprint, state) -> restored.putFingerprint(fingerprint, 0, state));
+    assertEquals(7, restored.get("client1", 0));
+    assertEquals(9, restored.get("client2", 0));
+  }
+}
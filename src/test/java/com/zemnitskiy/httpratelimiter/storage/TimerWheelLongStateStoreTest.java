@@ -0,0 +1,200 @@
+package com.zemnitskiy.httpratelimiter.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.google.common.testing.FakeTicker;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class TimerWheelLongStateStoreTest {
+
+  private static final Duration EXPIRE_AFTER_ACCESS = Duration.ofSeconds(10);
+
+  private static final LongStateStore.StateUpdate INCREMENT = (state, _) -> state + 1;
+
+  private final FakeTicker ticker = new FakeTicker();
+
+  private final TimerWheelLongStateStore store =
+      new TimerWheelLongStateStore(EXPIRE_AFTER_ACCESS, ticker::read, false);
+
+  @Test
+  void testGetAndUpdate_NewKey_StartsAtZero() {
+    assertEquals(0, store.getAndUpdate("client1", 0, INCREMENT));
+    assertEquals(1, store.getAndUpdate("client1", 0, INCREMENT));
+    assertEquals(2, store.get("client1", 0));
+    assertEquals(0, store.get("client2", 0));
+  }
+
+  @Test
+  void testGetAndUpdate_UnchangedState_ReturnsIt() {
+    store.getAndUpdate("client1", 0, INCREMENT);
+    assertEquals(1, store.getAndUpdate("client1", 0, (state, _) -> state));
+    assertEquals(1, store.get("client1", 0));
+  }
+
+  @Test
+  void testExpiry_IdleKeyReadsAsZeroBeforeRemoval() {
+    store.getAndUpdate("client1", 0, INCREMENT);
+    long expired = EXPIRE_AFTER_ACCESS.toMillis();
+
+    assertEquals(1, store.get("client1", expired - 1));
+    assertEquals(0, store.get("client1", expired));
+    assertEquals(0, store.getAndUpdate("client1", expired, INCREMENT),
+        "An expired key should start over from zero.");
+    assertEquals(1, store.get("client1", expired));
+  }
+
+  @Test
+  void testExpire_RemovesIdleKeysInBulk() {
+    for (int i = 0; i < 1000; i++) {
+      store.getAndUpdate("10.0." + i, 0, INCREMENT);
+    }
+    for (int i = 0; i < 500; i++) {
+      store.getAndUpdate("10.0." + i, 5_000, INCREMENT);
+    }
+
+    store.expire(9_999);
+    assertEquals(1000, store.estimatedSize());
+    store.expire(10_000);
+    assertEquals(500, store.estimatedSize());
+    assertEquals(2, store.get("10.0.0", 10_000));
+
+    store.expire(15_000);
+    assertEquals(0, store.estimatedSize());
+  }
+
+  @Test
+  void testExpire_RemovedKeyStartsOver() {
+    store.getAndUpdate("client1", 0, INCREMENT);
+    store.expire(10_000);
+    assertEquals(0, store.estimatedSize());
+
+    assertEquals(0, store.getAndUpdate("client1", 10_000, INCREMENT));
+    store.expire(19_999);
+    assertEquals(1, store.get("client1", 19_999));
+    store.expire(20_000);
+    assertEquals(0, store.estimatedSize());
+  }
+
+  @Test
+  void testExpire_AfterLongPause_ChecksEveryKeyOnce() {
+    store.getAndUpdate("client1", 0, INCREMENT);
+    store.getAndUpdate("client2", 3_000, INCREMENT);
+
+    store.expire(TimeUnit.DAYS.toMillis(365));
+
+    assertEquals(0, store.estimatedSize());
+  }
+
+  @Test
+  void testBackgroundThread_RemovesIdleKeys() throws InterruptedException {
+    Ticker systemTicker = Ticker.systemTicker();
+    long epoch = systemTicker.read();
+    TimerWheelLongStateStore swept =
+        new TimerWheelLongStateStore(Duration.ofMillis(50), systemTicker);
+    for (int i = 0; i < 100; i++) {
+      swept.getAndUpdate("10.0." + i,
+          TimeUnit.NANOSECONDS.toMillis(systemTicker.read() - epoch), INCREMENT);
+    }
+    assertEquals(100, swept.estimatedSize());
+
+    for (int i = 0; i < 200 && swept.estimatedSize() > 0; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, swept.estimatedSize());
+  }
+
+  @Test
+  void testClose_StopsBackgroundThread() throws InterruptedException {
+    Ticker systemTicker = Ticker.systemTicker();
+    long epoch = systemTicker.read();
+    TimerWheelLongStateStore closed =
+        new TimerWheelLongStateStore(Duration.ofMillis(50), systemTicker);
+    closed.close();
+    for (int i = 0; i < 100; i++) {
+      closed.getAndUpdate("10.0." + i,
+          TimeUnit.NANOSECONDS.toMillis(systemTicker.read() - epoch), INCREMENT);
+    }
+
+    Thread.sleep(300);
+    assertEquals(100, closed.estimatedSize());
+  }
+
+  @Test
+  void testGetAndUpdate_ConcurrentUpdates_AreAtomic() throws InterruptedException {
+    int threads = 8;
+    int increments = 10_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    for (int t = 0; t < threads; t++) {
+      executor.submit(() -> {
+        for (int i = 0; i < increments; i++) {
+          store.getAndUpdate("client1", 0, INCREMENT);
+        }
+      });
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+    assertEquals((long) threads * increments, store.get("client1", 0));
+  }
+
+  @Test
+  void testBinaryKeys_AreSeparateFromEachOtherAndFromStrings() {
+    assertEquals(0, store.getAndUpdate(0, 1, 0, INCREMENT));
+    assertEquals(1, store.getAndUpdate(0, 1, 0, INCREMENT));
+    assertEquals(0, store.getAndUpdate(1, 0, 0, INCREMENT));
+    assertEquals(2, store.get(0, 1, 0));
+    assertEquals(1, store.get(1, 0, 0));
+    assertEquals(0, store.get(0, 2, 0));
+    assertEquals(0, store.get("client1", 0));
+  }
+
+  @Test
+  void testEstimatedMemory_FollowsKeyCount() {
+    store.getAndUpdate("client1", 0, INCREMENT);
+    store.getAndUpdate(0, 1, 0, INCREMENT);
+    assertEquals(2 * TimerWheelLongStateStore.BYTES_PER_KEY, store.estimatedMemoryBytes());
+  }
+
+  @Test
+  void testForEach_VisitsLiveKeysAsStored() {
+    store.getAndUpdate("client1", 0, (_, _) -> 7);
+    store.getAndUpdate(1L, 2L, 5_000, (_, _) -> 9);
+    Map<String, Long> visited = new HashMap<>();
+    store.forEach(10_000, new LongStateStore.EntryVisitor() {
+      @Override
+      public void visit(String key, long state) {
+        visited.put(key, state);
+      }
+
+      @Override
+      public void visit(long keyHigh, long keyLow, long state) {
+        visited.put(keyHigh + "/" + keyLow, state);
+      }
+
+      @Override
+      public void visitFingerprint(long fingerprint, long state) {
+        throw new AssertionError("Keys are stored");
+      }
+    });
+    assertEquals(Map.of("1/2", 9L), visited);
+    assertFalse(store.putFingerprint(StripedLongStateStore.fingerprint("client2"), 0, 5));
+  }
+
+  @Test
+  void testInvalidSettings_ShouldThrowException() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new TimerWheelLongStateStore(Duration.ZERO, ticker::read));
+    assertThrows(IllegalArgumentException.class,
+        () -> new TimerWheelLongStateStore(null, ticker::read));
+  }
+}
@@ -0,0 +1,318 @@
+package com.zemnitskiy.httpratelimiter.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import com.google.common.testing.FakeTicker;
+import com.zemnitskiy.httpratelimiter.clientkey.IpClientKey;
+import com.zemnitskiy.httpratelimiter.metrics.RateLimiterMetrics;
+import com.zemnitskiy.httpratelimiter.policy.RateLimitPolicy;
+import com.zemnitskiy.httpratelimiter.ratelimiter.concurrency.AdaptiveConcurrencyRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.leakybucket.LeakyBucketRateLimiter;
+import com.zemnitskiy.httpratelimiter.policy.RateLimiterPolicies;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStoreFactory;
+import com.zemnitskiy.httpratelimiter.strategy.BinaryKeyRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.Filter;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.http.HttpServlet;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.filter.CharacterEncodingFilter;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimiterFilterTest {
+
+  @Mock
+  private BinaryKeyRateLimiterStrategy rateLimiter;
+
+  @Mock
+  private BinaryKeyRateLimiterStrategy loginRateLimiter;
+
+  private RateLimiterFilter filter;
+
+  private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  private final MockFilterChain chain = new MockFilterChain();
+
+  @BeforeEach
+  public void setUp() {
+    filter = new RateLimiterFilter(rateLimiter, new IpClientKey());
+    request.addHeader("X-Forwarded-For", "10.0.0.1");
+  }
+
+  @Test
+  void testDoFilter_Allowed_ShouldContinueChain() throws ServletException, IOException {
+    when(rateLimiter.tryAcquire(0, 0xFFFF_0A00_0001L)).thenReturn(RateLimitDecision.allow(4, 10));
+
+    filter.doFilter(request, response, chain);
+
+    assertNotNull(chain.getRequest(), "The request should be passed down the chain.");
+    assertEquals(200, response.getStatus());
+  }
+
+  @Test
+  void testDoFilter_Denied_ShouldWriteTooManyRequestsAndStop()
+      throws ServletException, IOException {
+    when(rateLimiter.tryAcquire(0, 0xFFFF_0A00_0001L)).thenReturn(RateLimitDecision.deny(7, 10));
+
+    filter.doFilter(request, response, chain);
+
+    assertNull(chain.getRequest(), "A rejected request should not reach the rest of the chain.");
+    assertEquals(429, response.getStatus());
+    assertEquals("7", response.getHeader("Retry-After"));
+    assertEquals("text/plain", response.getContentType());
+    assertEquals("Too many requests", response.getContentAsString());
+  }
+
+  @Test
+  void testDoFilter_Denied_ShouldWriteMessageOfRateLimiter()
+      throws ServletException, IOException {
+    when(rateLimiter.rejectionMessage()).thenReturn("Too many requests. You have only 5 requests");
+    filter = new RateLimiterFilter(rateLimiter, new IpClientKey());
+    when(rateLimiter.tryAcquire(0, 0xFFFF_0A00_0001L)).thenReturn(RateLimitDecision.deny(7, 10));
+
+    filter.doFilter(request, response, chain);
+
+    assertEquals(429, response.getStatus());
+    assertEquals("Too many requests. You have only 5 requests", response.getContentAsString());
+    assertEquals(response.getContentAsByteArray().length, response.getContentLength());
+  }
+
+  @Test
+  void testDoFilter_KeyWithoutBinaryForm_ShouldUseStringKey() throws ServletException, IOException {
+    MockHttpServletRequest unknown = new MockHttpServletRequest();
+    unknown.addHeader("X-Forwarded-For", "unknown");
+    when(rateLimiter.tryAcquire("unknown")).thenReturn(RateLimitDecision.deny(5000, 5000));
+
+    filter.doFilter(unknown, response, chain);
+
+    assertEquals(429, response.getStatus());
+    assertEquals("5000", response.getHeader("Retry-After"));
+  }
+
+  @Test
+  void testDoFilter_RecordsDecisions() throws ServletException, IOException {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    RateLimiterFilter metered =
+        new RateLimiterFilter(rateLimiter, new IpClientKey(),
+            new RateLimiterMetrics(registry, rateLimiter));
+    when(rateLimiter.tryAcquire(0, 0xFFFF_0A00_0001L)).thenReturn(RateLimitDecision.deny(7, 10));
+
+    metered.doFilter(request, response, chain);
+
+    assertEquals(1, registry.get(RateLimiterMetrics.REQUESTS).tag("outcome", "denied")
+        .counter().count());
+    assertEquals(1, registry.get(RateLimiterMetrics.DECISION).timer().count());
+  }
+
+  @Test
+  void testDoFilter_MatchingPolicy_ShouldUseItsRateLimiter() throws ServletException, IOException {
+    RateLimiterPolicies policies = new RateLimiterPolicies(rateLimiter,
+        List.of(new RateLimitPolicy("login", "/api/login", List.of("POST"), null, 1,
+            Duration.ofMinutes(1))),
+        (_, _) -> loginRateLimiter, RateLimiterPolicies.DEFAULT_TIER_HEADER);
+    RateLimiterFilter policyFilter =
+        new RateLimiterFilter(policies, new IpClientKey(), RateLimiterMetrics.disabled());
+    request.setMethod("POST");
+    request.setRequestURI("/api/login");
+    when(loginRateLimiter.tryAcquire(0, 0xFFFF_0A00_0001L))
+        .thenReturn(RateLimitDecision.deny(60, 60));
+
+    policyFilter.doFilter(request, response, chain);
+
+    assertEquals(429, response.getStatus());
+    assertEquals("60", response.getHeader("Retry-After"));
+  }
+
+  @Test
+  void testDoFilter_CompletionAware_ReleasesRequestWhenChainReturns()
+      throws ServletException, IOException {
+    AdaptiveConcurrencyRateLimiter adaptive = new AdaptiveConcurrencyRateLimiter(1, 1, 10, 10);
+    filter = new RateLimiterFilter(adaptive, new IpClientKey());
+    MockHttpServletResponse secondResponse = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, (_, _) -> {
+      assertEquals(1, adaptive.inFlight());
+      // The limit of one is taken until the first request completes
+      filter.doFilter(request, secondResponse, new MockFilterChain());
+    });
+
+    assertEquals(0, adaptive.inFlight());
+    assertEquals(429, secondResponse.getStatus());
+  }
+
+  @Test
+  void testDoFilter_CompletionAware_ChainFailure_LowersLimit() {
+    AdaptiveConcurrencyRateLimiter adaptive = new AdaptiveConcurrencyRateLimiter(10, 1, 10, 10);
+    filter = new RateLimiterFilter(adaptive, new IpClientKey());
+
+    assertThrows(ServletException.class, () -> filter.doFilter(request, response, (_, _) -> {
+      throw new ServletException("handler failed");
+    }));
+
+    assertEquals(0, adaptive.inFlight());
+    assertEquals(9, adaptive.limit());
+  }
+
+  @Test
+  void testDoFilter_AsyncHandler_ReleasesRequestInFlightWhenAsyncCompletes()
+      throws ServletException, IOException {
+    AdaptiveConcurrencyRateLimiter adaptive = new AdaptiveConcurrencyRateLimiter(1, 1, 10, 10);
+    filter = new RateLimiterFilter(adaptive, new IpClientKey());
+    request.setAsyncSupported(true);
+
+    // Like a Callable or DeferredResult handler, the chain returns once async processing started
+    filter.doFilter(request, response, (asyncRequest, _) -> asyncRequest.startAsync());
+    assertEquals(1, adaptive.inFlight());
+    MockHttpServletResponse rejected = new MockHttpServletResponse();
+    filter.doFilter(asyncRequest(), rejected, new MockFilterChain());
+    assertEquals(429, rejected.getStatus());
+
+    ((MockAsyncContext) request.getAsyncContext()).complete();
+    assertEquals(0, adaptive.inFlight());
+  }
+
+  @Test
+  void testDoFilter_Queueing_ShouldParkDelayedRequestUntilItsTurn()
+      throws ServletException, IOException, InterruptedException {
+    // One request every 100 milliseconds, with room for one waiting request
+    filter = new RateLimiterFilter(new LeakyBucketRateLimiter(10, Duration.ofSeconds(1), 1,
+        new FakeTicker()::read, LongStateStoreFactory.CAFFEINE), new IpClientKey());
+    request.setAsyncSupported(true);
+    filter.doFilter(request, response, chain);
+    assertNotNull(chain.getRequest());
+
+    MockHttpServletRequest delayed = asyncRequest();
+    MockFilterChain delayedChain = new MockFilterChain();
+    filter.doFilter(delayed, new MockHttpServletResponse(), delayedChain);
+
+    assertNull(delayedChain.getRequest(), "A parked request should not continue at once.");
+    assertTrue(delayed.isAsyncStarted());
+    MockAsyncContext parked = (MockAsyncContext) delayed.getAsyncContext();
+    for (int i = 0; i < 100 && parked.getDispatchedPath() == null; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals("/test", parked.getDispatchedPath());
+
+    MockHttpServletResponse overflow = new MockHttpServletResponse();
+    filter.doFilter(asyncRequest(), overflow, new MockFilterChain());
+    assertEquals(429, overflow.getStatus());
+    assertEquals("1", overflow.getHeader("Retry-After"));
+  }
+
+  @Test
+  void testDoFilter_ParkedRequest_RunsLaterFiltersWhenDispatchedAgain()
+      throws ServletException, IOException, InterruptedException {
+    filter = new RateLimiterFilter(new LeakyBucketRateLimiter(10, Duration.ofSeconds(1), 1,
+        new FakeTicker()::read, LongStateStoreFactory.CAFFEINE), new IpClientKey());
+    request.setAsyncSupported(true);
+    filter.doFilter(request, response, chain);
+    MockHttpServletRequest delayed = asyncRequest();
+    filter.doFilter(delayed, new MockHttpServletResponse(), new MockFilterChain());
+    MockAsyncContext parked = (MockAsyncContext) delayed.getAsyncContext();
+    for (int i = 0; i < 100 && parked.getDispatchedPath() == null; i++) {
+      Thread.sleep(10);
+    }
+
+    // The container dispatches the request again through the filters registered for ASYNC
+    List<ServletRequest> laterFilterRequests = new ArrayList<>();
+    Filter laterFilter = (laterRequest, laterResponse, next) -> {
+      laterFilterRequests.add(laterRequest);
+      next.doFilter(laterRequest, laterResponse);
+    };
+    delayed.setDispatcherType(DispatcherType.ASYNC);
+    MockHttpServletResponse dispatched = new MockHttpServletResponse();
+    new MockFilterChain(new HttpServlet() { }, filter, laterFilter).doFilter(delayed, dispatched);
+
+    assertEquals(List.of(delayed), laterFilterRequests);
+    assertNotEquals(429, dispatched.getStatus());
+  }
+
+  @Test
+  void testDoFilter_ParkedRequest_KeepsWorkOfSpringFiltersOrderedBefore()
+      throws ServletException, IOException, InterruptedException {
+    filter = new RateLimiterFilter(new LeakyBucketRateLimiter(10, Duration.ofSeconds(1), 1,
+        new FakeTicker()::read, LongStateStoreFactory.CAFFEINE), new IpClientKey());
+    CharacterEncodingFilter encodingFilter = new CharacterEncodingFilter("UTF-8", true);
+    request.setAsyncSupported(true);
+    filter.doFilter(request, response, chain);
+
+    MockHttpServletRequest delayed = asyncRequest();
+    new MockFilterChain(new HttpServlet() { }, encodingFilter, filter)
+        .doFilter(delayed, new MockHttpServletResponse());
+    assertTrue(delayed.isAsyncStarted());
+    MockAsyncContext parked = (MockAsyncContext) delayed.getAsyncContext();
+    for (int i = 0; i < 100 && parked.getDispatchedPath() == null; i++) {
+      Thread.sleep(10);
+    }
+
+    // The encoding filter skips the ASYNC dispatch, but it ran before the request was parked
+    List<String> handledEncodings = new ArrayList<>();
+    Filter handler = (handledRequest, _, _) ->
+        handledEncodings.add(handledRequest.getCharacterEncoding());
+    delayed.setDispatcherType(DispatcherType.ASYNC);
+    new MockFilterChain(new HttpServlet() { }, encodingFilter, filter, handler)
+        .doFilter(delayed, new MockHttpServletResponse());
+
+    assertEquals(List.of("UTF-8"), handledEncodings);
+  }
+
+  @Test
+  void testDoFilter_AsyncDispatchOfUnparkedRequest_IsNotCounted()
+      throws ServletException, IOException {
+    filter = new RateLimiterFilter(new AdaptiveConcurrencyRateLimiter(1, 1, 10, 10),
+        new IpClientKey());
+    request.setDispatcherType(DispatcherType.ASYNC);
+
+    for (int i = 0; i < 3; i++) {
+      MockFilterChain asyncDispatch = new MockFilterChain();
+      filter.doFilter(request, new MockHttpServletResponse(), asyncDispatch);
+      assertSame(request, asyncDispatch.getRequest());
+    }
+  }
+
+  @Test
+  void testDoFilter_Queueing_WithoutAsyncSupport_ShouldReject()
+      throws ServletException, IOException {
+    filter = new RateLimiterFilter(new LeakyBucketRateLimiter(10, Duration.ofSeconds(1), 1,
+        new FakeTicker()::read, LongStateStoreFactory.CAFFEINE), new IpClientKey());
+    filter.doFilter(request, response, chain);
+
+    MockHttpServletResponse delayed = new MockHttpServletResponse();
+    filter.doFilter(request, delayed, new MockFilterChain());
+
+    assertFalse(request.isAsyncStarted());
+    assertEquals(429, delayed.getStatus());
+  }
+
+  private static MockHttpServletRequest asyncRequest() {
+    MockHttpServletRequest asyncRequest = new MockHttpServletRequest("GET", "/test");
+    asyncRequest.addHeader("X-Forwarded-For", "10.0.0.1");
+    asyncRequest.setAsyncSupported(true);
+    return asyncRequest;
+  }
+}
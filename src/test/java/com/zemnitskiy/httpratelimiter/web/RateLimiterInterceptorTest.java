@@ -0,0 +1,170 @@
+package com.zemnitskiy.httpratelimiter.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.zemnitskiy.httpratelimiter.clientkey.IpClientKey;
+import com.zemnitskiy.httpratelimiter.ratelimiter.concurrency.AdaptiveConcurrencyRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.leakybucket.LeakyBucketRateLimiter;
+import com.zemnitskiy.httpratelimiter.strategy.BinaryKeyRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.ClientKeyStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import jakarta.servlet.DispatcherType;
+import java.io.IOException;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimiterInterceptorTest {
+
+  @Mock
+  private RateLimiterStrategy rateLimiter;
+
+  @Mock
+  private ClientKeyStrategy clientKeyStrategy;
+
+  private RateLimiterInterceptor interceptor;
+
+  private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  @BeforeEach
+  public void setUp() {
+    interceptor = new RateLimiterInterceptor(rateLimiter, clientKeyStrategy);
+    lenient().when(clientKeyStrategy.getClientKey(request)).thenReturn("client1");
+  }
+
+  @Test
+  void testPreHandle_Allowed_ShouldContinue() throws IOException {
+    when(rateLimiter.tryAcquire("client1")).thenReturn(RateLimitDecision.allow(4, 10));
+
+    assertTrue(interceptor.preHandle(request, response, new Object()));
+    assertEquals(200, response.getStatus());
+  }
+
+  @Test
+  void testPreHandle_Denied_ShouldWriteTooManyRequests() throws IOException {
+    when(rateLimiter.tryAcquire("client1")).thenReturn(RateLimitDecision.deny(7, 10));
+
+    assertFalse(interceptor.preHandle(request, response, new Object()));
+    assertEquals(429, response.getStatus());
+    assertEquals("7", response.getHeader("Retry-After"));
+    assertEquals("Too many requests", response.getContentAsString());
+  }
+
+  @Test
+  void testPreHandle_Denied_ShouldWriteMessageOfRateLimiter() throws IOException {
+    when(rateLimiter.rejectionMessage()).thenReturn("Too many requests. You have only 5 requests");
+    interceptor = new RateLimiterInterceptor(rateLimiter, clientKeyStrategy);
+    when(rateLimiter.tryAcquire("client1")).thenReturn(RateLimitDecision.deny(7, 10));
+
+    assertFalse(interceptor.preHandle(request, response, new Object()));
+    assertEquals("Too many requests. You have only 5 requests", response.getContentAsString());
+  }
+
+  @Test
+  void testPreHandle_BinaryKeys_ShouldNotBuildStringKey() throws IOException {
+    BinaryKeyRateLimiterStrategy binaryRateLimiter = mock(BinaryKeyRateLimiterStrategy.class);
+    interceptor = new RateLimiterInterceptor(binaryRateLimiter, new IpClientKey());
+    request.addHeader("X-Forwarded-For", "10.0.0.1, 10.0.0.2");
+    when(binaryRateLimiter.tryAcquire(0, 0xFFFF_0A00_0001L)).thenReturn(RateLimitDecision.deny(3, 10));
+
+    assertFalse(interceptor.preHandle(request, response, new Object()));
+    assertEquals("3", response.getHeader("Retry-After"));
+    verify(binaryRateLimiter, never()).tryAcquire("10.0.0.1");
+  }
+
+  @Test
+  void testPreHandle_KeyWithoutBinaryForm_ShouldUseStringKey() throws IOException {
+    BinaryKeyRateLimiterStrategy binaryRateLimiter = mock(BinaryKeyRateLimiterStrategy.class);
+    interceptor = new RateLimiterInterceptor(binaryRateLimiter, new IpClientKey());
+    request.addHeader("X-Forwarded-For", "unknown");
+    when(binaryRateLimiter.tryAcquire("unknown")).thenReturn(RateLimitDecision.allow());
+
+    assertTrue(interceptor.preHandle(request, response, new Object()));
+  }
+
+  @Test
+  void testAfterCompletion_ReleasesRequestInFlight() throws IOException {
+    AdaptiveConcurrencyRateLimiter adaptive = new AdaptiveConcurrencyRateLimiter(1, 1, 10, 10);
+    interceptor = new RateLimiterInterceptor(adaptive, clientKeyStrategy);
+
+    assertTrue(interceptor.preHandle(request, response, new Object()));
+    assertEquals(1, adaptive.inFlight());
+    assertFalse(interceptor.preHandle(request, new MockHttpServletResponse(), new Object()));
+
+    interceptor.afterCompletion(request, response, new Object(), null);
+    assertEquals(0, adaptive.inFlight());
+    // A second call for the same request is ignored
+    interceptor.afterCompletion(request, response, new Object(), null);
+    assertEquals(0, adaptive.inFlight());
+  }
+
+  @Test
+  void testAsyncHandler_TakesOnePermitAndReleasesItOnce() throws IOException {
+    AdaptiveConcurrencyRateLimiter adaptive = new AdaptiveConcurrencyRateLimiter(1, 1, 10, 10);
+    interceptor = new RateLimiterInterceptor(adaptive, clientKeyStrategy);
+
+    // The handler starts async processing, so DispatcherServlet skips afterCompletion
+    assertTrue(interceptor.preHandle(request, response, new Object()));
+    assertEquals(1, adaptive.inFlight());
+
+    // The async result is handled on an ASYNC dispatch of the same request
+    request.setDispatcherType(DispatcherType.ASYNC);
+    assertTrue(interceptor.preHandle(request, response, new Object()));
+    assertEquals(1, adaptive.inFlight());
+    interceptor.afterCompletion(request, response, new Object(), null);
+
+    assertEquals(0, adaptive.inFlight());
+    assertEquals(200, response.getStatus());
+  }
+
+  @Test
+  void testAfterCompletion_HandlerFailure_LowersLimit() throws IOException {
+    AdaptiveConcurrencyRateLimiter adaptive = new AdaptiveConcurrencyRateLimiter(10, 1, 10, 10);
+    interceptor = new RateLimiterInterceptor(adaptive, clientKeyStrategy);
+
+    assertTrue(interceptor.preHandle(request, response, new Object()));
+    interceptor.afterCompletion(request, response, new Object(), new IllegalStateException());
+
+    assertEquals(9, adaptive.limit());
+  }
+
+  @Test
+  void testAfterCompletion_RateLimiterWithoutCompletion_IsIgnored() throws IOException {
+    when(rateLimiter.tryAcquire("client1")).thenReturn(RateLimitDecision.allow(4, 10));
+
+    assertTrue(interceptor.preHandle(request, response, new Object()));
+    interceptor.afterCompletion(request, response, new Object(), null);
+
+    verify(rateLimiter).tryAcquire("client1");
+  }
+
+  @Test
+  void testPreHandle_Queueing_ShouldRejectInsteadOfParking() throws IOException {
+    interceptor = new RateLimiterInterceptor(
+        new LeakyBucketRateLimiter(1, Duration.ofSeconds(10), 5), clientKeyStrategy);
+    request.setAsyncSupported(true);
+
+    assertTrue(interceptor.preHandle(request, response, new Object()));
+    MockHttpServletResponse delayed = new MockHttpServletResponse();
+    assertFalse(interceptor.preHandle(request, delayed, new Object()));
+
+    assertFalse(request.isAsyncStarted());
+    assertEquals(429, delayed.getStatus());
+  }
+}
@@ -0,0 +1,221 @@
+package com.zemnitskiy.httpratelimiter.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import com.google.common.testing.FakeTicker;
+import com.zemnitskiy.httpratelimiter.clientkey.IpClientKey;
+import com.zemnitskiy.httpratelimiter.ratelimiter.concurrency.AdaptiveConcurrencyRateLimiter;
+import com.zemnitskiy.httpratelimiter.ratelimiter.leakybucket.LeakyBucketRateLimiter;
+import com.zemnitskiy.httpratelimiter.storage.LongStateStoreFactory;
+import com.zemnitskiy.httpratelimiter.strategy.AsyncRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.BinaryKeyRateLimiterStrategy;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimitDecision;
+import com.zemnitskiy.httpratelimiter.strategy.RateLimiterStrategy;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimiterWebFilterTest {
+
+  @Mock
+  private BinaryKeyRateLimiterStrategy rateLimiter;
+
+  @Mock
+  private RateLimiterStrategy stringKeyRateLimiter;
+
+  @Mock
+  private AsyncRateLimiterStrategy asyncRateLimiter;
+
+  private final AtomicBoolean chainCalled = new AtomicBoolean();
+
+  private final WebFilterChain chain = _ -> {
+    chainCalled.set(true);
+    return Mono.empty();
+  };
+
+  private static MockServerWebExchange exchange(String forwardedFor) {
+    return MockServerWebExchange.from(
+        MockServerHttpRequest.get("/test").header("X-Forwarded-For", forwardedFor));
+  }
+
+  @Test
+  void testFilter_Allowed_ShouldContinueChain() {
+    RateLimiterWebFilter filter = new RateLimiterWebFilter(rateLimiter, new IpClientKey());
+    MockServerWebExchange exchange = exchange("2001:db8::1");
+    when(rateLimiter.tryAcquire(0x2001_0DB8_0000_0000L, 1))
+        .thenReturn(RateLimitDecision.allow(4, 10));
+
+    filter.filter(exchange, chain).block();
+
+    assertTrue(chainCalled.get());
+    assertNull(exchange.getResponse().getStatusCode());
+  }
+
+  @Test
+  void testFilter_Denied_ShouldWriteTooManyRequests() {
+    RateLimiterWebFilter filter = new RateLimiterWebFilter(rateLimiter, new IpClientKey());
+    MockServerWebExchange exchange = exchange("10.0.0.1, 10.0.0.2");
+    when(rateLimiter.tryAcquire(0, 0xFFFF_0A00_0001L)).thenReturn(RateLimitDecision.deny(7, 10));
+
+    filter.filter(exchange, chain).block();
+
+    assertFalse(chainCalled.get(), "A rejected request should not reach the rest of the chain.");
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS, exchange.getResponse().getStatusCode());
+    assertEquals("7", exchange.getResponse().getHeaders().getFirst("Retry-After"));
+    assertEquals("Too many requests", exchange.getResponse().getBodyAsString().block());
+  }
+
+  @Test
+  void testFilter_Denied_ShouldWriteMessageOfRateLimiter() {
+    when(rateLimiter.rejectionMessage()).thenReturn("Too many requests. You have only 5 requests");
+    RateLimiterWebFilter filter = new RateLimiterWebFilter(rateLimiter, new IpClientKey());
+    MockServerWebExchange exchange = exchange("10.0.0.1");
+    when(rateLimiter.tryAcquire(0, 0xFFFF_0A00_0001L)).thenReturn(RateLimitDecision.deny(7, 10));
+
+    filter.filter(exchange, chain).block();
+
+    assertEquals("Too many requests. You have only 5 requests",
+        exchange.getResponse().getBodyAsString().block());
+  }
+
+  @Test
+  void testFilter_StringKeyRateLimiter_ShouldUseStringKey() {
+    RateLimiterWebFilter filter =
+        new RateLimiterWebFilter(stringKeyRateLimiter, new IpClientKey());
+    MockServerWebExchange exchange = exchange(" 10.0.0.1 ");
+    when(stringKeyRateLimiter.tryAcquire("10.0.0.1")).thenReturn(RateLimitDecision.deny(3, 10));
+
+    filter.filter(exchange, chain).block();
+
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS, exchange.getResponse().getStatusCode());
+  }
+
+  @Test
+  void testFilter_BlockingRateLimiter_ShouldDecideOffTheCallingThread() {
+    when(stringKeyRateLimiter.isBlocking()).thenReturn(true);
+    RateLimiterWebFilter filter =
+        new RateLimiterWebFilter(stringKeyRateLimiter, new IpClientKey());
+    AtomicReference<Thread> decidedOn = new AtomicReference<>();
+    when(stringKeyRateLimiter.tryAcquire("10.0.0.1")).thenAnswer(_ -> {
+      decidedOn.set(Thread.currentThread());
+      return RateLimitDecision.allow(4, 10);
+    });
+
+    filter.filter(exchange("10.0.0.1"), chain).block();
+
+    assertTrue(chainCalled.get());
+    assertNotSame(Thread.currentThread(), decidedOn.get());
+    assertTrue(decidedOn.get().getName().startsWith("boundedElastic"));
+  }
+
+  @Test
+  void testFilter_NonBlockingRateLimiter_ShouldDecideOnTheCallingThread() {
+    RateLimiterWebFilter filter =
+        new RateLimiterWebFilter(stringKeyRateLimiter, new IpClientKey());
+    AtomicReference<Thread> decidedOn = new AtomicReference<>();
+    when(stringKeyRateLimiter.tryAcquire("10.0.0.1")).thenAnswer(_ -> {
+      decidedOn.set(Thread.currentThread());
+      return RateLimitDecision.allow(4, 10);
+    });
+
+    filter.filter(exchange("10.0.0.1"), chain).block();
+
+    assertTrue(chainCalled.get());
+    assertSame(Thread.currentThread(), decidedOn.get());
+  }
+
+  @Test
+  void testFilter_AsyncRateLimiter_ShouldNotBlock() {
+    RateLimiterWebFilter filter = new RateLimiterWebFilter(asyncRateLimiter, new IpClientKey());
+    CompletableFuture<RateLimitDecision> decision = new CompletableFuture<>();
+    when(asyncRateLimiter.tryAcquireAsync("10.0.0.1")).thenReturn(decision);
+
+    Mono<Void> result = filter.filter(exchange("10.0.0.1"), chain);
+    decision.complete(RateLimitDecision.allow());
+    result.block();
+
+    assertTrue(chainCalled.get());
+  }
+
+  @Test
+  void testFilter_AsyncRateLimiter_Denied_ShouldWriteTooManyRequests() {
+    RateLimiterWebFilter filter = new RateLimiterWebFilter(asyncRateLimiter, new IpClientKey());
+    MockServerWebExchange exchange = exchange("10.0.0.1");
+    when(asyncRateLimiter.tryAcquireAsync("10.0.0.1"))
+        .thenReturn(CompletableFuture.completedFuture(RateLimitDecision.deny(5, 10)));
+
+    filter.filter(exchange, chain).block();
+
+    assertFalse(chainCalled.get());
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS, exchange.getResponse().getStatusCode());
+    assertEquals("5", exchange.getResponse().getHeaders().getFirst("Retry-After"));
+  }
+
+  @Test
+  void testFilter_CompletionAware_ReleasesRequestWhenChainCompletes() {
+    AdaptiveConcurrencyRateLimiter adaptive = new AdaptiveConcurrencyRateLimiter(10, 1, 10, 10);
+    RateLimiterWebFilter filter = new RateLimiterWebFilter(adaptive, new IpClientKey());
+
+    Mono<Void> handled = filter.filter(exchange("10.0.0.1"), chain);
+    assertEquals(1, adaptive.inFlight());
+    handled.block();
+
+    assertTrue(chainCalled.get());
+    assertEquals(0, adaptive.inFlight());
+    assertEquals(10, adaptive.limit());
+  }
+
+  @Test
+  void testFilter_CompletionAware_ServerError_LowersLimit() {
+    AdaptiveConcurrencyRateLimiter adaptive = new AdaptiveConcurrencyRateLimiter(10, 1, 10, 10);
+    RateLimiterWebFilter filter = new RateLimiterWebFilter(adaptive, new IpClientKey());
+    MockServerWebExchange exchange = exchange("10.0.0.1");
+
+    filter.filter(exchange, failing -> {
+      failing.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+      return Mono.empty();
+    }).block();
+
+    assertEquals(0, adaptive.inFlight());
+    assertEquals(9, adaptive.limit());
+  }
+
+  @Test
+  void testFilter_Queueing_ShouldDelayChainUntilItsTurn() {
+    // One request every 200 milliseconds, with room for one waiting request
+    RateLimiterWebFilter filter = new RateLimiterWebFilter(new LeakyBucketRateLimiter(5,
+        Duration.ofSeconds(1), 1, new FakeTicker()::read, LongStateStoreFactory.CAFFEINE),
+        new IpClientKey());
+    filter.filter(exchange("10.0.0.1"), chain).block();
+    assertTrue(chainCalled.getAndSet(false));
+
+    long start = System.nanoTime();
+    Mono<Void> delayed = filter.filter(exchange("10.0.0.1"), chain);
+    MockServerWebExchange overflow = exchange("10.0.0.1");
+    filter.filter(overflow, chain).block();
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS, overflow.getResponse().getStatusCode());
+    assertFalse(chainCalled.get());
+
+    delayed.block();
+
+    assertTrue(chainCalled.get());
+    assertTrue(System.nanoTime() - start >= 200_000_000);
+  }
+}